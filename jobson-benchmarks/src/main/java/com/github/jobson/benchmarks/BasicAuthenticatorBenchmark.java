@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks;
+
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.auth.basic.BasicAuthenticator;
+import com.github.jobson.dao.users.FilesystemUserDAO;
+import com.github.jobson.dao.users.UserCredentials;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.basic.BasicCredentials;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.jobson.Constants.BASIC_AUTH_NAME;
+
+/**
+ * Measures authenticating a HTTP request with basic auth, which happens
+ * on every API call when basic auth is enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BasicAuthenticatorBenchmark {
+
+    @Param({"10", "1000"})
+    public int numUsers;
+
+
+    private Path usersFile;
+    private BasicAuthenticator authenticator;
+    private BasicCredentials correctCredentials;
+    private BasicCredentials incorrectCredentials;
+
+
+    @Setup
+    public void setup() throws Exception {
+        final BenchmarkFixtures fixtures = new BenchmarkFixtures();
+
+        final List<String> lines = new ArrayList<>();
+        String lastUsername = null;
+        String lastPassword = null;
+        for (int i = 0; i < numUsers; i++) {
+            lastUsername = fixtures.getFaker().name().username() + i;
+            lastPassword = fixtures.getFaker().internet().password();
+            final UserCredentials credentials = new UserCredentials(
+                    new UserId(lastUsername),
+                    BASIC_AUTH_NAME,
+                    BasicAuthenticator.createAuthField(lastPassword));
+            lines.add(credentials.toUserFileLine());
+        }
+
+        this.usersFile = Files.createTempFile(BasicAuthenticatorBenchmark.class.getSimpleName(), ".txt");
+        Files.write(usersFile, lines);
+
+        this.authenticator = new BasicAuthenticator(new FilesystemUserDAO(usersFile.toFile()));
+
+        // The last user, so that lookups have to scan the whole users file
+        this.correctCredentials = new BasicCredentials(lastUsername, lastPassword);
+        this.incorrectCredentials = new BasicCredentials(lastUsername, lastPassword + "-wrong");
+
+        if (!authenticator.authenticate(correctCredentials).isPresent())
+            throw new IllegalStateException(lastUsername + ": could not authenticate generated user");
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        Files.deleteIfExists(usersFile);
+    }
+
+    @Benchmark
+    public Optional<Principal> authenticateWithCorrectPassword() throws AuthenticationException {
+        return authenticator.authenticate(correctCredentials);
+    }
+
+    @Benchmark
+    public Optional<Principal> authenticateWithIncorrectPassword() throws AuthenticationException {
+        return authenticator.authenticate(incorrectCredentials);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.javafaker.Faker;
+import com.github.jobson.api.v1.APIJobRequest;
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.jobinputs.JobExpectedInput;
+import com.github.jobson.jobinputs.JobExpectedInputId;
+import com.github.jobson.jobinputs.JobInput;
+import com.github.jobson.jobinputs.file.FileInput;
+import com.github.jobson.jobinputs.filearray.FileArrayInput;
+import com.github.jobson.jobinputs.sql.ColumnSchema;
+import com.github.jobson.jobinputs.sql.SQLExpectedInput;
+import com.github.jobson.jobinputs.sql.SQLInput;
+import com.github.jobson.jobinputs.sql.TableSchema;
+import com.github.jobson.jobinputs.stringarray.StringArrayInput;
+import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import com.github.jobson.specs.ExecutionConfiguration;
+import com.github.jobson.specs.JobSpec;
+import com.github.jobson.specs.JobSpecId;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static com.github.jobson.Helpers.*;
+import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Generates the specs, requests, etc. that the benchmarks run against.
+ *
+ * Generation is seeded, so that each benchmark run measures the same data.
+ */
+public final class BenchmarkFixtures {
+
+    private static final long SEED = 1337;
+
+    /**
+     * The input types (as written in a spec's "type" field) that can
+     * be generated.
+     */
+    public static final String[] INPUT_TYPES = new String[] {
+            "string", "string[]", "select", "sql", "int", "long", "float", "double", "file", "file[]"
+    };
+
+
+    private final Faker faker = new Faker(new Random(SEED));
+    private final Random rng = new Random(SEED);
+
+
+    public Faker getFaker() {
+        return faker;
+    }
+
+    public UserId generateUserId() {
+        return new UserId(faker.name().username());
+    }
+
+    public String generateJobName() {
+        return faker.lorem().sentence(5);
+    }
+
+    /**
+     * @param type       A spec input type (see INPUT_TYPES).
+     * @param arrayLen   Number of elements to generate in array-like inputs.
+     */
+    public JobExpectedInput<?> generateExpectedInput(String type, int arrayLen) throws IOException {
+        if (type.equals("sql"))
+            return generateSQLExpectedInput(4, arrayLen);
+
+        final StringBuilder yaml = new StringBuilder()
+                .append("id: ").append(generateIdentifier()).append("\n")
+                .append("type: \"").append(type).append("\"\n")
+                .append("name: ").append(faker.lorem().sentence(3)).append("\n")
+                .append("description: ").append(faker.lorem().sentence(8)).append("\n");
+
+        if (type.equals("select")) {
+            yaml.append("options:\n");
+            for (int i = 0; i < arrayLen; i++)
+                yaml.append(format("- id: %s\n  name: %s\n", generateIdentifier(), faker.lorem().word()));
+        }
+
+        return readYAML(yaml.toString(), JobExpectedInput.class);
+    }
+
+    public SQLExpectedInput generateSQLExpectedInput(int numTables, int numColumnsPerTable) {
+        final List<TableSchema> tables =
+                Stream.generate(() -> generateTableSchema(numColumnsPerTable))
+                        .limit(numTables)
+                        .collect(toList());
+
+        return new SQLExpectedInput(
+                new JobExpectedInputId(generateIdentifier()),
+                faker.lorem().sentence(3),
+                faker.lorem().sentence(8),
+                tables);
+    }
+
+    private TableSchema generateTableSchema(int numColumns) {
+        final List<ColumnSchema> columns =
+                Stream.generate(() -> new ColumnSchema(
+                        generateIdentifier(),
+                        faker.lorem().word(),
+                        faker.lorem().sentence(4),
+                        "string"))
+                        .limit(numColumns)
+                        .collect(toList());
+
+        return new TableSchema(generateIdentifier(), faker.lorem().word(), faker.lorem().sentence(4), columns);
+    }
+
+    /**
+     * @return A query that selects a random subset of one table's columns.
+     */
+    public SQLInput generateSQLInput(SQLExpectedInput expectedInput) {
+        final TableSchema table = randomElementIn(expectedInput.getTables());
+        final List<String> columns = table.getColumns().stream()
+                .map(ColumnSchema::getId)
+                .filter(c -> rng.nextBoolean())
+                .collect(toList());
+        final String cols = columns.isEmpty() ? "*" : String.join(", ", columns);
+        final String where = table.getColumns().get(0).getId() + " = '" + faker.lorem().word() + "'";
+
+        return new SQLInput(format("select %s from %s where %s;", cols, table.getId(), where));
+    }
+
+    public JobInput generateInput(JobExpectedInput<?> expectedInput, int arrayLen) {
+        if (expectedInput instanceof SQLExpectedInput) {
+            return generateSQLInput((SQLExpectedInput)expectedInput);
+        }
+
+        final JobInput example = expectedInput.generateExampleInput();
+
+        if (example instanceof StringArrayInput) {
+            return new StringArrayInput(
+                    Stream.generate(() -> faker.lorem().word()).limit(arrayLen).collect(toList()));
+        } else if (example instanceof FileArrayInput) {
+            return new FileArrayInput(
+                    Stream.generate(this::generateFileInput).limit(arrayLen).collect(toList()));
+        } else {
+            return example;
+        }
+    }
+
+    private FileInput generateFileInput() {
+        return new FileInput(faker.file().fileName(), faker.lorem().paragraph().getBytes());
+    }
+
+    /**
+     * @return A spec containing one of each type in inputTypes.
+     */
+    public JobSpec generateSpec(List<String> inputTypes, int arrayLen) throws IOException {
+        final List<JobExpectedInput<?>> expectedInputs = new ArrayList<>();
+        for (String inputType : inputTypes)
+            expectedInputs.add(generateExpectedInput(inputType, arrayLen));
+
+        return new JobSpec(
+                new JobSpecId(generateIdentifier()),
+                faker.lorem().sentence(3),
+                faker.lorem().paragraph(),
+                expectedInputs,
+                new ExecutionConfiguration("echo", Optional.empty(), Optional.empty()));
+    }
+
+    public JobSpec generateSpec(String inputType, int arrayLen) throws IOException {
+        return generateSpec(singletonList(inputType), arrayLen);
+    }
+
+    public Map<JobExpectedInputId, JobInput> generateInputs(JobSpec spec, int arrayLen) {
+        final Map<JobExpectedInputId, JobInput> ret = new HashMap<>();
+        for (JobExpectedInput<?> expectedInput : spec.getExpectedInputs())
+            ret.put(expectedInput.getId(), generateInput(expectedInput, arrayLen));
+        return ret;
+    }
+
+    public APIJobRequest generateAPIRequest(JobSpec spec, int arrayLen) {
+        final Map<JobExpectedInputId, JsonNode> inputs =
+                mapValues(generateInputs(spec, arrayLen), input -> toJSONNode(input));
+        return new APIJobRequest(spec.getId(), generateJobName(), inputs);
+    }
+
+    public ValidJobRequest generateValidRequest(JobSpec spec, int arrayLen) {
+        return new ValidJobRequest(generateUserId(), generateJobName(), generateInputs(spec, arrayLen), spec);
+    }
+
+    /**
+     * @return A template string containing each expression in exprs,
+     *         surrounded by plain text.
+     */
+    public String generateTemplateString(List<String> exprs) {
+        return exprs.stream()
+                .map(expr -> faker.lorem().word() + " ${" + expr + "} ")
+                .collect(joining("", "", faker.lorem().word()));
+    }
+
+    private String generateIdentifier() {
+        return faker.lorem().word() + "_" + Integer.toString(rng.nextInt(Integer.MAX_VALUE), 36);
+    }
+}
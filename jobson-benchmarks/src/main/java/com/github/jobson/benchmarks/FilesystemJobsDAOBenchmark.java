@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks;
+
+import com.github.jobson.dao.TimeOrderedIdGenerator;
+import com.github.jobson.dao.jobs.FilesystemJobsDAO;
+import com.github.jobson.dao.jobs.JobDetails;
+import com.github.jobson.dao.jobs.JobsDirectoryLayout;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.JobStatus;
+import com.github.jobson.specs.JobSpec;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.jobson.dao.TimeOrderedIdGenerator.generateRandomNodeId;
+
+/**
+ * Measures the filesystem jobs DAO against a jobs directory that already
+ * contains many jobs.
+ *
+ * The jobs are persisted through the DAO during setup, which can take
+ * a few minutes for the larger job counts.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilesystemJobsDAOBenchmark {
+
+    @Param({"10000", "100000"})
+    public int numJobs;
+
+    @Param({"FLAT", "SHARDED"})
+    public JobsDirectoryLayout layout;
+
+
+    private Path jobsDir;
+    private FilesystemJobsDAO dao;
+    private JobId[] jobIds;
+    private int nextJobIdx = 0;
+    private String query;
+
+
+    @Setup
+    public void setup() throws Exception {
+        final BenchmarkFixtures fixtures = new BenchmarkFixtures();
+
+        this.jobsDir = Files.createTempDirectory(FilesystemJobsDAOBenchmark.class.getSimpleName());
+        this.dao = new FilesystemJobsDAO(jobsDir, new TimeOrderedIdGenerator(generateRandomNodeId()), false, layout);
+
+        final JobSpec spec = fixtures.generateSpec("string", 1);
+        this.jobIds = new JobId[numJobs];
+        for (int i = 0; i < numJobs; i++)
+            jobIds[i] = dao.persist(fixtures.generateValidRequest(spec, 1)).getId();
+
+        this.query = fixtures.getFaker().lorem().word();
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        FileUtils.deleteDirectory(jobsDir.toFile());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<JobDetails> getFirstPageOfJobs() {
+        return dao.getJobs(20, 0);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<JobDetails> getFirstPageOfJobsMatchingQuery() {
+        return dao.getJobs(20, 0, query);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void addNewJobStatus() {
+        // Cycled, so that no single job's status history grows large
+        final JobId id = jobIds[nextJobIdx];
+        nextJobIdx = (nextJobIdx + 1) % jobIds.length;
+        dao.addNewJobStatus(id, JobStatus.RUNNING, "Running");
+    }
+}
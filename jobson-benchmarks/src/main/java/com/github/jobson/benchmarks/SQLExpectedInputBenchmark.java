@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks;
+
+import com.github.jobson.jobinputs.sql.SQLExpectedInput;
+import com.github.jobson.jobinputs.sql.SQLInput;
+import com.github.jobson.utils.ValidationError;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validating a client-supplied SQL query against the tables
+ * declared in a spec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SQLExpectedInputBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int numTables;
+
+    @Param({"5", "50"})
+    public int numColumnsPerTable;
+
+
+    private SQLExpectedInput expectedInput;
+    private SQLInput validQuery;
+    private SQLInput queryWithUnknownColumn;
+
+
+    @Setup
+    public void setup() {
+        final BenchmarkFixtures fixtures = new BenchmarkFixtures();
+        this.expectedInput = fixtures.generateSQLExpectedInput(numTables, numColumnsPerTable);
+        this.validQuery = fixtures.generateSQLInput(expectedInput);
+        this.queryWithUnknownColumn = new SQLInput(
+                "select doesnotexist from " + expectedInput.getTables().get(0).getId() + ";");
+
+        if (expectedInput.validate(validQuery).isPresent())
+            throw new IllegalStateException(validQuery.getValue() + ": generated query is invalid");
+    }
+
+    @Benchmark
+    public Optional<List<ValidationError>> validateValidQuery() {
+        return expectedInput.validate(validQuery);
+    }
+
+    @Benchmark
+    public Optional<List<ValidationError>> validateInvalidQuery() {
+        return expectedInput.validate(queryWithUnknownColumn);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks;
+
+import com.github.jobson.Helpers;
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures copying a subprocess's stdout into the observable that
+ * websockets and the jobs DAO read from.
+ *
+ * Each operation streams payloadSizeInBytes, so throughput in bytes/s is
+ * (ops/s * payloadSizeInBytes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamIntoBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int payloadSizeInBytes;
+
+
+    private byte[] payload;
+
+
+    @Setup
+    public void setup() {
+        final BenchmarkFixtures fixtures = new BenchmarkFixtures();
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < payloadSizeInBytes)
+            text.append(fixtures.getFaker().lorem().paragraph()).append("\n");
+
+        this.payload = text.substring(0, payloadSizeInBytes).getBytes();
+    }
+
+    @Benchmark
+    public void streamInto(Blackhole blackhole) throws IOException {
+        Helpers.streamInto(new ByteArrayInputStream(payload), new Observer<byte[]>() {
+            @Override
+            public void onSubscribe(Disposable disposable) {}
+
+            @Override
+            public void onNext(byte[] bytes) {
+                blackhole.consume(bytes);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                blackhole.consume(throwable);
+            }
+
+            @Override
+            public void onComplete() {}
+        });
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks;
+
+import com.github.jobson.jobinputs.JobExpectedInputId;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.jobstates.PersistedJob;
+import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import com.github.jobson.scripting.TemplateStringEvaluator;
+import com.github.jobson.scripting.functions.JoinFunction;
+import com.github.jobson.scripting.functions.ToJSONFunction;
+import com.github.jobson.scripting.functions.ToStringFunction;
+import com.github.jobson.specs.JobSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.jobson.Helpers.mapKeys;
+import static java.util.Collections.nCopies;
+
+/**
+ * Measures evaluating a spec argument (e.g. `--name=${request.name}`),
+ * which happens for every argument of every job that is launched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateStringEvaluatorBenchmark {
+
+    @Param({"0", "1", "8"})
+    public int numExpressions;
+
+
+    private Map<String, Object> environment;
+    private String templateString;
+
+
+    @Setup
+    public void setup() throws Exception {
+        final BenchmarkFixtures fixtures = new BenchmarkFixtures();
+        final JobSpec spec = fixtures.generateSpec(Arrays.asList("string", "string[]"), 16);
+        final ValidJobRequest request = fixtures.generateValidRequest(spec, 16);
+        final PersistedJob persistedJob =
+                PersistedJob.createFromValidRequest(request, new JobId(fixtures.getFaker().internet().uuid()));
+
+        final String stringInputId = spec.getExpectedInputs().get(0).getId().toString();
+        final String arrayInputId = spec.getExpectedInputs().get(1).getId().toString();
+
+        this.environment = new HashMap<>();
+        this.environment.put("toJSON", new ToJSONFunction());
+        this.environment.put("join", new JoinFunction());
+        this.environment.put("toString", new ToStringFunction());
+        this.environment.put("request", persistedJob);
+        this.environment.put("inputs", mapKeys(persistedJob.getInputs(), JobExpectedInputId::toString));
+        this.environment.put("outputDir", "/tmp");
+
+        final String[] exprs = new String[] {
+                "request.id",
+                "inputs[\"" + stringInputId + "\"]",
+                "join(\",\", inputs[\"" + arrayInputId + "\"])",
+                "toJSON(request)",
+        };
+
+        final String[] chosenExprs = new String[numExpressions];
+        for (int i = 0; i < numExpressions; i++)
+            chosenExprs[i] = exprs[i % exprs.length];
+
+        this.templateString = numExpressions == 0 ?
+                String.join(" ", nCopies(8, fixtures.getFaker().lorem().word())) :
+                fixtures.generateTemplateString(Arrays.asList(chosenExprs));
+    }
+
+    @Benchmark
+    public String evaluate() {
+        return TemplateStringEvaluator.evaluate(templateString, environment);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks;
+
+import com.github.jobson.api.v1.APIJobRequest;
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import com.github.jobson.specs.JobSpec;
+import com.github.jobson.utils.Either;
+import com.github.jobson.utils.ValidationError;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving + validating a client's job request against a spec,
+ * which happens on every job submission.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidJobRequestBenchmark {
+
+    @Param({"string", "string[]", "select", "sql", "int", "long", "float", "double", "file", "file[]"})
+    public String inputType;
+
+    @Param({"1", "100"})
+    public int arrayLen;
+
+
+    private JobSpec spec;
+    private UserId userId;
+    private APIJobRequest request;
+
+
+    @Setup
+    public void setup() throws Exception {
+        final BenchmarkFixtures fixtures = new BenchmarkFixtures();
+        this.spec = fixtures.generateSpec(inputType, arrayLen);
+        this.userId = fixtures.generateUserId();
+        this.request = fixtures.generateAPIRequest(spec, arrayLen);
+
+        ValidJobRequest.tryCreate(spec, userId, request).ifRhsHasValue(errors -> {
+            throw new IllegalStateException(inputType + ": generated request is invalid: " + errors);
+        });
+    }
+
+    @Benchmark
+    public Either<ValidJobRequest, List<ValidationError>> tryCreate() {
+        return ValidJobRequest.tryCreate(spec, userId, request);
+    }
+}
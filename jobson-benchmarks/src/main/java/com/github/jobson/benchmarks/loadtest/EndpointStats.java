@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks.loadtest;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+
+import java.util.concurrent.Callable;
+
+import static java.lang.String.format;
+
+/**
+ * Latencies and error counts of calls made to one endpoint during a
+ * load test.
+ */
+public final class EndpointStats {
+
+    // Uniform (rather than the Timer default, which favours recent
+    // samples) because the report covers the whole run.
+    private static final int LATENCY_SAMPLE_SIZE = 100_000;
+
+
+    public static String reportHeader() {
+        return format("%-40s %10s %8s %10s %10s %10s", "endpoint", "calls", "errors", "calls/s", "p50 (ms)", "p99 (ms)");
+    }
+
+
+    private final String name;
+    private final Timer latencies = new Timer(new UniformReservoir(LATENCY_SAMPLE_SIZE));
+    private final Counter errors = new Counter();
+
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+
+    /**
+     * Times call. Exceptions thrown by call are counted as errors and
+     * are not rethrown.
+     */
+    public <T> T record(Callable<T> call) {
+        final Timer.Context ctx = latencies.time();
+        try {
+            final T ret = call.call();
+            ctx.stop();
+            return ret;
+        } catch (Exception ex) {
+            errors.inc();
+            return null;
+        }
+    }
+
+    public void recordError() {
+        errors.inc();
+    }
+
+    public String report(long elapsedMillis) {
+        final Snapshot snapshot = latencies.getSnapshot();
+        final double callsPerSecond = latencies.getCount() / (elapsedMillis / 1000.0);
+
+        return format(
+                "%-40s %10d %8d %10.1f %10.2f %10.2f",
+                name,
+                latencies.getCount(),
+                errors.getCount(),
+                callsPerSecond,
+                snapshot.getMedian() / 1_000_000.0,
+                snapshot.get99thPercentile() / 1_000_000.0);
+    }
+}
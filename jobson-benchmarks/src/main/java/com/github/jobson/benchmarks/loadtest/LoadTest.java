@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks.loadtest;
+
+import com.github.jobson.App;
+import com.github.jobson.api.v1.APIJobCreatedResponse;
+import com.github.jobson.api.v1.APIJobRequest;
+import com.github.jobson.config.ApplicationConfig;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.specs.JobSpecId;
+import io.dropwizard.testing.DropwizardTestSupport;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.jobson.Constants.HTTP_JOBS_PATH;
+import static com.github.jobson.Helpers.readJSON;
+import static com.github.jobson.Helpers.toJSON;
+import static com.github.jobson.commands.generators.GenerateRequestCommand.generateRequest;
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Boots jobson against a generated workspace and drives a synthetic
+ * workload at it: job submissions at a fixed rate, clients tailing the
+ * stdout of recently-submitted jobs over websockets, and clients
+ * repeatedly listing jobs. Reports throughput and latency per endpoint.
+ */
+public final class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        final ArgumentParser parser = ArgumentParsers.newFor("loadtest").build()
+                .defaultHelp(true)
+                .description("Load test a jobson server with a synthetic workload");
+
+        parser.addArgument("--duration").type(Integer.class).setDefault(60)
+                .help("How long to apply load for, in seconds");
+        parser.addArgument("--submit-rate").dest("submitRate").type(Double.class).setDefault(10.0)
+                .help("Jobs submitted per second");
+        parser.addArgument("--tail-clients").dest("tailClients").type(Integer.class).setDefault(10)
+                .help("Number of concurrent websocket clients tailing job stdout");
+        parser.addArgument("--listing-clients").dest("listingClients").type(Integer.class).setDefault(2)
+                .help("Number of concurrent clients repeatedly listing jobs");
+        parser.addArgument("--specs").type(Integer.class).setDefault(10)
+                .help("Number of specs to generate in the workspace");
+        parser.addArgument("--max-concurrent-jobs").dest("maxConcurrentJobs").type(Integer.class).setDefault(10)
+                .help("execution.maxConcurrentJobs of the server");
+
+        final Namespace namespace;
+        try {
+            namespace = parser.parseArgs(args);
+        } catch (ArgumentParserException ex) {
+            parser.handleError(ex);
+            System.exit(1);
+            return;
+        }
+
+        try (LoadTestWorkspace workspace = LoadTestWorkspace.create(namespace.getInt("specs"), namespace.getInt("maxConcurrentJobs"))) {
+            final DropwizardTestSupport<ApplicationConfig> app =
+                    new DropwizardTestSupport<>(App.class, workspace.getConfigPath().toString());
+
+            app.before();
+            try {
+                final LoadTest loadTest = new LoadTest(
+                        workspace,
+                        "localhost:" + app.getLocalPort(),
+                        namespace.getDouble("submitRate"),
+                        namespace.getInt("tailClients"),
+                        namespace.getInt("listingClients"));
+
+                loadTest.run(namespace.getInt("duration"));
+            } finally {
+                app.after();
+            }
+        }
+
+        System.exit(0);
+    }
+
+
+    private final LoadTestWorkspace workspace;
+    private final String hostAndPort;
+    private final double submitRate;
+    private final int numTailClients;
+    private final int numListingClients;
+
+    private final Client httpClient = ClientBuilder.newClient();
+    private final AtomicReference<JobId> latestJobId = new AtomicReference<>();
+    private final AtomicInteger submissionCount = new AtomicInteger();
+    private final AtomicLong stdoutBytesReceived = new AtomicLong();
+
+    private final EndpointStats submitStats = new EndpointStats("POST " + HTTP_JOBS_PATH);
+    private final EndpointStats listingStats = new EndpointStats("GET " + HTTP_JOBS_PATH);
+    private final EndpointStats tailStats = new EndpointStats("WS " + HTTP_JOBS_PATH + "/{id}/stdout/updates");
+
+
+    public LoadTest(
+            LoadTestWorkspace workspace,
+            String hostAndPort,
+            double submitRate,
+            int numTailClients,
+            int numListingClients) {
+
+        this.workspace = workspace;
+        this.hostAndPort = hostAndPort;
+        this.submitRate = submitRate;
+        this.numTailClients = numTailClients;
+        this.numListingClients = numListingClients;
+    }
+
+
+    public void run(int durationInSeconds) throws Exception {
+        final long startMillis = System.currentTimeMillis();
+        final long deadlineNanos = System.nanoTime() + SECONDS.toNanos(durationInSeconds);
+
+        final WebSocketClient webSocketClient = new WebSocketClient();
+        webSocketClient.start();
+
+        // Submissions are open-loop (a slow server does not slow down the
+        // submission rate), so they are dispatched onto their own pool.
+        final ScheduledExecutorService submitScheduler = Executors.newSingleThreadScheduledExecutor();
+        final ExecutorService submitPool = Executors.newCachedThreadPool();
+        final long submitPeriodNanos = (long)(SECONDS.toNanos(1) / submitRate);
+        submitScheduler.scheduleAtFixedRate(
+                () -> submitPool.execute(this::submitJob), 0, submitPeriodNanos, NANOSECONDS);
+
+        final List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < numListingClients; i++)
+            clients.add(new Thread(() -> runListingClient(deadlineNanos)));
+        for (int i = 0; i < numTailClients; i++)
+            clients.add(new Thread(() -> runTailClient(webSocketClient, deadlineNanos)));
+
+        clients.forEach(Thread::start);
+        for (Thread client : clients)
+            client.join();
+
+        submitScheduler.shutdownNow();
+        submitPool.shutdown();
+        submitPool.awaitTermination(30, SECONDS);
+        webSocketClient.stop();
+        httpClient.close();
+
+        final long elapsedMillis = System.currentTimeMillis() - startMillis;
+        System.out.println(EndpointStats.reportHeader());
+        System.out.println(submitStats.report(elapsedMillis));
+        System.out.println(listingStats.report(elapsedMillis));
+        System.out.println(tailStats.report(elapsedMillis));
+        System.out.println("stdout bytes received by tail clients: " + stdoutBytesReceived.get());
+    }
+
+    private void submitJob() {
+        final List<JobSpecId> specIds = workspace.getSpecIds();
+        final JobSpecId specId = specIds.get(submissionCount.getAndIncrement() % specIds.size());
+        final APIJobRequest request = generateRequest(specId, workspace.getSpec());
+
+        final APIJobCreatedResponse resp = submitStats.record(() -> {
+            final Response httpResp = httpClient
+                    .target("http://" + hostAndPort + HTTP_JOBS_PATH)
+                    .request()
+                    .post(Entity.json(toJSON(request)));
+            return readJSON(readEntityOrThrow(httpResp), APIJobCreatedResponse.class);
+        });
+
+        if (resp != null) latestJobId.set(resp.getId());
+    }
+
+    private void runListingClient(long deadlineNanos) {
+        while (System.nanoTime() < deadlineNanos) {
+            listingStats.record(() -> {
+                final Response httpResp = httpClient
+                        .target("http://" + hostAndPort + HTTP_JOBS_PATH)
+                        .request()
+                        .get();
+                return readEntityOrThrow(httpResp);
+            });
+        }
+    }
+
+    private void runTailClient(WebSocketClient webSocketClient, long deadlineNanos) {
+        while (System.nanoTime() < deadlineNanos) {
+            final JobId jobId = latestJobId.get();
+
+            if (jobId == null) {
+                sleepQuietly(50);
+                continue;
+            }
+
+            final URI uri = URI.create("ws://" + hostAndPort + HTTP_JOBS_PATH + "/" + jobId + "/stdout/updates");
+            final TailingSocket socket = new TailingSocket();
+
+            // Latency is measured to connection establishment: the
+            // stream itself lasts for as long as the job runs.
+            final Session session = tailStats.record(() -> webSocketClient.connect(socket, uri).get(10, SECONDS));
+
+            if (session == null) {
+                sleepQuietly(50);
+                continue;
+            }
+
+            try {
+                final long remainingMillis = NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                socket.closed.await(Math.max(remainingMillis, 0), MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    private static String readEntityOrThrow(Response response) throws IOException {
+        final String body = response.readEntity(String.class);
+        if (response.getStatus() >= 400)
+            throw new IOException(response.getStatus() + ": " + body);
+        return body;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private final class TailingSocket extends WebSocketAdapter {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void onWebSocketBinary(byte[] payload, int offset, int len) {
+            stdoutBytesReceived.addAndGet(len);
+        }
+
+        @Override
+        public void onWebSocketClose(int statusCode, String reason) {
+            super.onWebSocketClose(statusCode, reason);
+            closed.countDown();
+        }
+
+        @Override
+        public void onWebSocketError(Throwable cause) {
+            super.onWebSocketError(cause);
+            tailStats.recordError();
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.benchmarks.loadtest;
+
+import com.github.jobson.specs.JobSpec;
+import com.github.jobson.specs.JobSpecId;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.github.jobson.Constants.*;
+import static com.github.jobson.Helpers.loadResourceFileAsString;
+import static com.github.jobson.Helpers.readYAML;
+
+/**
+ * A temporary jobson workspace (config, users, specs, jobs, wds) that
+ * a load test boots the server against.
+ */
+public final class LoadTestWorkspace implements AutoCloseable {
+
+    /**
+     * Creates a workspace containing numSpecs copies of the spec that
+     * `jobson generate spec` writes.
+     */
+    public static LoadTestWorkspace create(int numSpecs, int maxConcurrentJobs) throws IOException {
+        final Path root = Files.createTempDirectory(LoadTestWorkspace.class.getSimpleName());
+
+        final Path usersFile = root.resolve(WORKSPACE_USER_FILENAME);
+        Files.write(usersFile, new byte[0]);
+
+        final Path specsDir = Files.createDirectory(root.resolve(WORKSPACE_SPECS_DIRNAME));
+        final String specTemplate = loadResourceFileAsString("spec-template.yml");
+        final List<JobSpecId> specIds = new ArrayList<>();
+        for (int i = 0; i < numSpecs; i++) {
+            final JobSpecId specId = new JobSpecId("loadtest-spec-" + i);
+            final Path specDir = Files.createDirectory(specsDir.resolve(specId.toString()));
+            Files.write(specDir.resolve(SPEC_DIR_SPEC_FILENAME), specTemplate.getBytes());
+            specIds.add(specId);
+        }
+
+        final Path jobsDir = Files.createDirectory(root.resolve(WORKSPACE_JOBS_DIRNAME));
+        final Path wdsDir = Files.createDirectory(root.resolve(WORKSPACE_WDS_DIRNAME));
+
+        final String config =
+                loadResourceFileAsString("loadtest-config-template.yml")
+                        .replace("$specsDir", specsDir.toAbsolutePath().toString())
+                        .replace("$jobsDir", jobsDir.toAbsolutePath().toString())
+                        .replace("$workingDirsDir", wdsDir.toAbsolutePath().toString())
+                        .replace("$usersFile", usersFile.toAbsolutePath().toString())
+                        .replace("$maxConcurrentJobs", Integer.toString(maxConcurrentJobs));
+        final Path configPath = root.resolve(WORKSPACE_CONFIG_FILENAME);
+        Files.write(configPath, config.getBytes());
+
+        final JobSpec spec = readYAML(specTemplate, JobSpec.class);
+
+        return new LoadTestWorkspace(root, configPath, specIds, spec);
+    }
+
+
+    private final Path root;
+    private final Path configPath;
+    private final List<JobSpecId> specIds;
+    private final JobSpec spec;
+
+
+    private LoadTestWorkspace(Path root, Path configPath, List<JobSpecId> specIds, JobSpec spec) {
+        this.root = root;
+        this.configPath = configPath;
+        this.specIds = specIds;
+        this.spec = spec;
+    }
+
+
+    public Path getConfigPath() {
+        return configPath;
+    }
+
+    public List<JobSpecId> getSpecIds() {
+        return Collections.unmodifiableList(specIds);
+    }
+
+    /**
+     * @return The spec, which is identical for every spec ID.
+     */
+    public JobSpec getSpec() {
+        return spec;
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileUtils.deleteDirectory(root.toFile());
+    }
+}
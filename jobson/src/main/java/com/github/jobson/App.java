@@ -19,27 +19,42 @@
 
 package com.github.jobson;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
 import com.codahale.metrics.health.HealthCheck;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.jobson.auth.AuthenticationBootstrap;
 import com.github.jobson.commands.*;
 import com.github.jobson.config.ApplicationConfig;
+import com.github.jobson.config.JobResultCacheConfig;
+import com.github.jobson.config.JobRetentionConfig;
+import com.github.jobson.config.JobsConfig;
+import com.github.jobson.dao.IdGenerator;
+import com.github.jobson.dao.TimeOrderedIdGenerator;
 import com.github.jobson.dao.jobs.FilesystemJobsDAO;
 import com.github.jobson.dao.jobs.JobDAO;
+import com.github.jobson.dao.jobs.JobRetentionEngine;
+import com.github.jobson.dao.jobs.TimedJobDAO;
 import com.github.jobson.dao.specs.FilesystemJobSpecDAO;
 import com.github.jobson.dao.specs.JobSpecDAO;
 import com.github.jobson.dao.users.FilesystemUserDAO;
 import com.github.jobson.dao.users.UserDAO;
 import com.github.jobson.jobs.JobExecutor;
 import com.github.jobson.jobs.JobManager;
+import com.github.jobson.jobs.JobResultCache;
 import com.github.jobson.jobs.JobStatus;
 import com.github.jobson.jobs.LocalJobExecutor;
+import com.github.jobson.jobs.PooledJobExecutor;
+import com.github.jobson.jobs.WorkingDirReaper;
 import com.github.jobson.resources.RootResource;
+import com.github.jobson.resources.v1.APIJobRequestReader;
 import com.github.jobson.resources.v1.JobResource;
 import com.github.jobson.resources.v1.JobSpecResource;
+import com.github.jobson.resources.v1.JobUpdatesResource;
 import com.github.jobson.resources.v1.UserResource;
 import com.github.jobson.resources.v1.V1RootResource;
 import com.github.jobson.websockets.v1.JobEventSocketCreator;
+import com.github.jobson.websockets.v1.MultiplexedStdioSocketCreator;
 import com.github.jobson.websockets.v1.StderrUpdateSocketCreator;
 import com.github.jobson.websockets.v1.StdoutUpdateSocketCreator;
 import io.dropwizard.Application;
@@ -59,6 +74,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.Principal;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.jobson.Constants.*;
 import static com.github.jobson.Helpers.generateRandomBase36String;
@@ -81,6 +100,7 @@ public final class App extends Application<ApplicationConfig> {
         configurationBootstrap.addCommand(new UsersCommand());
         configurationBootstrap.addCommand(new ValidateCommand());
         configurationBootstrap.addCommand(new RunCommand());
+        configurationBootstrap.addCommand(new MigrateJobsCommand());
     }
 
     public void run(ApplicationConfig applicationConfig, Environment environment) throws Exception {
@@ -145,24 +165,106 @@ public final class App extends Application<ApplicationConfig> {
             Files.createDirectory(workingDirsPath);
         }
 
+        log.debug("Creating working directory reaper");
+        final Optional<WorkingDirReaper> wdReaper = LocalJobExecutor.createWdReaper(
+                workingDirsPath,
+                applicationConfig.getWorkingDirs().getRemoveAfterExecutionConfig());
+        wdReaper.ifPresent(reaper -> environment.metrics().register(
+                WD_REAPER_PENDING_DELETIONS_METRIC_NAME,
+                (Gauge<Integer>) reaper::getPendingDeletions));
+
         log.debug("Creating job executor");
-        final JobExecutor jobExecutor = new LocalJobExecutor(
+        final JobExecutor localJobExecutor = new LocalJobExecutor(
                 workingDirsPath,
                 applicationConfig.getExecution().getDelayBeforeForciblyKillingJobs().toMillis(),
-                applicationConfig.getWorkingDirs().getRemoveAfterExecutionConfig());
+                wdReaper);
+
+        final PooledJobExecutor jobExecutor = new PooledJobExecutor(
+                workingDirsPath,
+                applicationConfig.getExecution().getDelayBeforeForciblyKillingJobs().toMillis(),
+                wdReaper,
+                localJobExecutor);
+        environment.lifecycle().manage(jobExecutor);
 
         log.debug("Creating job DAO");
-        final JobDAO jobDAO = new FilesystemJobsDAO(jobsPath, () -> generateRandomBase36String(10));
+        final JobsConfig jobsConfig = applicationConfig.getJobDataConfiguration();
+        final IdGenerator idGenerator = jobsConfig.getIdFormat() == JobsConfig.IdFormat.RANDOM ?
+                () -> generateRandomBase36String(10) :
+                new TimeOrderedIdGenerator(jobsConfig.getNodeId().orElseGet(TimeOrderedIdGenerator::generateRandomNodeId));
+        final FilesystemJobsDAO jobDAO = new FilesystemJobsDAO(
+                jobsPath,
+                idGenerator,
+                applicationConfig.getJobDataConfiguration().isCompress(),
+                applicationConfig.getJobDataConfiguration().getLayout());
+
+        final JobDAO timedJobDAO = new TimedJobDAO(jobDAO, environment.metrics());
+
+        final JobRetentionConfig retentionConfig = applicationConfig.getJobDataConfiguration().getRetention();
+        if (retentionConfig.isEnabled()) {
+            log.debug("Scheduling job retention");
+            final JobRetentionEngine jobRetentionEngine = new JobRetentionEngine(jobDAO, retentionConfig);
+            final long intervalInMillis = retentionConfig.getInterval().toMillis();
+            environment.lifecycle()
+                    .scheduledExecutorService(JOB_RETENTION_THREAD_NAME_FORMAT)
+                    .build()
+                    .scheduleWithFixedDelay(() -> {
+                        try {
+                            jobRetentionEngine.run();
+                        } catch (Exception ex) {
+                            log.error("Job retention failed: " + ex.toString());
+                        }
+                    }, intervalInMillis, intervalInMillis, TimeUnit.MILLISECONDS);
+        }
+
+
+        log.debug("Creating job launcher");
+        final ExecutorService jobLauncher = environment.lifecycle()
+                .executorService(JOB_LAUNCHER_THREAD_NAME_FORMAT)
+                .minThreads(1)
+                .maxThreads(1)
+                .build();
 
+        final JobResultCacheConfig resultCacheConfig = applicationConfig.getExecution().getResultCache();
+        final JobResultCache jobResultCache =
+                new JobResultCache(resultCacheConfig.getMaxEntries(), resultCacheConfig.getMaxAge());
 
         log.debug("Creating job manager");
-        final JobManager jobManager = new JobManager(jobDAO, jobExecutor, applicationConfig.getExecution().getMaxConcurrentJobs());
+        final JobManager jobManager = new JobManager(
+                timedJobDAO,
+                jobExecutor,
+                applicationConfig.getExecution().getMaxConcurrentJobs(),
+                jobLauncher,
+                jobResultCache);
+        for (Map.Entry<String, Metric> metricEntry : jobManager.getMetrics().entrySet()) {
+            environment.metrics().register(metricEntry.getKey(), metricEntry.getValue());
+        }
 
 
         log.debug("Registering the jobs API");
 
-        final JobResource jobResource = new JobResource(jobManager, jobDAO, jobSpecDAO, Constants.DEFAULT_PAGE_SIZE);
+        // Bounded: when the queue is full (or the executor has shut down),
+        // requests validate their inputs on their own thread, rather than
+        // being rejected. Unlike CallerRunsPolicy, this never discards a
+        // task, which would leave the request waiting on it forever.
+        final int inputValidationThreads = Runtime.getRuntime().availableProcessors();
+        final ExecutorService inputValidationExecutor = environment.lifecycle()
+                .executorService(INPUT_VALIDATION_THREAD_NAME_FORMAT)
+                .minThreads(inputValidationThreads)
+                .maxThreads(inputValidationThreads)
+                .workQueue(new ArrayBlockingQueue<>(INPUT_VALIDATION_QUEUE_LENGTH))
+                .rejectedExecutionHandler((task, executor) -> task.run())
+                .build();
+
+        final JobResource jobResource = new JobResource(
+                jobManager,
+                jobManager,
+                timedJobDAO,
+                jobSpecDAO,
+                Constants.DEFAULT_PAGE_SIZE,
+                inputValidationExecutor);
+        environment.jersey().register(new APIJobRequestReader(jobSpecDAO));
         environment.jersey().register(jobResource);
+        environment.jersey().register(new JobUpdatesResource(jobManager));
 
 
 
@@ -189,6 +291,11 @@ public final class App extends Application<ApplicationConfig> {
                 new RegexPathSpec(WEBSOCKET_STDOUT_UPDATES_PATTERN),
                 new StdoutUpdateSocketCreator(jobManager));
 
+        log.debug("Enabling multiplexed (multi-job) stdio updates websocket endpoint");
+        wsFilter.addMapping(
+                Constants.WEBSOCKET_MULTIPLEXED_STDIO_UPDATES_PATH,
+                new MultiplexedStdioSocketCreator(jobManager));
+
 
 
         log.debug("Aborting dangling jobs");
@@ -26,6 +26,8 @@ public final class Constants {
     public static final String WORKSPACE_SPECS_DIRNAME = "specs";
     public static final String WORKSPACE_WDS_DIRNAME = "wds";
     public static final String WORKSPACE_JOBS_DIRNAME = "jobs";
+    public static final String WDS_DEPENDENCY_SNAPSHOTS_DIRNAME = ".dependency-snapshots";
+    public static final String WDS_TRASH_DIRNAME = ".trash";
 
     public static final String JOB_DIR_STDOUT_FILENAME = "stdout";
     public static final String JOB_DIR_STDERR_FILENAME = "stderr";
@@ -34,6 +36,12 @@ public final class Constants {
     public static final String JOB_DIR_JOB_INPUTS_FILENAME = "inputs.json";
     public static final String JOB_DIR_OUTPUTS_DIRNAME = "outputs";
     public static final String JOB_DIR_OUTPUTS_FILENAME = "outputs.json";
+    public static final String JOB_DIR_LINK_STAGING_DIR_PREFIX = ".linking-";
+    public static final String GZIP_FILE_EXTENSION = ".gz";
+    public static final String GZIP_CONTENT_ENCODING = "gzip";
+    public static final long MAX_GZIP_SIZE_WITH_EXACT_TRAILER_SIZE = (1L << 32) / 1032;  // deflate expands at most ~1032x
+    public static final int JOB_DIR_SHARD_WIDTH = 2;
+    public static final int JOB_DIR_SHARD_DEPTH = 2;
 
     public static final String SPEC_DIR_SPEC_FILENAME = "spec.yml";
 
@@ -42,7 +50,37 @@ public final class Constants {
     public static final int MAX_CONCURRENT_JOBS = 10;
     public static final int DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS = 10000;
     public static final int MAX_JOB_ID_GENERATION_ATTEMPTS = 100;
+    public static final int TIME_ORDERED_ID_TIMESTAMP_CHARS = 10;
+    public static final int TIME_ORDERED_ID_NODE_CHARS = 2;
+    public static final int TIME_ORDERED_ID_COUNTER_CHARS = 4;
     public static final int STDIO_BUFFER_LEN_IN_BYTES = 256;
+    public static final int STDIO_TAIL_BUFFER_LEN_IN_BYTES = 1024 * 1024;  // per stream of each running job
+    public static final int MAX_STDIO_TAIL_IN_BYTES = STDIO_TAIL_BUFFER_LEN_IN_BYTES;
+    public static final long JOB_STDIO_DRAIN_TIMEOUT_IN_MILLISECONDS = 10000;
+    public static final int DEPENDENCY_COPY_THREADS = 4;
+    public static final int WD_REMOVAL_MAX_CONCURRENT_DELETIONS = 1;
+    public static final String WD_REAPER_PENDING_DELETIONS_METRIC_NAME = "jobson.workingDirs.pendingDeletions";
+    public static final String JOB_LAUNCHER_THREAD_NAME_FORMAT = "jobson-job-launcher-%d";
+    public static final String INPUT_VALIDATION_THREAD_NAME_FORMAT = "jobson-input-validation-%d";
+    public static final String WORKER_THREAD_NAME_FORMAT = "jobson-worker-%s-%d-%s";  // spec, worker, role
+    public static final int INPUT_VALIDATION_QUEUE_LENGTH = 1000;
+    public static final int JOB_RESULT_CACHE_MAX_ENTRIES = 10000;
+    public static final long JOB_RESULT_CACHE_MAX_AGE_IN_MILLISECONDS = 1000 * 60 * 60 * 24 * 7; // 7 days
+    public static final long JOB_RETENTION_INTERVAL_IN_MILLISECONDS = 1000 * 60 * 60; // 1 hour
+    public static final String JOB_RETENTION_THREAD_NAME_FORMAT = "jobson-job-retention-%d";
+    public static final long JOB_RETENTION_MIN_LOG_SIZE_TO_COMPRESS_IN_BYTES = 1024;
+    public static final String JOB_SUBMIT_METRIC_NAME = "jobson.jobs.submit";
+    public static final String JOB_MANAGER_QUEUE_WAIT_METRIC_NAME = "jobson.jobs.queueWait";
+    public static final String JOB_MANAGER_SPAWN_METRIC_NAME = "jobson.jobs.spawn";
+    public static final String JOB_MANAGER_RUN_METRIC_NAME = "jobson.jobs.run";
+    public static final String JOB_MANAGER_OUTPUT_FINALIZATION_METRIC_NAME = "jobson.jobs.outputFinalization";
+    public static final String JOB_MANAGER_STDOUT_BYTES_METRIC_NAME = "jobson.jobs.stdoutBytes";
+    public static final String JOB_MANAGER_QUEUED_JOBS_METRIC_NAME = "jobson.jobs.queued";
+    public static final String JOB_MANAGER_RUNNING_JOBS_METRIC_NAME = "jobson.jobs.running";
+    public static final int JOB_EVENT_HISTORY_MAX_ENTRIES = 10000;
+    public static final int JOB_EVENT_EPOCH_LENGTH = 8;
+    public static final String JOB_MANAGER_SUBSCRIBERS_METRIC_NAME = "jobson.jobs.subscribers";
+    public static final String JOBS_DAO_METRIC_NAME_PREFIX = "jobson.jobsDAO.";
 
 
     public static final String API_VISIBLE_TIMESTAMPS_FORMAT = "yyyy-MM-dd HH:mm:ss.SSSS'Z'";
@@ -54,6 +92,12 @@ public final class Constants {
     public static final String WEBSOCKET_JOB_EVENTS_PATH = "/v1/jobs/events";
     public static final String WEBSOCKET_STDOUT_UPDATES_PATTERN = "/v1/jobs/(.+?)/stdout/updates";
     public static final String WEBSOCKET_STDERR_UPDATES_PATTERN = "/v1/jobs/(.+?)/stderr/updates";
+    public static final String WEBSOCKET_MULTIPLEXED_STDIO_UPDATES_PATH = "/v1/jobs/stdio/updates";
+    public static final long MULTIPLEXED_STDIO_BATCH_INTERVAL_IN_MILLISECONDS = 50;
+    public static final int MULTIPLEXED_STDIO_MAX_RECORDS_PER_BATCH = 1000;
+    public static final int MULTIPLEXED_STDIO_MAX_SUBSCRIPTIONS_PER_CONNECTION = 500;
+    public static final long MULTIPLEXED_STDIO_MAX_PENDING_BYTES_PER_CONNECTION = 16 * 1024 * 1024;
+    public static final int MULTIPLEXED_STDIO_MAX_JOB_ID_LENGTH_IN_BYTES = 1024;  // must fit in the record's 2-byte length
     public static final long WEBSOCKET_TCP_IDLE_TIMEOUT_IN_MILLISECONDS = 1000 * 60 * 10; // 10 min.
 
     public static final String HTTP_ROOT = "/";
@@ -69,6 +113,9 @@ public final class Constants {
     public static final String JWT_AUTH_NAME = "jwt";
 
     public static final String DEFAULT_BASIC_AUTH_REALM = "JobsonBasicAuth";
+    public static final int BASIC_AUTH_CACHE_MAX_ENTRIES = 1000;
+    public static final long BASIC_AUTH_CACHE_MAX_AGE_IN_MILLISECONDS = 1000 * 60 * 5; // 5 min
+    public static final int JWT_AUTH_CACHE_MAX_ENTRIES = 1000;
     public static final String DEFAULT_GUEST_AUTH_REALM = "GUEST";
     public static final String DEFAULT_GUEST_USERNAME = "guest";
 
@@ -82,6 +129,9 @@ public final class Constants {
     public static final long JOB_MANAGER_MAX_JOB_QUEUE_OVERFLOW_THRESHOLD = 10_000;
 
     public static final String DEFAULT_BINARY_MIME_TYPE = "application/octet-stream";
+    public static final int MIME_DETECTION_PREFIX_LEN_IN_BYTES = 64 * 1024;  // tika's default
+    public static final int MIME_TYPE_CACHE_MAX_ENTRIES = 1000;
+    public static final int SQL_VALIDATION_CACHE_MAX_ENTRIES = 256;  // per SQL input in a spec
 
     public static final int MAX_JOB_OUTPUT_SIZE_IN_BYTES_BEFORE_DISABLING_COMPRESSION = 52430000;  // 50 MiB
 }
@@ -19,6 +19,7 @@
 
 package com.github.jobson;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -27,19 +28,23 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.github.jobson.utils.BinaryData;
+import com.github.jobson.utils.MimeTypeDetector;
 import io.reactivex.Observer;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.tika.Tika;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -57,6 +62,11 @@ public final class Helpers {
             new ObjectMapper().registerModule(
                     new Jdk8Module()).enable(SerializationFeature.INDENT_OUTPUT);
 
+    private static final ObjectMapper CANONICAL_JSON_MAPPER =
+            new ObjectMapper()
+                    .registerModule(new Jdk8Module())
+                    .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
     private static final ObjectMapper YAML_MAPPER =
             new ObjectMapper(new YAMLFactory()).registerModule(new Jdk8Module());
 
@@ -259,6 +269,19 @@ public final class Helpers {
         }
     }
 
+    /**
+     * Returns a compact JSON representation of the object in which object keys
+     * are sorted, so that equal objects always produce equal strings.
+     */
+    public static String toCanonicalJSON(Object o) {
+        try {
+            final Object plain = JSON_MAPPER.convertValue(o, Object.class);
+            return CANONICAL_JSON_MAPPER.writeValueAsString(plain);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     public static JsonNode toJSONNode(Object o) {
         return JSON_MAPPER.valueToTree(o);
     }
@@ -289,6 +312,21 @@ public final class Helpers {
         return JSON_MAPPER.readValue(t.traverse(), klass);
     }
 
+    public static JsonParser createJSONParser(InputStream s) throws IOException {
+        return JSON_MAPPER.getFactory().createParser(s);
+    }
+
+    /**
+     * Reads the value at p's current token, leaving p at the value's last token.
+     */
+    public static <T> T readJSON(JsonParser p, Class<T> klass) throws IOException {
+        return JSON_MAPPER.readValue(p, klass);
+    }
+
+    public static JsonNode readJSONTree(JsonParser p) throws IOException {
+        return JSON_MAPPER.readTree(p);
+    }
+
     public static void writeJSON(Path p, Object o) throws IOException {
         Files.write(p, toJSON(o).getBytes());
     }
@@ -344,7 +382,10 @@ public final class Helpers {
         }).start();
     }
 
-    private static void streamInto(InputStream inputStream, Observer<byte[]> observer) throws IOException {
+    /**
+     * Reads inputStream until EOF, emitting each read as a new byte array.
+     */
+    public static void streamInto(InputStream inputStream, Observer<byte[]> observer) throws IOException {
         byte[] bytes = new byte[STDIO_BUFFER_LEN_IN_BYTES];
 
         int bufLen;
@@ -362,9 +403,36 @@ public final class Helpers {
         return new Date();
     }
 
+    /**
+     * @return true if data with the MIME type is text (and, therefore, usually compresses well).
+     */
+    public static boolean isTextMimeType(String mimeType) {
+        final String baseType = mimeType.split(";")[0].trim().toLowerCase();
+        return baseType.startsWith("text/") ||
+                baseType.endsWith("+json") ||
+                baseType.endsWith("+xml") ||
+                baseType.equals("application/json") ||
+                baseType.equals("application/xml") ||
+                baseType.equals("application/javascript") ||
+                baseType.equals("application/x-ndjson");
+    }
+
     public static String getMimeType(InputStream s, String fileName) throws IOException {
-        final Tika t = new Tika();
-        return t.detect(s, fileName);
+        return MimeTypeDetector.getShared().detect(s, fileName);
+    }
+
+    /**
+     * Hard-links destination to source, falling back to a copy if the
+     * filesystem does not support hard links (or they span filesystems).
+     */
+    public static void linkOrCopy(Path source, Path destination) throws IOException {
+        try {
+            Files.createLink(destination, source);
+        } catch (FileAlreadyExistsException ex) {
+            throw ex;
+        } catch (UnsupportedOperationException | IOException ex) {
+            Files.copy(source, destination);
+        }
     }
 
     public static void copyPath(Path source, Path destination) throws IOException {
@@ -391,4 +459,86 @@ public final class Helpers {
             }
         });
     }
+
+    /**
+     * Copies source to destination, like {@link #copyPath(Path, Path)}, but copies
+     * files on up to {@code threads} threads. Directories are created up-front.
+     */
+    public static void copyPathInParallel(Path source, Path destination, int threads) throws IOException {
+        final List<Path> files = createDirectoryTree(source, destination);
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> files.parallelStream().forEach(file -> {
+                try {
+                    Files.copy(file, destination.resolve(source.relativize(file)));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            })).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while copying " + source);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) ex.getCause()).getCause();
+            throw new IOException(ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Recreates source's directory structure at destination, hard-linking each
+     * file (see {@link #linkOrCopy(Path, Path)}).
+     */
+    public static void hardLinkPath(Path source, Path destination) throws IOException {
+        for (Path file : createDirectoryTree(source, destination)) {
+            linkOrCopy(file, destination.resolve(source.relativize(file)));
+        }
+    }
+
+    /**
+     * Creates destination's directories and returns the files in source that
+     * still need to be materialized.
+     */
+    private static List<Path> createDirectoryTree(Path source, Path destination) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                final Path destinationDir = destination.resolve(source.relativize(dir));
+                try {
+                    Files.copy(dir, destinationDir);
+                } catch (FileAlreadyExistsException e) {
+                    if (!Files.isDirectory(destinationDir))
+                        throw e;
+                }
+                return CONTINUE;
+            }
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(file);
+                return CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * @return A hash of the paths, sizes, and modification times of everything in
+     * source. Much cheaper than hashing the content, but changes whenever the content
+     * is (normally) modified.
+     */
+    public static String fingerprintPath(Path source) throws IOException {
+        final MessageDigest digest = DigestUtils.getSha256Digest();
+        try (Stream<Path> paths = Files.walk(source)) {
+            final List<Path> sortedPaths = paths.sorted().collect(Collectors.toList());
+            for (Path p : sortedPaths) {
+                final BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                final String entry = source.relativize(p) + "\0" + attrs.size() + "\0" + attrs.lastModifiedTime().toMillis() + "\n";
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.api.v1;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Response to a successful batch job submission request")
+public final class APIJobBatchCreatedResponse {
+
+    @Schema(description = "The created jobs, in the same order as the (expanded) requests in the batch")
+    @JsonProperty
+    private List<APIJobCreatedResponse> entries;
+
+
+    /**
+     * @deprecated Used by JSON deserializer
+     */
+    public APIJobBatchCreatedResponse() {}
+
+    public APIJobBatchCreatedResponse(List<APIJobCreatedResponse> entries) {
+        this.entries = entries;
+    }
+
+
+    public List<APIJobCreatedResponse> getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.api.v1;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.jobson.jobinputs.JobExpectedInputId;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import javax.validation.Valid;
+import java.util.*;
+
+@Schema(description = "A batch of job requests. Either an explicit list of requests, a template plus a parameter " +
+        "matrix, or both.")
+public final class APIJobBatchRequest {
+
+    @Schema(description = "Explicit job requests")
+    @JsonProperty
+    @Valid
+    private List<APIJobRequest> requests = new ArrayList<>();
+
+    @Schema(description = "A request that is used as a template. One job is created for each combination of the " +
+            "values in the parameter matrix")
+    @JsonProperty
+    @Valid
+    private APIJobRequest template;
+
+    @Schema(description = "Input values to sweep over. Each combination of values is merged into the template's inputs")
+    @JsonProperty
+    private Map<JobExpectedInputId, List<JsonNode>> parameters = new LinkedHashMap<>();
+
+
+    /**
+     * @deprecated Used by JSON deserializer.
+     */
+    public APIJobBatchRequest() {}
+
+    public APIJobBatchRequest(List<APIJobRequest> requests) {
+        this.requests = requests;
+    }
+
+    public APIJobBatchRequest(APIJobRequest template, Map<JobExpectedInputId, List<JsonNode>> parameters) {
+        this.template = template;
+        this.parameters = parameters;
+    }
+
+
+    public List<APIJobRequest> getRequests() {
+        return requests;
+    }
+
+    public Optional<APIJobRequest> getTemplate() {
+        return Optional.ofNullable(template);
+    }
+
+    public Map<JobExpectedInputId, List<JsonNode>> getParameters() {
+        return parameters;
+    }
+
+
+    /**
+     * Returns the number of requests that expand() would return, without
+     * expanding the parameter matrix. Long.MAX_VALUE if that number does not
+     * fit in a long.
+     */
+    public long countRequests() {
+        final long numRequests = requests != null ? requests.size() : 0;
+
+        if (template == null) return numRequests;
+
+        try {
+            long numCombinations = 1;
+            if (parameters != null)
+                for (List<JsonNode> values : parameters.values())
+                    numCombinations = Math.multiplyExact(numCombinations, values != null ? values.size() : 0);
+
+            return Math.addExact(numRequests, numCombinations);
+        } catch (ArithmeticException ex) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns the explicit requests, followed by one request per combination
+     * of values in the parameter matrix (if a template was supplied).
+     */
+    public List<APIJobRequest> expand() {
+        final List<APIJobRequest> ret = new ArrayList<>();
+
+        if (requests != null)
+            ret.addAll(requests);
+
+        if (template != null) {
+            List<Map<JobExpectedInputId, JsonNode>> combinations = new ArrayList<>();
+            combinations.add(new HashMap<>(template.getInputs()));
+
+            if (parameters != null) {
+                for (Map.Entry<JobExpectedInputId, List<JsonNode>> parameter : parameters.entrySet()) {
+                    final List<Map<JobExpectedInputId, JsonNode>> next = new ArrayList<>();
+                    for (Map<JobExpectedInputId, JsonNode> combination : combinations) {
+                        for (JsonNode value : parameter.getValue() != null ? parameter.getValue() : Collections.<JsonNode>emptyList()) {
+                            final Map<JobExpectedInputId, JsonNode> inputs = new HashMap<>(combination);
+                            inputs.put(parameter.getKey(), value);
+                            next.add(inputs);
+                        }
+                    }
+                    combinations = next;
+                }
+            }
+
+            for (Map<JobExpectedInputId, JsonNode> inputs : combinations)
+                ret.add(new APIJobRequest(template.getSpec(), template.getName(), inputs));
+        }
+
+        return ret;
+    }
+}
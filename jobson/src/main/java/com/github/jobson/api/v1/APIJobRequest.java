@@ -19,14 +19,21 @@
 
 package com.github.jobson.api.v1;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.github.jobson.Helpers;
 import com.github.jobson.jobinputs.JobExpectedInputId;
+import com.github.jobson.jobinputs.JobInput;
 import com.github.jobson.specs.JobSpecId;
+import com.github.jobson.utils.Either;
+import com.github.jobson.utils.ValidationError;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 @Schema(description = "A job request")
@@ -47,6 +54,9 @@ public final class APIJobRequest {
     @NotNull
     private Map<JobExpectedInputId, JsonNode> inputs;
 
+    @JsonIgnore
+    private Map<JobExpectedInputId, Either<JobInput, ValidationError>> resolvedInputs = Collections.emptyMap();
+
 
     /**
      * @deprecated Used by JSON deserializer.
@@ -62,6 +72,22 @@ public final class APIJobRequest {
         this.inputs = inputs;
     }
 
+    /**
+     * @param resolvedInputs Inputs that were deserialized into (or failed to deserialize into) their
+     *                       spec's input class while the request itself was being read. They are not
+     *                       also in inputs.
+     */
+    public APIJobRequest(
+            JobSpecId spec,
+            String name,
+            Map<JobExpectedInputId, JsonNode> inputs,
+            Map<JobExpectedInputId, Either<JobInput, ValidationError>> resolvedInputs) {
+        this.spec = spec;
+        this.name = name;
+        this.inputs = inputs;
+        this.resolvedInputs = resolvedInputs;
+    }
+
 
     public JobSpecId getSpec() {
         return spec;
@@ -71,7 +97,32 @@ public final class APIJobRequest {
         return name;
     }
 
+    /**
+     * @return All inputs as JSON. Inputs that were resolved while the request was read are converted
+     * back to JSON, which is comparatively expensive, and inputs that could not be resolved are absent.
+     * Prefer {@link #getUnresolvedInputs()} + {@link #getResolvedInputs()} where possible.
+     */
+    @JsonProperty("inputs")
     public Map<JobExpectedInputId, JsonNode> getInputs() {
+        if (resolvedInputs.isEmpty() || inputs == null) return inputs;
+
+        final Map<JobExpectedInputId, JsonNode> ret = new HashMap<>(inputs);
+        resolvedInputs.forEach((id, resolvedInput) ->
+                resolvedInput.ifLhsHasValue(input -> ret.put(id, Helpers.toJSONNode(input))));
+        return ret;
+    }
+
+    /**
+     * @return Inputs that were not resolved while the request was read (e.g. because they are not
+     * in the spec).
+     */
+    @JsonIgnore
+    public Map<JobExpectedInputId, JsonNode> getUnresolvedInputs() {
         return inputs;
     }
+
+    @JsonIgnore
+    public Map<JobExpectedInputId, Either<JobInput, ValidationError>> getResolvedInputs() {
+        return resolvedInputs;
+    }
 }
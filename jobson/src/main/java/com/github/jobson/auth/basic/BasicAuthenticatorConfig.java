@@ -23,8 +23,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.jobson.auth.AuthenticationBootstrap;
 import com.github.jobson.config.AuthenticationConfig;
 import io.dropwizard.auth.AuthFilter;
+import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.PermitAllAuthorizer;
 import io.dropwizard.auth.basic.BasicCredentialAuthFilter;
+import io.dropwizard.auth.basic.BasicCredentials;
 
 import java.security.Principal;
 
@@ -39,11 +41,19 @@ public final class BasicAuthenticatorConfig implements AuthenticationConfig {
     @JsonProperty
     private String realm = DEFAULT_BASIC_AUTH_REALM;
 
+    @JsonProperty
+    private BasicAuthCacheConfig cache = new BasicAuthCacheConfig();
+
 
     @Override
     public AuthFilter<?, Principal> createAuthFilter(AuthenticationBootstrap bootstrap) {
-        return new BasicCredentialAuthFilter.Builder<>()
-                .setAuthenticator(new BasicAuthenticator(bootstrap.getUserDAO()))
+        final BasicAuthenticator basicAuthenticator = new BasicAuthenticator(bootstrap.getUserDAO());
+        final Authenticator<BasicCredentials, Principal> authenticator = cache.isEnabled() ?
+                new CachingBasicAuthenticator(basicAuthenticator, bootstrap.getUserDAO(), cache.getMaxEntries(), cache.getMaxAge()) :
+                basicAuthenticator;
+
+        return new BasicCredentialAuthFilter.Builder<Principal>()
+                .setAuthenticator(authenticator)
                 .setAuthorizer(new PermitAllAuthorizer())
                 .setRealm(realm)
                 .buildAuthFilter();
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.auth.basic;
+
+import com.github.jobson.dao.users.ReadonlyUserDAO;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.basic.BasicCredentials;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Remembers the result of authenticating a username + password pair, so
+ * that clients that send the same credentials with every request (e.g.
+ * polling UIs) do not pay for a users lookup and `crypt` each time.
+ *
+ * Entries are evicted least-recently-used once there are more than
+ * {@code maxEntries} of them, are ignored once they are older than
+ * {@code maxAge}, and are all dropped whenever the user DAO's credentials
+ * version changes (e.g. because the users file was edited).
+ */
+public final class CachingBasicAuthenticator implements Authenticator<BasicCredentials, Principal> {
+
+    private final Authenticator<BasicCredentials, Principal> authenticator;
+    private final ReadonlyUserDAO readonlyUserDAO;
+    private final int maxEntries;
+    private final long maxAgeInMillis;
+    private final Map<String, CacheEntry> entries;
+
+    // Passwords are keyed by a HMAC, rather than stored or plainly hashed,
+    // so that the cache's memory is no easier to brute-force than the
+    // users file.
+    private final HmacUtils keyHasher;
+
+    private long credentialsVersion;
+
+
+    public CachingBasicAuthenticator(
+            Authenticator<BasicCredentials, Principal> authenticator,
+            ReadonlyUserDAO readonlyUserDAO,
+            int maxEntries,
+            Duration maxAge) {
+
+        requireNonNull(authenticator);
+        requireNonNull(readonlyUserDAO);
+        requireNonNull(maxAge);
+        if (maxEntries < 0)
+            throw new IllegalArgumentException(maxEntries + ": max entries cannot be negative");
+
+        this.authenticator = authenticator;
+        this.readonlyUserDAO = readonlyUserDAO;
+        this.maxEntries = maxEntries;
+        this.maxAgeInMillis = maxAge.toMillis();
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > CachingBasicAuthenticator.this.maxEntries;
+            }
+        };
+
+        final byte[] hmacKey = new byte[32];
+        new SecureRandom().nextBytes(hmacKey);
+        this.keyHasher = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, hmacKey);
+        this.credentialsVersion = readonlyUserDAO.getCredentialsVersion();
+    }
+
+
+    @Override
+    public Optional<Principal> authenticate(BasicCredentials basicCredentials) throws AuthenticationException {
+        final String key = computeKey(basicCredentials);
+
+        final Optional<Optional<Principal>> cached = tryGet(key);
+        if (cached.isPresent()) return cached.get();
+
+        // Deliberately not synchronized: authentication is slow, and
+        // concurrent misses for the same key are harmless.
+        final long versionBeforeAuthenticating = readonlyUserDAO.getCredentialsVersion();
+        final Optional<Principal> result = authenticator.authenticate(basicCredentials);
+        put(key, result, versionBeforeAuthenticating);
+
+        return result;
+    }
+
+    private String computeKey(BasicCredentials basicCredentials) {
+        return basicCredentials.getUsername() + ":" + keyHasher.hmacHex(basicCredentials.getPassword());
+    }
+
+    private synchronized Optional<Optional<Principal>> tryGet(String key) {
+        invalidateIfCredentialsChanged();
+
+        final CacheEntry entry = entries.get(key);
+
+        if (entry == null) {
+            return Optional.empty();
+        } else if (System.currentTimeMillis() - entry.createdAt > maxAgeInMillis) {
+            entries.remove(key);
+            return Optional.empty();
+        } else {
+            return Optional.of(entry.principal);
+        }
+    }
+
+    private void invalidateIfCredentialsChanged() {
+        final long currentVersion = readonlyUserDAO.getCredentialsVersion();
+        if (currentVersion != credentialsVersion) {
+            entries.clear();
+            credentialsVersion = currentVersion;
+        }
+    }
+
+    private synchronized void put(String key, Optional<Principal> principal, long version) {
+        invalidateIfCredentialsChanged();
+
+        // The credentials changed while authenticating, so the result
+        // may already be stale.
+        if (version != credentialsVersion) return;
+
+        entries.put(key, new CacheEntry(principal, System.currentTimeMillis()));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    private static final class CacheEntry {
+        private final Optional<Principal> principal;
+        private final long createdAt;
+
+        private CacheEntry(Optional<Principal> principal, long createdAt) {
+            this.principal = principal;
+            this.createdAt = createdAt;
+        }
+    }
+}
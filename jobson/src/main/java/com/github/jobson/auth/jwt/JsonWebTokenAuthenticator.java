@@ -26,6 +26,10 @@ import io.jsonwebtoken.*;
 
 import java.security.Key;
 import java.security.Principal;
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -34,6 +38,13 @@ import java.util.Optional;
  * manipulated in any way (the hashes are valid) and that the Jwt has
  * not expired. Provided it was not manipulated, the user principal within
  * the JWT is produced with no round-trips to any persistence layer.
+ *
+ * Clients (e.g. polling UIs) tend to send the same token with every
+ * request, so up to {@code cacheMaxEntries} successfully-verified tokens
+ * are remembered (least-recently-used eviction) and are not re-verified.
+ * A remembered token is only used while the current time is within its
+ * {@code nbf}/{@code exp} claims: outside of that, it is verified again,
+ * which fails in the usual way.
  */
 public final class JsonWebTokenAuthenticator implements Authenticator<String, Principal> {
 
@@ -41,9 +52,36 @@ public final class JsonWebTokenAuthenticator implements Authenticator<String, Pr
         return Jwts.builder().setSubject(principal.getName()).signWith(alg, secretKey).compact();
     }
 
+    /**
+     * Create a JWT token for principal that expires (has an {@code exp}
+     * claim) expiresAfter from now.
+     *
+     * @throws NullPointerException If any argument is null.
+     */
+    public static String createJwtToken(SignatureAlgorithm alg, Key secretKey, Principal principal, Duration expiresAfter) {
+        Objects.requireNonNull(expiresAfter);
+
+        final long now = System.currentTimeMillis();
+
+        return Jwts.builder()
+                .setSubject(principal.getName())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiresAfter.toMillis()))
+                .signWith(alg, secretKey)
+                .compact();
+    }
+
+
     private final Key secretKey;
     private final SignatureAlgorithm algorithm;
 
+    // Configured once and then only used for parsing, which does not
+    // modify the parser, so it can be shared between request threads.
+    private final JwtParser parser;
+
+    private final int cacheMaxEntries;
+    private final Map<String, CacheEntry> cache;
+
     /**
      * Create an instance of StatelessJwtAuthenticator that uses the
      * provided secret key and signature algorithm to verify incoming
@@ -54,11 +92,36 @@ public final class JsonWebTokenAuthenticator implements Authenticator<String, Pr
      * @throws NullPointerException If secretKey or algorithm are null.
      */
     public JsonWebTokenAuthenticator(Key secretKey, SignatureAlgorithm algorithm) throws NullPointerException {
+        this(secretKey, algorithm, 0);
+    }
+
+    /**
+     * Create an instance of StatelessJwtAuthenticator that uses the
+     * provided secret key and signature algorithm to verify incoming
+     * JWTs and remembers up to cacheMaxEntries verified JWTs.
+     *
+     * @param secretKey The secret key to use to verify incoming JWTs.
+     * @param algorithm The algorithm to use to verify incoming JWTs.
+     * @param cacheMaxEntries The maximum number of verified JWTs to remember. 0 disables caching.
+     * @throws NullPointerException If secretKey or algorithm are null.
+     * @throws IllegalArgumentException If cacheMaxEntries is negative.
+     */
+    public JsonWebTokenAuthenticator(Key secretKey, SignatureAlgorithm algorithm, int cacheMaxEntries) throws NullPointerException {
         Objects.requireNonNull(secretKey);
         Objects.requireNonNull(algorithm);
+        if (cacheMaxEntries < 0)
+            throw new IllegalArgumentException(cacheMaxEntries + ": max entries cannot be negative");
 
         this.secretKey = secretKey;
         this.algorithm = algorithm;
+        this.parser = Jwts.parser().setSigningKey(secretKey);
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > JsonWebTokenAuthenticator.this.cacheMaxEntries;
+            }
+        };
     }
 
     /**
@@ -74,22 +137,61 @@ public final class JsonWebTokenAuthenticator implements Authenticator<String, Pr
     public Optional<Principal> authenticate(String s) throws NullPointerException, AuthenticationException {
         Objects.requireNonNull(s);
 
+        final Optional<Principal> cached = tryGetCached(s);
+        if (cached.isPresent()) return cached;
+
         try {
-            final Jws<Claims> claims = Jwts.parser().setSigningKey(this.secretKey).parseClaimsJws(s);
+            final Jws<Claims> claims = this.parser.parseClaimsJws(s);
 
             final String username = claims.getBody().getSubject();
 
             final Principal principal = new PrincipalImpl(username);
 
+            putCached(s, principal, claims.getBody());
+
             return Optional.of(principal);
 
         } catch (MalformedJwtException ex) {
             throw new AuthenticationException("The provided json web token was malformed.", ex);
         } catch (SignatureException ex) {
             throw new AuthenticationException("The provided json web token failed signature validation tests.", ex);
+        } catch (ExpiredJwtException ex) {
+            throw new AuthenticationException("The provided json web token has expired.", ex);
+        } catch (PrematureJwtException ex) {
+            throw new AuthenticationException("The provided json web token is not valid yet.", ex);
+        } catch (JwtException | IllegalArgumentException ex) {
+            throw new AuthenticationException("The provided json web token could not be verified.", ex);
         }
     }
 
+    private synchronized Optional<Principal> tryGetCached(String token) {
+        final CacheEntry entry = cache.get(token);
+
+        if (entry == null) {
+            return Optional.empty();
+        } else if (entry.isValidAt(System.currentTimeMillis())) {
+            return Optional.of(entry.principal);
+        } else {
+            // Falls through to the parser, which produces the appropriate
+            // expiry error.
+            cache.remove(token);
+            return Optional.empty();
+        }
+    }
+
+    private synchronized void putCached(String token, Principal principal, Claims claims) {
+        if (cacheMaxEntries == 0) return;
+
+        final long notBefore = claims.getNotBefore() != null ? claims.getNotBefore().getTime() : Long.MIN_VALUE;
+        final long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+
+        cache.put(token, new CacheEntry(principal, notBefore, expiresAt));
+    }
+
+    synchronized int cacheSize() {
+        return cache.size();
+    }
+
     /**
      * Create a JWT token from a userPrincipal principal.
      *
@@ -100,4 +202,34 @@ public final class JsonWebTokenAuthenticator implements Authenticator<String, Pr
     public String createJwtToken(Principal principal) {
         return createJwtToken(this.algorithm, this.secretKey, principal);
     }
+
+    /**
+     * Create a JWT token from a userPrincipal principal that expires
+     * expiresAfter from now.
+     *
+     * @param principal The principal to create a JWT for.
+     * @param expiresAfter How long the token should be valid for.
+     * @return A JWT token string.
+     * @throws NullPointerException If principal or expiresAfter is null.
+     */
+    public String createJwtToken(Principal principal, Duration expiresAfter) {
+        return createJwtToken(this.algorithm, this.secretKey, principal, expiresAfter);
+    }
+
+
+    private static final class CacheEntry {
+        private final Principal principal;
+        private final long notBefore;
+        private final long expiresAt;
+
+        private CacheEntry(Principal principal, long notBefore, long expiresAt) {
+            this.principal = principal;
+            this.notBefore = notBefore;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValidAt(long now) {
+            return now >= notBefore && now < expiresAt;
+        }
+    }
 }
@@ -40,6 +40,9 @@ public final class JsonWebTokenConfig implements AuthenticationConfig {
     @NotEmpty
     private String secretKey;  // Base64 string
 
+    @JsonProperty
+    private JsonWebTokenCacheConfig cache = new JsonWebTokenCacheConfig();
+
     /**
      * @deprecated Used by JSON deserializer.
      */
@@ -53,6 +56,10 @@ public final class JsonWebTokenConfig implements AuthenticationConfig {
         return secretKey;
     }
 
+    public JsonWebTokenCacheConfig getCache() {
+        return cache;
+    }
+
     public SignatureAlgorithm getSignatureAlgorithm() {
         return SignatureAlgorithm.HS512;
     }
@@ -63,7 +70,7 @@ public final class JsonWebTokenConfig implements AuthenticationConfig {
         final Key secretKeyKey = new SecretKeySpec(decodedSecretKey, 0, decodedSecretKey.length, this.getSignatureAlgorithm().toString());
 
         return new JsonWebTokenAuthFilter.Builder<>()
-                .setAuthenticator(new JsonWebTokenAuthenticator(secretKeyKey, this.getSignatureAlgorithm()))
+                .setAuthenticator(new JsonWebTokenAuthenticator(secretKeyKey, this.getSignatureAlgorithm(), cache.getMaxEntries()))
                 .setAuthorizer(new PermitAllAuthorizer())
                 .buildAuthFilter();
     }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.commands;
+
+import com.github.jobson.config.ApplicationConfig;
+import com.github.jobson.config.JobsConfig;
+import com.github.jobson.dao.jobs.FilesystemJobsDAO;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.github.jobson.Helpers.generateRandomBase36String;
+
+public final class MigrateJobsCommand extends DefaultedConfiguredCommand<ApplicationConfig> {
+
+    public MigrateJobsCommand() {
+        super("migrate-jobs", "move existing job directories into the jobs.layout set in the config. The server should be stopped while this runs");
+    }
+
+    @Override
+    protected void run(Bootstrap<ApplicationConfig> bootstrap, Namespace namespace, ApplicationConfig applicationConfig) throws Exception {
+        final JobsConfig jobsConfig = applicationConfig.getJobDataConfiguration();
+        final Path jobsPath = Paths.get(jobsConfig.getDir());
+
+        if (!Files.isDirectory(jobsPath)) {
+            System.err.println(jobsPath + ": No such directory");
+            System.exit(1);
+        }
+
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                jobsPath,
+                () -> generateRandomBase36String(10),
+                jobsConfig.isCompress(),
+                jobsConfig.getLayout());
+
+        final int jobsMoved = dao.migrateLayout();
+
+        System.out.println(jobsMoved + " job(s) moved into the " + jobsConfig.getLayout().toString().toLowerCase() + " layout");
+    }
+}
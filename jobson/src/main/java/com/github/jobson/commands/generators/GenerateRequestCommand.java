@@ -67,11 +67,7 @@ public final class GenerateRequestCommand extends DefaultedConfiguredCommand<App
 
         if (specFile.toFile().exists()) {
             final JobSpec jobSpec = readYAML(specFile, JobSpec.class);
-            final JobSpecId jobSpecId = new JobSpecId(specId);
-            final String jobName = new Faker().lorem().sentence(5);
-            final Map<JobExpectedInputId, JsonNode> generatedInputs = generateInputs(jobSpec);
-            final APIJobRequest jobRequest =
-                    new APIJobRequest(jobSpecId, jobName, generatedInputs);
+            final APIJobRequest jobRequest = generateRequest(new JobSpecId(specId), jobSpec);
 
             System.out.println(toJSON(jobRequest));
             System.exit(0);
@@ -81,14 +77,24 @@ public final class GenerateRequestCommand extends DefaultedConfiguredCommand<App
         }
     }
 
-    private Map<JobExpectedInputId, JsonNode> generateInputs(JobSpec jobSpec) {
+    /**
+     * @return A request against the spec, with inputs set to their default
+     *         (if any) or an example value.
+     */
+    public static APIJobRequest generateRequest(JobSpecId jobSpecId, JobSpec jobSpec) {
+        final String jobName = new Faker().lorem().sentence(5);
+        final Map<JobExpectedInputId, JsonNode> generatedInputs = generateInputs(jobSpec);
+        return new APIJobRequest(jobSpecId, jobName, generatedInputs);
+    }
+
+    private static Map<JobExpectedInputId, JsonNode> generateInputs(JobSpec jobSpec) {
         return jobSpec
                 .getExpectedInputs()
                 .stream()
-                .collect(toMap(JobExpectedInput::getId, this::generateInput));
+                .collect(toMap(JobExpectedInput::getId, GenerateRequestCommand::generateInput));
     }
 
-    private JsonNode generateInput(JobExpectedInput<?> expectedInput) {
+    private static JsonNode generateInput(JobExpectedInput<?> expectedInput) {
         final JobInput generatedInput = expectedInput.getDefault().isPresent() ?
                 expectedInput.getDefault().get() : expectedInput.generateExampleInput();
         return toJSONNode(generatedInput);
@@ -22,6 +22,7 @@ package com.github.jobson.config;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.jobson.Constants;
 
+import javax.validation.Valid;
 import java.time.Duration;
 
 public final class ExecutionConfig {
@@ -32,6 +33,10 @@ public final class ExecutionConfig {
     @JsonProperty
     private Duration delayBeforeForciblyKillingJobs = Duration.ofMillis(Constants.DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS);
 
+    @JsonProperty
+    @Valid
+    private JobResultCacheConfig resultCache = new JobResultCacheConfig();
+
 
     public ExecutionConfig() {}
 
@@ -43,4 +48,8 @@ public final class ExecutionConfig {
     public int getMaxConcurrentJobs() {
         return maxConcurrentJobs;
     }
+
+    public JobResultCacheConfig getResultCache() {
+        return resultCache;
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jobson.Constants;
+
+import javax.validation.constraints.Min;
+import java.time.Duration;
+
+public final class JobResultCacheConfig {
+
+    @JsonProperty
+    @Min(0)
+    private int maxEntries = Constants.JOB_RESULT_CACHE_MAX_ENTRIES;
+
+    @JsonProperty
+    private Duration maxAge = Duration.ofMillis(Constants.JOB_RESULT_CACHE_MAX_AGE_IN_MILLISECONDS);
+
+
+    public JobResultCacheConfig() {}
+
+    public JobResultCacheConfig(int maxEntries, Duration maxAge) {
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+    }
+
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jobson.Constants;
+
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+import java.util.Optional;
+
+public final class JobRetentionConfig {
+
+    /**
+     * What the job count and size limits apply to.
+     */
+    public enum GroupBy {
+        @JsonProperty("none")
+        NONE,
+
+        @JsonProperty("spec")
+        SPEC,
+
+        @JsonProperty("owner")
+        OWNER
+    }
+
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    @JsonProperty
+    @NotNull
+    private Duration interval = Duration.ofMillis(Constants.JOB_RETENTION_INTERVAL_IN_MILLISECONDS);
+
+    @JsonProperty
+    private Optional<Duration> maxAge = Optional.empty();
+
+    @JsonProperty
+    private Optional<Integer> maxJobs = Optional.empty();
+
+    @JsonProperty
+    private Optional<Long> maxBytes = Optional.empty();
+
+    @JsonProperty
+    @NotNull
+    private GroupBy groupBy = GroupBy.NONE;
+
+    @JsonProperty
+    private Optional<Duration> compressLogsAfter = Optional.empty();
+
+    @JsonProperty
+    private Optional<String> archiveDir = Optional.empty();
+
+
+    public JobRetentionConfig() {}
+
+    public JobRetentionConfig(
+            Optional<Duration> maxAge,
+            Optional<Integer> maxJobs,
+            Optional<Long> maxBytes,
+            GroupBy groupBy,
+            Optional<Duration> compressLogsAfter,
+            Optional<String> archiveDir) {
+
+        this.enabled = true;
+        this.maxAge = maxAge;
+        this.maxJobs = maxJobs;
+        this.maxBytes = maxBytes;
+        this.groupBy = groupBy;
+        this.compressLogsAfter = compressLogsAfter;
+        this.archiveDir = archiveDir;
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public Optional<Duration> getMaxAge() {
+        return maxAge;
+    }
+
+    public Optional<Integer> getMaxJobs() {
+        return maxJobs;
+    }
+
+    public Optional<Long> getMaxBytes() {
+        return maxBytes;
+    }
+
+    public GroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    public Optional<Duration> getCompressLogsAfter() {
+        return compressLogsAfter;
+    }
+
+    public Optional<String> getArchiveDir() {
+        return archiveDir;
+    }
+}
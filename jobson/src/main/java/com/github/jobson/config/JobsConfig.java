@@ -20,17 +20,77 @@
 package com.github.jobson.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jobson.dao.jobs.JobsDirectoryLayout;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.util.Optional;
 
 public final class JobsConfig {
 
+    /**
+     * How new job IDs are generated.
+     */
+    public enum IdFormat {
+        /**
+         * IDs that sort in the order jobs were submitted (see nodeId).
+         */
+        @JsonProperty("time-ordered")
+        TIME_ORDERED,
+
+        /**
+         * Random 10-character base36 IDs, as generated by older versions.
+         */
+        @JsonProperty("random")
+        RANDOM
+    }
+
     @JsonProperty
     @NotNull
     private String dir;
 
+    @JsonProperty
+    @NotNull
+    @Valid
+    private JobRetentionConfig retention = new JobRetentionConfig();
+
+    @JsonProperty
+    private boolean compress = false;
+
+    @JsonProperty
+    @NotNull
+    private JobsDirectoryLayout layout = JobsDirectoryLayout.FLAT;
+
+    @JsonProperty
+    @NotNull
+    private IdFormat idFormat = IdFormat.TIME_ORDERED;
+
+    @JsonProperty
+    @NotNull
+    private Optional<Integer> nodeId = Optional.empty();
+
 
     public String getDir() {
         return dir;
     }
+
+    public JobRetentionConfig getRetention() {
+        return retention;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public JobsDirectoryLayout getLayout() {
+        return layout;
+    }
+
+    public IdFormat getIdFormat() {
+        return idFormat;
+    }
+
+    public Optional<Integer> getNodeId() {
+        return nodeId;
+    }
 }
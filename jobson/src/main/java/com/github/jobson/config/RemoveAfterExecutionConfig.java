@@ -20,14 +20,21 @@ package com.github.jobson.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import static com.github.jobson.Constants.WD_REMOVAL_MAX_CONCURRENT_DELETIONS;
+
 public final class RemoveAfterExecutionConfig {
 
     @JsonProperty
     @NotNull
     private boolean enabled = false;
 
+    @JsonProperty
+    @Min(1)
+    private int maxConcurrentDeletions = WD_REMOVAL_MAX_CONCURRENT_DELETIONS;
+
 
     public RemoveAfterExecutionConfig() {}
 
@@ -35,7 +42,16 @@ public final class RemoveAfterExecutionConfig {
         this.enabled = enabled;
     }
 
+    public RemoveAfterExecutionConfig(boolean enabled, int maxConcurrentDeletions) {
+        this.enabled = enabled;
+        this.maxConcurrentDeletions = maxConcurrentDeletions;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
+
+    public int getMaxConcurrentDeletions() {
+        return maxConcurrentDeletions;
+    }
 }
@@ -21,4 +21,12 @@ package com.github.jobson.dao;
 
 public interface IdGenerator {
     String generate();
+
+    /**
+     * @return true if the generator never returns the same ID twice, which
+     *         means that callers don't need to check whether an ID is taken.
+     */
+    default boolean generatesUniqueIds() {
+        return false;
+    }
 }
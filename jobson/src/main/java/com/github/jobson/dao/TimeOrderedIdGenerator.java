@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static com.github.jobson.Constants.*;
+
+/**
+ * Generates IDs that sort (as strings) in the order they were generated.
+ *
+ * Each ID is a millisecond timestamp, followed by a node ID, followed by a
+ * counter, all encoded in lowercase Crockford base32. The counter starts at
+ * a random value each millisecond and is incremented for every other ID
+ * generated during it, so IDs from one generator never collide and IDs from
+ * generators with different node IDs never collide.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final char[] alphabet = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+    private static final int bitsPerChar = 5;
+    private static final Random rng = new SecureRandom();
+
+    /**
+     * @return A random node ID, for when only one generator writes to the
+     *         jobs directory.
+     */
+    public static int generateRandomNodeId() {
+        return rng.nextInt(1 << (TIME_ORDERED_ID_NODE_CHARS * bitsPerChar));
+    }
+
+
+    private final int nodeId;
+    private final LongSupplier clock;
+    private long lastTimestamp = -1;
+    private long counter = 0;
+
+
+    public TimeOrderedIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(int nodeId, LongSupplier clock) {
+        final int maxNodeId = (1 << (TIME_ORDERED_ID_NODE_CHARS * bitsPerChar)) - 1;
+        if (nodeId < 0 || nodeId > maxNodeId)
+            throw new IllegalArgumentException(nodeId + ": node ID must be between 0 and " + maxNodeId);
+
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+
+    @Override
+    public synchronized String generate() {
+        final long now = clock.getAsLong();
+        final long maxCounter = (1L << (TIME_ORDERED_ID_COUNTER_CHARS * bitsPerChar)) - 1;
+
+        if (now > lastTimestamp) {
+            lastTimestamp = now;
+            // Leave headroom so that a burst within one millisecond rarely
+            // has to borrow the next one.
+            counter = rng.nextInt(1 << (TIME_ORDERED_ID_COUNTER_CHARS * bitsPerChar - 1));
+        } else if (counter < maxCounter) {
+            // Also covers the clock going backwards: the last timestamp is
+            // reused so that IDs keep increasing.
+            counter++;
+        } else {
+            lastTimestamp++;
+            counter = 0;
+        }
+
+        final char[] ret = new char[TIME_ORDERED_ID_TIMESTAMP_CHARS + TIME_ORDERED_ID_NODE_CHARS + TIME_ORDERED_ID_COUNTER_CHARS];
+        encode(lastTimestamp, ret, 0, TIME_ORDERED_ID_TIMESTAMP_CHARS);
+        encode(nodeId, ret, TIME_ORDERED_ID_TIMESTAMP_CHARS, TIME_ORDERED_ID_NODE_CHARS);
+        encode(counter, ret, TIME_ORDERED_ID_TIMESTAMP_CHARS + TIME_ORDERED_ID_NODE_CHARS, TIME_ORDERED_ID_COUNTER_CHARS);
+        return new String(ret);
+    }
+
+    private static void encode(long value, char[] dest, int offset, int len) {
+        for (int i = offset + len - 1; i >= offset; i--) {
+            dest[i] = alphabet[(int)(value & 0x1f)];
+            value >>>= bitsPerChar;
+        }
+    }
+
+    @Override
+    public boolean generatesUniqueIds() {
+        return true;
+    }
+}
@@ -42,22 +42,23 @@ import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.jobson.Constants.*;
 import static com.github.jobson.Helpers.*;
 import static com.github.jobson.dao.jobs.JobDetails.fromPersistedJob;
 import static java.lang.String.format;
 import static java.nio.file.Files.createDirectory;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonMap;
 import static java.util.Objects.requireNonNull;
@@ -76,19 +77,42 @@ public final class FilesystemJobsDAO implements JobDAO {
     private final Object fsLock = new Object();
     private final Path jobsDirectory;
     private final IdGenerator idGenerator;
+    private final boolean compress;
+    private final JobsDirectoryLayout layout;
 
 
     public FilesystemJobsDAO(Path jobsDirectory, IdGenerator idGenerator)
             throws NullPointerException, FileNotFoundException {
+        this(jobsDirectory, idGenerator, false);
+    }
+
+    /**
+     * @param compress If true, text outputs are gzipped and stdout and stderr
+     *                 are gzipped when their logs are finalized.
+     */
+    public FilesystemJobsDAO(Path jobsDirectory, IdGenerator idGenerator, boolean compress)
+            throws NullPointerException, FileNotFoundException {
+        this(jobsDirectory, idGenerator, compress, JobsDirectoryLayout.FLAT);
+    }
+
+    /**
+     * @param layout Where new job directories are created. Jobs stored in
+     *               any other layout can still be read (see migrateLayout).
+     */
+    public FilesystemJobsDAO(Path jobsDirectory, IdGenerator idGenerator, boolean compress, JobsDirectoryLayout layout)
+            throws NullPointerException, FileNotFoundException {
 
         requireNonNull(jobsDirectory);
         requireNonNull(idGenerator);
+        requireNonNull(layout);
 
         if (!Files.exists(jobsDirectory))
             throw new FileNotFoundException(jobsDirectory + ": Does not exist");
 
         this.jobsDirectory = jobsDirectory;
         this.idGenerator = idGenerator;
+        this.compress = compress;
+        this.layout = layout;
     }
 
 
@@ -98,11 +122,26 @@ public final class FilesystemJobsDAO implements JobDAO {
     }
 
     private Optional<Path> resolveJobDir(JobId jobId) {
-        return tryResolve(jobsDirectory, jobId.toString());
+        return resolveJobDir(jobId.toString());
+    }
+
+    private Optional<Path> resolveJobDir(String jobId) {
+        // The DAO's own layout is checked first, so that only jobs that are
+        // yet to be migrated pay for the fallback lookup.
+        final Path jobDir = layout.resolveJobDir(jobsDirectory, jobId);
+        if (Files.exists(jobDir)) return Optional.of(jobDir);
+
+        for (JobsDirectoryLayout otherLayout : JobsDirectoryLayout.values()) {
+            final Path otherJobDir = otherLayout.resolveJobDir(jobsDirectory, jobId);
+            if (otherLayout != layout && Files.exists(otherJobDir))
+                return Optional.of(otherJobDir);
+        }
+
+        return Optional.empty();
     }
 
     private Optional<Path> resolveJobFile(JobId jobId, String filename) {
-        return tryResolve(jobsDirectory, jobId.toString(), filename);
+        return resolveJobDir(jobId).flatMap(jobDir -> tryResolve(jobDir, filename));
     }
 
     @Override
@@ -131,15 +170,46 @@ public final class FilesystemJobsDAO implements JobDAO {
                 .collect(toList());
     }
 
+    /**
+     * @return The details of every job, read one at a time, in no particular
+     * order. Unlike paging through getJobs, this walks the jobs directory
+     * only once.
+     */
+    Stream<JobDetails> streamAllJobs() {
+        return loadAllJobs();
+    }
+
     private Stream<JobDetails> loadAllJobs() {
         synchronized (fsLock) {
-            return listDirectories(jobsDirectory)
-                    .filter(this::containsARequestJsonFile)
-                    .filter(this::doesNotBeginWithDot)
+            return listJobDirectories()
                     .map(this::loadJobDetails);
         }
     }
 
+    /**
+     * @return Every job directory, regardless of which layout it is stored in.
+     */
+    private Stream<File> listJobDirectories() {
+        return listJobDirectories(jobsDirectory, 0);
+    }
+
+    private Stream<File> listJobDirectories(Path dir, int depth) {
+        return listDirectories(dir)
+                .filter(this::doesNotBeginWithDot)
+                .flatMap(subDir -> {
+                    if (containsARequestJsonFile(subDir))
+                        return Stream.of(subDir);
+                    else if (depth < JOB_DIR_SHARD_DEPTH && isShardDirectory(subDir))
+                        return listJobDirectories(subDir.toPath(), depth + 1);
+                    else
+                        return Stream.empty();
+                });
+    }
+
+    private boolean isShardDirectory(File dir) {
+        return dir.getName().length() == JOB_DIR_SHARD_WIDTH;
+    }
+
     private boolean containsARequestJsonFile(File jobDir) {
         return jobDir.toPath().resolve(JOB_DIR_JOB_DETAILS_FILENAME).toFile().exists();
     }
@@ -209,9 +279,12 @@ public final class FilesystemJobsDAO implements JobDAO {
     }
 
     private JobId generateUniqueJobId() {
+        if (idGenerator.generatesUniqueIds())
+            return new JobId(idGenerator.generate());
+
         for(int i = 0; i < MAX_JOB_ID_GENERATION_ATTEMPTS; i++) {
             final String id = idGenerator.generate();
-            if (!Files.exists(this.jobsDirectory.resolve(id))) {
+            if (!resolveJobDir(id).isPresent()) {
                 return new JobId(id);
             }
         }
@@ -225,7 +298,8 @@ public final class FilesystemJobsDAO implements JobDAO {
     private void createNewJobDirectory(PersistedJob persistedJob) {
         final JobId id = persistedJob.getId();
         try {
-            final Path jobDir = jobsDirectory.resolve(id.toString());
+            final Path jobDir = layout.resolveJobDir(jobsDirectory, id.toString());
+            Files.createDirectories(jobDir.getParent());
             createDirectory(jobDir);
             log.debug(id + ": created job dir: " + jobDir);
 
@@ -310,6 +384,70 @@ public final class FilesystemJobsDAO implements JobDAO {
         }
     }
 
+    @Override
+    public boolean linkResults(JobId sourceJobId, JobId targetJobId) {
+        final Optional<Path> maybeSourceDir = resolveJobDir(sourceJobId);
+        final Optional<Path> maybeTargetDir = resolveJobDir(targetJobId);
+
+        if (!maybeSourceDir.isPresent() || !maybeTargetDir.isPresent())
+            return false;
+
+        final Path sourceDir = maybeSourceDir.get();
+        final Path targetDir = maybeTargetDir.get();
+
+        // Results are linked into a staging dir and only then moved into the
+        // job dir. A failure part-way through must not leave hard links in the
+        // job dir: the job would then run and, when writing its stdout,
+        // truncate the (shared) stdout of the source job.
+        final List<Path> movedIntoTarget = new ArrayList<>();
+        Path stagingDir = null;
+        try {
+            stagingDir = Files.createTempDirectory(targetDir, JOB_DIR_LINK_STAGING_DIR_PREFIX);
+
+            for (String filename : asList(
+                    JOB_DIR_STDOUT_FILENAME,
+                    JOB_DIR_STDOUT_FILENAME + GZIP_FILE_EXTENSION,
+                    JOB_DIR_STDERR_FILENAME,
+                    JOB_DIR_STDERR_FILENAME + GZIP_FILE_EXTENSION,
+                    JOB_DIR_OUTPUTS_FILENAME)) {
+                final Path source = sourceDir.resolve(filename);
+                if (Files.exists(source))
+                    linkOrCopy(source, stagingDir.resolve(filename));
+            }
+
+            final Path sourceOutputsDir = sourceDir.resolve(JOB_DIR_OUTPUTS_DIRNAME);
+            if (Files.isDirectory(sourceOutputsDir)) {
+                final Path stagedOutputsDir = stagingDir.resolve(JOB_DIR_OUTPUTS_DIRNAME);
+                try (Stream<Path> sourcePaths = Files.walk(sourceOutputsDir)) {
+                    for (Path source : (Iterable<Path>) sourcePaths::iterator) {
+                        final Path target = stagedOutputsDir.resolve(sourceOutputsDir.relativize(source).toString());
+                        if (Files.isDirectory(source)) Files.createDirectories(target);
+                        else linkOrCopy(source, target);
+                    }
+                }
+            }
+
+            try (Stream<Path> stagedPaths = Files.list(stagingDir)) {
+                for (Path staged : (Iterable<Path>) stagedPaths::iterator) {
+                    final Path target = targetDir.resolve(staged.getFileName().toString());
+                    Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+                    movedIntoTarget.add(target);
+                }
+            }
+
+            log.debug("{}: linked results from {}", targetJobId, sourceJobId);
+            return true;
+        } catch (IOException ex) {
+            log.warn("{}: cannot link results from {}: {}", targetJobId, sourceJobId, ex.getMessage());
+            // Unlinking only removes the target's names for the files, so this
+            // never touches the source job's results.
+            movedIntoTarget.forEach(path -> FileUtils.deleteQuietly(path.toFile()));
+            return false;
+        } finally {
+            if (stagingDir != null) FileUtils.deleteQuietly(stagingDir.toFile());
+        }
+    }
+
     @Override
     public void remove(JobId jobId) {
         resolveJobDir(jobId).ifPresent(dir -> {
@@ -321,6 +459,161 @@ public final class FilesystemJobsDAO implements JobDAO {
         });
     }
 
+    /**
+     * Moves every job directory that is not stored in this DAO's layout into
+     * it. Jobs are readable throughout, but this should not be ran while
+     * another process (e.g. a server) is writing to the jobs directory.
+     *
+     * @return The number of job directories moved
+     */
+    public int migrateLayout() throws IOException {
+        int jobsMoved = 0;
+
+        synchronized (fsLock) {
+            for (File jobDir : listJobDirectories().collect(toList())) {
+                final Path source = jobDir.toPath();
+                final Path destination = layout.resolveJobDir(jobsDirectory, jobDir.getName());
+
+                if (!source.equals(destination)) {
+                    Files.createDirectories(destination.getParent());
+                    Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+                    removeEmptyShardDirectories(source.getParent());
+                    jobsMoved++;
+                }
+            }
+        }
+
+        log.info("{}: moved {} job directories into the {} layout", jobsDirectory, jobsMoved, layout);
+
+        return jobsMoved;
+    }
+
+    private void removeEmptyShardDirectories(Path dir) throws IOException {
+        while (!dir.equals(jobsDirectory) && isShardDirectory(dir.toFile())) {
+            try (Stream<Path> entries = Files.list(dir)) {
+                if (entries.findAny().isPresent()) return;
+            }
+            Files.delete(dir);
+            dir = dir.getParent();
+        }
+    }
+
+    /**
+     * @return The total size of everything persisted for the job, or 0 if the job does not exist.
+     */
+    public long getJobSizeInBytes(JobId jobId) {
+        return getJobSizeInBytes(jobId, new HashSet<>());
+    }
+
+    /**
+     * @param countedFileKeys The file keys (inodes) of files that have already
+     *                        been counted. Files that are hard-linked into
+     *                        several jobs (e.g. reused results) are only
+     *                        counted by the first job that is measured.
+     *
+     * @return The number of bytes used by files in the job's directory that
+     * are not in countedFileKeys
+     */
+    public long getJobSizeInBytes(JobId jobId, Set<Object> countedFileKeys) {
+        final Optional<Path> maybeJobDir = resolveJobDir(jobId);
+        if (!maybeJobDir.isPresent()) return 0L;
+
+        try (Stream<Path> paths = Files.walk(maybeJobDir.get())) {
+            long size = 0;
+            for (Path p : (Iterable<Path>) paths::iterator) {
+                final BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                if (!attrs.isRegularFile()) continue;
+                if (attrs.fileKey() == null || countedFileKeys.add(attrs.fileKey()))
+                    size += attrs.size();
+            }
+            return size;
+        } catch (IOException ex) {
+            throw new RuntimeException(jobId + ": cannot measure job dir: " + ex);
+        }
+    }
+
+    /**
+     * Moves all of a job's data into archiveDir, removing it from this DAO.
+     */
+    public void archive(JobId jobId, Path archiveDir) throws IOException {
+        final Optional<Path> maybeJobDir = resolveJobDir(jobId);
+        if (maybeJobDir.isPresent()) {
+            Files.createDirectories(archiveDir);
+            FileUtils.moveDirectory(maybeJobDir.get().toFile(), archiveDir.resolve(jobId.toString()).toFile());
+        }
+    }
+
+    @Override
+    public void finalizeLogs(JobId jobId) {
+        if (!compress) return;
+
+        for (String filename : asList(JOB_DIR_STDOUT_FILENAME, JOB_DIR_STDERR_FILENAME)) {
+            final Optional<Path> maybeLog = resolveJobFile(jobId, filename);
+            if (maybeLog.isPresent()) {
+                try {
+                    gzipFile(maybeLog.get());
+                } catch (IOException ex) {
+                    throw new RuntimeException(maybeLog.get() + ": cannot compress: " + ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gzips the job's stdout and stderr. They are transparently decompressed
+     * when read, so this should only be done once the job has finished writing
+     * to them. Logs that are too small to benefit, or that are hard-linked
+     * into other jobs (compressing them would keep both copies), are left
+     * as-is.
+     *
+     * @return The number of bytes saved (never negative)
+     */
+    public long compressLogs(JobId jobId) throws IOException {
+        long bytesSaved = 0;
+        for (String filename : asList(JOB_DIR_STDOUT_FILENAME, JOB_DIR_STDERR_FILENAME)) {
+            final Optional<Path> maybeLog = resolveJobFile(jobId, filename);
+            if (maybeLog.isPresent() &&
+                    Files.size(maybeLog.get()) >= JOB_RETENTION_MIN_LOG_SIZE_TO_COMPRESS_IN_BYTES &&
+                    !isHardLinkedElsewhere(maybeLog.get()))
+                bytesSaved += gzipFile(maybeLog.get());
+        }
+        return bytesSaved;
+    }
+
+    private static boolean isHardLinkedElsewhere(Path p) throws IOException {
+        try {
+            return ((Number) Files.getAttribute(p, "unix:nlink")).intValue() > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+            return false;  // Can't tell on this filesystem
+        }
+    }
+
+    /**
+     * Replaces p with a gzipped copy of it (with a .gz extension). If the
+     * gzipped copy would not be smaller, p is left as-is.
+     *
+     * @return The number of bytes saved
+     */
+    private static long gzipFile(Path p) throws IOException {
+        final Path compressed = p.resolveSibling(p.getFileName() + GZIP_FILE_EXTENSION);
+        final Path tmp = p.resolveSibling(p.getFileName() + GZIP_FILE_EXTENSION + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+            Files.copy(p, out);
+        } catch (IOException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        final long sizeBefore = Files.size(p);
+        final long sizeAfter = Files.size(tmp);
+        if (sizeAfter >= sizeBefore) {
+            Files.delete(tmp);
+            return 0;
+        }
+        Files.move(tmp, compressed, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(p);
+        return sizeBefore - sizeAfter;
+    }
+
     private void createIfDoesNotExist(Path p) {
         if (!p.toFile().exists()) {
             try {
@@ -332,11 +625,18 @@ public final class FilesystemJobsDAO implements JobDAO {
     }
 
     private void writeJobOutputToDisk(JobOutput jobOutput, Path outputPath) {
-        try {
-            IOUtils.copyLarge(jobOutput.getData().getData(), new FileOutputStream(outputPath.toFile(), false));
+        final boolean shouldCompress = compress && isTextMimeType(jobOutput.getData().getMimeType());
+        final Path actualOutputPath = shouldCompress ?
+                outputPath.resolveSibling(outputPath.getFileName() + GZIP_FILE_EXTENSION) :
+                outputPath;
+
+        try (OutputStream out = shouldCompress ?
+                new GZIPOutputStream(new FileOutputStream(actualOutputPath.toFile(), false)) :
+                new FileOutputStream(actualOutputPath.toFile(), false)) {
+            IOUtils.copyLarge(jobOutput.getData().getData(), out);
             jobOutput.getData().getData().close();
         } catch (IOException ex) {
-            throw new RuntimeException(outputPath + ": cannot write: " + ex);
+            throw new RuntimeException(actualOutputPath + ": cannot write: " + ex);
         }
     }
 
@@ -372,23 +672,62 @@ public final class FilesystemJobsDAO implements JobDAO {
 
     @Override
     public boolean hasStdout(JobId jobId) {
-        return resolveJobFile(jobId, JOB_DIR_STDOUT_FILENAME).isPresent();
+        return hasLog(jobId, JOB_DIR_STDOUT_FILENAME);
     }
 
     @Override
     public Optional<BinaryData> getStdout(JobId jobId) {
-        return resolveJobFile(jobId, JOB_DIR_STDOUT_FILENAME).map(Helpers::streamBinaryData);
+        return getLog(jobId, JOB_DIR_STDOUT_FILENAME);
     }
 
 
     @Override
     public boolean hasStderr(JobId jobId) {
-        return resolveJobFile(jobId, JOB_DIR_STDERR_FILENAME).isPresent();
+        return hasLog(jobId, JOB_DIR_STDERR_FILENAME);
     }
 
     @Override
     public Optional<BinaryData> getStderr(JobId jobId) {
-        return resolveJobFile(jobId, JOB_DIR_STDERR_FILENAME).map(Helpers::streamBinaryData);
+        return getLog(jobId, JOB_DIR_STDERR_FILENAME);
+    }
+
+    private boolean hasLog(JobId jobId, String filename) {
+        return resolveJobFile(jobId, filename).isPresent() ||
+                resolveJobFile(jobId, filename + GZIP_FILE_EXTENSION).isPresent();
+    }
+
+    private Optional<BinaryData> getLog(JobId jobId, String filename) {
+        final Optional<Path> maybeLog = resolveJobFile(jobId, filename);
+        if (maybeLog.isPresent())
+            return maybeLog.map(Helpers::streamBinaryData);
+        else
+            return resolveJobFile(jobId, filename + GZIP_FILE_EXTENSION).map(FilesystemJobsDAO::streamGzippedBinaryData);
+    }
+
+    /**
+     * @return The (still compressed) data in p, with a gzip content encoding.
+     */
+    private static BinaryData streamGzippedBinaryData(Path p) {
+        final BinaryData raw = streamBinaryData(p);
+        return new BinaryData(
+                raw.getData(), raw.getSizeOf(), raw.getMimeType(), Optional.of(GZIP_CONTENT_ENCODING), readGzippedSize(p));
+    }
+
+    /**
+     * @return The uncompressed size of the gzip file p, or -1 if it can't be
+     * known without decompressing p.
+     */
+    private static long readGzippedSize(Path p) {
+        try (RandomAccessFile f = new RandomAccessFile(p.toFile(), "r")) {
+            // gzip's trailer holds the uncompressed size modulo 2^32, which is
+            // exact as long as p can't decompress to 4 GiB or more.
+            if (f.length() < 18 || f.length() >= MAX_GZIP_SIZE_WITH_EXACT_TRAILER_SIZE) return -1;
+            f.seek(f.length() - 4);
+            final long b0 = f.read(), b1 = f.read(), b2 = f.read(), b3 = f.read();
+            return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+        } catch (IOException ex) {
+            return -1;
+        }
     }
 
 
@@ -406,7 +745,12 @@ public final class FilesystemJobsDAO implements JobDAO {
     }
 
     private Optional<Path> tryResolveOutput(JobId jobId, String outputId) {
-        return resolveJobDir(jobId).flatMap(p -> tryResolve(p, JOB_DIR_OUTPUTS_DIRNAME, outputId));
+        final Optional<Path> maybeOutput =
+                resolveJobDir(jobId).flatMap(p -> tryResolve(p, JOB_DIR_OUTPUTS_DIRNAME, outputId));
+        if (maybeOutput.isPresent())
+            return maybeOutput;
+        else
+            return resolveJobDir(jobId).flatMap(p -> tryResolve(p, JOB_DIR_OUTPUTS_DIRNAME, outputId + GZIP_FILE_EXTENSION));
     }
 
     @Override
@@ -427,7 +771,9 @@ public final class FilesystemJobsDAO implements JobDAO {
 
     private Optional<BinaryData> tryLoadJobOutputData(JobId jobId, JobOutputDetails metadata) {
         return tryResolveOutput(jobId, metadata.getId().toString())
-                .map(Helpers::streamBinaryData)
+                .map(p -> p.getFileName().toString().equals(metadata.getId() + GZIP_FILE_EXTENSION) ?
+                        streamGzippedBinaryData(p) :
+                        streamBinaryData(p))
                 .map(binaryData -> {
                     final String mimeType = metadata.getMimeType().orElse(binaryData.getMimeType());
                     return binaryData.withMimeType(mimeType);
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao.jobs;
+
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.config.JobRetentionConfig;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.specs.JobSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.github.jobson.Helpers.lastElement;
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Expires (removes or archives) finished jobs that exceed the configured
+ * age, count, or size limits and compresses the logs of finished jobs that
+ * are kept. Jobs that have not finished are never touched.
+ */
+public final class JobRetentionEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRetentionEngine.class);
+
+
+    private final FilesystemJobsDAO dao;
+    private final JobRetentionConfig config;
+    private final Optional<Path> archiveDir;
+
+
+    public JobRetentionEngine(FilesystemJobsDAO dao, JobRetentionConfig config) {
+        requireNonNull(dao);
+        requireNonNull(config);
+
+        this.dao = dao;
+        this.config = config;
+        this.archiveDir = config.getArchiveDir().map(Paths::get);
+    }
+
+
+    public JobRetentionReport run() {
+        final long now = System.currentTimeMillis();
+
+        // Newest first, so that the limits keep the most recent jobs. Only
+        // what's needed to order and group the jobs is held, so the jobs
+        // directory is walked once, without holding every job's details.
+        final List<FinishedJob> finishedJobs;
+        try (Stream<JobDetails> jobs = dao.streamAllJobs()) {
+            finishedJobs = jobs
+                    .filter(job -> job.latestStatus().isFinal())
+                    .map(FinishedJob::new)
+                    .sorted(comparingLong((FinishedJob job) -> job.finishedAt).reversed())
+                    .collect(toList());
+        }
+
+        final Map<String, GroupUsage> groups = new HashMap<>();
+        final Set<Object> countedFileKeys = new HashSet<>();
+        final Map<JobId, Long> expiredJobSizes = new LinkedHashMap<>();
+
+        int jobsCompressed = 0;
+        long bytesReclaimed = 0;
+
+        for (FinishedJob job : finishedJobs) {
+            try {
+                final GroupUsage group = groups.computeIfAbsent(groupKeyFunction().apply(job), k -> new GroupUsage());
+                final long ageInMillis = now - job.finishedAt;
+                final long size = dao.getJobSizeInBytes(job.id, countedFileKeys);
+
+                final boolean tooOld =
+                        config.getMaxAge().isPresent() && ageInMillis > config.getMaxAge().get().toMillis();
+                final boolean tooMany =
+                        config.getMaxJobs().isPresent() && group.jobsKept >= config.getMaxJobs().get();
+                final boolean tooBig =
+                        config.getMaxBytes().isPresent() && group.bytesKept + size > config.getMaxBytes().get();
+
+                if (tooOld || tooMany || tooBig) {
+                    expiredJobSizes.put(job.id, size);
+                } else {
+                    group.jobsKept++;
+                    if (shouldCompressLogs(ageInMillis)) {
+                        final long bytesSaved = dao.compressLogs(job.id);
+                        if (bytesSaved > 0) jobsCompressed++;
+                        bytesReclaimed += bytesSaved;
+                        group.bytesKept += size - bytesSaved;
+                    } else {
+                        group.bytesKept += size;
+                    }
+                }
+            } catch (Exception ex) {
+                log.warn("{}: cannot apply retention policy: {}", job.id, ex.toString());
+            }
+        }
+
+        int jobsRemoved = 0;
+        int jobsArchived = 0;
+
+        for (Map.Entry<JobId, Long> expiredJob : expiredJobSizes.entrySet()) {
+            final JobId jobId = expiredJob.getKey();
+            try {
+                if (archiveDir.isPresent()) {
+                    dao.archive(jobId, archiveDir.get());
+                    jobsArchived++;
+                } else {
+                    dao.remove(jobId);
+                    jobsRemoved++;
+                }
+                bytesReclaimed += expiredJob.getValue();
+            } catch (Exception ex) {
+                log.warn("{}: cannot expire job: {}", jobId, ex.toString());
+            }
+        }
+
+        final JobRetentionReport report =
+                new JobRetentionReport(jobsRemoved, jobsArchived, jobsCompressed, bytesReclaimed);
+        log.info("Job retention: {}", report);
+        return report;
+    }
+
+    private Function<FinishedJob, String> groupKeyFunction() {
+        switch (config.getGroupBy()) {
+            case OWNER:
+                return job -> job.owner.toString();
+            case SPEC:
+                return job -> dao.getSpecJobWasSubmittedAgainst(job.id)
+                        .map(JobSpec::getId)
+                        .map(Object::toString)
+                        .orElse("");
+            default:
+                return job -> "";
+        }
+    }
+
+    private boolean shouldCompressLogs(long ageInMillis) {
+        return config.getCompressLogsAfter()
+                .map(Duration::toMillis)
+                .map(compressAfter -> ageInMillis > compressAfter)
+                .orElse(false);
+    }
+
+
+    private static final class FinishedJob {
+        private final JobId id;
+        private final UserId owner;
+        private final long finishedAt;
+
+        private FinishedJob(JobDetails job) {
+            this.id = job.getId();
+            this.owner = job.getOwner();
+            this.finishedAt = lastElement(job.getTimestamps()).get().getTime().getTime();
+        }
+    }
+
+    private static final class GroupUsage {
+        private int jobsKept = 0;
+        private long bytesKept = 0;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao.jobs;
+
+/**
+ * What a single run of a {@link JobRetentionEngine} did.
+ */
+public final class JobRetentionReport {
+
+    private final int jobsRemoved;
+    private final int jobsArchived;
+    private final int jobsCompressed;
+    private final long bytesReclaimed;
+
+
+    public JobRetentionReport(int jobsRemoved, int jobsArchived, int jobsCompressed, long bytesReclaimed) {
+        this.jobsRemoved = jobsRemoved;
+        this.jobsArchived = jobsArchived;
+        this.jobsCompressed = jobsCompressed;
+        this.bytesReclaimed = bytesReclaimed;
+    }
+
+
+    public int getJobsRemoved() {
+        return jobsRemoved;
+    }
+
+    public int getJobsArchived() {
+        return jobsArchived;
+    }
+
+    public int getJobsCompressed() {
+        return jobsCompressed;
+    }
+
+    /**
+     * @return The number of bytes freed in the jobs directory (archived jobs count as freed).
+     */
+    public long getBytesReclaimed() {
+        return bytesReclaimed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "removed %d jobs, archived %d jobs, compressed logs of %d jobs, reclaimed %d bytes",
+                jobsRemoved, jobsArchived, jobsCompressed, bytesReclaimed);
+    }
+}
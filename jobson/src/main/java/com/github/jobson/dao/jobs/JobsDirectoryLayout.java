@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao.jobs;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.nio.file.Path;
+
+import static com.github.jobson.Constants.JOB_DIR_SHARD_DEPTH;
+import static com.github.jobson.Constants.JOB_DIR_SHARD_WIDTH;
+
+/**
+ * Where, within the jobs directory, each job's directory is placed.
+ */
+public enum JobsDirectoryLayout {
+
+    /**
+     * Every job directory directly inside the jobs directory
+     * (e.g. jobs/abcdxxxxxx).
+     */
+    @JsonProperty("flat")
+    FLAT,
+
+    /**
+     * Job directories nested inside shard directories named after a hash
+     * of the job ID (e.g. jobs/3f/a2/abcdxxxxxx), which keeps each
+     * directory small when there are many jobs. The ID's own prefix isn't
+     * used because time-ordered IDs share it for days at a time.
+     */
+    @JsonProperty("sharded")
+    SHARDED;
+
+
+    public Path resolveJobDir(Path jobsDirectory, String jobId) {
+        switch (this) {
+            case SHARDED:
+                final String hash = DigestUtils.md5Hex(jobId);
+                Path shardDir = jobsDirectory;
+                for (int i = 0; i < JOB_DIR_SHARD_DEPTH; i++)
+                    shardDir = shardDir.resolve(hash.substring(i * JOB_DIR_SHARD_WIDTH, (i + 1) * JOB_DIR_SHARD_WIDTH));
+                return shardDir.resolve(jobId);
+            default:
+                return jobsDirectory.resolve(jobId);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao.jobs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.jobson.jobinputs.JobExpectedInputId;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.JobOutput;
+import com.github.jobson.jobs.JobStatus;
+import com.github.jobson.jobs.jobstates.PersistedJob;
+import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import com.github.jobson.specs.JobOutputId;
+import com.github.jobson.specs.JobSpec;
+import com.github.jobson.utils.BinaryData;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static com.github.jobson.Constants.JOBS_DAO_METRIC_NAME_PREFIX;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records how long each operation on a JobDAO takes in a metric registry
+ * (e.g. as "jobson.jobsDAO.persist").
+ */
+public final class TimedJobDAO implements JobDAO {
+
+    private final JobDAO jobDAO;
+    private final MetricRegistry metrics;
+
+
+    public TimedJobDAO(JobDAO jobDAO, MetricRegistry metrics) {
+        requireNonNull(jobDAO);
+        requireNonNull(metrics);
+
+        this.jobDAO = jobDAO;
+        this.metrics = metrics;
+    }
+
+
+    private <T> T time(String operation, Supplier<T> f) {
+        final Timer.Context context = metrics.timer(JOBS_DAO_METRIC_NAME_PREFIX + operation).time();
+        try {
+            return f.get();
+        } finally {
+            context.stop();
+        }
+    }
+
+    private void time(String operation, Runnable f) {
+        time(operation, () -> {
+            f.run();
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<JobDetails> getJobDetailsById(JobId jobId) {
+        return time("getJobDetailsById", () -> jobDAO.getJobDetailsById(jobId));
+    }
+
+    @Override
+    public Optional<JobSpec> getSpecJobWasSubmittedAgainst(JobId jobId) {
+        return time("getSpecJobWasSubmittedAgainst", () -> jobDAO.getSpecJobWasSubmittedAgainst(jobId));
+    }
+
+    @Override
+    public List<JobDetails> getJobs(int pageSize, int page) {
+        return time("getJobs", () -> jobDAO.getJobs(pageSize, page));
+    }
+
+    @Override
+    public List<JobDetails> getJobs(int pageSize, int page, String query) {
+        return time("getJobs", () -> jobDAO.getJobs(pageSize, page, query));
+    }
+
+    @Override
+    public boolean jobExists(JobId jobId) {
+        return time("jobExists", () -> jobDAO.jobExists(jobId));
+    }
+
+    @Override
+    public boolean hasStdout(JobId jobId) {
+        return time("hasStdout", () -> jobDAO.hasStdout(jobId));
+    }
+
+    @Override
+    public Optional<BinaryData> getStdout(JobId jobId) {
+        return time("getStdout", () -> jobDAO.getStdout(jobId));
+    }
+
+    @Override
+    public boolean hasStderr(JobId jobId) {
+        return time("hasStderr", () -> jobDAO.hasStderr(jobId));
+    }
+
+    @Override
+    public Optional<BinaryData> getStderr(JobId jobId) {
+        return time("getStderr", () -> jobDAO.getStderr(jobId));
+    }
+
+    @Override
+    public Set<JobId> getJobsWithStatus(JobStatus status) {
+        return time("getJobsWithStatus", () -> jobDAO.getJobsWithStatus(status));
+    }
+
+    @Override
+    public boolean hasOutput(JobId jobId, JobOutputId outputId) {
+        return time("hasOutput", () -> jobDAO.hasOutput(jobId, outputId));
+    }
+
+    @Override
+    public Optional<BinaryData> getOutput(JobId jobId, JobOutputId outputId) {
+        return time("getOutput", () -> jobDAO.getOutput(jobId, outputId));
+    }
+
+    @Override
+    public List<JobOutputDetails> getJobOutputs(JobId jobId) {
+        return time("getJobOutputs", () -> jobDAO.getJobOutputs(jobId));
+    }
+
+    @Override
+    public boolean hasJobInputs(JobId jobId) {
+        return time("hasJobInputs", () -> jobDAO.hasJobInputs(jobId));
+    }
+
+    @Override
+    public Optional<Map<JobExpectedInputId, JsonNode>> getJobInputs(JobId jobId) {
+        return time("getJobInputs", () -> jobDAO.getJobInputs(jobId));
+    }
+
+    @Override
+    public Map<String, HealthCheck> getHealthChecks() {
+        return jobDAO.getHealthChecks();
+    }
+
+    @Override
+    public Disposable appendStdout(JobId jobId, Observable<byte[]> stdout) {
+        return time("appendStdout", () -> jobDAO.appendStdout(jobId, stdout));
+    }
+
+    @Override
+    public Disposable appendStderr(JobId jobId, Observable<byte[]> stderr) {
+        return time("appendStderr", () -> jobDAO.appendStderr(jobId, stderr));
+    }
+
+    @Override
+    public PersistedJob persist(ValidJobRequest validJobRequest) {
+        return time("persist", () -> jobDAO.persist(validJobRequest));
+    }
+
+    @Override
+    public void addNewJobStatus(JobId jobId, JobStatus newStatus, String statusMessage) {
+        time("addNewJobStatus", () -> jobDAO.addNewJobStatus(jobId, newStatus, statusMessage));
+    }
+
+    @Override
+    public void persistOutput(JobId jobId, JobOutput jobOutput) {
+        time("persistOutput", () -> jobDAO.persistOutput(jobId, jobOutput));
+    }
+
+    @Override
+    public boolean linkResults(JobId sourceJobId, JobId targetJobId) {
+        return time("linkResults", () -> jobDAO.linkResults(sourceJobId, targetJobId));
+    }
+
+    @Override
+    public void finalizeLogs(JobId jobId) {
+        time("finalizeLogs", () -> jobDAO.finalizeLogs(jobId));
+    }
+
+    @Override
+    public void remove(JobId jobId) {
+        time("remove", () -> jobDAO.remove(jobId));
+    }
+}
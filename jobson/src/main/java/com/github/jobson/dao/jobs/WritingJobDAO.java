@@ -37,5 +37,21 @@ public interface WritingJobDAO {
 
     void persistOutput(JobId jobId, JobOutput jobOutput);
 
+    /**
+     * Makes the results (stdout, stderr, outputs) of one job available as the
+     * results of another job.
+     *
+     * @return false if the source job's results are no longer available
+     */
+    boolean linkResults(JobId sourceJobId, JobId targetJobId);
+
+    /**
+     * Called once the job's stdout and stderr have been completely written.
+     *
+     * @throws RuntimeException if the logs could not be finalized. The logs
+     *                          remain readable in their unfinalized form.
+     */
+    void finalizeLogs(JobId jobId);
+
     void remove(JobId jobId);
 }
@@ -35,6 +35,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.github.jobson.Constants.FILESYSTEM_SPECS_DAO_DISK_SPACE_HEALTHCHECK;
 import static com.github.jobson.Constants.FILESYSTEM_SPECS_DAO_DISK_SPACE_WARNING_THRESHOLD_IN_BYTES;
@@ -70,6 +71,7 @@ public final class FilesystemJobSpecDAO implements JobSpecDAO {
 
 
     private final Path jobSpecsDir;
+    private final Map<JobSpecId, LoadedJobSpec> loadedJobSpecs = new ConcurrentHashMap<>();
 
 
     public FilesystemJobSpecDAO(Path jobSpecsDir) throws IOException {
@@ -93,10 +95,34 @@ public final class FilesystemJobSpecDAO implements JobSpecDAO {
             log.error(jobSpecDir.toString() + ": is not a directory");
             return Optional.empty();
         } else {
-            return loadJobSpec(jobSpecDir);
+            return loadJobSpecOrReuseLoaded(jobSpecId, jobSpecDir);
         }
     }
 
+    /**
+     * Specs are only re-read if their spec file has changed, so that
+     * anything a spec precomputes (e.g. the table lookups and validation
+     * results of SQL inputs) is reused between requests.
+     */
+    private Optional<JobSpec> loadJobSpecOrReuseLoaded(JobSpecId jobSpecId, Path jobSpecDir) {
+        final File jobSpecFile = jobSpecDir.resolve(Constants.SPEC_DIR_SPEC_FILENAME).toFile();
+        final long lastModified = jobSpecFile.lastModified();
+        final long length = jobSpecFile.length();
+
+        final LoadedJobSpec loaded = loadedJobSpecs.get(jobSpecId);
+        if (loaded != null && loaded.lastModified == lastModified && loaded.length == length)
+            return Optional.of(loaded.jobSpec);
+
+        final Optional<JobSpec> maybeJobSpec = loadJobSpec(jobSpecDir);
+
+        if (maybeJobSpec.isPresent())
+            loadedJobSpecs.put(jobSpecId, new LoadedJobSpec(maybeJobSpec.get(), lastModified, length));
+        else
+            loadedJobSpecs.remove(jobSpecId);
+
+        return maybeJobSpec;
+    }
+
     @Override
     public Map<String, HealthCheck> getHealthChecks() {
         return singletonMap(
@@ -140,4 +166,17 @@ public final class FilesystemJobSpecDAO implements JobSpecDAO {
     private static int bySpecName(JobSpecSummary a, JobSpecSummary b) {
         return a.getName().compareTo(b.getName());
     }
+
+
+    private static final class LoadedJobSpec {
+        private final JobSpec jobSpec;
+        private final long lastModified;
+        private final long length;
+
+        private LoadedJobSpec(JobSpec jobSpec, long lastModified, long length) {
+            this.jobSpec = jobSpec;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
 }
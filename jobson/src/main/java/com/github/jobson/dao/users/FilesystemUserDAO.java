@@ -24,18 +24,59 @@ import com.github.jobson.api.v1.UserId;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.file.Files;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
-import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * A user DAO backed by a users file.
+ *
+ * The file is indexed in memory and is re-read whenever it changes on
+ * disk. Writes take an exclusive lock on a sibling ".lock" file and replace
+ * the users file atomically, so concurrent writers (e.g. `jobson users
+ * add` while the server is running) cannot corrupt it.
+ */
 public final class FilesystemUserDAO implements UserDAO {
 
+    // File locks are held by the whole JVM, so DAOs in the same process
+    // that write the same file must also exclude each other in-process.
+    private static final ConcurrentMap<Path, Object> inProcessWriteLocks = new ConcurrentHashMap<>();
+
+    private static boolean isCredentialsLine(String line) {
+        final String trimmed = line.trim();
+        return trimmed.length() > 0 && !trimmed.startsWith("#");  // comment line
+    }
+
+    private static Stream<UserCredentials> parseUserCredentials(List<String> lines) {
+        return lines.stream()
+                .filter(FilesystemUserDAO::isCredentialsLine)
+                .map(String::trim)
+                .map(UserCredentials::fromUserFileLine);
+    }
+
+
     private final File usersFile;
+    private final Path lockFile;
+
+    // Guarded by this
+    private Map<UserId, UserCredentials> credentialsById = emptyMap();
+    private List<Object> loadedFileState = emptyList();
+    private long credentialsVersion = 0;
 
 
     public FilesystemUserDAO(File usersFile) throws FileNotFoundException {
@@ -46,64 +87,127 @@ public final class FilesystemUserDAO implements UserDAO {
             throw new IllegalArgumentException(usersFile.toString() + ": Is not a file (users file)");
 
         this.usersFile = usersFile;
+        this.lockFile = usersFile.toPath().toAbsolutePath().normalize().resolveSibling(usersFile.getName() + ".lock");
     }
 
     @Override
     public Optional<UserCredentials> getUserCredentialsById(UserId id) {
         requireNonNull(id);
 
-        try {
-            return readUserCredentials()
-                    .filter(c -> c.getId().equals(id))
-                    .findFirst();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Optional.ofNullable(loadCredentialsById().get(id));
     }
 
-    private Stream<UserCredentials> readUserCredentials() throws IOException {
-        return Files.readAllLines(usersFile.toPath())
-                .stream()
-                .map(String::trim)
-                .filter(l -> l.length() > 0 && !l.startsWith("#")) // comment line
-                .map(UserCredentials::fromUserFileLine);
+    @Override
+    public synchronized long getCredentialsVersion() {
+        reloadIfChanged();
+        return credentialsVersion;
+    }
+
+    private synchronized Map<UserId, UserCredentials> loadCredentialsById() {
+        reloadIfChanged();
+        return credentialsById;
+    }
+
+    private synchronized void reloadIfChanged() {
+        try {
+            final BasicFileAttributes attrs = Files.readAttributes(usersFile.toPath(), BasicFileAttributes.class);
+            // Writers replace the file, so its file key (inode) changes even
+            // if the modification time's resolution is too coarse to notice.
+            final List<Object> fileState =
+                    Arrays.asList(attrs.fileKey(), attrs.lastModifiedTime(), attrs.size());
+
+            if (!fileState.equals(loadedFileState)) {
+                final Map<UserId, UserCredentials> newCredentialsById = new HashMap<>();
+                parseUserCredentials(Files.readAllLines(usersFile.toPath()))
+                        .forEach(c -> newCredentialsById.putIfAbsent(c.getId(), c));
+
+                credentialsById = Collections.unmodifiableMap(newCredentialsById);
+                loadedFileState = fileState;
+                credentialsVersion++;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 
     @Override
     public boolean addNewUser(UserId id, String authName, String authField) {
-        try {
+        final UserCredentials newCredentials = new UserCredentials(id, authName, authField);
+
+        return rewriteUsersFile(lines -> {
             final boolean userExists =
-                    readUserCredentials().anyMatch(c -> c.getId().equals(id));
+                    parseUserCredentials(lines).anyMatch(c -> c.getId().equals(id));
 
             if (!userExists) {
-                final UserCredentials c = new UserCredentials(id, authName, authField);
-                final String s = c.toUserFileLine() + System.lineSeparator();
-                Files.write(usersFile.toPath(), s.getBytes(), APPEND);
-                return true;
-            } else return false;
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
+                final List<String> newLines = new ArrayList<>(lines);
+                newLines.add(newCredentials.toUserFileLine());
+                return Optional.of(newLines);
+            } else return Optional.empty();
+        });
     }
 
     @Override
     public boolean updateUserAuth(UserId id, String authName, String authField) {
+        final UserCredentials newCredentials = new UserCredentials(id, authName, authField);
+
+        return rewriteUsersFile(lines -> {
+            final List<String> newLines = new ArrayList<>();
+            boolean userExists = false;
+
+            for (String line : lines) {
+                if (isCredentialsLine(line) && UserCredentials.fromUserFileLine(line.trim()).getId().equals(id)) {
+                    if (!userExists) newLines.add(newCredentials.toUserFileLine());
+                    userExists = true;
+                } else {
+                    newLines.add(line);
+                }
+            }
+
+            return userExists ? Optional.of(newLines) : Optional.empty();
+        });
+    }
+
+    /**
+     * @param edit Returns the new content of the users file, or empty if
+     *             the file should be left unchanged.
+     * @return true if the users file was rewritten.
+     */
+    private boolean rewriteUsersFile(Function<List<String>, Optional<List<String>>> edit) {
+        final Object inProcessWriteLock = inProcessWriteLocks.computeIfAbsent(lockFile, p -> new Object());
+
+        // The locks are held across the read, so that other writers cannot
+        // interleave and lose each other's changes.
+        synchronized (inProcessWriteLock) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile, CREATE, WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+
+                final Optional<List<String>> maybeNewLines = edit.apply(Files.readAllLines(usersFile.toPath()));
+
+                if (maybeNewLines.isPresent()) {
+                    replaceUsersFile(maybeNewLines.get());
+                    reloadIfChanged();
+                    return true;
+                } else return false;
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    private void replaceUsersFile(List<String> lines) throws IOException {
+        final Path usersPath = usersFile.toPath().toAbsolutePath();
+        final Path tmpPath = Files.createTempFile(usersPath.getParent(), "." + usersFile.getName(), ".tmp");
+
         try {
-            final List<UserCredentials> allCredentials = readUserCredentials().collect(Collectors.toList());
-
-            final boolean userExists = allCredentials.stream().anyMatch(c -> c.getId().equals(id));
-
-            if (userExists) {
-                // TODO: Clean up
-                final UserCredentials newUserCredentials = new UserCredentials(id, authName, authField);
-                final Stream<UserCredentials> otherCredentials = allCredentials.stream().filter(c -> !c.getId().equals(id));
-                final Stream<UserCredentials> upd = Stream.concat(otherCredentials, Stream.of(newUserCredentials));
-                final String fileContent = String.join("", upd.map(c -> c + System.lineSeparator()).collect(Collectors.toList()));
-                Files.write(usersFile.toPath(), fileContent.getBytes());
-                return true;
-            } else return false;
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+            Files.write(tmpPath, lines);
+            try {
+                Files.setPosixFilePermissions(tmpPath, Files.getPosixFilePermissions(usersPath));
+            } catch (UnsupportedOperationException ex) {
+                // Not a POSIX filesystem: keep the temp file's defaults
+            }
+            Files.move(tmpPath, usersPath, ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpPath);
         }
     }
 }
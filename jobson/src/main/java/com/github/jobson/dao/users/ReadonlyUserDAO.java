@@ -25,4 +25,10 @@ import java.util.Optional;
 
 public interface ReadonlyUserDAO {
     Optional<UserCredentials> getUserCredentialsById(UserId id);
+
+    /**
+     * @return A value that changes whenever any user's credentials may have
+     *         changed. Used to invalidate anything derived from credentials.
+     */
+    long getCredentialsVersion();
 }
@@ -113,6 +113,16 @@ public abstract class JobExpectedInput<TJobInput extends JobInput> {
     @JsonIgnore
     public abstract TJobInput generateExampleInput();
 
+    /**
+     * @return Whether deserializing and validating an input is expensive (e.g. because it involves
+     * parsing, or because inputs are typically large), in which case inputs of this type are resolved
+     * in parallel with the request's other inputs.
+     */
+    @JsonIgnore
+    public boolean isExpensiveToValidate() {
+        return false;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
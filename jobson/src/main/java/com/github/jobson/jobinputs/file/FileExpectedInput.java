@@ -37,6 +37,11 @@ public final class FileExpectedInput extends JobExpectedInput<FileInput> {
         return Optional.empty();
     }
 
+    @Override
+    public boolean isExpensiveToValidate() {
+        return true;
+    }
+
     @Override
     public FileInput generateExampleInput() {
         // A file containing "Hello, world!" as a b64-encoded string
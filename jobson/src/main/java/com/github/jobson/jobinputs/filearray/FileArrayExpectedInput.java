@@ -40,6 +40,11 @@ public final class FileArrayExpectedInput extends JobExpectedInput<FileArrayInpu
         return Optional.empty();
     }
 
+    @Override
+    public boolean isExpensiveToValidate() {
+        return true;
+    }
+
     @Override
     public FileArrayInput generateExampleInput() {
         final FileExpectedInput eg = new FileExpectedInput();
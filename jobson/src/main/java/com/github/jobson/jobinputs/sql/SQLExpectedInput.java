@@ -19,7 +19,6 @@
 
 package com.github.jobson.jobinputs.sql;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.jobson.jobinputs.JobExpectedInput;
 import com.github.jobson.jobinputs.JobExpectedInputId;
@@ -30,10 +29,9 @@ import net.sf.jsqlparser.statement.Statement;
 import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.validation.constraints.NotNull;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
+import static com.github.jobson.Constants.SQL_VALIDATION_CACHE_MAX_ENTRIES;
 import static com.github.jobson.Helpers.commaSeparatedList;
 import static com.github.jobson.Helpers.randomElementIn;
 import static com.github.jobson.utils.SQLUtils.columnRefsIn;
@@ -42,7 +40,7 @@ import static com.google.common.collect.Sets.difference;
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.toCollection;
 import static net.sf.jsqlparser.parser.CCJSqlParserUtil.parse;
 
 @Schema(description = "Schema for an input that requires clients to construct an SQL query")
@@ -53,6 +51,15 @@ public final class SQLExpectedInput extends JobExpectedInput<SQLInput> {
     @NotEmpty
     private List<TableSchema> tables;
 
+    private volatile Map<String, Set<String>> columnIdsByTableId;
+
+    private final Map<String, Optional<List<ValidationError>>> validationCache =
+            new LinkedHashMap<String, Optional<List<ValidationError>>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Optional<List<ValidationError>>> eldest) {
+                    return size() > SQL_VALIDATION_CACHE_MAX_ENTRIES;
+                }
+            };
 
 
     /**
@@ -81,29 +88,53 @@ public final class SQLExpectedInput extends JobExpectedInput<SQLInput> {
         return SQLInput.class;
     }
 
+    /**
+     * Validation results are remembered per (normalized) query, because
+     * clients tend to submit the same few queries repeatedly and parsing
+     * them is comparatively expensive.
+     */
     @Override
     public Optional<List<ValidationError>> validate(SQLInput input) {
+        final String query = normalize(input.getValue());
+
+        synchronized (validationCache) {
+            final Optional<List<ValidationError>> cached = validationCache.get(query);
+            if (cached != null) return cached;
+        }
+
+        final Optional<List<ValidationError>> result = validateUncached(query);
+
+        synchronized (validationCache) {
+            validationCache.put(query, result);
+        }
+
+        return result;
+    }
+
+    private static String normalize(String query) {
+        // Only changes that cannot change which tables/columns are
+        // referenced (e.g. collapsing newlines could comment out SQL).
+        return query.replace("\r\n", "\n").trim();
+    }
+
+    private Optional<List<ValidationError>> validateUncached(String query) {
         final Statement statement;
         try {
-            statement = parse(input.getValue());
+            statement = parse(query);
         } catch (JSQLParserException e) {
             return Optional.of(singletonList(ValidationError.of("Query cannot be parsed as SQL")));
         }
 
+        final Map<String, Set<String>> columnIdsByTableId = getColumnIdsByTableId();
+
         final Set<String> tablesInQuery = tableRefsIn(statement);
-        final Set<String> tablesInSchema = idsOfAllTablesInThisExpectedInput();
+        final Set<String> tablesInSchema = columnIdsByTableId.keySet();
         final Set<String> nonExistentTablesInQuery = difference(tablesInQuery, tablesInSchema);
 
         if (nonExistentTablesInQuery.isEmpty()) {
-            final Set<String> columnsInAllReferencedTables =
-                    tablesInQuery.stream().flatMap(queryTable ->
-                            this.tables
-                                    .stream()
-                                    .filter(schema -> schema.getId().equals(queryTable))
-                                    .findFirst()
-                                    .map(schema -> schema.getColumns().stream().map(ColumnSchema::getId))
-                                    .get())
-                            .collect(toSet());
+            final Set<String> columnsInAllReferencedTables = new HashSet<>();
+            for (String queryTable : tablesInQuery)
+                columnsInAllReferencedTables.addAll(columnIdsByTableId.get(queryTable));
 
             final Set<String> columnsReferencedInQuery = columnRefsIn(statement);
 
@@ -128,6 +159,33 @@ public final class SQLExpectedInput extends JobExpectedInput<SQLInput> {
         }
     }
 
+    /**
+     * Built on first use, rather than in a ctor, because the JSON
+     * deserializer assigns tables after construction. Specs are not
+     * modified after being loaded.
+     */
+    private Map<String, Set<String>> getColumnIdsByTableId() {
+        Map<String, Set<String>> ret = columnIdsByTableId;
+
+        if (ret == null) {
+            ret = new HashMap<>();
+            for (TableSchema table : tables) {
+                // If a table is declared twice, the first declaration
+                // wins (as it did before this was precomputed).
+                if (!ret.containsKey(table.getId()))
+                    ret.put(table.getId(), table.getColumns().stream().map(ColumnSchema::getId).collect(toCollection(HashSet::new)));
+            }
+            columnIdsByTableId = ret;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public boolean isExpensiveToValidate() {
+        return true;
+    }
+
     @Override
     public SQLInput generateExampleInput() {
         final TableSchema table = randomElementIn(tables);
@@ -136,11 +194,6 @@ public final class SQLExpectedInput extends JobExpectedInput<SQLInput> {
         return new SQLInput(query);
     }
 
-    @JsonIgnore
-    private Set<String> idsOfAllTablesInThisExpectedInput() {
-        return this.tables.stream().map(TableSchema::getId).collect(toSet());
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -59,6 +59,11 @@ public final class StringArrayExpectedInput extends JobExpectedInput<StringArray
         return Optional.empty();
     }
 
+    @Override
+    public boolean isExpensiveToValidate() {
+        return true;
+    }
+
     @Override
     public StringArrayInput generateExampleInput() {
         final Faker f = new Faker();
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs;
+
+import com.github.jobson.websockets.v1.JobEvent;
+import com.github.jobson.websockets.v1.SerializedJobEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.github.jobson.Constants.JOB_EVENT_EPOCH_LENGTH;
+import static com.github.jobson.Helpers.generateRandomBase36String;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Assigns sequence numbers to job events and holds the most recent ones in a
+ * fixed-size ring buffer, so that clients that reconnect can resume from the
+ * last event they saw.
+ *
+ * Sequence numbers restart at 1 whenever the server does, so each event's ID
+ * also carries the epoch of the history that sequenced it
+ * ("<epoch>-<sequence number>"). IDs from any other epoch can't be resumed
+ * from.
+ */
+public final class JobEventHistory {
+
+    private final SerializedJobEvent[] events;
+    private final String epoch;
+    private long latestSequenceNumber = 0;
+
+
+    public JobEventHistory(int maxEntries) {
+        this(maxEntries, generateRandomBase36String(JOB_EVENT_EPOCH_LENGTH));
+    }
+
+    public JobEventHistory(int maxEntries, String epoch) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException(maxEntries + ": must hold at least one event");
+        requireNonNull(epoch);
+
+        this.events = new SerializedJobEvent[maxEntries];
+        this.epoch = epoch;
+    }
+
+
+    /**
+     * Assigns the next sequence number (starting at 1) to event, serializes
+     * it, and holds it, evicting the oldest held event if full.
+     */
+    public synchronized SerializedJobEvent append(JobEvent event) {
+        final long sequenceNumber = ++latestSequenceNumber;
+        final SerializedJobEvent ret =
+                SerializedJobEvent.of(event.withSequenceNumber(sequenceNumber, epoch + "-" + sequenceNumber));
+        events[indexOf(sequenceNumber)] = ret;
+        return ret;
+    }
+
+    private int indexOf(long sequenceNumber) {
+        return (int)(sequenceNumber % events.length);
+    }
+
+    public synchronized long getLatestSequenceNumber() {
+        return latestSequenceNumber;
+    }
+
+    /**
+     * @return The sequence number in eventId. Empty if eventId wasn't issued
+     * by this history (e.g. it was issued before a restart) or is malformed.
+     */
+    public Optional<Long> sequenceNumberOf(String eventId) {
+        final int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch))
+            return Optional.empty();
+
+        try {
+            return Optional.of(Long.parseLong(eventId.substring(separator + 1)));
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return The held events with a sequence number greater than
+     * lastSequenceNumber, oldest first. Empty if some of those events have
+     * been evicted, or if lastSequenceNumber was never assigned (e.g. it was
+     * issued before a restart).
+     */
+    public synchronized Optional<List<SerializedJobEvent>> eventsAfter(long lastSequenceNumber) {
+        if (!canResumeFrom(lastSequenceNumber)) return Optional.empty();
+
+        final List<SerializedJobEvent> ret = new ArrayList<>((int)(latestSequenceNumber - lastSequenceNumber));
+        for (long sequenceNumber = lastSequenceNumber + 1; sequenceNumber <= latestSequenceNumber; sequenceNumber++)
+            ret.add(events[indexOf(sequenceNumber)]);
+
+        return Optional.of(ret);
+    }
+
+    public synchronized boolean canResumeFrom(long lastSequenceNumber) {
+        final long oldestHeldSequenceNumber = Math.max(1, latestSequenceNumber - events.length + 1);
+        return lastSequenceNumber >= 0 &&
+                lastSequenceNumber <= latestSequenceNumber &&
+                lastSequenceNumber + 1 >= oldestHeldSequenceNumber;
+    }
+}
@@ -19,29 +19,42 @@
 
 package com.github.jobson.jobs;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheck;
 import com.github.jobson.dao.jobs.WritingJobDAO;
 import com.github.jobson.jobs.jobstates.*;
 import com.github.jobson.utils.CancelablePromise;
 import com.github.jobson.utils.SimpleCancelablePromise;
 import com.github.jobson.websockets.v1.JobEvent;
+import com.github.jobson.websockets.v1.SerializedJobEvent;
+import io.reactivex.Completable;
 import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observables.ConnectableObservable;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
+import io.reactivex.subjects.UnicastSubject;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
-import static com.github.jobson.Constants.JOB_MANAGER_JOB_QUEUE_OVERFLOW_HEALTHCHECK;
-import static com.github.jobson.Constants.JOB_MANAGER_MAX_JOB_QUEUE_OVERFLOW_THRESHOLD;
+import static com.github.jobson.Constants.*;
 import static com.github.jobson.Helpers.now;
 import static com.github.jobson.Helpers.tryGet;
 import static com.github.jobson.jobs.JobStatus.*;
 import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
 
 public final class JobManager implements JobManagerEvents, JobManagerActions {
 
@@ -49,29 +62,130 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
 
     private final ConcurrentLinkedQueue<QueuedJob> jobQueue = new ConcurrentLinkedQueue<>();
     private final Map<JobId, ExecutingJob> executingJobs = Collections.synchronizedMap(new HashMap<>());
-    private final Subject<JobEvent> jobEvents = PublishSubject.create();
+    private final Subject<JobEvent> jobEvents = PublishSubject.<JobEvent>create().toSerialized();
+    private final JobEventHistory jobEventHistory = new JobEventHistory(JOB_EVENT_HISTORY_MAX_ENTRIES);
+    // Connected for the manager's lifetime, so that every event is sequenced
+    // and held, even while nothing is subscribed.
+    private final ConnectableObservable<SerializedJobEvent> serializedJobEvents =
+            jobEvents.map(jobEventHistory::append).publish();
     private final WritingJobDAO jobDAO;
     private final JobExecutor jobExecutor;
     private final int maxRunningJobs;
+    private final Executor jobLauncher;
+    private final JobResultCache jobResultCache;
+    private final Object jobQueueLock = new Object();
+    private final Timer queueWaitTimer = new Timer();
+    private final Timer spawnTimer = new Timer();
+    private final Timer runTimer = new Timer();
+    private final Timer outputFinalizationTimer = new Timer();
+    private final Meter stdoutBytesMeter = new Meter();
+    private final AtomicInteger subscribers = new AtomicInteger(0);
 
 
     public JobManager(WritingJobDAO jobDAO, JobExecutor jobExecutor, int maxRunningJobs) {
+        this(jobDAO, jobExecutor, maxRunningJobs, Runnable::run);
+    }
+
+    /**
+     * @param jobLauncher Executor that advances the job queue (working dir setup,
+     *                    dependency copying, process forking). Submissions return as
+     *                    soon as the job is persisted, so launching on a separate
+     *                    executor keeps that work off of the submitting thread.
+     */
+    public JobManager(WritingJobDAO jobDAO, JobExecutor jobExecutor, int maxRunningJobs, Executor jobLauncher) {
+        this(jobDAO, jobExecutor, maxRunningJobs, jobLauncher, JobResultCache.disabled());
+    }
+
+    public JobManager(
+            WritingJobDAO jobDAO,
+            JobExecutor jobExecutor,
+            int maxRunningJobs,
+            Executor jobLauncher,
+            JobResultCache jobResultCache) {
+
+        requireNonNull(jobLauncher);
+        requireNonNull(jobResultCache);
+
         this.jobDAO = jobDAO;
         this.jobExecutor = jobExecutor;
         this.maxRunningJobs = maxRunningJobs;
+        this.jobLauncher = jobLauncher;
+        this.jobResultCache = jobResultCache;
+
+        this.serializedJobEvents.connect();
     }
 
 
     public Observable<JobEvent> allJobStatusChanges() {
-        return jobEvents;
+        return countingSubscribers(serializedJobEvents.map(SerializedJobEvent::getEvent));
+    }
+
+    public Observable<SerializedJobEvent> serializedJobStatusChanges() {
+        return countingSubscribers(serializedJobEvents);
+    }
+
+    public Optional<Observable<SerializedJobEvent>> serializedJobStatusChangesAfter(String lastEventId) {
+        final Optional<Long> maybeLastSequenceNumber = jobEventHistory.sequenceNumberOf(lastEventId);
+        if (!maybeLastSequenceNumber.isPresent()) return Optional.empty();
+
+        final long lastSequenceNumber = maybeLastSequenceNumber.get();
+        if (!jobEventHistory.canResumeFrom(lastSequenceNumber)) return Optional.empty();
+
+        return Optional.of(countingSubscribers(Observable.defer(() -> {
+            // Subscribing to live events before taking the snapshot means that no
+            // event can fall between the two. Events in both are de-duplicated by
+            // sequence number.
+            final UnicastSubject<SerializedJobEvent> liveEvents = UnicastSubject.create();
+            final Disposable liveSubscription = serializedJobEvents.subscribe(
+                    liveEvents::onNext, liveEvents::onError, liveEvents::onComplete);
+
+            final Optional<List<SerializedJobEvent>> missedEvents = jobEventHistory.eventsAfter(lastSequenceNumber);
+
+            if (!missedEvents.isPresent()) {
+                // Overrun between the check above and subscribing
+                liveSubscription.dispose();
+                return Observable.error(new JobEventsNoLongerHeldException(
+                        lastSequenceNumber + ": events after this sequence number are no longer held"));
+            }
+
+            final long lastReplayedSequenceNumber = missedEvents.get().isEmpty() ?
+                    lastSequenceNumber :
+                    missedEvents.get().get(missedEvents.get().size() - 1).getSequenceNumber();
+
+            return Observable.fromIterable(missedEvents.get())
+                    .concatWith(liveEvents.filter(event -> event.getSequenceNumber() > lastReplayedSequenceNumber))
+                    .doFinally(liveSubscription::dispose);
+        })));
     }
 
     public Optional<Observable<byte[]>> stderrUpdates(JobId jobId) {
-        return tryGet(executingJobs, jobId).map(ExecutingJob::getStderr);
+        return tryGet(executingJobs, jobId).map(job -> countingSubscribers(job.getStderr().liveChunks().map(StdioChunk::getData)));
     }
 
     public Optional<Observable<byte[]>> stdoutUpdates(JobId jobId) {
-        return tryGet(executingJobs, jobId).map(ExecutingJob::getStdout);
+        return tryGet(executingJobs, jobId).map(job -> countingSubscribers(job.getStdout().liveChunks().map(StdioChunk::getData)));
+    }
+
+    public Optional<Observable<StdioChunk>> stderrUpdatesFrom(JobId jobId, long offset) {
+        return tryGet(executingJobs, jobId).map(job -> countingSubscribers(job.getStderr().chunksFrom(offset)));
+    }
+
+    public Optional<Observable<StdioChunk>> stdoutUpdatesFrom(JobId jobId, long offset) {
+        return tryGet(executingJobs, jobId).map(job -> countingSubscribers(job.getStdout().chunksFrom(offset)));
+    }
+
+    public Optional<byte[]> stderrTail(JobId jobId, int maxBytes) {
+        return tryGet(executingJobs, jobId).flatMap(job -> job.getStderr().tail(maxBytes));
+    }
+
+    public Optional<byte[]> stdoutTail(JobId jobId, int maxBytes) {
+        return tryGet(executingJobs, jobId).flatMap(job -> job.getStdout().tail(maxBytes));
+    }
+
+    private <T> Observable<T> countingSubscribers(Observable<T> o) {
+        return o
+                .doOnSubscribe(disposable -> subscribers.incrementAndGet())
+                .doFinally(subscribers::decrementAndGet);
     }
 
     public boolean tryAbort(JobId jobId) {
@@ -87,15 +201,15 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
                 executingJob.getCompletionPromise().cancel(true);
 
         if (cancelled) {
-            updateJobStatus(executingJob.getId(), ABORTED, "Aborted");
+            updateJobStatus(executingJob, ABORTED, "Aborted");
         }
 
         return cancelled;
     }
 
-    private void updateJobStatus(JobId jobId, JobStatus jobStatus, String message) {
-        jobDAO.addNewJobStatus(jobId, jobStatus, message);
-        jobEvents.onNext(new JobEvent(jobId, jobStatus));
+    private void updateJobStatus(PersistedJob job, JobStatus jobStatus, String message) {
+        jobDAO.addNewJobStatus(job.getId(), jobStatus, message);
+        jobEvents.onNext(new JobEvent(job.getId(), jobStatus, job.getOwner(), job.getSpec().getId()));
     }
 
     private boolean tryRemoveFromQueue(JobId jobId) {
@@ -110,7 +224,7 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
         final boolean removed = jobQueue.remove(queuedJob);
 
         if (removed) {
-            updateJobStatus(queuedJob.getId(), ABORTED, "Aborted");
+            updateJobStatus(queuedJob, ABORTED, "Aborted");
         }
 
         return removed;
@@ -121,25 +235,119 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
     }
 
     public Pair<JobId, CancelablePromise<FinalizedJob>> submit(ValidJobRequest validJobRequest, JobEventListeners listeners) {
-        final PersistedJob persistedJob = jobDAO.persist(validJobRequest);
+        final Pair<JobId, CancelablePromise<FinalizedJob>> ret = queue(jobDAO.persist(validJobRequest), listeners);
+
+        scheduleJobQueueAdvancement();
+
+        return ret;
+    }
+
+    /**
+     * Persists all of the requests before any of them are queued, so that a
+     * persistence failure part-way through the batch does not leave some of
+     * its jobs running. The jobs persisted before such a failure are removed.
+     */
+    public List<Pair<JobId, CancelablePromise<FinalizedJob>>> submitAll(List<ValidJobRequest> validJobRequests) {
+        final List<PersistedJob> persistedJobs = new ArrayList<>(validJobRequests.size());
+        try {
+            for (ValidJobRequest validJobRequest : validJobRequests)
+                persistedJobs.add(jobDAO.persist(validJobRequest));
+        } catch (RuntimeException ex) {
+            for (PersistedJob persistedJob : persistedJobs) {
+                try {
+                    jobDAO.remove(persistedJob.getId());
+                } catch (RuntimeException removalEx) {
+                    ex.addSuppressed(removalEx);
+                }
+            }
+            throw ex;
+        }
+
+        final List<Pair<JobId, CancelablePromise<FinalizedJob>>> ret = new ArrayList<>(persistedJobs.size());
+        for (PersistedJob persistedJob : persistedJobs)
+            ret.add(queue(persistedJob, JobEventListeners.createNullListeners()));
+
+        scheduleJobQueueAdvancement();
+
+        return ret;
+    }
+
+    private Pair<JobId, CancelablePromise<FinalizedJob>> queue(PersistedJob persistedJob, JobEventListeners listeners) {
         final SimpleCancelablePromise<FinalizedJob> ret = new SimpleCancelablePromise<>();
 
+        updateJobStatus(persistedJob, SUBMITTED, "Queued by job manager");
+
         final QueuedJob queuedJob = QueuedJob.fromPersistedJobRequest(persistedJob, listeners, ret);
 
         jobQueue.add(queuedJob);
 
         ret.onCancel(() -> tryAbort(persistedJob.getId()));
 
-        updateJobStatus(persistedJob.getId(), SUBMITTED, "Queued by job manager");
-
-        tryAdvancingJobQueue();
+        if (jobResultCache.tryGet(persistedJob).isPresent())
+            scheduleCompletionFromCache(queuedJob);
 
         return Pair.of(persistedJob.getId(), ret);
     }
 
+    /**
+     * Linking a cached job's results is file I/O, so it is done on the job
+     * launcher, rather than on the submitting thread. The job stays in its
+     * place in the queue until then, so it is still abortable and, if the
+     * cached results turn out to be unavailable, it just runs in turn.
+     */
+    private void scheduleCompletionFromCache(QueuedJob queuedJob) {
+        try {
+            jobLauncher.execute(() -> {
+                // Holding the queue lock stops the job from being launched
+                // while its results are linked
+                synchronized (jobQueueLock) {
+                    // Otherwise, already launched or aborted
+                    if (jobQueue.contains(queuedJob))
+                        tryCompletingFromCache(queuedJob);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.error("Could not schedule completion from cache: " + ex.toString());
+        }
+    }
+
+    private void tryCompletingFromCache(QueuedJob queuedJob) {
+        final Optional<JobId> maybeCachedJobId = jobResultCache.tryGet(queuedJob);
+
+        if (!maybeCachedJobId.isPresent()) return;
+
+        final JobId cachedJobId = maybeCachedJobId.get();
+
+        if (!jobDAO.linkResults(cachedJobId, queuedJob.getId())) {
+            log.debug(queuedJob.getId() + ": cached results from " + cachedJobId + " are no longer available");
+            jobResultCache.remove(queuedJob);
+            return;
+        }
+
+        // Aborted while its results were being linked
+        if (!jobQueue.remove(queuedJob)) return;
+
+        final String message = "Execution finished (results reused from job " + cachedJobId + ")";
+
+        updateJobStatus(queuedJob, FINISHED, message);
+        queuedJob.getQueuedListeners().getOnStdoutListener().onComplete();
+        queuedJob.getQueuedListeners().getOnStderrListener().onComplete();
+        queuedJob.getCompletionPromise().complete(FinalizedJob.fromPersistedJob(queuedJob, FINISHED, message));
+    }
+
+    private void scheduleJobQueueAdvancement() {
+        try {
+            jobLauncher.execute(this::tryAdvancingJobQueue);
+        } catch (RejectedExecutionException ex) {
+            log.error("Could not schedule job queue advancement: " + ex.toString());
+        }
+    }
+
     private void tryAdvancingJobQueue() {
-        while (jobQueue.size() > 0 && executingJobs.size() < maxRunningJobs)
-            advanceJobQueue();
+        synchronized (jobQueueLock) {
+            while (jobQueue.size() > 0 && executingJobs.size() < maxRunningJobs)
+                advanceJobQueue();
+        }
     }
 
     private void advanceJobQueue() {
@@ -153,22 +361,47 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
         jobDAO.appendStdout(queuedJob.getId(), stdout);
         jobDAO.appendStderr(queuedJob.getId(), stderr);
 
+        // Subscribed after the DAO, so this completes once the DAO has
+        // finished writing both streams
+        final Completable stdioPersisted = Completable.mergeArray(
+                stdout.ignoreElements().onErrorComplete(),
+                stderr.ignoreElements().onErrorComplete()).cache();
+        stdioPersisted.subscribe();
+
         stdout.subscribe(queuedJob.getQueuedListeners().getOnStdoutListener());
         stderr.subscribe(queuedJob.getQueuedListeners().getOnStderrListener());
+        stdout.subscribe(bytes -> stdoutBytesMeter.mark(bytes.length), ex -> {});
+
+        final StdioTail stdoutTail = new StdioTail(STDIO_TAIL_BUFFER_LEN_IN_BYTES);
+        final StdioTail stderrTail = new StdioTail(STDIO_TAIL_BUFFER_LEN_IN_BYTES);
+        stdout.subscribe(stdoutTail);
+        stderr.subscribe(stderrTail);
+
+        queuedJob.getTimestamps().stream()
+                .filter(timestamp -> timestamp.getStatus() == SUBMITTED)
+                .findFirst()
+                .ifPresent(submitted -> queueWaitTimer.update(
+                        now().getTime() - submitted.getTime().getTime(), TimeUnit.MILLISECONDS));
 
         try {
+            final Timer.Context spawnTimerContext = spawnTimer.time();
             final CancelablePromise<JobExecutionResult> executionPromise =
                     jobExecutor.execute(queuedJob, JobEventListeners.create(stdout, stderr));
+            spawnTimerContext.stop();
+
+            final Timer.Context runTimerContext = runTimer.time();
 
             final ExecutingJob executingJob =
-                    ExecutingJob.fromQueuedJob(queuedJob, now(), stdout, stderr);
+                    ExecutingJob.fromQueuedJob(queuedJob, now(), stdoutTail, stderrTail);
 
             executingJobs.put(executingJob.getId(), executingJob);
 
-            updateJobStatus(queuedJob.getId(), RUNNING, "Submitted to executor");
+            updateJobStatus(queuedJob, RUNNING, "Submitted to executor");
 
             executionPromise.thenAccept(res -> {
+                runTimerContext.stop();
                 onExecutionFinished(executingJob, res);
+                finalizeLogsOnceWritten(executingJob.getId(), stdioPersisted);
             });
 
             executingJob.getCompletionPromise().onCancel(() -> {
@@ -176,18 +409,23 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
             });
         } catch (Throwable ex) {
             log.error("Error starting job execution: " + ex.toString());
-            updateJobStatus(queuedJob.getId(), FATAL_ERROR, "Error executing job: " + ex.toString());
+            updateJobStatus(queuedJob, FATAL_ERROR, "Error executing job: " + ex.toString());
         }
     }
 
     private void onExecutionFinished(ExecutingJob executingJob, JobExecutionResult jobExecutionResult) {
+
         executingJobs.remove(executingJob.getId());
 
+        final Timer.Context outputFinalizationTimerContext = outputFinalizationTimer.time();
         final FinalizedJob finalizedJob = finalizeJob(executingJob, jobExecutionResult);
+        outputFinalizationTimerContext.stop();
 
-        updateJobStatus(finalizedJob.getId(), finalizedJob.getFinalStatus(), finalizedJob.getFinalMessage());
+        updateJobStatus(finalizedJob, finalizedJob.getFinalStatus(), finalizedJob.getFinalMessage());
+        if (finalizedJob.getFinalStatus() == FINISHED)
+            jobResultCache.put(finalizedJob, finalizedJob.getId());
         executingJob.getCompletionPromise().complete(finalizedJob);
-        tryAdvancingJobQueue();
+        scheduleJobQueueAdvancement();
     }
 
     private FinalizedJob finalizeJob(ExecutingJob executingJob, JobExecutionResult jobExecutionResult) {
@@ -214,6 +452,25 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
         return FinalizedJob.fromExecutingJob(executingJob, finalStatus, finalMessage);
     }
 
+    /**
+     * A job's process can exit before its stdio has been written (e.g. while
+     * it is still draining, or because a child process holds it open), so
+     * its logs are finalized once it has been, if that happens soon after.
+     * This does not hold back the job's completion.
+     */
+    private void finalizeLogsOnceWritten(JobId jobId, Completable stdioPersisted) {
+        stdioPersisted
+                .timeout(JOB_STDIO_DRAIN_TIMEOUT_IN_MILLISECONDS, TimeUnit.MILLISECONDS)
+                .subscribe(() -> {
+                    try {
+                        jobDAO.finalizeLogs(jobId);
+                    } catch (RuntimeException ex) {
+                        log.error(jobId + ": cannot finalize logs: " + ex.toString());
+                    }
+                }, ex -> log.warn(jobId + ": stdio was still open " + JOB_STDIO_DRAIN_TIMEOUT_IN_MILLISECONDS +
+                        " ms after the job exited: its logs are left unfinalized"));
+    }
+
     private Optional<String> handleOutputPersistence(ExecutingJob executingJob, JobExecutionResult jobExecutionResult) {
         final JobOutputPersister outputPersister = new JobOutputPersister(executingJob.getId(), jobDAO);
 
@@ -227,6 +484,19 @@ public final class JobManager implements JobManagerEvents, JobManagerActions {
         return errors.isEmpty() ? Optional.empty() : Optional.of(errors);
     }
 
+    public Map<String, Metric> getMetrics() {
+        final Map<String, Metric> ret = new HashMap<>();
+        ret.put(JOB_MANAGER_QUEUE_WAIT_METRIC_NAME, queueWaitTimer);
+        ret.put(JOB_MANAGER_SPAWN_METRIC_NAME, spawnTimer);
+        ret.put(JOB_MANAGER_RUN_METRIC_NAME, runTimer);
+        ret.put(JOB_MANAGER_OUTPUT_FINALIZATION_METRIC_NAME, outputFinalizationTimer);
+        ret.put(JOB_MANAGER_STDOUT_BYTES_METRIC_NAME, stdoutBytesMeter);
+        ret.put(JOB_MANAGER_QUEUED_JOBS_METRIC_NAME, (Gauge<Integer>) jobQueue::size);
+        ret.put(JOB_MANAGER_RUNNING_JOBS_METRIC_NAME, (Gauge<Integer>) executingJobs::size);
+        ret.put(JOB_MANAGER_SUBSCRIBERS_METRIC_NAME, (Gauge<Integer>) subscribers::get);
+        return ret;
+    }
+
     public Map<String, HealthCheck> getHealthChecks() {
         return Collections.singletonMap(
                 JOB_MANAGER_JOB_QUEUE_OVERFLOW_HEALTHCHECK,
@@ -24,8 +24,11 @@ import com.github.jobson.jobs.jobstates.ValidJobRequest;
 import com.github.jobson.utils.CancelablePromise;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.List;
+
 public interface JobManagerActions {
     Pair<JobId, CancelablePromise<FinalizedJob>> submit(ValidJobRequest validJobRequest);
     Pair<JobId, CancelablePromise<FinalizedJob>> submit(ValidJobRequest validJobRequest, JobEventListeners jobEventListeners);
+    List<Pair<JobId, CancelablePromise<FinalizedJob>>> submitAll(List<ValidJobRequest> validJobRequests);
     boolean tryAbort(JobId jobId);
 }
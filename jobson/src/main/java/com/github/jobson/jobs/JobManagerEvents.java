@@ -20,12 +20,49 @@
 package com.github.jobson.jobs;
 
 import com.github.jobson.websockets.v1.JobEvent;
+import com.github.jobson.websockets.v1.SerializedJobEvent;
 import io.reactivex.Observable;
 
 import java.util.Optional;
 
 public interface JobManagerEvents {
     Observable<JobEvent> allJobStatusChanges();
+
+    /**
+     * The same events as allJobStatusChanges, each serialized once and shared
+     * between all subscribers.
+     */
+    Observable<SerializedJobEvent> serializedJobStatusChanges();
+
+    /**
+     * Recent events emitted after the event with ID lastEventId, followed by
+     * live events. Empty if some of those events are no longer held, or if
+     * lastEventId wasn't issued by this server process (e.g. it was issued
+     * before a restart), in which case the client needs to fully resync. If
+     * those events stop being held before the observable is subscribed to,
+     * it errors with a JobEventsNoLongerHeldException.
+     */
+    Optional<Observable<SerializedJobEvent>> serializedJobStatusChangesAfter(String lastEventId);
+
+    /**
+     * A running job's stdout, from now on. Empty if the job is not running.
+     */
     Optional<Observable<byte[]>> stdoutUpdates(JobId jobId);
     Optional<Observable<byte[]>> stderrUpdates(JobId jobId);
+
+    /**
+     * As stdoutUpdates, but starting from offset, with each chunk tagged with
+     * its offset, so that clients can resume. Output from offset onwards is
+     * sent from memory (the last STDIO_TAIL_BUFFER_LEN_IN_BYTES) and, if some
+     * of it is no longer held, a gap chunk is sent in its place.
+     */
+    Optional<Observable<StdioChunk>> stdoutUpdatesFrom(JobId jobId, long offset);
+    Optional<Observable<StdioChunk>> stderrUpdatesFrom(JobId jobId, long offset);
+
+    /**
+     * The last maxBytes of a running job's stdout, read from memory. Empty if
+     * the job is not running, or if some of those bytes are no longer held.
+     */
+    Optional<byte[]> stdoutTail(JobId jobId, int maxBytes);
+    Optional<byte[]> stderrTail(JobId jobId, int maxBytes);
 }
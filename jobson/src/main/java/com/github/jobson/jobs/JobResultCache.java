@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs;
+
+import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.github.jobson.Helpers.toCanonicalJSON;
+
+/**
+ * Remembers which job produced the results for a particular spec + inputs
+ * combination, so that a resubmission of a deterministic job (one whose spec
+ * sets {@code execution.cacheResults}) can reuse the earlier job's results instead
+ * of running again.
+ *
+ * Entries are evicted least-recently-used once there are more than
+ * {@code maxEntries} of them, and are ignored once they are older than
+ * {@code maxAge}.
+ *
+ * Keys are hashes of the spec and inputs, so they are computed outside of
+ * the lock: concurrent submitters only contend on the map itself.
+ */
+public final class JobResultCache {
+
+    public static JobResultCache disabled() {
+        return new JobResultCache(0, Duration.ZERO);
+    }
+
+    public static boolean isCacheable(ValidJobRequest request) {
+        return request.getSpec().getExecution() != null &&
+                request.getSpec().getExecution().isCacheResults();
+    }
+
+    public static String computeKey(ValidJobRequest request) {
+        return DigestUtils.sha256Hex(
+                toCanonicalJSON(request.getSpec()) + "\n" + toCanonicalJSON(request.getInputs()));
+    }
+
+
+    private final int maxEntries;
+    private final long maxAgeInMillis;
+    private final Map<String, CacheEntry> entries;
+
+
+    public JobResultCache(int maxEntries, Duration maxAge) {
+        if (maxEntries < 0)
+            throw new IllegalArgumentException(maxEntries + ": max entries cannot be negative");
+
+        this.maxEntries = maxEntries;
+        this.maxAgeInMillis = maxAge.toMillis();
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > JobResultCache.this.maxEntries;
+            }
+        };
+    }
+
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && maxAgeInMillis > 0;
+    }
+
+    public Optional<JobId> tryGet(ValidJobRequest request) {
+        if (!isEnabled() || !isCacheable(request)) return Optional.empty();
+
+        final String key = computeKey(request);
+
+        synchronized (entries) {
+            final CacheEntry entry = entries.get(key);
+
+            if (entry == null) {
+                return Optional.empty();
+            } else if (System.currentTimeMillis() - entry.createdAt > maxAgeInMillis) {
+                entries.remove(key);
+                return Optional.empty();
+            } else {
+                return Optional.of(entry.jobId);
+            }
+        }
+    }
+
+    public void put(ValidJobRequest request, JobId jobId) {
+        if (!isEnabled() || !isCacheable(request)) return;
+
+        final String key = computeKey(request);
+
+        synchronized (entries) {
+            entries.put(key, new CacheEntry(jobId, System.currentTimeMillis()));
+        }
+    }
+
+    public void remove(ValidJobRequest request) {
+        if (!isEnabled() || !isCacheable(request)) return;
+
+        final String key = computeKey(request);
+
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+
+    private static final class CacheEntry {
+        private final JobId jobId;
+        private final long createdAt;
+
+        private CacheEntry(JobId jobId, long createdAt) {
+            this.jobId = jobId;
+            this.createdAt = createdAt;
+        }
+    }
+}
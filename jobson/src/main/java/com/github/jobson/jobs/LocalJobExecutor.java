@@ -28,22 +28,28 @@ import com.github.jobson.scripting.functions.*;
 import com.github.jobson.specs.*;
 import com.github.jobson.utils.BinaryData;
 import com.github.jobson.utils.CancelablePromise;
+import com.github.jobson.utils.MimeTypeDetector;
 import com.github.jobson.utils.SimpleCancelablePromise;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.github.jobson.Constants.DEPENDENCY_COPY_THREADS;
+import static com.github.jobson.Constants.WDS_DEPENDENCY_SNAPSHOTS_DIRNAME;
+import static com.github.jobson.Constants.WDS_TRASH_DIRNAME;
 import static com.github.jobson.Helpers.*;
 import static com.github.jobson.jobs.JobStatus.FINISHED;
-import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -53,6 +59,10 @@ public final class LocalJobExecutor implements JobExecutor {
 
     private static final Logger log = Logger.getLogger(LocalJobExecutor.class);
 
+    // Per source's snapshots dir. Static because every executor in the
+    // process shares the same snapshots.
+    private static final Map<Path, Object> snapshotLocks = new ConcurrentHashMap<>();
+
 
     public static String resolveArg(PersistedJob persistedJob, Path jobWorkingDir, RawTemplateString arg) {
         final Map<String, Object> environment = new HashMap<>();
@@ -69,17 +79,34 @@ public final class LocalJobExecutor implements JobExecutor {
         return arg.tryEvaluate(environment);
     }
 
-    private static void handleJobDependency(PersistedJob persistedJob, Path workingDir, JobDependencyConfiguration jobDependencyConfiguration) {
+    static void handleJobDependency(
+            PersistedJob persistedJob,
+            Path workingDir,
+            Path dependencySnapshots,
+            JobDependencyConfiguration jobDependencyConfiguration) {
+
         final String resolvedSourceStr = resolveArg(persistedJob, workingDir, jobDependencyConfiguration.getSource());
         final Path source = Paths.get(resolvedSourceStr);
 
         final String resolvedTargetStr = resolveArg(persistedJob, workingDir, jobDependencyConfiguration.getTarget());
         final Path target = workingDir.resolve(resolvedTargetStr);
 
-        if (jobDependencyConfiguration.isSoftLink()) {
-            softLinkJobDependency(source, target);
-        } else {
-            copyJobDependency(source, target);
+        switch (jobDependencyConfiguration.getStrategy()) {
+            case SOFT_LINK:
+                softLinkJobDependency(source, target);
+                break;
+            case HARD_LINK:
+                hardLinkJobDependency(source, target);
+                break;
+            case REFLINK:
+                reflinkJobDependency(source, target);
+                break;
+            case SNAPSHOT:
+                snapshotJobDependency(source, target, dependencySnapshots);
+                break;
+            default:
+                copyJobDependency(source, target);
+                break;
         }
     }
 
@@ -95,39 +122,156 @@ public final class LocalJobExecutor implements JobExecutor {
     private static void copyJobDependency(Path source, Path destination) {
         log.debug("copy dependency: " + source.toString() + " -> " + destination.toString());
         try {
-            Helpers.copyPath(source, destination);
+            Helpers.copyPathInParallel(source, destination, DEPENDENCY_COPY_THREADS);
         } catch (IOException ex) {
             log.error(source.toString() + ": cannot copy: " + ex.toString());
             throw new RuntimeException(ex);
         }
     }
 
+    private static void hardLinkJobDependency(Path source, Path destination) {
+        log.debug("hardlink dependency: " + source.toString() + " -> " + destination.toString());
+        try {
+            Helpers.hardLinkPath(source, destination);
+        } catch (IOException ex) {
+            log.error(source.toString() + ": cannot hard link: " + ex.toString());
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static void reflinkJobDependency(Path source, Path destination) {
+        log.debug("reflink dependency: " + source.toString() + " -> " + destination.toString());
+        // The JDK can't issue a FICLONE ioctl, but GNU cp can (and quietly
+        // copies when the filesystem doesn't support it).
+        try {
+            final Process cp = new ProcessBuilder(
+                    "cp", "-R", "--reflink=auto", "--preserve=mode,timestamps",
+                    source.toString(), destination.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            cp.getOutputStream().close();
+            final String output = IOUtils.toString(cp.getInputStream(), StandardCharsets.UTF_8);
+            if (cp.waitFor() == 0) return;
+            log.debug(source.toString() + ": cp --reflink failed, copying instead: " + output.trim());
+        } catch (IOException ex) {
+            log.debug(source.toString() + ": cannot run cp --reflink, copying instead: " + ex.toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+
+        try {
+            if (Files.exists(destination, LinkOption.NOFOLLOW_LINKS))
+                FileUtils.forceDelete(destination.toFile());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        copyJobDependency(source, destination);
+    }
+
+    private static void snapshotJobDependency(Path source, Path destination, Path dependencySnapshots) {
+        log.debug("snapshot dependency: " + source.toString() + " -> " + destination.toString());
+        final Path sourceSnapshots =
+                dependencySnapshots.resolve(DigestUtils.sha256Hex(source.toAbsolutePath().normalize().toString()));
+
+        // Held while linking, so that the snapshot can't be evicted part-way
+        // through by a job that sees a newer version of the source
+        synchronized (snapshotLocks.computeIfAbsent(sourceSnapshots, k -> new Object())) {
+            try {
+                Helpers.hardLinkPath(getOrCreateSnapshot(source, sourceSnapshots), destination);
+            } catch (IOException ex) {
+                log.error(source.toString() + ": cannot link from snapshot: " + ex.toString());
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only copy of source in sourceSnapshots, creating it if
+     * source has changed since a snapshot was last taken. Creating a snapshot
+     * evicts the source's older snapshots. Jobs that were linked from those
+     * are unaffected: they hold their own links to the snapshot's files.
+     */
+    private static Path getOrCreateSnapshot(Path source, Path sourceSnapshots) throws IOException {
+        final Path snapshot = sourceSnapshots.resolve(Helpers.fingerprintPath(source));
+        if (Files.exists(snapshot)) return snapshot;
+
+        Files.createDirectories(sourceSnapshots);
+        final Path tmp = Files.createTempDirectory(sourceSnapshots, ".tmp-");
+        final Path tmpSnapshot = tmp.resolve("snapshot");
+        try {
+            log.info(source.toString() + ": creating dependency snapshot " + snapshot);
+            Helpers.copyPathInParallel(source, tmpSnapshot, DEPENDENCY_COPY_THREADS);
+            try (Stream<Path> files = Files.walk(tmpSnapshot)) {
+                files.filter(Files::isRegularFile).forEach(f -> f.toFile().setWritable(false, false));
+            }
+            Files.move(tmpSnapshot, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteDirectory(tmp.toFile());
+        }
+
+        try (Stream<Path> snapshots = Files.list(sourceSnapshots)) {
+            snapshots.filter(p -> !p.equals(snapshot)).forEach(oldSnapshot -> {
+                log.info(source.toString() + ": evicting dependency snapshot " + oldSnapshot);
+                FileUtils.deleteQuietly(oldSnapshot.toFile());
+            });
+        }
+
+        return snapshot;
+    }
+
 
     private final Path workingDirs;
+    private final Path dependencySnapshots;
     private final long delayBeforeForciblyKillingJobs;
-    private final boolean deleteWdAfterExecution;
+    private final Optional<WorkingDirReaper> wdReaper;
 
 
 
     public LocalJobExecutor(Path workingDirs, long delayBeforeForciblyKillingJobs) throws FileNotFoundException {
-        this(workingDirs, delayBeforeForciblyKillingJobs, new RemoveAfterExecutionConfig());
+        this(workingDirs, delayBeforeForciblyKillingJobs, Optional.empty());
     }
 
     public LocalJobExecutor(Path workingDirs,
                             long delayBeforeForciblyKillingJobs,
-                            RemoveAfterExecutionConfig wdRemovalConfig) throws FileNotFoundException {
+                            RemoveAfterExecutionConfig wdRemovalConfig) throws IOException {
+        this(workingDirs, delayBeforeForciblyKillingJobs, createWdReaper(workingDirs, wdRemovalConfig));
+    }
+
+    public LocalJobExecutor(Path workingDirs,
+                            long delayBeforeForciblyKillingJobs,
+                            Optional<WorkingDirReaper> wdReaper) throws FileNotFoundException {
         requireNonNull(workingDirs);
+        requireNonNull(wdReaper);
         if (!workingDirs.toFile().exists())
             throw new FileNotFoundException(workingDirs + ": does not exist");
         if (delayBeforeForciblyKillingJobs < 0)
             throw new IllegalArgumentException(delayBeforeForciblyKillingJobs + ": delay before killing jobs must be positive");
 
         this.workingDirs = workingDirs.toAbsolutePath();
+        this.dependencySnapshots = this.workingDirs.resolve(WDS_DEPENDENCY_SNAPSHOTS_DIRNAME);
         this.delayBeforeForciblyKillingJobs = delayBeforeForciblyKillingJobs;
-        this.deleteWdAfterExecution = wdRemovalConfig.isEnabled();
+        this.wdReaper = wdReaper;
     }
 
 
+    /**
+     * @return A reaper that removes working directories into a trash directory within
+     * workingDirs, if wdRemovalConfig is enabled.
+     */
+    public static Optional<WorkingDirReaper> createWdReaper(
+            Path workingDirs,
+            RemoveAfterExecutionConfig wdRemovalConfig) throws IOException {
+
+        if (!wdRemovalConfig.isEnabled()) return Optional.empty();
+        if (!workingDirs.toFile().exists())
+            throw new FileNotFoundException(workingDirs + ": does not exist");
+
+        return Optional.of(new WorkingDirReaper(
+                workingDirs.resolve(WDS_TRASH_DIRNAME),
+                wdRemovalConfig.getMaxConcurrentDeletions()));
+    }
+
 
     @Override
     public CancelablePromise<JobExecutionResult> execute(PersistedJob req, JobEventListeners jobEventListeners) {
@@ -139,7 +283,7 @@ public final class LocalJobExecutor implements JobExecutor {
             log.debug(req.getId() + ": created working directory: " + workingDir.toString());
 
             executionConfiguration.getDependencies()
-                    .ifPresent(deps -> deps.forEach(dep -> handleJobDependency(req, workingDir, dep)));
+                    .ifPresent(deps -> deps.forEach(dep -> handleJobDependency(req, workingDir, dependencySnapshots, dep)));
 
             final String application = executionConfiguration.getApplication();
             final List<String> argList = new ArrayList<>();
@@ -206,16 +350,10 @@ public final class LocalJobExecutor implements JobExecutor {
 
         promise.complete(jobExecutionResult);
 
-        if (this.deleteWdAfterExecution) {
-            try {
-                FileUtils.deleteDirectory(workingDir.toFile());
-            } catch (IOException e) {
-                log.warn(format("Tried to remove a working directory, %s, but couldn't: %s", workingDir, e.getMessage()));
-            }
-        }
+        wdReaper.ifPresent(reaper -> reaper.remove(workingDir));
     }
 
-    private List<JobOutputResult> tryResolveJobOutputs(
+    static List<JobOutputResult> tryResolveJobOutputs(
             PersistedJob req,
             Path workingDir,
             List<JobExpectedOutput> expectedOutputs) {
@@ -229,11 +367,11 @@ public final class LocalJobExecutor implements JobExecutor {
                 .collect(Collectors.toList());
     }
 
-    private JobOutputResult tryGetJobOutput(Path workingDir, PersistedJob job, JobOutputId outputId, JobExpectedOutput expectedOutput) {
+    private static JobOutputResult tryGetJobOutput(Path workingDir, PersistedJob job, JobOutputId outputId, JobExpectedOutput expectedOutput) {
         final Path expectedOutputFile = workingDir.resolve(resolveArg(job, workingDir, expectedOutput.getPath()));
 
         if (expectedOutputFile.toFile().exists()) {
-            final String mimeType = establishMimeType(expectedOutput, expectedOutputFile);
+            final String mimeType = establishMimeType(job, expectedOutput, expectedOutputFile);
             final BinaryData data = streamBinaryData(expectedOutputFile, mimeType);
             return new JobOutput(
                     outputId,
@@ -249,12 +387,12 @@ public final class LocalJobExecutor implements JobExecutor {
         }
     }
 
-    private String establishMimeType(JobExpectedOutput jobExpectedOutput, Path p) {
+    private static String establishMimeType(PersistedJob job, JobExpectedOutput jobExpectedOutput, Path p) {
         if (jobExpectedOutput.getMimeType().isPresent()) {
             return jobExpectedOutput.getMimeType().get();
         } else {
             try {
-                return Helpers.getMimeType(Files.newInputStream(p), p.toString());
+                return MimeTypeDetector.getShared().detect(p, mimeTypeCacheKey(job, jobExpectedOutput));
             } catch (IOException ex) {
                 log.warn("Encountered IO error when determining an output's MIME type. Skipping MIME type detection");
                 return Constants.DEFAULT_BINARY_MIME_TYPE;
@@ -262,6 +400,20 @@ public final class LocalJobExecutor implements JobExecutor {
         }
     }
 
+    /**
+     * Outputs whose path is not templated always have the same file name,
+     * so their detected type can be remembered per spec output.
+     */
+    private static Optional<String> mimeTypeCacheKey(PersistedJob job, JobExpectedOutput jobExpectedOutput) {
+        final String rawPath = jobExpectedOutput.getPath().getValue();
+
+        if (rawPath.contains("${")) {
+            return Optional.empty();
+        } else {
+            return Optional.of(job.getSpec().getId() + "/" + jobExpectedOutput.getId() + "/" + rawPath);
+        }
+    }
+
     private void abort(Process process) {
         log.debug("Aborting process: " + process);
         process.destroy();
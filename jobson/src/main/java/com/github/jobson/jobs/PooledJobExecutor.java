@@ -0,0 +1,468 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs;
+
+import com.github.jobson.jobs.jobstates.PersistedJob;
+import com.github.jobson.specs.ExecutionConfiguration;
+import com.github.jobson.specs.JobSpecId;
+import com.github.jobson.utils.CancelablePromise;
+import com.github.jobson.utils.SimpleCancelablePromise;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.github.jobson.Constants.WDS_DEPENDENCY_SNAPSHOTS_DIRNAME;
+import static com.github.jobson.Constants.WORKER_THREAD_NAME_FORMAT;
+import static com.github.jobson.Helpers.toJSON;
+import static com.github.jobson.jobs.JobStatus.*;
+import static com.github.jobson.jobs.LocalJobExecutor.handleJobDependency;
+import static com.github.jobson.jobs.LocalJobExecutor.resolveArg;
+import static com.github.jobson.jobs.LocalJobExecutor.tryResolveJobOutputs;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executes jobs in long-lived worker processes for specs that set
+ * {@code execution.workers}, so that applications with an expensive
+ * startup (interpreters, model loading, etc.) only pay it once per
+ * worker. Jobs for other specs are delegated to a fallback executor.
+ *
+ * Workers are sent one job at a time on their stdin as a
+ * {@code job <length>\n} header followed by a JSON payload, and reply
+ * on their stdout with {@code stdout <length>\n<bytes>} and
+ * {@code stderr <length>\n<bytes>} frames, followed by
+ * {@code exit <code>\n} once the job is complete.
+ */
+public final class PooledJobExecutor implements JobExecutor, Managed {
+
+    private static final Logger log = Logger.getLogger(PooledJobExecutor.class);
+
+
+    private final Path workingDirs;
+    private final Path dependencySnapshots;
+    private final long delayBeforeForciblyKillingJobs;
+    private final Optional<WorkingDirReaper> wdReaper;
+    private final JobExecutor fallback;
+    private final Map<JobSpecId, WorkerPool> pools = new ConcurrentHashMap<>();
+
+
+    public PooledJobExecutor(
+            Path workingDirs,
+            long delayBeforeForciblyKillingJobs,
+            Optional<WorkingDirReaper> wdReaper,
+            JobExecutor fallback) throws FileNotFoundException {
+
+        requireNonNull(workingDirs);
+        requireNonNull(wdReaper);
+        requireNonNull(fallback);
+        if (!workingDirs.toFile().exists())
+            throw new FileNotFoundException(workingDirs + ": does not exist");
+        if (delayBeforeForciblyKillingJobs < 0)
+            throw new IllegalArgumentException(delayBeforeForciblyKillingJobs + ": delay before killing jobs must be positive");
+
+        this.workingDirs = workingDirs.toAbsolutePath();
+        this.dependencySnapshots = this.workingDirs.resolve(WDS_DEPENDENCY_SNAPSHOTS_DIRNAME);
+        this.delayBeforeForciblyKillingJobs = delayBeforeForciblyKillingJobs;
+        this.wdReaper = wdReaper;
+        this.fallback = fallback;
+    }
+
+
+    @Override
+    public CancelablePromise<JobExecutionResult> execute(PersistedJob req, JobEventListeners jobEventListeners) {
+        final ExecutionConfiguration executionConfiguration = req.getSpec().getExecution();
+
+        if (executionConfiguration.getWorkers() <= 0)
+            return fallback.execute(req, jobEventListeners);
+
+        try {
+            final Path workingDir = workingDirs.resolve(req.getId().toString());
+            Files.createDirectory(workingDir);
+            log.debug(req.getId() + ": created working directory: " + workingDir.toString());
+
+            executionConfiguration.getDependencies()
+                    .ifPresent(deps -> deps.forEach(dep -> handleJobDependency(req, workingDir, dependencySnapshots, dep)));
+
+            final List<String> args = new ArrayList<>();
+            executionConfiguration.getArguments()
+                    .ifPresent(rawArgs -> rawArgs.stream()
+                            .map(arg -> resolveArg(req, workingDir, arg))
+                            .forEach(args::add));
+
+            final WorkerPool pool = pools.computeIfAbsent(
+                    req.getSpec().getId(),
+                    k -> new WorkerPool(k, executionConfiguration));
+
+            final PooledJob job = new PooledJob(req, workingDir, args, jobEventListeners);
+            job.promise.onCancel(() -> pool.abort(job));
+            pool.submit(job);
+
+            return job.promise;
+        } catch (Exception ex) {
+            log.error(req.getId() + ": cannot start: " + ex.toString());
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() {
+        pools.values().forEach(WorkerPool::shutdown);
+    }
+
+
+    private void onJobExit(PooledJob job, JobStatus exitStatus) {
+        if (!job.completed.compareAndSet(false, true)) return;
+
+        final JobExecutionResult jobExecutionResult;
+        if (exitStatus == FINISHED) {
+            final PersistedJob req = job.req;
+            jobExecutionResult = new JobExecutionResult(
+                    exitStatus,
+                    tryResolveJobOutputs(req, job.workingDir, req.getSpec().getExpectedOutputs()));
+        } else {
+            jobExecutionResult = new JobExecutionResult(exitStatus);
+        }
+
+        job.listeners.getOnStdoutListener().onComplete();
+        job.listeners.getOnStderrListener().onComplete();
+        job.promise.complete(jobExecutionResult);
+
+        wdReaper.ifPresent(reaper -> reaper.remove(job.workingDir));
+    }
+
+    private void abort(Process process) {
+        process.destroy();
+        try {
+            final boolean terminated = process.waitFor(delayBeforeForciblyKillingJobs, TimeUnit.MILLISECONDS);
+            if (!terminated) {
+                log.warn(process + " did not abort within " + delayBeforeForciblyKillingJobs + " milliseconds, aborting forcibly (SIGKILL)");
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            log.error("Abortion interrupted while waiting on process (this shouldn't happen)");
+        }
+    }
+
+
+    private static final class PooledJob {
+        private final PersistedJob req;
+        private final Path workingDir;
+        private final List<String> args;
+        private final JobEventListeners listeners;
+        private final SimpleCancelablePromise<JobExecutionResult> promise = new SimpleCancelablePromise<>();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private volatile boolean aborted = false;
+
+        private PooledJob(PersistedJob req, Path workingDir, List<String> args, JobEventListeners listeners) {
+            this.req = req;
+            this.workingDir = workingDir;
+            this.args = args;
+            this.listeners = listeners;
+        }
+
+        private byte[] toRequestFrame() {
+            final Map<String, Object> payload = new HashMap<>();
+            payload.put("id", req.getId().toString());
+            payload.put("workingDir", workingDir.toString());
+            payload.put("arguments", args);
+            final byte[] body = toJSON(payload).getBytes(UTF_8);
+            final byte[] header = ("job " + body.length + "\n").getBytes(UTF_8);
+            final byte[] frame = new byte[header.length + body.length];
+            System.arraycopy(header, 0, frame, 0, header.length);
+            System.arraycopy(body, 0, frame, header.length, body.length);
+            return frame;
+        }
+    }
+
+    /**
+     * The outcome of assigning pending jobs to workers (under the pool's
+     * lock), which is acted on once the lock is released.
+     */
+    private final class Dispatch {
+        private final List<Pair<Worker, PooledJob>> assigned = new ArrayList<>();
+        private final List<PooledJob> failed = new ArrayList<>();
+
+        private void run() {
+            for (Pair<Worker, PooledJob> assignment : assigned) {
+                final Worker worker = assignment.getLeft();
+                final PooledJob job = assignment.getRight();
+                try {
+                    worker.stdin.write(job.toRequestFrame());
+                    worker.stdin.flush();
+                    log.info(job.req.getId() + ": sent to worker " + worker.process);
+                } catch (IOException ex) {
+                    // The worker's reader then fails the job
+                    log.error(job.req.getId() + ": cannot send job to worker: " + ex.toString());
+                    worker.process.destroyForcibly();
+                }
+            }
+            failed.forEach(j -> onJobExit(j, FATAL_ERROR));
+        }
+    }
+
+    /**
+     * The workers for one spec, plus the jobs waiting for a worker to
+     * become free.
+     */
+    private final class WorkerPool {
+        private final JobSpecId specId;
+        private final String application;
+        private final int maxWorkers;
+        private final Deque<Worker> idle = new ArrayDeque<>();
+        private final Set<Worker> all = new HashSet<>();
+        private final Deque<PooledJob> pending = new ArrayDeque<>();
+        private boolean isShutdown = false;
+        private int workersStarted = 0;
+
+        private WorkerPool(JobSpecId specId, ExecutionConfiguration executionConfiguration) {
+            this.specId = specId;
+            this.application = executionConfiguration.getApplication();
+            this.maxWorkers = executionConfiguration.getWorkers();
+        }
+
+        // Jobs are only ever completed outside of the pool's lock, because
+        // completing a job can re-enter the pool (via the job manager)
+        // from another thread. Jobs are also sent to workers outside of
+        // it, so that one worker with a full stdin pipe can't stall the
+        // whole pool.
+
+        private void submit(PooledJob job) {
+            final Dispatch dispatch;
+            synchronized (this) {
+                pending.add(job);
+                dispatch = dispatch();
+            }
+            dispatch.run();
+        }
+
+        private void abort(PooledJob job) {
+            job.aborted = true;
+            final Optional<Worker> runningOn;
+            synchronized (this) {
+                runningOn = pending.remove(job) ?
+                        Optional.empty() :
+                        all.stream().filter(w -> w.current == job).findFirst();
+
+                // Retired workers are never handed another job, so killing
+                // this worker (later, outside of the lock) can only ever
+                // kill this job, even if it finishes in the meantime.
+                runningOn.ifPresent(w -> w.retired = true);
+            }
+
+            if (runningOn.isPresent()) {
+                // The job is completed once the worker is dead, rather than
+                // when its stdout closes, because the worker's own children
+                // may be holding stdout open.
+                final Worker worker = runningOn.get();
+                new Thread(() -> {
+                    PooledJobExecutor.this.abort(worker.process);
+                    onWorkerDied(worker);
+                    onJobExit(job, ABORTED);
+                }, worker.threadName("abort")).start();
+            } else {
+                onJobExit(job, ABORTED);
+            }
+        }
+
+        private void release(Worker worker) {
+            final Dispatch dispatch;
+            synchronized (this) {
+                worker.current = null;
+                if (worker.process.isAlive() && !isShutdown && !worker.retired) {
+                    idle.push(worker);
+                } else {
+                    all.remove(worker);
+                }
+                dispatch = dispatch();
+            }
+            dispatch.run();
+        }
+
+        private void onWorkerDied(Worker worker) {
+            final Dispatch dispatch;
+            synchronized (this) {
+                idle.remove(worker);
+                all.remove(worker);
+                dispatch = dispatch();
+            }
+            dispatch.run();
+        }
+
+        private synchronized void shutdown() {
+            isShutdown = true;
+            all.forEach(w -> w.process.destroy());
+        }
+
+        private Dispatch dispatch() {
+            final Dispatch ret = new Dispatch();
+            while (!pending.isEmpty() && !isShutdown) {
+                Worker worker = idle.poll();
+                if (worker == null) {
+                    if (all.size() >= maxWorkers) break;
+                    try {
+                        worker = startWorker();
+                    } catch (IOException ex) {
+                        final PooledJob job = pending.poll();
+                        log.error(job.req.getId() + ": cannot start a worker for " + specId + ": " + ex.toString());
+                        ret.failed.add(job);
+                        continue;
+                    }
+                }
+
+                final PooledJob job = pending.poll();
+                worker.current = job;
+                ret.assigned.add(Pair.of(worker, job));
+            }
+            return ret;
+        }
+
+        private Worker startWorker() throws IOException {
+            final ProcessBuilder processBuilder = new ProcessBuilder(application);
+            processBuilder.directory(workingDirs.toFile());
+            final Process process = processBuilder.start();
+            log.info(specId + ": launched worker: " + application);
+
+            final Worker worker = new Worker(this, process, workersStarted++);
+            all.add(worker);
+            worker.start();
+            return worker;
+        }
+    }
+
+    /**
+     * A single long-lived worker process, plus the threads that read its
+     * output.
+     */
+    private final class Worker {
+        private final WorkerPool pool;
+        private final Process process;
+        private final int number;
+        private final OutputStream stdin;
+        private volatile PooledJob current;
+        // Guarded by the pool's lock
+        private boolean retired = false;
+
+        private Worker(WorkerPool pool, Process process, int number) {
+            this.pool = pool;
+            this.process = process;
+            this.number = number;
+            this.stdin = new BufferedOutputStream(process.getOutputStream());
+        }
+
+        private void start() {
+            new Thread(this::readFrames, threadName("frames")).start();
+            new Thread(this::logStderr, threadName("stderr")).start();
+        }
+
+        private String threadName(String role) {
+            return format(WORKER_THREAD_NAME_FORMAT, pool.specId, number, role);
+        }
+
+        private void readFrames() {
+            try (final InputStream in = new BufferedInputStream(process.getInputStream())) {
+                String header;
+                while ((header = readHeader(in)) != null) {
+                    final String[] parts = header.split(" ");
+                    if (parts.length != 2)
+                        throw new IOException(header + ": malformed frame header");
+
+                    final PooledJob job = current;
+                    switch (parts[0]) {
+                        case "stdout":
+                        case "stderr":
+                            final byte[] body = readBody(in, Integer.parseInt(parts[1]));
+                            if (job != null) {
+                                if (parts[0].equals("stdout"))
+                                    job.listeners.getOnStdoutListener().onNext(body);
+                                else
+                                    job.listeners.getOnStderrListener().onNext(body);
+                            }
+                            break;
+                        case "exit":
+                            if (job != null) {
+                                final JobStatus status = fromExitCode(Integer.parseInt(parts[1]));
+                                pool.release(this);
+                                onJobExit(job, status);
+                            }
+                            break;
+                        default:
+                            throw new IOException(parts[0] + ": unknown frame type");
+                    }
+                }
+            } catch (IOException | NumberFormatException ex) {
+                log.error(pool.specId + ": worker protocol error, killing worker: " + ex.toString());
+                process.destroyForcibly();
+            }
+
+            final PooledJob job = current;
+            pool.onWorkerDied(this);
+            if (job != null) {
+                onJobExit(job, job.aborted ? ABORTED : FATAL_ERROR);
+            }
+        }
+
+        private void logStderr() {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.warn(pool.specId + ": worker stderr: " + line);
+                }
+            } catch (IOException ex) {
+                log.debug("Could not read from worker stderr (probably because the process died)");
+            }
+        }
+    }
+
+
+    private static String readHeader(InputStream in) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') return sb.toString();
+            sb.append((char) c);
+        }
+        if (sb.length() > 0) throw new EOFException("Unexpected end of stream while reading a frame header");
+        return null;
+    }
+
+    private static byte[] readBody(InputStream in, int len) throws IOException {
+        if (len < 0) throw new IOException(len + ": negative frame length");
+        final byte[] body = new byte[len];
+        int read = 0;
+        while (read < len) {
+            final int n = in.read(body, read, len - read);
+            if (n == -1) throw new EOFException("Unexpected end of stream while reading a frame");
+            read += n;
+        }
+        return body;
+    }
+}
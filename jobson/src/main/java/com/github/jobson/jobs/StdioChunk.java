@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs;
+
+import java.util.Arrays;
+
+/**
+ * A chunk of a job's stdout/stderr, along with the offset of its first byte
+ * in everything the job has written to that stream. A gap chunk has no data:
+ * it stands in for output that is no longer held.
+ */
+public final class StdioChunk {
+
+    private static final byte[] NO_DATA = new byte[0];
+
+
+    public static StdioChunk gap(long offset, long endOffset) {
+        return new StdioChunk(offset, NO_DATA, endOffset - offset);
+    }
+
+
+    private final long offset;
+    private final byte[] data;
+    private final long gapLength;
+
+
+    public StdioChunk(long offset, byte[] data) {
+        this(offset, data, 0);
+    }
+
+    private StdioChunk(long offset, byte[] data, long gapLength) {
+        this.offset = offset;
+        this.data = data;
+        this.gapLength = gapLength;
+    }
+
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public long getEndOffset() {
+        return offset + data.length + gapLength;
+    }
+
+    public boolean isGap() {
+        return gapLength > 0;
+    }
+
+    /**
+     * @return The part of this chunk from offset onwards.
+     */
+    public StdioChunk sliceFrom(long offset) {
+        if (offset <= this.offset) return this;
+
+        final int start = (int) Math.min(offset - this.offset, data.length);
+        return new StdioChunk(this.offset + start, Arrays.copyOfRange(data, start, data.length));
+    }
+}
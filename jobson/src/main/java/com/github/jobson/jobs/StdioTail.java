@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs;
+
+import com.github.jobson.utils.ByteRingBuffer;
+import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import io.reactivex.subjects.UnicastSubject;
+
+import java.util.Optional;
+
+/**
+ * Observes a running job's stdout (or stderr), holding the most recent
+ * output in memory. Subscribers that need earlier output can be sent the
+ * held output before live output, and the tail of the output can be read
+ * without going to disk.
+ */
+public final class StdioTail implements Observer<byte[]> {
+
+    private final ByteRingBuffer buffer;
+    private final Subject<StdioChunk> chunks = PublishSubject.create();
+
+
+    public StdioTail(int maxBytesHeld) {
+        this.buffer = new ByteRingBuffer(maxBytesHeld);
+    }
+
+
+    @Override
+    public void onSubscribe(Disposable disposable) {}
+
+    @Override
+    public void onNext(byte[] data) {
+        final long offset;
+        synchronized (buffer) {
+            offset = buffer.getTotalBytesWritten();
+            buffer.append(data);
+        }
+        chunks.onNext(new StdioChunk(offset, data));
+    }
+
+    @Override
+    public void onError(Throwable ex) {
+        chunks.onError(ex);
+    }
+
+    @Override
+    public void onComplete() {
+        chunks.onComplete();
+    }
+
+
+    /**
+     * @return Output written from now on.
+     */
+    public Observable<StdioChunk> liveChunks() {
+        return chunks.hide();
+    }
+
+    /**
+     * @return The held output from offset onwards, followed by live output.
+     * If some of the output from offset onwards is no longer held, a gap
+     * chunk covering it is sent first. An offset past the end of the output
+     * only sends live output.
+     */
+    public Observable<StdioChunk> chunksFrom(long offset) {
+        return Observable.defer(() -> {
+            // Subscribing to live output before copying the held output means
+            // that no output can fall between the two. Output in both is
+            // sliced off of the live chunks.
+            final UnicastSubject<StdioChunk> liveChunks = UnicastSubject.create();
+            final Disposable liveSubscription = chunks.subscribe(
+                    liveChunks::onNext, liveChunks::onError, liveChunks::onComplete);
+
+            final StdioChunk heldChunk;
+            final long oldestHeldOffset;
+            synchronized (buffer) {
+                oldestHeldOffset = buffer.getOldestHeldOffset();
+                final long start = Math.min(Math.max(offset, oldestHeldOffset), buffer.getTotalBytesWritten());
+                heldChunk = new StdioChunk(start, buffer.copyFrom(start));
+            }
+            final long heldEndOffset = heldChunk.getEndOffset();
+
+            final Observable<StdioChunk> gap = offset < oldestHeldOffset ?
+                    Observable.just(StdioChunk.gap(offset, oldestHeldOffset)) :
+                    Observable.empty();
+
+            final Observable<StdioChunk> held = heldChunk.getData().length > 0 ?
+                    gap.concatWith(Observable.just(heldChunk)) :
+                    gap;
+
+            return held
+                    .concatWith(liveChunks
+                            .filter(chunk -> chunk.getEndOffset() > heldEndOffset)
+                            .map(chunk -> chunk.sliceFrom(heldEndOffset)))
+                    .doFinally(liveSubscription::dispose);
+        });
+    }
+
+    /**
+     * @return The last maxBytes bytes of output. Empty if some of those
+     * bytes are no longer held.
+     */
+    public Optional<byte[]> tail(int maxBytes) {
+        synchronized (buffer) {
+            final long heldBytes = buffer.getTotalBytesWritten() - buffer.getOldestHeldOffset();
+            if (maxBytes > heldBytes && buffer.getOldestHeldOffset() > 0) return Optional.empty();
+            return Optional.of(buffer.tail(maxBytes));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.github.jobson.Helpers.generateRandomBase36String;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Removes working directories in the background. Directories are moved
+ * into a trash directory straight away (so they disappear from the
+ * working directories immediately) and are then deleted by a bounded
+ * number of threads, so that large directories don't hold up the
+ * thread that finished the job, or saturate the disk.
+ */
+public final class WorkingDirReaper {
+
+    private static final Logger log = Logger.getLogger(WorkingDirReaper.class);
+
+
+    private final Path trashDir;
+    private final ExecutorService deleters;
+    private final AtomicInteger pendingDeletions = new AtomicInteger(0);
+
+
+    public WorkingDirReaper(Path trashDir, int maxConcurrentDeletions) throws IOException {
+        requireNonNull(trashDir);
+        if (maxConcurrentDeletions < 1)
+            throw new IllegalArgumentException(maxConcurrentDeletions + ": max concurrent deletions must be at least 1");
+
+        this.trashDir = Files.createDirectories(trashDir);
+        this.deleters = Executors.newFixedThreadPool(maxConcurrentDeletions, r -> {
+            final Thread t = new Thread(r, "jobson-wd-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Anything still in the trash was left over from a previous run
+        try (Stream<Path> leftovers = Files.list(this.trashDir)) {
+            leftovers.forEach(this::scheduleDeletion);
+        }
+    }
+
+
+    /**
+     * Moves workingDir into the trash and schedules it for deletion.
+     */
+    public void remove(Path workingDir) {
+        final Path trashed = trashDir.resolve(workingDir.getFileName() + "-" + generateRandomBase36String(6));
+        try {
+            Files.move(workingDir, trashed);
+            scheduleDeletion(trashed);
+        } catch (IOException ex) {
+            log.debug(format("Could not move %s into the trash (%s), deleting it in place", workingDir, ex.getMessage()));
+            scheduleDeletion(workingDir);
+        }
+    }
+
+    /**
+     * @return The number of directories that are waiting to be, or are being, deleted.
+     */
+    public int getPendingDeletions() {
+        return pendingDeletions.get();
+    }
+
+
+    private void scheduleDeletion(Path p) {
+        pendingDeletions.incrementAndGet();
+        deleters.execute(() -> {
+            try {
+                FileUtils.forceDelete(p.toFile());
+            } catch (IOException e) {
+                log.warn(format("Tried to remove a working directory, %s, but couldn't: %s", p, e.getMessage()));
+            } finally {
+                pendingDeletions.decrementAndGet();
+            }
+        });
+    }
+}
@@ -25,9 +25,9 @@ import com.github.jobson.jobinputs.JobExpectedInputId;
 import com.github.jobson.jobinputs.JobInput;
 import com.github.jobson.jobs.JobId;
 import com.github.jobson.jobs.JobTimestamp;
+import com.github.jobson.jobs.StdioTail;
 import com.github.jobson.specs.JobSpec;
 import com.github.jobson.utils.CancelablePromise;
-import io.reactivex.Observable;
 
 import java.util.Date;
 import java.util.List;
@@ -38,8 +38,8 @@ public final class ExecutingJob extends PersistedJob {
     public static ExecutingJob fromQueuedJob(
             QueuedJob queuedJob,
             Date date,
-            Observable<byte[]> stdoutObservable,
-            Observable<byte[]> stderrObservable) {
+            StdioTail stdout,
+            StdioTail stderr) {
 
         return new ExecutingJob(
                 queuedJob.getId(),
@@ -49,8 +49,8 @@ public final class ExecutingJob extends PersistedJob {
                 queuedJob.getTimestamps(),
                 queuedJob.getSpec(),
                 date,
-                stdoutObservable,
-                stderrObservable,
+                stdout,
+                stderr,
                 queuedJob.getCompletionPromise());
     }
 
@@ -58,10 +58,10 @@ public final class ExecutingJob extends PersistedJob {
     private final Date executionStarted;
 
     @JsonIgnore
-    private final Observable<byte[]> stdout;
+    private final StdioTail stdout;
 
     @JsonIgnore
-    private final Observable<byte[]> stderr;
+    private final StdioTail stderr;
 
     @JsonIgnore
     private final CancelablePromise<FinalizedJob> completionPromise;
@@ -75,8 +75,8 @@ public final class ExecutingJob extends PersistedJob {
             List<JobTimestamp> timestamps,
             JobSpec spec,
             Date executionStarted,
-            Observable<byte[]> stdout,
-            Observable<byte[]> stderr,
+            StdioTail stdout,
+            StdioTail stderr,
             CancelablePromise<FinalizedJob> completionPromise) {
 
         super(id, owner, name, inputs, timestamps, spec);
@@ -91,11 +91,11 @@ public final class ExecutingJob extends PersistedJob {
         return this.executionStarted;
     }
 
-    public Observable<byte[]> getStdout() {
+    public StdioTail getStdout() {
         return stdout;
     }
 
-    public Observable<byte[]> getStderr() {
+    public StdioTail getStderr() {
         return stderr;
     }
 
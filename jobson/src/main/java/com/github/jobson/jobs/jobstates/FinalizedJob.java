@@ -33,13 +33,17 @@ import java.util.Map;
 public final class FinalizedJob extends PersistedJob {
 
     public static FinalizedJob fromExecutingJob(ExecutingJob executingJob, JobStatus finalStatus, String finalMessage) {
+        return fromPersistedJob(executingJob, finalStatus, finalMessage);
+    }
+
+    public static FinalizedJob fromPersistedJob(PersistedJob persistedJob, JobStatus finalStatus, String finalMessage) {
         return new FinalizedJob(
-                executingJob.getId(),
-                executingJob.getOwner(),
-                executingJob.getName(),
-                executingJob.getInputs(),
-                executingJob.getTimestamps(),
-                executingJob.getSpec(),
+                persistedJob.getId(),
+                persistedJob.getOwner(),
+                persistedJob.getName(),
+                persistedJob.getInputs(),
+                persistedJob.getTimestamps(),
+                persistedJob.getSpec(),
                 finalStatus,
                 finalMessage);
     }
@@ -30,18 +30,21 @@ import com.github.jobson.jobinputs.JobExpectedInputId;
 import com.github.jobson.jobinputs.JobInput;
 import com.github.jobson.specs.JobSpec;
 import com.github.jobson.utils.Either;
+import com.github.jobson.utils.EitherVisitorT;
 import com.github.jobson.utils.ValidationError;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static com.github.jobson.Helpers.readJSON;
-import static com.google.common.collect.Sets.difference;
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.*;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Used internally after the API resolves a job request against a user and spec.
@@ -54,182 +57,172 @@ public class ValidJobRequest {
             UserId userId,
             APIJobRequest APIJobRequest) throws RuntimeException {
 
-        final Map<JobExpectedInputId, JobExpectedInput> jobExpectedInputs =
-                jobSpec.getExpectedInputs()
-                        .stream()
-                        .collect(toMap(JobExpectedInput::getId, identity()));
-
-        return resolveJobInputs(jobExpectedInputs, APIJobRequest.getInputs())
-                .leftMap(inputs -> new ValidJobRequest(
-                        userId,
-                        APIJobRequest.getName(),
-                        inputs,
-                        jobSpec))
-                .leftFlatMap(req -> {
-                    final List<ValidationError> validationErrors = findValidationErrors(req);
-
-                    if (validationErrors.size() == 0) return Either.left(req);
-                    else return Either.right(validationErrors);
-                });
+        return tryCreate(jobSpec, userId, APIJobRequest, Runnable::run);
     }
 
-    private static Either<Map<JobExpectedInputId, JobInput>, List<ValidationError>> resolveJobInputs(
-            Map<JobExpectedInputId, JobExpectedInput> expectedInputs,
-            Map<JobExpectedInputId, JsonNode> suppliedInputs) {
-
-        final Map<JobExpectedInputId, JobInput> defaultedInputs =
-                resolveDefaultedInputs(expectedInputs, suppliedInputs);
-
-        final Map<JobExpectedInputId, Either<JobInput, ValidationError>> maybeResolvedInputs =
-                tryResolveInputs(expectedInputs, suppliedInputs);
+    /**
+     * @param validationExecutor Resolves (deserializes + validates) inputs that are expensive to validate (see
+     *                           {@link JobExpectedInput#isExpensiveToValidate()}), so that they are resolved
+     *                           in parallel. Errors are reported in the same order regardless of the executor.
+     */
+    public static Either<ValidJobRequest, List<ValidationError>> tryCreate(
+            JobSpec jobSpec,
+            UserId userId,
+            APIJobRequest APIJobRequest,
+            Executor validationExecutor) throws RuntimeException {
+
+        final Map<JobExpectedInputId, JsonNode> suppliedInputs = APIJobRequest.getUnresolvedInputs();
+        final Map<JobExpectedInputId, Either<JobInput, ValidationError>> resolvedInputs = APIJobRequest.getResolvedInputs();
+        final Map<JobExpectedInputId, JobExpectedInput<?>> expectedInputs = new LinkedHashMap<>();
+        for (JobExpectedInput<?> expectedInput : jobSpec.getExpectedInputs())
+            expectedInputs.putIfAbsent(expectedInput.getId(), expectedInput);
+
+        final List<ValidationError> resolutionErrors =
+                findValidationErrorsDueToInputsNotBeingExpected(expectedInputs, suppliedInputs);
+
+        // Resolutions are started in spec order and collected in spec
+        // order, so that the order of errors is deterministic.
+        final Map<JobExpectedInputId, CompletableFuture<ResolvedInput>> resolutions = new LinkedHashMap<>();
+        final List<JobExpectedInputId> missingIds = new ArrayList<>();
+
+        for (JobExpectedInput expectedInput : expectedInputs.values()) {
+            final JobExpectedInputId id = expectedInput.getId();
+
+            if (resolvedInputs.containsKey(id)) {
+                final CompletableFuture<ResolvedInput> resolution = resolvedInputs.get(id).visit(
+                        new EitherVisitorT<JobInput, ValidationError, CompletableFuture<ResolvedInput>>() {
+                            @Override
+                            public CompletableFuture<ResolvedInput> whenLeft(JobInput input) {
+                                return expectedInput.isExpensiveToValidate() ?
+                                        CompletableFuture.supplyAsync(() -> validateInput(expectedInput, input), validationExecutor) :
+                                        CompletableFuture.completedFuture(validateInput(expectedInput, input));
+                            }
+
+                            @Override
+                            public CompletableFuture<ResolvedInput> whenRight(ValidationError resolutionError) {
+                                return CompletableFuture.completedFuture(ResolvedInput.unresolvable(resolutionError));
+                            }
+                        });
+
+                resolutions.put(id, resolution);
+            } else if (suppliedInputs.containsKey(id)) {
+                final JsonNode suppliedInput = suppliedInputs.get(id);
+
+                final CompletableFuture<ResolvedInput> resolution = expectedInput.isExpensiveToValidate() ?
+                        CompletableFuture.supplyAsync(() -> resolveInput(expectedInput, suppliedInput), validationExecutor) :
+                        CompletableFuture.completedFuture(resolveInput(expectedInput, suppliedInput));
+
+                resolutions.put(id, resolution);
+            } else if (expectedInput.getDefault().isPresent()) {
+                final JobInput defaultInput = (JobInput)expectedInput.getDefault().get();
+                resolutions.put(id, CompletableFuture.completedFuture(validateInput(expectedInput, defaultInput)));
+            } else {
+                missingIds.add(id);
+            }
+        }
 
+        final Map<JobExpectedInputId, JobInput> inputs = new HashMap<>();
         final List<ValidationError> validationErrors = new ArrayList<>();
-        final Map<JobExpectedInputId, JobInput> validResolvedInputs = new HashMap<>();
-
-        maybeResolvedInputs.forEach((key, value) ->
-                value.handleBoth(
-                        jobInput -> validResolvedInputs.put(key, jobInput),
-                        validationErrors::add));
 
-        if (validationErrors.size() == 0)
-            return Either.left(Helpers.merge(defaultedInputs, validResolvedInputs));
-        else return Either.right(validationErrors);
-    }
-
-    private static Map<JobExpectedInputId, JobInput> resolveDefaultedInputs(
-            Map<JobExpectedInputId, JobExpectedInput> expectedInputs,
-            Map<JobExpectedInputId, JsonNode> suppliedInputs) {
-
-        return expectedInputs.entrySet().stream()
-                .filter(e -> !suppliedInputs.containsKey(e.getKey()))
-                .map(e -> new AbstractMap.SimpleEntry<>(
-                        e.getKey(),
-                        (Optional<JobInput>)e.getValue().getDefault()))
-                .filter(e -> e.getValue().isPresent())
-                .map(e -> new AbstractMap.SimpleEntry<>(e.getKey(), e.getValue().get()))
-                .collect(toMap(e -> e.getKey(), e -> e.getValue()));
+        resolutions.forEach((id, resolution) -> {
+            final ResolvedInput resolvedInput = join(resolution);
+            resolvedInput.input.ifPresent(input -> inputs.put(id, input));
+            resolvedInput.resolutionError.ifPresent(resolutionErrors::add);
+            validationErrors.addAll(resolvedInput.validationErrors);
+        });
+
+        if (!resolutionErrors.isEmpty()) {
+            return Either.right(resolutionErrors);
+        } else if (!missingIds.isEmpty()) {
+            final String errorMessage = "Inputs are missing from the request: " + Helpers.commaSeparatedList(missingIds);
+            return Either.right(singletonList(ValidationError.of(errorMessage)));
+        } else if (!validationErrors.isEmpty()) {
+            return Either.right(validationErrors);
+        } else {
+            return Either.left(new ValidJobRequest(userId, APIJobRequest.getName(), inputs, jobSpec));
+        }
     }
 
-    private static Map<JobExpectedInputId, Either<JobInput, ValidationError>> tryResolveInputs(
-            Map<JobExpectedInputId, JobExpectedInput> expectedInputs,
+    private static List<ValidationError> findValidationErrorsDueToInputsNotBeingExpected(
+            Map<JobExpectedInputId, JobExpectedInput<?>> expectedInputs,
             Map<JobExpectedInputId, JsonNode> suppliedInputs) {
 
-        return suppliedInputs.entrySet().stream().map(entry -> {
-            final JobExpectedInputId id = entry.getKey();
-
-            if (!expectedInputs.containsKey(id)) {
-                final ValidationError validationError = ValidationError.of(format(
+        return suppliedInputs.keySet()
+                .stream()
+                .filter(id -> !expectedInputs.containsKey(id))
+                .sorted(comparing(JobExpectedInputId::toString))
+                .map(id -> ValidationError.of(format(
                         "%s: is not an expected input. Expected inputs: %s",
                         id,
-                        Helpers.commaSeparatedList(expectedInputs.keySet())));
-
-                return new AbstractMap.SimpleEntry<JobExpectedInputId, Either<JobInput, ValidationError>>(entry.getKey(), Either.right(validationError));
-            }
-
-            final JobExpectedInput expectedInput = expectedInputs.get(entry.getKey());
-            final Class<JobInput> inputClass = expectedInput.getExpectedInputClass();
-
-            try {
-                final JobInput jobInput = readJSON(entry.getValue(), inputClass);
-
-                return new AbstractMap.SimpleEntry<JobExpectedInputId, Either<JobInput, ValidationError>>(entry.getKey(), Either.left(jobInput));
-            } catch (UnrecognizedPropertyException ex) {
-                final ValidationError validationError = new ValidationError("Unrecognized field \"" + ex.getPropertyName() + "\". Allowed fields for this input: " + ex.getKnownPropertyIds());
-                return new AbstractMap.SimpleEntry<JobExpectedInputId, Either<JobInput, ValidationError>>(entry.getKey(), Either.right(validationError));
-            } catch (IOException ex) {
-                final ValidationError validationError = new ValidationError(ex.toString());
-                return new AbstractMap.SimpleEntry<JobExpectedInputId, Either<JobInput, ValidationError>>(entry.getKey(), Either.right(validationError));
-            }
-        }).collect(toMap(e -> e.getKey(), e -> e.getValue()));
+                        Helpers.commaSeparatedList(expectedInputs.keySet()))))
+                .collect(toList());
     }
 
-    private static List<ValidationError> findValidationErrors(ValidJobRequest req) {
-
-        final ArrayList<ValidationError> validationErrors = new ArrayList<>();
+    private static ResolvedInput resolveInput(JobExpectedInput expectedInput, JsonNode suppliedInput) {
+        final Class<JobInput> inputClass = expectedInput.getExpectedInputClass();
 
-        validationErrors.addAll(
-                findValidationErrorsDueToInputIdNotBeingInSchema(req));
-        validationErrors.addAll(
-                findValidationErrorsDueToNotSpecifyingARequiredInput(req));
-
-        if (validationErrors.isEmpty()) {
-            validationErrors.addAll(
-                    findValidationErrorsDueToInputsNotBeingValidAgainstTheirSchema(req));
+        try {
+            return validateInput(expectedInput, readJSON(suppliedInput, inputClass));
+        } catch (IOException ex) {
+            return ResolvedInput.unresolvable(resolutionErrorOf(ex));
         }
-
-        return validationErrors;
     }
 
-    private static List<ValidationError> findValidationErrorsDueToInputIdNotBeingInSchema(ValidJobRequest req) {
-        final Set<JobExpectedInputId> idsInRequest = req.inputs.keySet();
-        final Set<JobExpectedInputId> expectedIds =
-                req.spec.getExpectedInputs().stream().map(JobExpectedInput::getId).collect(toSet());
-
-        final Set<JobExpectedInputId> invalidIds = difference(idsInRequest, expectedIds);
-
-        if (invalidIds.isEmpty()) {
-            return new ArrayList<>();
+    /**
+     * @return A validation error describing why an input could not be deserialized into its input class.
+     */
+    public static ValidationError resolutionErrorOf(IOException ex) {
+        if (ex instanceof UnrecognizedPropertyException) {
+            final UnrecognizedPropertyException upe = (UnrecognizedPropertyException)ex;
+            return new ValidationError("Unrecognized field \"" + upe.getPropertyName() + "\". Allowed fields for this input: " + upe.getKnownPropertyIds());
         } else {
-            final String errorMessage = String.format(
-                    "The job request contained unexepected inputs (%s). Available inputs: %s",
-                    Helpers.commaSeparatedList(invalidIds),
-                    Helpers.commaSeparatedList(expectedIds));
-
-            return singletonList(ValidationError.of(errorMessage));
+            return new ValidationError(ex.toString());
         }
     }
 
-    private static List<ValidationError> findValidationErrorsDueToNotSpecifyingARequiredInput(ValidJobRequest req) {
-        final Set<JobExpectedInputId> requiredInputIds =
-                req.spec.getExpectedInputs().stream().map(JobExpectedInput::getId).collect(toSet());
-        final Set<JobExpectedInputId> idsInRequest = req.getInputs().keySet();
-
-        final Set<JobExpectedInputId> idsMissingFromRequest = difference(requiredInputIds, idsInRequest);
-
-        if (idsMissingFromRequest.isEmpty()) {
-            return new ArrayList<>();
+    private static ResolvedInput validateInput(JobExpectedInput expectedInput, JobInput input) {
+        if (input.getClass().equals(expectedInput.getExpectedInputClass())) {
+            final Optional<List<ValidationError>> maybeValidationErrors = expectedInput.validate(input);
+            return ResolvedInput.resolved(input, maybeValidationErrors.orElse(emptyList()));
         } else {
-            final String errorMessage = "Inputs are missing from the request: " + Helpers.commaSeparatedList(idsMissingFromRequest);
-            return singletonList(ValidationError.of(errorMessage));
+            final String errorMsg = format(
+                    "The input type %s does not match the schema %s",
+                    input.getClass().getSimpleName(),
+                    expectedInput.getExpectedInputClass().getSimpleName());
+
+            return ResolvedInput.resolved(input, singletonList(ValidationError.of(errorMsg)));
         }
     }
 
-    private static List<ValidationError> findValidationErrorsDueToInputsNotBeingValidAgainstTheirSchema(ValidJobRequest req) {
-        return req.inputs.entrySet()
-                .stream()
-                .map(entry -> findValidationErrorsDueToAnInputNotBeingValidAgainstItsSchema(req, entry.getKey(), entry.getValue()))
-                .flatMap(List::stream)
-                .collect(toList());
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException)ex.getCause();
+            else throw ex;
+        }
     }
 
-    private static List<ValidationError> findValidationErrorsDueToAnInputNotBeingValidAgainstItsSchema(
-            ValidJobRequest req,
-            JobExpectedInputId jobExpectedInputId,
-            JobInput input) {
 
-        final Optional<JobExpectedInput<?>> maybeJobSchema =
-                req.spec.getExpectedInputs()
-                .stream()
-                .filter(schema -> schema.getId().equals(jobExpectedInputId))
-                .findFirst();
+    private static final class ResolvedInput {
+
+        private static ResolvedInput resolved(JobInput input, List<ValidationError> validationErrors) {
+            return new ResolvedInput(Optional.of(input), Optional.empty(), validationErrors);
+        }
 
-        if (maybeJobSchema.isPresent()) {
-            final JobExpectedInput inputSchema = maybeJobSchema.get();
+        private static ResolvedInput unresolvable(ValidationError resolutionError) {
+            return new ResolvedInput(Optional.empty(), Optional.of(resolutionError), emptyList());
+        }
 
-            if (input.getClass().equals(inputSchema.getExpectedInputClass())) {
-                final Optional<List<ValidationError>> maybeValidationErrors = inputSchema.validate(input);
-                if (maybeValidationErrors.isPresent()) return maybeValidationErrors.get();
-                else return emptyList();
-            } else {
-                final String errorMsg = format(
-                        "The input type %s does not match the schema %s",
-                        input.getClass().getSimpleName(),
-                        inputSchema.getExpectedInputClass().getSimpleName());
 
-                return singletonList(ValidationError.of(errorMsg));
-            }
-        } else {
-            return singletonList(ValidationError.of("Job schema does not contain an input schema with id = " + jobExpectedInputId));
+        private final Optional<JobInput> input;
+        private final Optional<ValidationError> resolutionError;
+        private final List<ValidationError> validationErrors;
+
+        private ResolvedInput(Optional<JobInput> input, Optional<ValidationError> resolutionError, List<ValidationError> validationErrors) {
+            this.input = input;
+            this.resolutionError = resolutionError;
+            this.validationErrors = validationErrors;
         }
     }
 
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.resources.v1;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.github.jobson.api.v1.APIJobRequest;
+import com.github.jobson.dao.specs.JobSpecConfigurationDAO;
+import com.github.jobson.jobinputs.JobExpectedInput;
+import com.github.jobson.jobinputs.JobExpectedInputId;
+import com.github.jobson.jobinputs.JobInput;
+import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import com.github.jobson.specs.JobSpec;
+import com.github.jobson.specs.JobSpecId;
+import com.github.jobson.utils.Either;
+import com.github.jobson.utils.ValidationError;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.function.Function;
+
+import static com.github.jobson.Helpers.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads job requests from a stream, deserializing each input straight into
+ * the input class of the spec's expected input (rather than first building
+ * the whole request as a JSON tree, and then deserializing each input from
+ * the tree).
+ *
+ * This is only possible if the request's {@code spec} appears before its
+ * {@code inputs}, which is the order jobson's clients write them in.
+ * Otherwise, and for inputs that are not in the spec, inputs are read as
+ * JSON trees, as they would be by the default JSON reader.
+ */
+@Consumes(MediaType.APPLICATION_JSON)
+public final class APIJobRequestReader implements MessageBodyReader<APIJobRequest> {
+
+    private static final Collection<Object> KNOWN_PROPERTIES = Arrays.asList("spec", "name", "inputs");
+
+
+    /**
+     * @return The request at p, or null if p is empty.
+     */
+    public static APIJobRequest read(JsonParser p, Function<JobSpecId, Optional<JobSpec>> jobSpecLookup) throws IOException {
+        if (p.nextToken() == null) return null;
+        if (p.currentToken() != JsonToken.START_OBJECT)
+            throw MismatchedInputException.from(p, APIJobRequest.class, "Expected a job request object");
+
+        JobSpecId jobSpecId = null;
+        Optional<JobSpec> maybeJobSpec = Optional.empty();
+        String name = null;
+        Map<JobExpectedInputId, JsonNode> unresolvedInputs = null;
+        final Map<JobExpectedInputId, Either<JobInput, ValidationError>> resolvedInputs = new HashMap<>();
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = p.getCurrentName();
+            p.nextToken();
+
+            switch (fieldName) {
+                case "spec":
+                    jobSpecId = readJSON(p, JobSpecId.class);
+                    maybeJobSpec = jobSpecId != null ? jobSpecLookup.apply(jobSpecId) : Optional.empty();
+                    break;
+                case "name":
+                    name = readJSON(p, String.class);
+                    break;
+                case "inputs":
+                    if (p.currentToken() == JsonToken.VALUE_NULL) {
+                        unresolvedInputs = null;
+                    } else {
+                        resolvedInputs.clear();
+                        unresolvedInputs = readInputs(p, maybeJobSpec, resolvedInputs);
+                    }
+                    break;
+                default:
+                    throw UnrecognizedPropertyException.from(p, APIJobRequest.class, fieldName, KNOWN_PROPERTIES);
+            }
+        }
+
+        return new APIJobRequest(jobSpecId, name, unresolvedInputs, resolvedInputs);
+    }
+
+    private static Map<JobExpectedInputId, JsonNode> readInputs(
+            JsonParser p,
+            Optional<JobSpec> maybeJobSpec,
+            Map<JobExpectedInputId, Either<JobInput, ValidationError>> resolvedInputs) throws IOException {
+
+        if (p.currentToken() != JsonToken.START_OBJECT)
+            throw MismatchedInputException.from(p, Map.class, "Expected the job request's inputs to be an object");
+
+        final Map<JobExpectedInputId, JobExpectedInput<?>> expectedInputs = new HashMap<>();
+        maybeJobSpec.ifPresent(jobSpec -> {
+            for (JobExpectedInput<?> expectedInput : jobSpec.getExpectedInputs())
+                expectedInputs.putIfAbsent(expectedInput.getId(), expectedInput);
+        });
+
+        final Map<JobExpectedInputId, JsonNode> unresolvedInputs = new HashMap<>();
+        final JsonStreamContext inputsContext = p.getParsingContext();
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final JobExpectedInputId id = new JobExpectedInputId(p.getCurrentName());
+            p.nextToken();
+
+            final JobExpectedInput<?> expectedInput = expectedInputs.get(id);
+
+            if (expectedInput == null || p.currentToken() == JsonToken.VALUE_NULL) {
+                unresolvedInputs.put(id, readJSONTree(p));
+            } else {
+                try {
+                    final JobInput input = readJSON(p, expectedInput.getExpectedInputClass());
+                    resolvedInputs.put(id, Either.left(input));
+                } catch (JsonMappingException ex) {
+                    // The input is valid JSON but not a valid input. Skip
+                    // the rest of it, so that the other inputs are still
+                    // resolved (and their errors reported).
+                    resolvedInputs.put(id, Either.right(ValidJobRequest.resolutionErrorOf(ex)));
+                    skipToEndOfValue(p, inputsContext);
+                }
+            }
+        }
+
+        return unresolvedInputs;
+    }
+
+    /**
+     * Advances p until it is at the last token of the value that is being
+     * read in parentContext.
+     */
+    private static void skipToEndOfValue(JsonParser p, JsonStreamContext parentContext) throws IOException {
+        while (p.getParsingContext() != parentContext) {
+            if (p.nextToken() == null)
+                throw MismatchedInputException.from(p, APIJobRequest.class, "Unexpected end of input");
+        }
+    }
+
+
+    private final JobSpecConfigurationDAO jobSpecConfigurationDAO;
+
+
+    public APIJobRequestReader(JobSpecConfigurationDAO jobSpecConfigurationDAO) {
+        requireNonNull(jobSpecConfigurationDAO);
+        this.jobSpecConfigurationDAO = jobSpecConfigurationDAO;
+    }
+
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == APIJobRequest.class;
+    }
+
+    @Override
+    public APIJobRequest readFrom(
+            Class<APIJobRequest> type,
+            Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders,
+            InputStream entityStream) throws IOException, WebApplicationException {
+
+        try (JsonParser p = createJSONParser(entityStream)) {
+            return read(p, jobSpecConfigurationDAO::getJobSpecById);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package com.github.jobson.resources.v1;
 
+import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.jobson.Constants;
 import com.github.jobson.Helpers;
@@ -30,10 +31,13 @@ import com.github.jobson.dao.specs.JobSpecConfigurationDAO;
 import com.github.jobson.jobinputs.JobExpectedInputId;
 import com.github.jobson.jobs.JobId;
 import com.github.jobson.jobs.JobManagerActions;
+import com.github.jobson.jobs.JobManagerEvents;
 import com.github.jobson.jobs.jobstates.ValidJobRequest;
 import com.github.jobson.specs.JobOutputId;
 import com.github.jobson.specs.JobSpec;
+import com.github.jobson.specs.JobSpecId;
 import com.github.jobson.utils.BinaryData;
+import com.github.jobson.utils.ByteRingBuffer;
 import com.github.jobson.utils.Either;
 import com.github.jobson.utils.EitherVisitorT;
 import com.github.jobson.utils.ValidationError;
@@ -42,6 +46,7 @@ import io.swagger.v3.oas.annotations.responses.*;
 import io.swagger.v3.oas.annotations.media.*;
 import io.swagger.v3.oas.annotations.info.*;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.security.PermitAll;
 import javax.validation.Valid;
@@ -52,16 +57,22 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.github.jobson.Constants.DEFAULT_BINARY_MIME_TYPE;
 import static com.github.jobson.Constants.HTTP_JOBS_PATH;
+import static com.github.jobson.Constants.MAX_STDIO_TAIL_IN_BYTES;
 import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
@@ -73,12 +84,15 @@ import static java.util.stream.Collectors.toList;
 public final class JobResource {
 
     private static final int MAX_PAGE_SIZE = 20;
+    private static final int MAX_BATCH_SIZE = 10000;
 
 
     private final JobManagerActions jobManagerActions;
+    private final Optional<JobManagerEvents> jobManagerEvents;
     private final JobSpecConfigurationDAO jobSpecConfigurationDAO;
     private final int defaultPageSize;
     private final JobDAO jobDAO;
+    private final Executor inputValidationExecutor;
 
 
     public JobResource(
@@ -87,15 +101,58 @@ public final class JobResource {
             JobSpecConfigurationDAO jobSpecConfigurationDAO,
             int defaultPageSize) throws RuntimeException {
 
+        this(jobManagerActions, jobDAO, jobSpecConfigurationDAO, defaultPageSize, Runnable::run);
+    }
+
+    /**
+     * @param inputValidationExecutor Validates the inputs of submitted job requests that are expensive
+     *                                to validate (see {@link ValidJobRequest#tryCreate(JobSpec, UserId, APIJobRequest, Executor)}).
+     */
+    public JobResource(
+            JobManagerActions jobManagerActions,
+            JobDAO jobDAO,
+            JobSpecConfigurationDAO jobSpecConfigurationDAO,
+            int defaultPageSize,
+            Executor inputValidationExecutor) throws RuntimeException {
+
+        this(jobManagerActions, Optional.empty(), jobDAO, jobSpecConfigurationDAO, defaultPageSize, inputValidationExecutor);
+    }
+
+    /**
+     * @param jobManagerEvents Serves the tail of a running job's stdout/stderr from memory, rather than from disk.
+     */
+    public JobResource(
+            JobManagerActions jobManagerActions,
+            JobManagerEvents jobManagerEvents,
+            JobDAO jobDAO,
+            JobSpecConfigurationDAO jobSpecConfigurationDAO,
+            int defaultPageSize,
+            Executor inputValidationExecutor) throws RuntimeException {
+
+        this(jobManagerActions, Optional.of(jobManagerEvents), jobDAO, jobSpecConfigurationDAO, defaultPageSize, inputValidationExecutor);
+    }
+
+    private JobResource(
+            JobManagerActions jobManagerActions,
+            Optional<JobManagerEvents> jobManagerEvents,
+            JobDAO jobDAO,
+            JobSpecConfigurationDAO jobSpecConfigurationDAO,
+            int defaultPageSize,
+            Executor inputValidationExecutor) throws RuntimeException {
+
         requireNonNull(jobManagerActions);
+        requireNonNull(jobManagerEvents);
         requireNonNull(jobDAO);
         requireNonNull(jobSpecConfigurationDAO);
+        requireNonNull(inputValidationExecutor);
         if (defaultPageSize < 0) throw new RuntimeException("Default page size cannot be negative");
 
         this.jobManagerActions = jobManagerActions;
+        this.jobManagerEvents = jobManagerEvents;
         this.jobDAO = jobDAO;
         this.jobSpecConfigurationDAO = jobSpecConfigurationDAO;
         this.defaultPageSize = defaultPageSize;
+        this.inputValidationExecutor = inputValidationExecutor;
     }
 
 
@@ -289,6 +346,7 @@ public final class JobResource {
                      ))
     })
     @PermitAll
+    @Timed(name = Constants.JOB_SUBMIT_METRIC_NAME, absolute = true)
     public APIJobCreatedResponse submitJob(
             @Context
                     SecurityContext context,
@@ -299,7 +357,7 @@ public final class JobResource {
 
         final UserId userId = new UserId(context.getUserPrincipal().getName());
 
-        return validateAPIRequest(apiJobRequest, jobSpecConfigurationDAO, userId).visit(
+        return validateAPIRequest(apiJobRequest, jobSpecConfigurationDAO, userId, inputValidationExecutor).visit(
                 new EitherVisitorT<ValidJobRequest, List<ValidationError>, APIJobCreatedResponse>() {
                     @Override
                     public APIJobCreatedResponse whenLeft(ValidJobRequest left) {
@@ -315,11 +373,99 @@ public final class JobResource {
                 });
     }
 
+    @POST
+    @Path("batch")
+    @Operation(
+            summary = "Submit a batch of new jobs",
+            description = "Attempt to submit many jobs in one request. The batch may contain explicit requests, a " +
+                    "template request plus a parameter matrix (one job is created per combination of parameter " +
+                    "values), or both. Every request in the batch is validated before any job is created: if any " +
+                    "request is invalid, the whole batch is rejected.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Job requests accepted",
+                    content = @Content(
+                            schema = @Schema(implementation = APIJobBatchCreatedResponse.class)
+                    )),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid or malformed job request(s)",
+                    content = @Content(
+                            schema = @Schema(implementation = APIErrorMessage.class)
+                    ))
+    })
+    @PermitAll
+    public APIJobBatchCreatedResponse submitJobs(
+            @Context
+                    SecurityContext context,
+            @Parameter(description = "The job requests")
+            @NotNull
+            @Valid
+                    APIJobBatchRequest apiJobBatchRequest) {
+
+        if (apiJobBatchRequest == null)
+            throw new WebApplicationException("Batch request was null", 400);
+
+        // Counted before expanding, because a small parameter matrix can
+        // expand into more requests than fit in memory
+        final long numRequests = apiJobBatchRequest.countRequests();
+
+        if (numRequests == 0)
+            throw new WebApplicationException("The batch does not contain any job requests", 400);
+        if (numRequests > MAX_BATCH_SIZE)
+            throw new WebApplicationException("The batch contains " + (numRequests == Long.MAX_VALUE ? "too many" : numRequests) + " job requests. Max batch size is " + MAX_BATCH_SIZE, 400);
+
+        final UserId userId = new UserId(context.getUserPrincipal().getName());
+        final List<APIJobRequest> apiJobRequests = apiJobBatchRequest.expand();
+
+        final Map<JobSpecId, JobSpec> specs = new HashMap<>();
+        final List<ValidJobRequest> validJobRequests = new ArrayList<>(apiJobRequests.size());
+
+        for (int i = 0; i < apiJobRequests.size(); i++) {
+            final APIJobRequest apiJobRequest = apiJobRequests.get(i);
+            final JobSpec jobSpec = specs.computeIfAbsent(apiJobRequest.getSpec(), this::getJobSpecOrThrow);
+            final Either<ValidJobRequest, List<ValidationError>> maybeValidJobRequest =
+                    ValidJobRequest.tryCreate(jobSpec, userId, apiJobRequest, inputValidationExecutor);
+
+            final int requestIdx = i;
+            maybeValidJobRequest.handleBoth(
+                    validJobRequests::add,
+                    errors -> {
+                        throw new WebApplicationException(
+                                "Validation errors were found in request " + requestIdx + " of the batch: " + Helpers.commaSeparatedList(errors), 400);
+                    });
+        }
+
+        final List<APIJobCreatedResponse> entries = jobManagerActions.submitAll(validJobRequests)
+                .stream()
+                .map(Pair::getLeft)
+                .map(jobId -> new APIJobCreatedResponse(jobId, generateRestLinks(jobId)))
+                .collect(toList());
+
+        return new APIJobBatchCreatedResponse(entries);
+    }
+
+    private JobSpec getJobSpecOrThrow(JobSpecId jobSpecId) {
+        return jobSpecConfigurationDAO.getJobSpecById(jobSpecId)
+                .orElseThrow(() -> new WebApplicationException(
+                        "The specified schema id (" + jobSpecId + ") could not be found. Are you sure it's available?", 400));
+    }
+
     public static Either<ValidJobRequest, List<ValidationError>> validateAPIRequest(
             APIJobRequest APIJobRequest,
             JobSpecConfigurationDAO jobSpecConfigurationDAO,
             UserId userId) {
 
+        return validateAPIRequest(APIJobRequest, jobSpecConfigurationDAO, userId, Runnable::run);
+    }
+
+    public static Either<ValidJobRequest, List<ValidationError>> validateAPIRequest(
+            APIJobRequest APIJobRequest,
+            JobSpecConfigurationDAO jobSpecConfigurationDAO,
+            UserId userId,
+            Executor inputValidationExecutor) {
+
         if (APIJobRequest == null)
             throw new WebApplicationException("Job id was null", 400);
 
@@ -331,7 +477,7 @@ public final class JobResource {
                     "The specified schema id (" + APIJobRequest.getSpec() +
                             ") could not be found. Are you sure it's available?");
 
-        return ValidJobRequest.tryCreate(maybeJobSchemaConfiguration.get(), userId, APIJobRequest);
+        return ValidJobRequest.tryCreate(maybeJobSchemaConfiguration.get(), userId, APIJobRequest, inputValidationExecutor);
     }
 
     @POST
@@ -366,7 +512,8 @@ public final class JobResource {
             summary = "Get a job's standard output",
             description = "Get a job's standard output, if available. A job that has not yet started will not have a standard output and, " +
                     "therefore, this method will return a 404. There is no guarantee that all running/finished jobs will have standard output " +
-                    "data. This is because administrative and cleanup routines may dequeue a job's output in order to save space on the server. ")
+                    "data. This is because administrative and cleanup routines may dequeue a job's output in order to save space on the server. " +
+                    "With `tail`, only the last `tail` bytes (at most " + MAX_STDIO_TAIL_IN_BYTES + ") are returned.")
     @Produces(DEFAULT_BINARY_MIME_TYPE)
     @PermitAll
     public Response fetchJobStdoutById(
@@ -375,16 +522,79 @@ public final class JobResource {
             @Parameter(description = "ID of the job to get stdout for")
             @PathParam("job-id")
             @NotNull
-            JobId jobId) {
+            JobId jobId,
+            @Parameter(description = "Only get the last `tail` bytes. Served from memory while the job is running")
+            @QueryParam("tail")
+                    Integer tail,
+            @Parameter(hidden = true)
+            @HeaderParam("Accept-Encoding")
+                    String acceptEncoding) {
 
         if (jobId == null) throw new WebApplicationException("Job ID cannot be null", 400);
 
-        return generateBinaryDataResponse(jobId, jobDAO.getStdout(jobId));
+        if (tail != null)
+            return generateTailResponse(
+                    tail,
+                    () -> jobManagerEvents.flatMap(events -> events.stdoutTail(jobId, tail)),
+                    () -> jobDAO.getStdout(jobId));
+
+        return generateBinaryDataResponse(jobId, jobDAO.getStdout(jobId), acceptEncoding);
     }
 
-    private Response generateBinaryDataResponse(JobId jobId, Optional<BinaryData> maybeBinaryData) {
+    private static Response generateTailResponse(
+            int maxBytes,
+            Supplier<Optional<byte[]>> readHeldTail,
+            Supplier<Optional<BinaryData>> readStoredData) {
+
+        if (maxBytes < 0) throw new WebApplicationException("tail cannot be negative", 400);
+        // The tail is buffered in memory
+        if (maxBytes > MAX_STDIO_TAIL_IN_BYTES)
+            throw new WebApplicationException("tail cannot be above " + MAX_STDIO_TAIL_IN_BYTES, 400);
+
+        final Optional<byte[]> maybeHeldTail = readHeldTail.get();
+        if (maybeHeldTail.isPresent())
+            return Response.ok(maybeHeldTail.get(), DEFAULT_BINARY_MIME_TYPE).build();
+
+        // The job isn't running (or its tail is no longer held in memory),
+        // so the tail is read off of disk.
+        final Optional<BinaryData> maybeStoredData = readStoredData.get();
+        if (!maybeStoredData.isPresent()) return Response.status(404).build();
+
+        final BinaryData binaryData = maybeStoredData.get().decoded();
+        try (InputStream in = binaryData.getData()) {
+            return Response.ok(readTail(in, binaryData.getSizeOf(), maxBytes), DEFAULT_BINARY_MIME_TYPE).build();
+        } catch (IOException ex) {
+            throw new WebApplicationException("Could not read the job's output", 500);
+        }
+    }
+
+    private static byte[] readTail(InputStream in, long sizeOf, int maxBytes) throws IOException {
+        if (maxBytes == 0) return new byte[0];
+
+        if (sizeOf >= 0) {
+            IOUtils.skipFully(in, Math.max(0, sizeOf - maxBytes));
+            return IOUtils.toByteArray(in, Math.min(sizeOf, maxBytes));
+        } else {
+            // The size isn't known up-front (e.g. because the data is
+            // decompressed as it's read), so only the tail is kept while
+            // reading all of it.
+            final ByteRingBuffer tail = new ByteRingBuffer(maxBytes);
+            final byte[] buf = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buf)) != -1)
+                tail.append(Arrays.copyOf(buf, bytesRead));
+            return tail.tail(maxBytes);
+        }
+    }
+
+    private Response generateBinaryDataResponse(JobId jobId, Optional<BinaryData> maybeBinaryData, String acceptEncoding) {
         if (maybeBinaryData.isPresent()) {
-            final BinaryData binaryData = maybeBinaryData.get();
+            // Data stored compressed is sent as-is to clients that can decode
+            // it and is decompressed on the fly for clients that can't
+            final BinaryData storedData = maybeBinaryData.get();
+            final boolean passthrough =
+                    storedData.getContentEncoding().map(e -> acceptsEncoding(acceptEncoding, e)).orElse(false);
+            final BinaryData binaryData = passthrough ? storedData : storedData.decoded();
 
             final StreamingOutput body = outputStream -> {
                 try {
@@ -397,12 +607,22 @@ public final class JobResource {
                 }
             };
 
-            final Response.ResponseBuilder b =
-                    Response.ok(body, binaryData.getMimeType())
-                            .header("Content-Length", binaryData.getSizeOf());
+            final Response.ResponseBuilder b = Response.ok(body, binaryData.getMimeType());
+
+            // A negative size means that the size isn't known up-front (e.g.
+            // because the data is decompressed as it's read)
+            if (binaryData.getSizeOf() >= 0)
+                b.header("Content-Length", binaryData.getSizeOf());
 
-            if (binaryData.getSizeOf() > Constants.MAX_JOB_OUTPUT_SIZE_IN_BYTES_BEFORE_DISABLING_COMPRESSION)
+            // If the decoded size isn't known, it's at least roughly the stored size
+            final long responseSize = Math.max(binaryData.getSizeOf(), storedData.getSizeOf());
+
+            if (passthrough) {
+                b.header("Content-Encoding", binaryData.getContentEncoding().get());
+                b.header("Vary", "Accept-Encoding");
+            } else if (responseSize > Constants.MAX_JOB_OUTPUT_SIZE_IN_BYTES_BEFORE_DISABLING_COMPRESSION) {
                 b.header("Content-Encoding", "identity");
+            }
 
             return b.build();
         } else {
@@ -410,6 +630,38 @@ public final class JobResource {
         }
     }
 
+    private static boolean acceptsEncoding(String acceptEncodingHeader, String encoding) {
+        if (acceptEncodingHeader == null) return false;
+
+        // An entry for the encoding itself takes precedence over "*" (RFC 7231 5.3.4)
+        Optional<Double> wildcardQuality = Optional.empty();
+        for (String entry : acceptEncodingHeader.split(",")) {
+            final String[] parts = entry.trim().split(";");
+            final String coding = parts[0].trim();
+            if (coding.equalsIgnoreCase(encoding))
+                return qualityOf(parts) > 0;
+            else if (coding.equals("*"))
+                wildcardQuality = Optional.of(qualityOf(parts));
+        }
+
+        return wildcardQuality.map(quality -> quality > 0).orElse(false);
+    }
+
+    private static double qualityOf(String[] acceptEncodingEntryParts) {
+        double quality = 1;
+        for (int i = 1; i < acceptEncodingEntryParts.length; i++) {
+            final String param = acceptEncodingEntryParts[i].trim().replace(" ", "");
+            if (param.startsWith("q=")) {
+                try {
+                    quality = Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException ex) {
+                    quality = 0;
+                }
+            }
+        }
+        return quality;
+    }
+
     @GET
     @Path("/{job-id}/stderr")
     @Operation(
@@ -417,7 +669,7 @@ public final class JobResource {
             description = "Get the job's standard error, if available. A job that has not yet started will not have a standard error and, " +
                     "therefore, this method will return a 404. There is no guarantee that all running/finished jobs will have standard " +
                     "error data. This is because administrative and cleanup routines may dequeue a job's output in order to save space on " +
-                    "the server.")
+                    "the server. With `tail`, only the last `tail` bytes (at most " + MAX_STDIO_TAIL_IN_BYTES + ") are returned.")
     @Produces(DEFAULT_BINARY_MIME_TYPE)
     @PermitAll
     public Response fetchJobStderrById(
@@ -426,12 +678,24 @@ public final class JobResource {
             @Parameter(description = "ID of the job to get stderr for")
             @PathParam("job-id")
             @NotNull
-            JobId jobId) {
+            JobId jobId,
+            @Parameter(description = "Only get the last `tail` bytes. Served from memory while the job is running")
+            @QueryParam("tail")
+                    Integer tail,
+            @Parameter(hidden = true)
+            @HeaderParam("Accept-Encoding")
+                    String acceptEncoding) {
 
         if (jobId == null)
             throw new WebApplicationException("Job ID cannot be null", 400);
 
-        return generateBinaryDataResponse(jobId, jobDAO.getStderr(jobId));
+        if (tail != null)
+            return generateTailResponse(
+                    tail,
+                    () -> jobManagerEvents.flatMap(events -> events.stderrTail(jobId, tail)),
+                    () -> jobDAO.getStderr(jobId));
+
+        return generateBinaryDataResponse(jobId, jobDAO.getStderr(jobId), acceptEncoding);
     }
 
     @GET
@@ -523,7 +787,10 @@ public final class JobResource {
             @Parameter(description = "ID of the output")
             @PathParam("output-id")
             @NotNull
-                    JobOutputId outputId) {
+                    JobOutputId outputId,
+            @Parameter(hidden = true)
+            @HeaderParam("Accept-Encoding")
+                    String acceptEncoding) {
 
         if (!jobDAO.jobExists(jobId))
             throw new WebApplicationException(jobId + ": does not exist", 404);
@@ -533,6 +800,6 @@ public final class JobResource {
         if (!maybeJobOutput.isPresent())
             throw new WebApplicationException(jobId + ": " + outputId + ": does not exist", 404);
 
-        return generateBinaryDataResponse(jobId, maybeJobOutput);
+        return generateBinaryDataResponse(jobId, maybeJobOutput, acceptEncoding);
     }
 }
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.resources.v1;
+
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.JobManagerEvents;
+import com.github.jobson.jobs.StdioChunk;
+import com.github.jobson.utils.IncrementalUTF8Decoder;
+import com.github.jobson.websockets.v1.JobEventFilter;
+import com.github.jobson.websockets.v1.JobEventStream;
+import com.github.jobson.websockets.v1.SerializedJobEvent;
+import io.reactivex.Observable;
+import io.reactivex.observers.DisposableObserver;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+
+import javax.annotation.security.PermitAll;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.github.jobson.Constants.HTTP_JOBS_PATH;
+import static com.github.jobson.websockets.v1.JobEventStream.RESYNC_REQUIRED_JSON;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Server-sent events equivalents of the websocket endpoints. They are served
+ * from the same paths as the websockets (a websocket upgrade request goes to
+ * the websocket, a request that accepts text/event-stream comes here) and
+ * subscribe to the same observables.
+ */
+@Path(HTTP_JOBS_PATH)
+@Produces(MediaType.SERVER_SENT_EVENTS)
+public final class JobUpdatesResource {
+
+    public static final String JOB_EVENT_SSE_NAME = "job-event";
+    public static final String RESYNC_SSE_NAME = "resync";
+    public static final String STDOUT_SSE_NAME = "stdout";
+    public static final String STDERR_SSE_NAME = "stderr";
+    public static final String STDIO_GAP_SSE_NAME = "gap";
+    public static final String STDIO_OFFSET_PARAM = "offset";
+
+    // Any offset past the end of the output only streams live output
+    private static final long LIVE_OUTPUT_OFFSET = Long.MAX_VALUE;
+
+
+    private static <T> void send(Observable<T> messages, Function<T, OutboundSseEvent> toEvent, SseEventSink sink) {
+        messages.subscribe(new DisposableObserver<T>() {
+            @Override
+            public void onNext(T message) {
+                if (sink.isClosed()) {
+                    dispose();
+                    return;
+                }
+
+                sink.send(toEvent.apply(message)).whenComplete((ignored, ex) -> {
+                    // *Usually* because the client went away
+                    if (ex != null) dispose();
+                });
+            }
+
+            @Override
+            public void onError(Throwable ex) {
+                sink.close();
+            }
+
+            @Override
+            public void onComplete() {
+                sink.close();
+            }
+        });
+    }
+
+
+    private final JobManagerEvents jobManagerEvents;
+
+
+    public JobUpdatesResource(JobManagerEvents jobManagerEvents) {
+        requireNonNull(jobManagerEvents);
+        this.jobManagerEvents = jobManagerEvents;
+    }
+
+
+    @GET
+    @Path("events")
+    @Operation(
+            summary = "Stream job events",
+            description = "Stream job status changes as server-sent events. Each event has an ID: a client that " +
+                    "reconnects with a Last-Event-ID header is first sent the events it missed. If those are no " +
+                    "longer held by the server, or the server has restarted since, a '" + RESYNC_SSE_NAME + "' event is sent instead, " +
+                    "after which the client should re-fetch the jobs it is interested in.")
+    @PermitAll
+    public void streamJobEvents(
+            @Context
+                    Sse sse,
+            @Context
+                    SseEventSink sink,
+            @Parameter(hidden = true)
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER)
+                    String lastEventId,
+            @Parameter(description = "Only stream events for these jobs (may be repeated)")
+            @QueryParam(JobEventFilter.JOB_ID_PARAM)
+                    List<String> jobIds,
+            @Parameter(description = "Only stream events for jobs owned by this user")
+            @QueryParam(JobEventFilter.OWNER_PARAM)
+                    String owner,
+            @Parameter(description = "Only stream events for jobs of this spec")
+            @QueryParam(JobEventFilter.SPEC_PARAM)
+                    String spec) {
+
+        final JobEventFilter filter = JobEventFilter.fromParameters(
+                jobIds != null ? jobIds : emptyList(),
+                Optional.ofNullable(owner),
+                Optional.ofNullable(spec));
+
+        final JobEventStream stream =
+                JobEventStream.open(jobManagerEvents, Optional.ofNullable(lastEventId), filter);
+
+        final OutboundSseEvent resync = sse.newEventBuilder().name(RESYNC_SSE_NAME).data(RESYNC_REQUIRED_JSON).build();
+
+        send(stream.toMessages(event -> toOutboundEvent(sse, event), resync), event -> event, sink);
+    }
+
+    private static OutboundSseEvent toOutboundEvent(Sse sse, SerializedJobEvent event) {
+        return sse.newEventBuilder()
+                .id(event.getEventId())
+                .name(JOB_EVENT_SSE_NAME)
+                .data(event.getJson())
+                .build();
+    }
+
+    @GET
+    @Path("{job-id}/stdout/updates")
+    @Operation(
+            summary = "Stream a running job's standard output",
+            description = "Stream a running job's standard output, as UTF-8 text, as server-sent events. Only live " +
+                    "output is sent, unless an offset is given. Each event's ID is the offset of the end of its output: a " +
+                    "client that reconnects with a Last-Event-ID header carries on from there. Earlier output is sent from " +
+                    "memory and, if some of it is no longer held, a '" + STDIO_GAP_SSE_NAME + "' event (whose data is the " +
+                    "number of bytes skipped) is sent in its place. Returns a 404 if the job is not running. The stream " +
+                    "ends when the job finishes.")
+    @PermitAll
+    public void streamJobStdout(
+            @Context
+                    Sse sse,
+            @Context
+                    SseEventSink sink,
+            @Parameter(description = "ID of the job to stream stdout for")
+            @PathParam("job-id")
+            @NotNull
+                    JobId jobId,
+            @Parameter(description = "Byte offset in stdout to start streaming from (e.g. the length of the stdout already fetched)")
+            @QueryParam(STDIO_OFFSET_PARAM)
+                    String offset,
+            @Parameter(hidden = true)
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER)
+                    String lastEventId) {
+
+        sendStdio(sse, sink, jobManagerEvents.stdoutUpdatesFrom(jobId, resolveOffset(offset, lastEventId)), STDOUT_SSE_NAME);
+    }
+
+    @GET
+    @Path("{job-id}/stderr/updates")
+    @Operation(
+            summary = "Stream a running job's standard error",
+            description = "Stream a running job's standard error, as UTF-8 text, as server-sent events. Behaves as the " +
+                    "stdout equivalent. Returns a 404 if the job is not running. The stream ends when the job finishes.")
+    @PermitAll
+    public void streamJobStderr(
+            @Context
+                    Sse sse,
+            @Context
+                    SseEventSink sink,
+            @Parameter(description = "ID of the job to stream stderr for")
+            @PathParam("job-id")
+            @NotNull
+                    JobId jobId,
+            @Parameter(description = "Byte offset in stderr to start streaming from (e.g. the length of the stderr already fetched)")
+            @QueryParam(STDIO_OFFSET_PARAM)
+                    String offset,
+            @Parameter(hidden = true)
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER)
+                    String lastEventId) {
+
+        sendStdio(sse, sink, jobManagerEvents.stderrUpdatesFrom(jobId, resolveOffset(offset, lastEventId)), STDERR_SSE_NAME);
+    }
+
+    private static long resolveOffset(String offset, String lastEventId) {
+        // A reconnecting client resends its original URL, so the
+        // Last-Event-ID (where it got up to) takes precedence over the offset
+        final Optional<Long> resumeOffset = parseOffset(lastEventId);
+        return resumeOffset.isPresent() ?
+                resumeOffset.get() :
+                parseOffset(offset).orElse(LIVE_OUTPUT_OFFSET);
+    }
+
+    private static Optional<Long> parseOffset(String offset) {
+        if (offset == null) return Optional.empty();
+
+        try {
+            final long parsedOffset = Long.parseLong(offset.trim());
+            return parsedOffset >= 0 ? Optional.of(parsedOffset) : Optional.empty();
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static void sendStdio(Sse sse, SseEventSink sink, Optional<Observable<StdioChunk>> maybeUpdates, String eventName) {
+        if (!maybeUpdates.isPresent())
+            throw new WebApplicationException("Job is not running", 404);
+
+        final IncrementalUTF8Decoder decoder = new IncrementalUTF8Decoder();
+        final Observable<OutboundSseEvent> events = maybeUpdates.get()
+                .map(chunk -> {
+                    if (chunk.isGap()) {
+                        // Bytes held back from before the gap can't be
+                        // completed by the output after it
+                        decoder.reset();
+                        return sse.newEventBuilder()
+                                .id(Long.toString(chunk.getEndOffset()))
+                                .name(STDIO_GAP_SSE_NAME)
+                                .data(Long.toString(chunk.getEndOffset() - chunk.getOffset()))
+                                .build();
+                    }
+
+                    final String text = decoder.decode(chunk.getData());
+                    // Bytes held back by the decoder are re-sent after a resume
+                    final long decodedEndOffset = chunk.getEndOffset() - decoder.getPendingByteCount();
+                    return sse.newEventBuilder()
+                            .id(Long.toString(decodedEndOffset))
+                            .name(eventName)
+                            .data(text)
+                            .build();
+                })
+                .filter(event -> !((String) event.getData()).isEmpty());
+
+        send(events, event -> event, sink);
+    }
+}
@@ -40,6 +40,12 @@ public final class ExecutionConfiguration {
     @JsonProperty
     private Optional<List<JobDependencyConfiguration>> dependencies = Optional.empty();
 
+    @JsonProperty
+    private boolean cacheResults = false;
+
+    @JsonProperty
+    private int workers = 0;
+
 
     /**
      * @deprecated Used by JSON deserializer
@@ -51,9 +57,30 @@ public final class ExecutionConfiguration {
             Optional<List<RawTemplateString>> arguments,
             Optional<List<JobDependencyConfiguration>> dependencies) {
 
+        this(application, arguments, dependencies, false);
+    }
+
+    public ExecutionConfiguration(
+            String application,
+            Optional<List<RawTemplateString>> arguments,
+            Optional<List<JobDependencyConfiguration>> dependencies,
+            boolean cacheResults) {
+
+        this(application, arguments, dependencies, cacheResults, 0);
+    }
+
+    public ExecutionConfiguration(
+            String application,
+            Optional<List<RawTemplateString>> arguments,
+            Optional<List<JobDependencyConfiguration>> dependencies,
+            boolean cacheResults,
+            int workers) {
+
         this.application = application;
         this.arguments = arguments;
         this.dependencies = dependencies;
+        this.cacheResults = cacheResults;
+        this.workers = workers;
     }
 
 
@@ -69,6 +96,22 @@ public final class ExecutionConfiguration {
         return dependencies;
     }
 
+    /**
+     * @return true if the application is deterministic, so a job that is submitted
+     * with the same inputs as an earlier (successful) job may reuse that job's results.
+     */
+    public boolean isCacheResults() {
+        return cacheResults;
+    }
+
+    /**
+     * @return The number of persistent worker processes to keep running for this spec. If
+     * zero (the default), a new process is launched for each job.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
 
     public ExecutionConfiguration withDependenciesResolvedRelativeTo(Path p) {
         final Optional<List<JobDependencyConfiguration>> resolvedJobDependencies =
@@ -77,11 +120,11 @@ public final class ExecutionConfiguration {
                                 dependency -> dependency.withSourceResolvedRelativeTo(p))
                                 .collect(toList()));
 
-        return new ExecutionConfiguration(application, arguments, resolvedJobDependencies);
+        return new ExecutionConfiguration(application, arguments, resolvedJobDependencies, cacheResults, workers);
     }
 
     public ExecutionConfiguration withDependencies(List<JobDependencyConfiguration> dependencies) {
-        return new ExecutionConfiguration(this.application, this.arguments, Optional.of(dependencies));
+        return new ExecutionConfiguration(this.application, this.arguments, Optional.of(dependencies), this.cacheResults, this.workers);
     }
 
 
@@ -94,6 +137,8 @@ public final class ExecutionConfiguration {
         ExecutionConfiguration that = (ExecutionConfiguration) o;
 
         if (application != null ? !application.equals(that.application) : that.application != null) return false;
+        if (cacheResults != that.cacheResults) return false;
+        if (workers != that.workers) return false;
         if (arguments != null ? !arguments.equals(that.arguments) : that.arguments != null) return false;
         return dependencies != null ? dependencies.equals(that.dependencies) : that.dependencies == null;
 
@@ -104,6 +149,8 @@ public final class ExecutionConfiguration {
         int result = application != null ? application.hashCode() : 0;
         result = 31 * result + (arguments != null ? arguments.hashCode() : 0);
         result = 31 * result + (dependencies != null ? dependencies.hashCode() : 0);
+        result = 31 * result + (cacheResults ? 1 : 0);
+        result = 31 * result + workers;
         return result;
     }
 }
@@ -38,6 +38,9 @@ public final class JobDependencyConfiguration {
     @JsonProperty
     private boolean softLink = false;
 
+    @JsonProperty
+    private JobDependencyStrategy strategy = JobDependencyStrategy.COPY;
+
 
     /**
      * @deprecated Used by JSON deserializer
@@ -55,6 +58,19 @@ public final class JobDependencyConfiguration {
         this.softLink = softLink;
     }
 
+    public JobDependencyConfiguration(String source, String target, JobDependencyStrategy strategy) {
+        this.source = new RawTemplateString(source);
+        this.target = new RawTemplateString(target);
+        this.strategy = strategy;
+    }
+
+    private JobDependencyConfiguration(RawTemplateString source, RawTemplateString target, boolean softLink, JobDependencyStrategy strategy) {
+        this.source = source;
+        this.target = target;
+        this.softLink = softLink;
+        this.strategy = strategy;
+    }
+
 
     public RawTemplateString getSource() {
         return source;
@@ -68,8 +84,20 @@ public final class JobDependencyConfiguration {
         return softLink;
     }
 
+    /**
+     * @return How the dependency should be materialized. {@code softLink: true} is
+     * equivalent to {@code strategy: soft-link}.
+     */
+    public JobDependencyStrategy getStrategy() {
+        return softLink ? JobDependencyStrategy.SOFT_LINK : strategy;
+    }
+
     public JobDependencyConfiguration withSourceResolvedRelativeTo(Path p) {
-        return new JobDependencyConfiguration(p.resolve(source.getValue()).toString(), target.getValue());
+        return new JobDependencyConfiguration(
+                new RawTemplateString(p.resolve(source.getValue()).toString()),
+                target,
+                softLink,
+                strategy);
     }
 
 
@@ -79,6 +107,7 @@ public final class JobDependencyConfiguration {
         if (o == null || getClass() != o.getClass()) return false;
         JobDependencyConfiguration that = (JobDependencyConfiguration) o;
         return softLink == that.softLink &&
+                strategy == that.strategy &&
                 Objects.equals(source, that.source) &&
                 Objects.equals(target, that.target);
     }
@@ -86,6 +115,6 @@ public final class JobDependencyConfiguration {
     @Override
     public int hashCode() {
 
-        return Objects.hash(source, target, softLink);
+        return Objects.hash(source, target, softLink, strategy);
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.specs;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * How a job dependency is materialized into a job's working directory.
+ */
+public enum JobDependencyStrategy {
+
+    /**
+     * Copy the dependency (the default).
+     */
+    @JsonProperty("copy")
+    COPY,
+
+    /**
+     * Create a soft link to the dependency.
+     */
+    @JsonProperty("soft-link")
+    SOFT_LINK,
+
+    /**
+     * Hard-link each file in the dependency. Fast, but the application
+     * can modify the source by writing to the links.
+     */
+    @JsonProperty("hard-link")
+    HARD_LINK,
+
+    /**
+     * Copy-on-write clone the dependency on filesystems that support it
+     * (e.g. btrfs, XFS), copying otherwise.
+     */
+    @JsonProperty("reflink")
+    REFLINK,
+
+    /**
+     * Hard-link each file from a read-only snapshot of the dependency,
+     * which is created once and shared between jobs. Read-only is only a
+     * file mode: an application that makes its links writable (e.g. with
+     * chmod) can modify the snapshot for every later job, so applications
+     * that write to their dependencies should use COPY or REFLINK.
+     */
+    @JsonProperty("snapshot")
+    SNAPSHOT
+}
@@ -20,9 +20,13 @@
 package com.github.jobson.utils;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static com.github.jobson.Constants.DEFAULT_BINARY_MIME_TYPE;
+import static com.github.jobson.Constants.GZIP_CONTENT_ENCODING;
 
 public final class BinaryData {
 
@@ -38,17 +42,34 @@ public final class BinaryData {
     private final InputStream data;
     private final long sizeOf;
     private final String mimeType;
+    private final Optional<String> contentEncoding;
+    private final long decodedSizeOf;
 
     public BinaryData(InputStream data, long sizeOf) {
-        this.data = data;
-        this.sizeOf = sizeOf;
-        this.mimeType = DEFAULT_BINARY_MIME_TYPE;
+        this(data, sizeOf, DEFAULT_BINARY_MIME_TYPE);
     }
 
     public BinaryData(InputStream data, long sizeOf, String mimeType) {
+        this(data, sizeOf, mimeType, Optional.empty());
+    }
+
+    /**
+     * @param contentEncoding The (HTTP) encoding of data, if it is encoded (e.g. "gzip"). sizeOf is
+     *                        the size of the encoded data.
+     */
+    public BinaryData(InputStream data, long sizeOf, String mimeType, Optional<String> contentEncoding) {
+        this(data, sizeOf, mimeType, contentEncoding, -1);
+    }
+
+    /**
+     * @param decodedSizeOf The size of the data once decoded, or -1 if it isn't known.
+     */
+    public BinaryData(InputStream data, long sizeOf, String mimeType, Optional<String> contentEncoding, long decodedSizeOf) {
         this.data = data;
         this.sizeOf = sizeOf;
         this.mimeType = mimeType;
+        this.contentEncoding = contentEncoding;
+        this.decodedSizeOf = contentEncoding.isPresent() ? decodedSizeOf : sizeOf;
     }
 
     public InputStream getData() {
@@ -63,9 +84,36 @@ public final class BinaryData {
         return mimeType;
     }
 
+    public Optional<String> getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * @return The size of the data once decoded, or -1 if it isn't known.
+     */
+    public long getDecodedSizeOf() {
+        return decodedSizeOf;
+    }
+
 
     public BinaryData withMimeType(String mimeType) {
-        return new BinaryData(data, sizeOf, mimeType);
+        return new BinaryData(data, sizeOf, mimeType, contentEncoding, decodedSizeOf);
+    }
+
+    /**
+     * @return The data, decompressed as it is read if it has a gzip content encoding. Its size
+     * is the decoded size, which is -1 if that isn't known.
+     */
+    public BinaryData decoded() {
+        if (!contentEncoding.isPresent()) return this;
+        if (!contentEncoding.get().equals(GZIP_CONTENT_ENCODING))
+            throw new UnsupportedOperationException(contentEncoding.get() + ": unsupported content encoding");
+
+        try {
+            return new BinaryData(new GZIPInputStream(data), decodedSizeOf, mimeType);
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot decompress data: " + ex);
+        }
     }
 
     @Override
@@ -76,6 +124,8 @@ public final class BinaryData {
         BinaryData that = (BinaryData) o;
 
         if (sizeOf != that.sizeOf) return false;
+        if (decodedSizeOf != that.decodedSizeOf) return false;
+        if (!contentEncoding.equals(that.contentEncoding)) return false;
         return mimeType != null ? mimeType.equals(that.mimeType) : that.mimeType == null;
     }
 
@@ -83,7 +133,9 @@ public final class BinaryData {
     public int hashCode() {
         int result = data != null ? data.hashCode() : 0;
         result = 31 * result + (int) (sizeOf ^ (sizeOf >>> 32));
+        result = 31 * result + (int) (decodedSizeOf ^ (decodedSizeOf >>> 32));
         result = 31 * result + (mimeType != null ? mimeType.hashCode() : 0);
+        result = 31 * result + contentEncoding.hashCode();
         return result;
     }
 }
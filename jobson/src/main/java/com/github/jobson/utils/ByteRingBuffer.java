@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.utils;
+
+import java.util.Arrays;
+
+/**
+ * Holds the last (up to) capacity bytes appended to it. Bytes are addressed
+ * by their absolute offset in everything that was ever appended. Storage is
+ * grown on demand, up to capacity, so that a buffer that never fills up does
+ * not cost its full capacity. Not thread-safe.
+ */
+public final class ByteRingBuffer {
+
+    private static final int INITIAL_STORAGE_LEN_IN_BYTES = 4096;
+
+
+    private final int capacity;
+    private byte[] storage;
+    private long totalBytesWritten = 0;
+
+
+    public ByteRingBuffer(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException(capacity + ": capacity must be at least one byte");
+
+        this.capacity = capacity;
+        this.storage = new byte[Math.min(capacity, INITIAL_STORAGE_LEN_IN_BYTES)];
+    }
+
+
+    public void append(byte[] data) {
+        int start = 0;
+        int len = data.length;
+
+        // Only the last capacity bytes of data would survive anyway
+        if (len > capacity) {
+            start = len - capacity;
+            totalBytesWritten += start;
+            len = capacity;
+        }
+
+        ensureStorageFor(totalBytesWritten + len);
+
+        // Storage is only smaller than capacity while nothing has wrapped
+        // around, so offset % capacity is always a valid index.
+        final int index = indexOf(totalBytesWritten);
+        final int firstPartLen = Math.min(len, capacity - index);
+        System.arraycopy(data, start, storage, index, firstPartLen);
+        System.arraycopy(data, start + firstPartLen, storage, 0, len - firstPartLen);
+
+        totalBytesWritten += len;
+    }
+
+    private void ensureStorageFor(long endOffset) {
+        if (storage.length < capacity && endOffset > storage.length) {
+            final long newLen = Math.min(capacity, Math.max(endOffset, 2L * storage.length));
+            storage = Arrays.copyOf(storage, (int) newLen);
+        }
+    }
+
+    private int indexOf(long offset) {
+        return (int) (offset % capacity);
+    }
+
+    public long getTotalBytesWritten() {
+        return totalBytesWritten;
+    }
+
+    public long getOldestHeldOffset() {
+        return Math.max(0, totalBytesWritten - capacity);
+    }
+
+    /**
+     * @return The held bytes from offset onwards. If offset is no longer
+     * held, this starts from the oldest held byte instead.
+     */
+    public byte[] copyFrom(long offset) {
+        final long start = Math.min(Math.max(offset, getOldestHeldOffset()), totalBytesWritten);
+        final int len = (int) (totalBytesWritten - start);
+        final byte[] ret = new byte[len];
+
+        final int index = indexOf(start);
+        final int firstPartLen = Math.min(len, capacity - index);
+        System.arraycopy(storage, index, ret, 0, firstPartLen);
+        System.arraycopy(storage, 0, ret, firstPartLen, len - firstPartLen);
+
+        return ret;
+    }
+
+    /**
+     * @return The last maxBytes bytes appended, or fewer if fewer are held.
+     */
+    public byte[] tail(int maxBytes) {
+        return copyFrom(totalBytesWritten - maxBytes);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Decodes a stream of byte chunks (e.g. stdout updates) into text, chunk by
+ * chunk. A multi-byte character that is split across chunks is held back
+ * until the rest of it arrives. Malformed input is replaced, rather than
+ * failing the stream. Not thread-safe.
+ */
+public final class IncrementalUTF8Decoder {
+
+    private final CharsetDecoder decoder = UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer remainder = ByteBuffer.allocate(0);
+
+
+    public String decode(byte[] chunk) {
+        final ByteBuffer in = ByteBuffer.allocate(remainder.remaining() + chunk.length);
+        in.put(remainder).put(chunk).flip();
+
+        final CharBuffer out = CharBuffer.allocate((int)(in.remaining() * decoder.maxCharsPerByte()) + 1);
+        decoder.decode(in, out, false);
+
+        remainder = in;
+        out.flip();
+        return out.toString();
+    }
+
+    /**
+     * Discards any bytes held back, e.g. because the rest of the character
+     * was skipped.
+     */
+    public void reset() {
+        decoder.reset();
+        remainder = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * @return The number of bytes held back, waiting for the rest of a
+     * character.
+     */
+    public int getPendingByteCount() {
+        return remainder.remaining();
+    }
+}
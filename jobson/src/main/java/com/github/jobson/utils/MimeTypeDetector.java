@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.utils;
+
+import org.apache.tika.Tika;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.github.jobson.Constants.*;
+
+/**
+ * Detects the MIME types of files (e.g. job outputs that do not declare a
+ * mimeType in their spec).
+ *
+ * Building a detector means loading tika's MIME database, so one detector
+ * should be shared (see {@link #getShared()}). Detection first tries the
+ * file name's extension and only falls back to sniffing the file's
+ * content (the first {@code MIME_DETECTION_PREFIX_LEN_IN_BYTES} bytes,
+ * read via a memory-mapped view) if the extension is unknown.
+ *
+ * Callers can supply a cache key for files whose name is fixed (e.g. a
+ * spec output with a constant path). Types that were established from
+ * the name alone are then remembered under that key, because they cannot
+ * change between calls.
+ */
+public final class MimeTypeDetector {
+
+    private static final MimeTypeDetector shared = new MimeTypeDetector(MIME_TYPE_CACHE_MAX_ENTRIES);
+
+    public static MimeTypeDetector getShared() {
+        return shared;
+    }
+
+
+    // The Tika facade is thread-safe.
+    private final Tika tika = new Tika();
+    private final int cacheMaxEntries;
+    private final Map<String, String> cache;
+
+
+    public MimeTypeDetector(int cacheMaxEntries) {
+        if (cacheMaxEntries < 0)
+            throw new IllegalArgumentException(cacheMaxEntries + ": max entries cannot be negative");
+
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MimeTypeDetector.this.cacheMaxEntries;
+            }
+        };
+    }
+
+
+    public String detect(Path p) throws IOException {
+        return detect(p, Optional.empty());
+    }
+
+    /**
+     * @param cacheKey A key that identifies p's name: it must only be
+     *                 re-used for files with the same name.
+     */
+    public String detect(Path p, Optional<String> cacheKey) throws IOException {
+        if (cacheKey.isPresent()) {
+            final Optional<String> cached = tryGetCached(cacheKey.get());
+            if (cached.isPresent()) return cached.get();
+        }
+
+        final Optional<String> typeFromName = detectFromName(p.getFileName().toString());
+
+        if (typeFromName.isPresent()) {
+            cacheKey.ifPresent(key -> putCached(key, typeFromName.get()));
+            return typeFromName.get();
+        } else {
+            return tika.detect(readPrefix(p), p.getFileName().toString());
+        }
+    }
+
+    /**
+     * @return The type implied by fileName's extension, if tika knows it.
+     */
+    public Optional<String> detectFromName(String fileName) {
+        final String type = tika.detect(fileName);
+        return type.equals(DEFAULT_BINARY_MIME_TYPE) ? Optional.empty() : Optional.of(type);
+    }
+
+    public String detect(InputStream s, String fileName) throws IOException {
+        return tika.detect(s, fileName);
+    }
+
+    private static byte[] readPrefix(Path p) throws IOException {
+        try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+            final long len = Math.min(channel.size(), MIME_DETECTION_PREFIX_LEN_IN_BYTES);
+            final byte[] prefix = new byte[(int)len];
+
+            if (len > 0) {
+                final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, len);
+                mapped.get(prefix);
+            }
+
+            return prefix;
+        }
+    }
+
+    private synchronized Optional<String> tryGetCached(String key) {
+        return Optional.ofNullable(cache.get(key));
+    }
+
+    private synchronized void putCached(String key, String mimeType) {
+        cache.put(key, mimeType);
+    }
+
+    synchronized int cacheSize() {
+        return cache.size();
+    }
+}
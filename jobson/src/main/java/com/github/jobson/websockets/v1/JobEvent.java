@@ -19,11 +19,16 @@
 
 package com.github.jobson.websockets.v1;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jobson.api.v1.UserId;
 import com.github.jobson.jobs.JobId;
 import com.github.jobson.jobs.JobStatus;
+import com.github.jobson.specs.JobSpecId;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.util.Optional;
+
 @Schema(description = "Response to a request for a job spec's details")
 public final class JobEvent {
 
@@ -33,6 +38,24 @@ public final class JobEvent {
     @JsonProperty
     private JobStatus newStatus;
 
+    @Schema(description = "Increases by one for each event emitted by the server, restarting from 1 " +
+            "when the server restarts. 0 if the event was not sequenced.")
+    @JsonProperty
+    private long sequenceNumber;
+
+    @Schema(description = "Identifies the event to the server that emitted it. Clients may resume a stream " +
+            "from the last event ID they saw, provided the server hasn't restarted since. Null if the event " +
+            "was not sequenced.")
+    @JsonProperty
+    private String eventId;
+
+    // Not serialized: only used server-side to route events to subscribers
+    @JsonIgnore
+    private UserId owner;
+
+    @JsonIgnore
+    private JobSpecId specId;
+
 
     /**
      * @deprecated Used by JSON deserializer.
@@ -44,6 +67,23 @@ public final class JobEvent {
         this.newStatus = newStatus;
     }
 
+    public JobEvent(JobId jobId, JobStatus newStatus, UserId owner, JobSpecId specId) {
+        this(jobId, newStatus, owner, specId, 0);
+    }
+
+    public JobEvent(JobId jobId, JobStatus newStatus, UserId owner, JobSpecId specId, long sequenceNumber) {
+        this(jobId, newStatus, owner, specId, sequenceNumber, null);
+    }
+
+    public JobEvent(JobId jobId, JobStatus newStatus, UserId owner, JobSpecId specId, long sequenceNumber, String eventId) {
+        this.jobId = jobId;
+        this.newStatus = newStatus;
+        this.owner = owner;
+        this.specId = specId;
+        this.sequenceNumber = sequenceNumber;
+        this.eventId = eventId;
+    }
+
 
     public JobId getJobId() {
         return jobId;
@@ -53,6 +93,28 @@ public final class JobEvent {
         return newStatus;
     }
 
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    @JsonIgnore
+    public Optional<UserId> getOwner() {
+        return Optional.ofNullable(owner);
+    }
+
+    @JsonIgnore
+    public Optional<JobSpecId> getSpecId() {
+        return Optional.ofNullable(specId);
+    }
+
+    public JobEvent withSequenceNumber(long sequenceNumber, String eventId) {
+        return new JobEvent(jobId, newStatus, owner, specId, sequenceNumber, eventId);
+    }
+
 
     @Override
     public boolean equals(Object o) {
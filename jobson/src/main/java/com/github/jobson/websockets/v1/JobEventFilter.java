@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.specs.JobSpecId;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+
+/**
+ * Server-side filter for a subscription to job events. Each criterion
+ * that is set must match: an event passes when its job is one of the
+ * job ids (if any were given), and it is owned by the owner (if given),
+ * and it is for the spec (if given).
+ */
+public final class JobEventFilter implements Predicate<JobEvent> {
+
+    public static final String JOB_ID_PARAM = "jobId";
+    public static final String OWNER_PARAM = "owner";
+    public static final String SPEC_PARAM = "spec";
+
+
+    public static JobEventFilter acceptingAll() {
+        return new JobEventFilter(emptySet(), Optional.empty(), Optional.empty());
+    }
+
+    /**
+     * Parses a filter from query parameters (e.g.
+     * `?jobId=a&jobId=b&owner=someone`). Job ids may be repeated or
+     * comma-separated.
+     */
+    public static JobEventFilter fromQueryParameters(Map<String, List<String>> params) {
+        return fromParameters(
+                params.getOrDefault(JOB_ID_PARAM, emptyList()),
+                firstValue(params, OWNER_PARAM),
+                firstValue(params, SPEC_PARAM));
+    }
+
+    private static Optional<String> firstValue(Map<String, List<String>> params, String key) {
+        return params.getOrDefault(key, emptyList()).stream().findFirst();
+    }
+
+    public static JobEventFilter fromParameters(
+            List<String> jobIdValues,
+            Optional<String> owner,
+            Optional<String> spec) {
+
+        final Set<JobId> jobIds = new HashSet<>();
+        for (String value : jobIdValues)
+            for (String jobId : value.split(","))
+                if (!jobId.trim().isEmpty())
+                    jobIds.add(new JobId(jobId.trim()));
+
+        return new JobEventFilter(
+                jobIds,
+                nonBlank(owner).map(UserId::new),
+                nonBlank(spec).map(JobSpecId::new));
+    }
+
+    private static Optional<String> nonBlank(Optional<String> value) {
+        return value.map(String::trim).filter(v -> !v.isEmpty());
+    }
+
+
+    private final Set<JobId> jobIds;
+    private final Optional<UserId> owner;
+    private final Optional<JobSpecId> specId;
+
+
+    public JobEventFilter(Set<JobId> jobIds, Optional<UserId> owner, Optional<JobSpecId> specId) {
+        this.jobIds = jobIds;
+        this.owner = owner;
+        this.specId = specId;
+    }
+
+
+    @Override
+    public boolean test(JobEvent event) {
+        return (jobIds.isEmpty() || jobIds.contains(event.getJobId())) &&
+                (!owner.isPresent() || owner.equals(event.getOwner())) &&
+                (!specId.isPresent() || specId.equals(event.getSpecId()));
+    }
+}
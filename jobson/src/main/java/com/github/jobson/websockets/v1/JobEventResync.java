@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Sent instead of missed job events when a client resumes from a sequence " +
+        "number that the server no longer holds events after. The client should re-fetch the " +
+        "state it is interested in (e.g. the job list) and then carry on with subsequent events.")
+public final class JobEventResync {
+
+    @JsonProperty
+    private final boolean resyncRequired = true;
+
+    @JsonProperty
+    private String message;
+
+
+    /**
+     * @deprecated Used by JSON deserializer.
+     */
+    public JobEventResync() {}
+
+    public JobEventResync(String message) {
+        this.message = message;
+    }
+
+
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -19,14 +19,21 @@
 
 package com.github.jobson.websockets.v1;
 
-import com.github.jobson.Helpers;
 import com.github.jobson.jobs.JobManagerEvents;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
 import org.eclipse.jetty.websocket.servlet.WebSocketCreator;
 
+import java.util.Optional;
+
+import static com.github.jobson.websockets.v1.JobEventStream.RESYNC_REQUIRED_JSON;
+import static java.util.Collections.emptyList;
+
 public final class JobEventSocketCreator implements WebSocketCreator {
 
+    public static final String LAST_EVENT_ID_PARAM = "lastEventId";
+
+
     private final JobManagerEvents jobManagerEvents;
 
 
@@ -40,8 +47,18 @@ public final class JobEventSocketCreator implements WebSocketCreator {
             ServletUpgradeRequest servletUpgradeRequest,
             ServletUpgradeResponse servletUpgradeResponse) {
 
+        final JobEventFilter filter =
+                JobEventFilter.fromQueryParameters(servletUpgradeRequest.getParameterMap());
+
+        final Optional<String> lastEventId = servletUpgradeRequest.getParameterMap()
+                .getOrDefault(LAST_EVENT_ID_PARAM, emptyList())
+                .stream()
+                .findFirst();
+
+        final JobEventStream stream = JobEventStream.open(jobManagerEvents, lastEventId, filter);
+
         return new ObservableTextSocket(
                 "job events",
-                this.jobManagerEvents.allJobStatusChanges().map(Helpers::toJSON));
+                stream.toMessages(SerializedJobEvent::getJson, RESYNC_REQUIRED_JSON));
     }
 }
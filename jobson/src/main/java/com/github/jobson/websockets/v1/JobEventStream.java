@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.github.jobson.jobs.JobEventsNoLongerHeldException;
+import com.github.jobson.jobs.JobManagerEvents;
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+
+import java.util.Optional;
+
+import static com.github.jobson.Helpers.toJSON;
+
+/**
+ * The job events a client subscribed to, optionally resumed from the last
+ * event it saw. Shared by the websocket and server-sent events endpoints.
+ */
+public final class JobEventStream {
+
+    public static final String RESYNC_REQUIRED_JSON = toJSON(new JobEventResync(
+            "Some events after the requested event are no longer held by the server"));
+
+
+    /**
+     * @param lastEventId As sent by the client. A value that wasn't issued by
+     *                    this server process (e.g. one issued before it
+     *                    restarted) cannot be resumed from, so the client is
+     *                    told to resync.
+     */
+    public static JobEventStream open(
+            JobManagerEvents jobManagerEvents,
+            Optional<String> lastEventId,
+            JobEventFilter filter) {
+
+        final Optional<Observable<SerializedJobEvent>> resumedEvents =
+                lastEventId.map(String::trim).flatMap(jobManagerEvents::serializedJobStatusChangesAfter);
+
+        return new JobEventStream(
+                jobManagerEvents,
+                filter,
+                lastEventId.isPresent() && !resumedEvents.isPresent(),
+                resumedEvents.orElseGet(jobManagerEvents::serializedJobStatusChanges));
+    }
+
+
+    private final JobManagerEvents jobManagerEvents;
+    private final JobEventFilter filter;
+    private final boolean resyncRequired;
+    private final Observable<SerializedJobEvent> events;
+
+
+    private JobEventStream(
+            JobManagerEvents jobManagerEvents,
+            JobEventFilter filter,
+            boolean resyncRequired,
+            Observable<SerializedJobEvent> events) {
+
+        this.jobManagerEvents = jobManagerEvents;
+        this.filter = filter;
+        this.resyncRequired = resyncRequired;
+        this.events = events;
+    }
+
+
+    /**
+     * @return The events, as messages. If the events the client missed are
+     * no longer held (even if that is only found out once subscribed to),
+     * resyncMessage is sent, followed by live events.
+     */
+    public <T> Observable<T> toMessages(Function<SerializedJobEvent, T> toMessage, T resyncMessage) {
+        final Observable<T> messages = filtered(events)
+                .map(toMessage)
+                .onErrorResumeNext((Throwable ex) -> ex instanceof JobEventsNoLongerHeldException ?
+                        filtered(jobManagerEvents.serializedJobStatusChanges()).map(toMessage).startWith(resyncMessage) :
+                        Observable.<T>error(ex));
+
+        return resyncRequired ? messages.startWith(resyncMessage) : messages;
+    }
+
+    private Observable<SerializedJobEvent> filtered(Observable<SerializedJobEvent> events) {
+        return events.filter(serializedEvent -> filter.test(serializedEvent.getEvent()));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jobson.jobs.JobId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * One record in a frame sent by the multiplexed stdio websocket. A frame (a
+ * binary websocket message) is a batch of records, each encoded (big-endian)
+ * as:
+ *
+ * <pre>
+ *     1 byte     record type (0: data, 1: stream ended, 2: stream unavailable,
+ *                3: subscription rejected because the connection has too many)
+ *     1 byte     stream (0: stdout, 1: stderr)
+ *     2 bytes    length of the job id, in bytes
+ *     n bytes    job id (UTF-8)
+ *     4 bytes    length of the data, in bytes (0 unless a data record)
+ *     m bytes    data
+ * </pre>
+ */
+public final class MultiplexedStdioRecord {
+
+    public enum Type { DATA, ENDED, UNAVAILABLE, REJECTED }
+
+    public enum Stream {
+        @JsonProperty("stdout") STDOUT,
+        @JsonProperty("stderr") STDERR
+    }
+
+    private static final byte[] NO_DATA = new byte[0];
+    private static final int MAX_ENCODED_JOB_ID_LENGTH = 0xffff;
+
+
+    public static MultiplexedStdioRecord data(JobId jobId, Stream stream, byte[] data) {
+        return new MultiplexedStdioRecord(Type.DATA, jobId, stream, data);
+    }
+
+    public static MultiplexedStdioRecord ended(JobId jobId, Stream stream) {
+        return new MultiplexedStdioRecord(Type.ENDED, jobId, stream, NO_DATA);
+    }
+
+    public static MultiplexedStdioRecord unavailable(JobId jobId, Stream stream) {
+        return new MultiplexedStdioRecord(Type.UNAVAILABLE, jobId, stream, NO_DATA);
+    }
+
+    public static MultiplexedStdioRecord rejected(JobId jobId, Stream stream) {
+        return new MultiplexedStdioRecord(Type.REJECTED, jobId, stream, NO_DATA);
+    }
+
+    public static byte[] encode(List<MultiplexedStdioRecord> records) {
+        final List<byte[]> encodedJobIds = new ArrayList<>(records.size());
+        int len = 0;
+        for (MultiplexedStdioRecord record : records) {
+            final byte[] encodedJobId = record.jobId.toString().getBytes(UTF_8);
+            if (encodedJobId.length > MAX_ENCODED_JOB_ID_LENGTH)
+                throw new IllegalArgumentException(record.jobId + ": job id is too long to encode");
+            encodedJobIds.add(encodedJobId);
+            len += 1 + 1 + 2 + encodedJobId.length + 4 + record.data.length;
+        }
+
+        final ByteBuffer ret = ByteBuffer.allocate(len);
+        for (int i = 0; i < records.size(); i++) {
+            final MultiplexedStdioRecord record = records.get(i);
+            final byte[] encodedJobId = encodedJobIds.get(i);
+            ret.put((byte) record.type.ordinal());
+            ret.put((byte) record.stream.ordinal());
+            ret.putShort((short) encodedJobId.length);
+            ret.put(encodedJobId);
+            ret.putInt(record.data.length);
+            ret.put(record.data);
+        }
+        return ret.array();
+    }
+
+    public static List<MultiplexedStdioRecord> decode(byte[] frame) {
+        final ByteBuffer in = ByteBuffer.wrap(frame);
+        final List<MultiplexedStdioRecord> ret = new ArrayList<>();
+        while (in.hasRemaining()) {
+            final Type type = Type.values()[in.get()];
+            final Stream stream = Stream.values()[in.get()];
+            final byte[] encodedJobId = new byte[in.getShort() & 0xffff];
+            in.get(encodedJobId);
+            final byte[] data = new byte[in.getInt()];
+            in.get(data);
+            ret.add(new MultiplexedStdioRecord(type, new JobId(new String(encodedJobId, UTF_8)), stream, data));
+        }
+        return ret;
+    }
+
+
+    private final Type type;
+    private final JobId jobId;
+    private final Stream stream;
+    private final byte[] data;
+
+
+    private MultiplexedStdioRecord(Type type, JobId jobId, Stream stream, byte[] data) {
+        this.type = type;
+        this.jobId = jobId;
+        this.stream = stream;
+        this.data = data;
+    }
+
+
+    public Type getType() {
+        return type;
+    }
+
+    public JobId getJobId() {
+        return jobId;
+    }
+
+    public Stream getStream() {
+        return stream;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MultiplexedStdioRecord that = (MultiplexedStdioRecord) o;
+
+        return type == that.type &&
+                jobId.equals(that.jobId) &&
+                stream == that.stream &&
+                Arrays.equals(data, that.data);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + jobId.hashCode();
+        result = 31 * result + stream.hashCode();
+        result = 31 * result + Arrays.hashCode(data);
+        return result;
+    }
+}
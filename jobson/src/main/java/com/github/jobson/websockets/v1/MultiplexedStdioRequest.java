@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.jobson.jobs.JobId;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Sent by a client of the multiplexed stdio websocket to start or stop " +
+        "receiving a job's stdout or stderr")
+public final class MultiplexedStdioRequest {
+
+    public enum Action {
+        @JsonProperty("subscribe") SUBSCRIBE,
+        @JsonProperty("unsubscribe") UNSUBSCRIBE
+    }
+
+
+    @JsonProperty
+    private Action action;
+
+    @JsonProperty
+    private JobId jobId;
+
+    @JsonProperty
+    private MultiplexedStdioRecord.Stream stream;
+
+
+    /**
+     * @deprecated Used by JSON deserializer.
+     */
+    public MultiplexedStdioRequest() {}
+
+    public MultiplexedStdioRequest(Action action, JobId jobId, MultiplexedStdioRecord.Stream stream) {
+        this.action = action;
+        this.jobId = jobId;
+        this.stream = stream;
+    }
+
+
+    public Action getAction() {
+        return action;
+    }
+
+    public JobId getJobId() {
+        return jobId;
+    }
+
+    public MultiplexedStdioRecord.Stream getStream() {
+        return stream;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.JobManagerEvents;
+import io.reactivex.Observable;
+import io.reactivex.observers.DisposableObserver;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.jobson.Constants.*;
+import static com.github.jobson.Helpers.readJSON;
+import static com.github.jobson.websockets.v1.MultiplexedStdioRecord.Stream.STDOUT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A websocket over which a client can tail the stdout/stderr of many jobs at
+ * once. The client sends MultiplexedStdioRequests (as JSON text messages) to
+ * subscribe/unsubscribe to a job's stream. The server sends batches of
+ * MultiplexedStdioRecords (as binary messages) tagged with the job id.
+ *
+ * Batches are sent asynchronously, so that a slow client can't stall the
+ * (shared) scheduler that batches records. A client that falls too far behind
+ * is disconnected rather than buffered for indefinitely.
+ */
+@WebSocket
+public final class MultiplexedStdioSocket extends ObservableSocket<byte[]> {
+
+    private final JobManagerEvents jobManagerEvents;
+    private final Subject<MultiplexedStdioRecord> records;
+    private final int maxSubscriptions;
+    private final long maxPendingBytes;
+    private final Map<Pair<JobId, MultiplexedStdioRecord.Stream>, DisposableObserver<byte[]>> subscriptions = new HashMap<>();
+    private final AtomicLong pendingBytes = new AtomicLong(0);
+    private boolean closed = false;
+    private volatile boolean tooSlow = false;
+
+
+    public MultiplexedStdioSocket(JobManagerEvents jobManagerEvents) {
+        this(
+                jobManagerEvents,
+                MULTIPLEXED_STDIO_BATCH_INTERVAL_IN_MILLISECONDS,
+                MULTIPLEXED_STDIO_MAX_RECORDS_PER_BATCH,
+                MULTIPLEXED_STDIO_MAX_SUBSCRIPTIONS_PER_CONNECTION,
+                MULTIPLEXED_STDIO_MAX_PENDING_BYTES_PER_CONNECTION);
+    }
+
+    MultiplexedStdioSocket(
+            JobManagerEvents jobManagerEvents,
+            long batchIntervalInMilliseconds,
+            int maxRecordsPerBatch,
+            int maxSubscriptions,
+            long maxPendingBytes) {
+
+        this(
+                jobManagerEvents,
+                PublishSubject.<MultiplexedStdioRecord>create().toSerialized(),
+                batchIntervalInMilliseconds,
+                maxRecordsPerBatch,
+                maxSubscriptions,
+                maxPendingBytes);
+    }
+
+    private MultiplexedStdioSocket(
+            JobManagerEvents jobManagerEvents,
+            Subject<MultiplexedStdioRecord> records,
+            long batchIntervalInMilliseconds,
+            int maxRecordsPerBatch,
+            int maxSubscriptions,
+            long maxPendingBytes) {
+
+        super("multiplexed stdio updates", records
+                .buffer(batchIntervalInMilliseconds, MILLISECONDS, maxRecordsPerBatch)
+                .filter(batch -> !batch.isEmpty())
+                .map(MultiplexedStdioRecord::encode));
+
+        this.jobManagerEvents = jobManagerEvents;
+        this.records = records;
+        this.maxSubscriptions = maxSubscriptions;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+
+    @Override
+    protected void onMessage(byte[] frame) {
+        if (this.session == null || tooSlow) return;
+
+        if (pendingBytes.addAndGet(frame.length) > maxPendingBytes) {
+            tooSlow = true;
+            log.warn("Closing " + session.getRemote().toString() + ": it is not reading stdio fast enough");
+            onClosed();
+            session.close(StatusCode.POLICY_VIOLATION, "Client is not reading stdio fast enough");
+            return;
+        }
+
+        this.session.getRemote().sendBytes(ByteBuffer.wrap(frame), new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable ex) {
+                pendingBytes.addAndGet(-frame.length);
+                log.debug("Could not send stdio: " + ex.getMessage());
+            }
+
+            @Override
+            public void writeSuccess() {
+                pendingBytes.addAndGet(-frame.length);
+            }
+        });
+    }
+
+    @OnWebSocketMessage
+    public void onWebSocketText(Session session, String message) {
+        final MultiplexedStdioRequest request;
+        try {
+            request = readJSON(message, MultiplexedStdioRequest.class);
+        } catch (IOException ex) {
+            log.debug("Ignoring malformed request: " + ex.getMessage());
+            return;
+        }
+
+        if (request.getAction() == null || request.getJobId() == null || request.getStream() == null) {
+            log.debug("Ignoring request without an action, job id, or stream");
+            return;
+        }
+
+        if (request.getJobId().toString().getBytes(UTF_8).length > MULTIPLEXED_STDIO_MAX_JOB_ID_LENGTH_IN_BYTES) {
+            log.debug("Ignoring request with a job id longer than " + MULTIPLEXED_STDIO_MAX_JOB_ID_LENGTH_IN_BYTES + " bytes");
+            return;
+        }
+
+        switch (request.getAction()) {
+            case SUBSCRIBE:
+                subscribe(request.getJobId(), request.getStream());
+                break;
+            case UNSUBSCRIBE:
+                unsubscribe(request.getJobId(), request.getStream());
+                break;
+        }
+    }
+
+    private void subscribe(JobId jobId, MultiplexedStdioRecord.Stream stream) {
+        final Optional<Observable<byte[]>> maybeUpdates = stream == STDOUT ?
+                jobManagerEvents.stdoutUpdates(jobId) :
+                jobManagerEvents.stderrUpdates(jobId);
+
+        if (!maybeUpdates.isPresent()) {
+            records.onNext(MultiplexedStdioRecord.unavailable(jobId, stream));
+            return;
+        }
+
+        final Pair<JobId, MultiplexedStdioRecord.Stream> key = Pair.of(jobId, stream);
+        final DisposableObserver<byte[]> observer = new DisposableObserver<byte[]>() {
+            @Override
+            public void onNext(byte[] data) {
+                records.onNext(MultiplexedStdioRecord.data(jobId, stream, data));
+            }
+
+            @Override
+            public void onError(Throwable ex) {
+                onStreamEnded(key, this);
+            }
+
+            @Override
+            public void onComplete() {
+                onStreamEnded(key, this);
+            }
+        };
+
+        // Registered before subscribing, so that a stream that ends during
+        // the subscription is deregistered, rather than left behind.
+        final boolean rejected;
+        synchronized (subscriptions) {
+            if (closed || subscriptions.containsKey(key)) return;
+            rejected = subscriptions.size() >= maxSubscriptions;
+            if (!rejected) subscriptions.put(key, observer);
+        }
+
+        if (rejected) records.onNext(MultiplexedStdioRecord.rejected(jobId, stream));
+        else maybeUpdates.get().subscribe(observer);
+    }
+
+    private void onStreamEnded(Pair<JobId, MultiplexedStdioRecord.Stream> key, DisposableObserver<byte[]> observer) {
+        synchronized (subscriptions) {
+            if (!subscriptions.remove(key, observer)) return;
+        }
+        records.onNext(MultiplexedStdioRecord.ended(key.getLeft(), key.getRight()));
+    }
+
+    private void unsubscribe(JobId jobId, MultiplexedStdioRecord.Stream stream) {
+        final DisposableObserver<byte[]> observer;
+        synchronized (subscriptions) {
+            observer = subscriptions.remove(Pair.of(jobId, stream));
+        }
+        if (observer != null) observer.dispose();
+    }
+
+    @Override
+    protected void onClosed() {
+        synchronized (subscriptions) {
+            closed = true;
+            subscriptions.values().forEach(DisposableObserver::dispose);
+            subscriptions.clear();
+        }
+    }
+
+    int subscriptionCount() {
+        synchronized (subscriptions) {
+            return subscriptions.size();
+        }
+    }
+}
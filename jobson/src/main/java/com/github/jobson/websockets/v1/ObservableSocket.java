@@ -55,6 +55,12 @@ public abstract class ObservableSocket<T> {
 
     protected abstract void onMessage(T messageData) throws IOException;
 
+    /**
+     * Called once the socket is closed (normally or because of an error), to
+     * release anything held in addition to the events subscription.
+     */
+    protected void onClosed() {}
+
     private void onObservableError(Throwable ex) {
         log.debug("Closing websocket because an error was thrown by the observable. Error: " + ex);
         this.session.close(SERVER_UNEXPECTED_CONDITION_STATUS, "Internal server error");
@@ -75,6 +81,7 @@ public abstract class ObservableSocket<T> {
     public void onWebSocketClose(Session session, int closeCode, String closeReason) {
         log.debug("Closing websocket");
         this.eventsSubscription.dispose();
+        onClosed();
         session.close(closeCode, closeReason);
     }
 
@@ -82,5 +89,6 @@ public abstract class ObservableSocket<T> {
     public void onWebSocketError(Session session, Throwable ex) {
         log.debug(ex.getMessage());
         this.eventsSubscription.dispose();
+        onClosed();
     }
 }
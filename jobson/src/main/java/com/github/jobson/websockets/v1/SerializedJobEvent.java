@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import static com.github.jobson.Helpers.toJSON;
+
+/**
+ * A job event paired with its JSON representation, so that the event is
+ * serialized once, rather than once per subscriber.
+ */
+public final class SerializedJobEvent {
+
+    public static SerializedJobEvent of(JobEvent event) {
+        return new SerializedJobEvent(event, toJSON(event));
+    }
+
+
+    private final JobEvent event;
+    private final String json;
+
+
+    public SerializedJobEvent(JobEvent event, String json) {
+        this.event = event;
+        this.json = json;
+    }
+
+
+    public JobEvent getEvent() {
+        return event;
+    }
+
+    public long getSequenceNumber() {
+        return event.getSequenceNumber();
+    }
+
+    public String getEventId() {
+        return event.getEventId();
+    }
+
+    public String getJson() {
+        return json;
+    }
+}
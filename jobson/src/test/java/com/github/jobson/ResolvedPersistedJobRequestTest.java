@@ -36,6 +36,9 @@ import com.github.jobson.utils.ValidationError;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static junit.framework.TestCase.fail;
@@ -242,4 +245,60 @@ public final class ResolvedPersistedJobRequestTest {
                 req -> fail("Invalid request generated no validation errors"),
                 validationErrors -> assertThat(validationErrors.size()).isGreaterThan(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testValidationErrorsAreInSpecOrderWhenInputsAreValidatedInParallel() throws InterruptedException {
+        final JobSpecId jobSpecId = TestHelpers.generateJobSpecId();
+        final List<JobExpectedInput<?>> expectedInputs = new ArrayList<>();
+        final Map<JobExpectedInputId, JsonNode> genericInputs = new HashMap<>();
+
+        for (int i = 0; i < 20; i++) {
+            final JobExpectedInputId inputId = new JobExpectedInputId("input-" + i);
+            expectedInputs.add(
+                    new StringArrayExpectedInput(
+                            inputId,
+                            TestHelpers.generateRandomString(),
+                            TestHelpers.generateRandomString(),
+                            Optional.empty()));
+            genericInputs.put(inputId, TestHelpers.toJsonNode(new SelectInput("not-a-string-array-" + i)));
+        }
+
+        final JobSpec jobSpec =
+                new JobSpec(
+                        jobSpecId,
+                        TestHelpers.generateRandomString(),
+                        TestHelpers.generateRandomString(),
+                        expectedInputs,
+                        new ExecutionConfiguration(
+                                TestHelpers.generateRandomString(),
+                                Optional.empty(),
+                                Optional.empty()));
+
+        final UserId userId = TestHelpers.generateUserId();
+        final APIJobRequest APIJobRequest =
+                new APIJobRequest(jobSpecId, TestHelpers.generateRandomString(), genericInputs);
+
+        final List<String> sequentialErrors =
+                errorMessagesOf(ValidJobRequest.tryCreate(jobSpec, userId, APIJobRequest));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<String> parallelErrors =
+                    errorMessagesOf(ValidJobRequest.tryCreate(jobSpec, userId, APIJobRequest, executor));
+
+            assertThat(sequentialErrors).hasSize(20);
+            assertThat(parallelErrors).isEqualTo(sequentialErrors);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<String> errorMessagesOf(Either<ValidJobRequest, List<ValidationError>> result) {
+        final List<String> messages = new ArrayList<>();
+        result.handleBoth(
+                req -> fail("Invalid request generated no validation errors"),
+                errors -> errors.forEach(error -> messages.add(error.getMessage())));
+        return messages;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.auth.basic;
+
+import com.github.jobson.dao.users.ReadonlyUserDAO;
+import io.dropwizard.auth.Authenticator;
+import io.dropwizard.auth.PrincipalImpl;
+import io.dropwizard.auth.basic.BasicCredentials;
+import org.junit.Test;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public final class CachingBasicAuthenticatorTest {
+
+    private static final BasicCredentials CREDENTIALS = new BasicCredentials("someuser", "somepassword");
+    private static final Optional<Principal> PRINCIPAL = Optional.of(new PrincipalImpl("someuser"));
+
+
+    @SuppressWarnings("unchecked")
+    private static Authenticator<BasicCredentials, Principal> mockAuthenticator() throws Exception {
+        final Authenticator<BasicCredentials, Principal> authenticator = mock(Authenticator.class);
+        when(authenticator.authenticate(any())).thenReturn(PRINCIPAL);
+        return authenticator;
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCtorThrowsIfMaxEntriesIsNegative() throws Exception {
+        new CachingBasicAuthenticator(mockAuthenticator(), mock(ReadonlyUserDAO.class), -1, Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void testAuthenticateOnlyCallsTheUnderlyingAuthenticatorOnceForRepeatedCredentials() throws Exception {
+        final Authenticator<BasicCredentials, Principal> underlying = mockAuthenticator();
+        final CachingBasicAuthenticator authenticator =
+                new CachingBasicAuthenticator(underlying, mock(ReadonlyUserDAO.class), 10, Duration.ofMinutes(1));
+
+        assertThat(authenticator.authenticate(CREDENTIALS)).isEqualTo(PRINCIPAL);
+        assertThat(authenticator.authenticate(CREDENTIALS)).isEqualTo(PRINCIPAL);
+
+        verify(underlying, times(1)).authenticate(any());
+    }
+
+    @Test
+    public void testAuthenticateDoesNotReuseResultsForADifferentPassword() throws Exception {
+        final Authenticator<BasicCredentials, Principal> underlying = mockAuthenticator();
+        final CachingBasicAuthenticator authenticator =
+                new CachingBasicAuthenticator(underlying, mock(ReadonlyUserDAO.class), 10, Duration.ofMinutes(1));
+
+        final BasicCredentials wrongPassword = new BasicCredentials(CREDENTIALS.getUsername(), "wrongpassword");
+        when(underlying.authenticate(wrongPassword)).thenReturn(Optional.empty());
+
+        authenticator.authenticate(CREDENTIALS);
+
+        assertThat(authenticator.authenticate(wrongPassword)).isEmpty();
+    }
+
+    @Test
+    public void testAuthenticateReauthenticatesWhenTheCredentialsVersionChanges() throws Exception {
+        final Authenticator<BasicCredentials, Principal> underlying = mockAuthenticator();
+        final ReadonlyUserDAO userDAO = mock(ReadonlyUserDAO.class);
+        when(userDAO.getCredentialsVersion()).thenReturn(1L);
+        final CachingBasicAuthenticator authenticator =
+                new CachingBasicAuthenticator(underlying, userDAO, 10, Duration.ofMinutes(1));
+
+        authenticator.authenticate(CREDENTIALS);
+        when(userDAO.getCredentialsVersion()).thenReturn(2L);
+        authenticator.authenticate(CREDENTIALS);
+
+        verify(underlying, times(2)).authenticate(any());
+    }
+
+    @Test
+    public void testAuthenticateReauthenticatesOnceAnEntryIsOlderThanMaxAge() throws Exception {
+        final Authenticator<BasicCredentials, Principal> underlying = mockAuthenticator();
+        final CachingBasicAuthenticator authenticator =
+                new CachingBasicAuthenticator(underlying, mock(ReadonlyUserDAO.class), 10, Duration.ofMillis(10));
+
+        authenticator.authenticate(CREDENTIALS);
+        Thread.sleep(50);
+        authenticator.authenticate(CREDENTIALS);
+
+        verify(underlying, times(2)).authenticate(any());
+    }
+
+    @Test
+    public void testCacheDoesNotGrowBeyondMaxEntries() throws Exception {
+        final CachingBasicAuthenticator authenticator =
+                new CachingBasicAuthenticator(mockAuthenticator(), mock(ReadonlyUserDAO.class), 2, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 5; i++)
+            authenticator.authenticate(new BasicCredentials("user" + i, "password"));
+
+        assertThat(authenticator.size()).isEqualTo(2);
+    }
+}
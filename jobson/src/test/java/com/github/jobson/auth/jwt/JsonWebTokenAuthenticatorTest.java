@@ -3,6 +3,7 @@ package com.github.jobson.auth.jwt;
 import com.github.jobson.TestHelpers;
 import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.PrincipalImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -13,6 +14,8 @@ import org.junit.Test;
 
 import java.security.Key;
 import java.security.Principal;
+import java.time.Duration;
+import java.util.Date;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -263,4 +266,132 @@ public class JsonWebTokenAuthenticatorTest {
 
         assertThat(returnedPrincipal).isEqualTo(suppliedPrincipal);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that .authenticate throws an AuthenticationException, rather
+     * than a jjwt exception, if the token has expired.
+     */
+    @Test(expected = AuthenticationException.class)
+    public void testAuthenticateThrowsIfTheTokenHasExpired() throws AuthenticationException {
+        final Key key = createSecretKey();
+        final SignatureAlgorithm signatureAlgorithm = getValidSignatureAlgorithm();
+
+        final String jwt = Jwts.builder()
+                .setSubject(generatePrincipal().getName())
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(signatureAlgorithm, key)
+                .compact();
+
+        createAuthenticator(key, signatureAlgorithm).authenticate(jwt);
+    }
+
+    /**
+     * Test that .authenticate throws an AuthenticationException if the
+     * token's nbf is in the future.
+     */
+    @Test(expected = AuthenticationException.class)
+    public void testAuthenticateThrowsIfTheTokenIsNotValidYet() throws AuthenticationException {
+        final Key key = createSecretKey();
+        final SignatureAlgorithm signatureAlgorithm = getValidSignatureAlgorithm();
+
+        final String jwt = Jwts.builder()
+                .setSubject(generatePrincipal().getName())
+                .setNotBefore(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(signatureAlgorithm, key)
+                .compact();
+
+        createAuthenticator(key, signatureAlgorithm).authenticate(jwt);
+    }
+
+    // .createJwtToken(principal, expiresAfter)
+
+    @Test
+    public void testCreateJwtTokenWithExpirySetsAnExpirationClaim() {
+        final Key key = createSecretKey();
+        final JsonWebTokenAuthenticator authenticator = createAuthenticatorWithSecretKey(key);
+
+        final String token = authenticator.createJwtToken(generatePrincipal(), Duration.ofHours(1));
+
+        final Claims claims = Jwts.parser().setSigningKey(key).parseClaimsJws(token).getBody();
+
+        assertThat(claims.getExpiration()).isNotNull();
+        assertThat(claims.getExpiration().getTime()).isGreaterThan(System.currentTimeMillis());
+    }
+
+    @Test
+    public void testTokenCreatedWithExpiryCanBeAuthenticated() throws AuthenticationException {
+        final Principal principal = generatePrincipal();
+        final JsonWebTokenAuthenticator authenticator = createValidAuthenticatorInstance();
+
+        final String token = authenticator.createJwtToken(principal, Duration.ofHours(1));
+
+        assertThat(authenticator.authenticate(token).get()).isEqualTo(principal);
+    }
+
+    // caching
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIfCacheMaxEntriesIsNegative() {
+        new JsonWebTokenAuthenticator(createSecretKey(), getValidSignatureAlgorithm(), -1);
+    }
+
+    @Test
+    public void testAuthenticateRemembersVerifiedTokens() throws AuthenticationException {
+        final Principal principal = generatePrincipal();
+        final JsonWebTokenAuthenticator authenticator =
+                new JsonWebTokenAuthenticator(createSecretKey(), getValidSignatureAlgorithm(), 10);
+
+        final String token = authenticator.createJwtToken(principal);
+
+        assertThat(authenticator.authenticate(token).get()).isEqualTo(principal);
+        assertThat(authenticator.cacheSize()).isEqualTo(1);
+        assertThat(authenticator.authenticate(token).get()).isEqualTo(principal);
+        assertThat(authenticator.cacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAuthenticateDoesNotRememberInvalidTokens() {
+        final JsonWebTokenAuthenticator authenticator =
+                new JsonWebTokenAuthenticator(createSecretKey(), getValidSignatureAlgorithm(), 10);
+
+        final String tokenFromOtherKey = createJwtToken(getValidSignatureAlgorithm(), createSecretKey(), generatePrincipal());
+
+        try {
+            authenticator.authenticate(tokenFromOtherKey);
+            Assert.fail("Should have thrown");
+        } catch (AuthenticationException ignored) {}
+
+        assertThat(authenticator.cacheSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testAuthenticateEvictsTheLeastRecentlyUsedTokenWhenTheCacheIsFull() throws AuthenticationException {
+        final JsonWebTokenAuthenticator authenticator =
+                new JsonWebTokenAuthenticator(createSecretKey(), getValidSignatureAlgorithm(), 2);
+
+        for (int i = 0; i < 3; i++)
+            authenticator.authenticate(authenticator.createJwtToken(generatePrincipal()));
+
+        assertThat(authenticator.cacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAuthenticateDoesNotReturnARememberedTokenAfterItExpires() throws AuthenticationException, InterruptedException {
+        final JsonWebTokenAuthenticator authenticator =
+                new JsonWebTokenAuthenticator(createSecretKey(), getValidSignatureAlgorithm(), 10);
+
+        // exp has a resolution of seconds
+        final String token = authenticator.createJwtToken(generatePrincipal(), Duration.ofSeconds(2));
+
+        authenticator.authenticate(token);
+
+        Thread.sleep(2500);
+
+        try {
+            authenticator.authenticate(token);
+            Assert.fail("Should have thrown: the token has expired");
+        } catch (AuthenticationException ignored) {}
+
+        assertThat(authenticator.cacheSize()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class TimeOrderedIdGeneratorTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCtorThrowsIfNodeIdIsOutOfRange() {
+        new TimeOrderedIdGenerator(1 << 10);
+    }
+
+    @Test
+    public void testGeneratedIdsSortInTheOrderTheyWereGenerated() {
+        final AtomicLong clock = new AtomicLong(1500000000000L);
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5, clock::get);
+        final List<String> ids = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            ids.add(generator.generate());
+            if (i % 100 == 0) clock.addAndGet(1);
+        }
+
+        final List<String> sortedIds = new ArrayList<>(ids);
+        sortedIds.sort(String::compareTo);
+
+        assertThat(sortedIds).isEqualTo(ids);
+        assertThat(new HashSet<>(ids)).hasSize(ids.size());
+    }
+
+    @Test
+    public void testGeneratedIdsKeepIncreasingIfTheClockGoesBackwards() {
+        final AtomicLong clock = new AtomicLong(1500000000000L);
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5, clock::get);
+
+        final String before = generator.generate();
+        clock.addAndGet(-1000);
+        final String after = generator.generate();
+
+        assertThat(after).isGreaterThan(before);
+    }
+
+    @Test
+    public void testGeneratedIdsKeepIncreasingIfTheCounterOverflows() {
+        final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5, () -> 1500000000000L);
+        String last = generator.generate();
+
+        for (int i = 0; i < (1 << 20); i++) {
+            final String id = generator.generate();
+            assertThat(id.compareTo(last)).isGreaterThan(0);
+            last = id;
+        }
+    }
+
+    @Test
+    public void testIdsFromGeneratorsWithDifferentNodeIdsDoNotCollide() {
+        final TimeOrderedIdGenerator a = new TimeOrderedIdGenerator(1, () -> 1500000000000L);
+        final TimeOrderedIdGenerator b = new TimeOrderedIdGenerator(2, () -> 1500000000000L);
+
+        final HashSet<String> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(a.generate());
+            ids.add(b.generate());
+        }
+
+        assertThat(ids).hasSize(2000);
+    }
+
+    @Test
+    public void testGeneratedIdsAreFixedLengthLowercaseAlphanumerics() {
+        final String id = new TimeOrderedIdGenerator(TimeOrderedIdGenerator.generateRandomNodeId()).generate();
+
+        assertThat(id).hasSize(16);
+        assertThat(id).matches("[0-9a-z]+");
+    }
+}
@@ -23,6 +23,7 @@ import com.github.jobson.Constants;
 import com.github.jobson.Helpers;
 import com.github.jobson.TestHelpers;
 import com.github.jobson.dao.IdGenerator;
+import com.github.jobson.dao.TimeOrderedIdGenerator;
 import com.github.jobson.jobs.JobId;
 import com.github.jobson.jobs.JobOutput;
 import com.github.jobson.jobs.jobstates.PersistedJob;
@@ -30,6 +31,9 @@ import com.github.jobson.jobs.jobstates.ValidJobRequest;
 import com.github.jobson.specs.JobOutputId;
 import com.github.jobson.specs.JobSpec;
 import com.github.jobson.utils.BinaryData;
+import io.reactivex.Observable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 import java.io.FileNotFoundException;
@@ -37,13 +41,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static com.github.jobson.Constants.*;
 import static com.github.jobson.Helpers.*;
 import static com.github.jobson.Helpers.readJSON;
 import static com.github.jobson.TestHelpers.*;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public final class FilesystemJobsDAOTest extends JobsDAOTest {
@@ -446,4 +454,173 @@ public final class FilesystemJobsDAOTest extends JobsDAOTest {
 
         assertThat(Files.exists(jobsDir.resolve(jobId.toString()))).isFalse();
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void testCompressLogsReplacesStdoutAndStderrWithGzippedFilesThatAreReadTransparently() throws IOException {
+        final Path jobsDir = createTmpDir(FilesystemJobsDAOTest.class);
+        final FilesystemJobsDAO dao = createStandardFilesystemDAO(jobsDir);
+        final JobId jobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+        final byte[] stdout = Helpers.toJSON(Collections.nCopies(100, generateRandomString())).getBytes();
+        final byte[] stderr = new byte[4096];  // compressible
+
+        dao.appendStdout(jobId, Observable.just(stdout));
+        dao.appendStderr(jobId, Observable.just(stderr));
+
+        final long bytesSaved = dao.compressLogs(jobId);
+
+        assertThat(bytesSaved).isGreaterThan(0);
+        assertThat(tryResolve(jobsDir, jobId, JOB_DIR_STDOUT_FILENAME)).isNotPresent();
+        assertThat(tryResolve(jobsDir, jobId, JOB_DIR_STDOUT_FILENAME + GZIP_FILE_EXTENSION)).isPresent();
+        assertThat(dao.hasStdout(jobId)).isTrue();
+        assertThat(IOUtils.toByteArray(dao.getStdout(jobId).get().decoded().getData())).isEqualTo(stdout);
+        assertThat(IOUtils.toByteArray(dao.getStderr(jobId).get().decoded().getData())).isEqualTo(stderr);
+    }
+
+    @Test
+    public void testCompressingDAOStoresStdoutAndTextOutputsGzipped() throws IOException {
+        final Path jobsDir = createTmpDir(FilesystemJobsDAOTest.class);
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(jobsDir, createIdGenerator(), true);
+        final JobId jobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+        final byte[] stdout = new byte[4096];
+        final byte[] textOutput = generateRandomString().getBytes();
+        final byte[] binaryOutput = generateRandomBytes();
+        final JobOutput textJobOutput = generateRandomJobOutput(textOutput);
+        final JobOutput binaryJobOutput = generateRandomJobOutput(binaryOutput);
+
+        dao.appendStdout(jobId, Observable.just(stdout));
+        dao.finalizeLogs(jobId);
+        dao.persistOutput(jobId, new JobOutput(
+                textJobOutput.getId(),
+                textJobOutput.getData().withMimeType("text/plain"),
+                textJobOutput.getName(),
+                textJobOutput.getDescription(),
+                textJobOutput.getMetadata()));
+        dao.persistOutput(jobId, binaryJobOutput);
+
+        assertThat(tryResolve(jobsDir, jobId, JOB_DIR_STDOUT_FILENAME + GZIP_FILE_EXTENSION)).isPresent();
+
+        final BinaryData storedStdout = dao.getStdout(jobId).get();
+        assertThat(storedStdout.getContentEncoding()).contains(GZIP_CONTENT_ENCODING);
+        assertThat(storedStdout.getSizeOf()).isLessThan(stdout.length);
+        assertThat(storedStdout.getDecodedSizeOf()).isEqualTo(stdout.length);
+        assertThat(IOUtils.toByteArray(storedStdout.decoded().getData())).isEqualTo(stdout);
+
+        final BinaryData storedTextOutput = dao.getOutput(jobId, textJobOutput.getId()).get();
+        assertThat(dao.hasOutput(jobId, textJobOutput.getId())).isTrue();
+        assertThat(storedTextOutput.getContentEncoding()).contains(GZIP_CONTENT_ENCODING);
+        assertThat(storedTextOutput.getMimeType()).isEqualTo("text/plain");
+        assertThat(IOUtils.toByteArray(storedTextOutput.decoded().getData())).isEqualTo(textOutput);
+
+        final BinaryData storedBinaryOutput = dao.getOutput(jobId, binaryJobOutput.getId()).get();
+        assertThat(storedBinaryOutput.getContentEncoding()).isNotPresent();
+        assertThat(IOUtils.toByteArray(storedBinaryOutput.getData())).isEqualTo(binaryOutput);
+    }
+
+    @Test
+    public void testShardedDAOPersistsJobsIntoShardDirectoriesNamedAfterTheIdHash() throws IOException {
+        final Path jobsDir = createTmpDir(FilesystemJobsDAOTest.class);
+        final FilesystemJobsDAO dao = createShardedFilesystemDAO(jobsDir);
+
+        final JobId jobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+        final String id = jobId.toString();
+
+        assertThat(tryResolve(jobsDir, id)).isNotPresent();
+        final String hash = DigestUtils.md5Hex(id);
+        assertThat(tryResolve(jobsDir, hash.substring(0, 2), hash.substring(2, 4), id, JOB_DIR_JOB_DETAILS_FILENAME)).isPresent();
+        assertThat(dao.jobExists(jobId)).isTrue();
+        assertThat(dao.getJobDetailsById(jobId)).isPresent();
+        assertThat(dao.getJobs(10, 0).stream().map(JobDetails::getId)).containsExactly(jobId);
+    }
+
+    @Test
+    public void testShardedDAOSpreadsTimeOrderedIdsAcrossShards() throws IOException {
+        final Path jobsDir = createTmpDir(FilesystemJobsDAOTest.class);
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                jobsDir, new TimeOrderedIdGenerator(0), false, JobsDirectoryLayout.SHARDED);
+
+        for (int i = 0; i < 20; i++)
+            dao.persist(STANDARD_VALID_REQUEST);
+
+        // The IDs share their (timestamp) prefix, so prefix-named shards would all be the same
+        try (Stream<Path> shards = Files.list(jobsDir)) {
+            assertThat(shards.count()).isGreaterThan(1);
+        }
+    }
+
+    @Test
+    public void testShardedDAOCanReadJobsStoredInTheFlatLayout() throws IOException {
+        final Path jobsDir = createTmpDir(FilesystemJobsDAOTest.class);
+        final FilesystemJobsDAO flatDAO = createStandardFilesystemDAO(jobsDir);
+        final JobId flatJobId = flatDAO.persist(STANDARD_VALID_REQUEST).getId();
+        final byte[] stdout = generateRandomBytes();
+        flatDAO.appendStdout(flatJobId, Observable.just(stdout));
+
+        final FilesystemJobsDAO shardedDAO = createShardedFilesystemDAO(jobsDir);
+        final JobId shardedJobId = shardedDAO.persist(STANDARD_VALID_REQUEST).getId();
+
+        assertThat(shardedDAO.jobExists(flatJobId)).isTrue();
+        assertThat(IOUtils.toByteArray(shardedDAO.getStdout(flatJobId).get().getData())).isEqualTo(stdout);
+        assertThat(shardedDAO.getJobs(10, 0).stream().map(JobDetails::getId))
+                .containsExactlyInAnyOrder(flatJobId, shardedJobId);
+    }
+
+    @Test
+    public void testMigrateLayoutMovesFlatJobsIntoShardsAndBack() throws IOException {
+        final Path jobsDir = createTmpDir(FilesystemJobsDAOTest.class);
+        final FilesystemJobsDAO flatDAO = createStandardFilesystemDAO(jobsDir);
+        final List<JobId> jobIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            jobIds.add(flatDAO.persist(STANDARD_VALID_REQUEST).getId());
+
+        final FilesystemJobsDAO shardedDAO = createShardedFilesystemDAO(jobsDir);
+
+        assertThat(shardedDAO.migrateLayout()).isEqualTo(jobIds.size());
+        assertThat(shardedDAO.migrateLayout()).isEqualTo(0);
+        for (JobId jobId : jobIds) {
+            final String id = jobId.toString();
+            assertThat(tryResolve(jobsDir, id)).isNotPresent();
+            final String hash = DigestUtils.md5Hex(id);
+            assertThat(tryResolve(jobsDir, hash.substring(0, 2), hash.substring(2, 4), id)).isPresent();
+            assertThat(shardedDAO.getJobDetailsById(jobId)).isPresent();
+        }
+
+        assertThat(flatDAO.migrateLayout()).isEqualTo(jobIds.size());
+        for (JobId jobId : jobIds)
+            assertThat(tryResolve(jobsDir, jobId)).isPresent();
+        try (Stream<Path> entries = Files.list(jobsDir)) {
+            // Shard directories are removed once they are empty
+            assertThat(entries.map(p -> p.getFileName().toString()))
+                    .containsExactlyInAnyOrderElementsOf(jobIds.stream().map(JobId::toString).collect(toList()));
+        }
+    }
+
+    @Test
+    public void testLinkResultsLeavesNothingInTheTargetJobIfLinkingFailsPartWay() throws IOException {
+        final Path jobsDir = createTmpDir(FilesystemJobsDAOTest.class);
+        final FilesystemJobsDAO dao = createStandardFilesystemDAO(jobsDir);
+        final JobId sourceJobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+        final JobId targetJobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+
+        final byte[] stdout = generateRandomBytes();
+        dao.appendStdout(sourceJobId, Observable.just(stdout));
+        dao.persistOutput(sourceJobId, generateRandomJobOutput());
+
+        // A non-empty outputs dir can't be replaced, so linking fails
+        final Path targetOutputsDir = tryResolve(jobsDir, targetJobId).get().resolve(JOB_DIR_OUTPUTS_DIRNAME);
+        Files.createDirectories(targetOutputsDir);
+        Files.write(targetOutputsDir.resolve("existing-output"), generateRandomBytes());
+
+        assertThat(dao.linkResults(sourceJobId, targetJobId)).isFalse();
+        assertThat(tryResolve(jobsDir, targetJobId, JOB_DIR_STDOUT_FILENAME)).isNotPresent();
+
+        // The target job then runs, which must not touch the source's stdout
+        dao.appendStdout(targetJobId, Observable.just(generateRandomBytes()));
+
+        assertThat(IOUtils.toByteArray(dao.getStdout(sourceJobId).get().getData())).isEqualTo(stdout);
+    }
+
+    private static FilesystemJobsDAO createShardedFilesystemDAO(Path jobsDir) throws IOException {
+        return new FilesystemJobsDAO(jobsDir, createIdGenerator(), false, JobsDirectoryLayout.SHARDED);
+    }
+}
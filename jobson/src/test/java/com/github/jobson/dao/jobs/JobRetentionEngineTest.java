@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao.jobs;
+
+import com.github.jobson.config.JobRetentionConfig;
+import com.github.jobson.config.JobRetentionConfig.GroupBy;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.JobStatus;
+import io.reactivex.Observable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.github.jobson.Helpers.generateRandomBase36String;
+import static com.github.jobson.TestHelpers.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class JobRetentionEngineTest {
+
+    private static JobRetentionConfig createConfig(Optional<Integer> maxJobs, GroupBy groupBy, Optional<String> archiveDir) {
+        return new JobRetentionConfig(
+                Optional.empty(), maxJobs, Optional.empty(), groupBy, Optional.empty(), archiveDir);
+    }
+
+    private static JobId persistFinishedJob(FilesystemJobsDAO dao) throws InterruptedException {
+        return persistFinishedJob(dao, 1024);
+    }
+
+    private static JobId persistFinishedJob(FilesystemJobsDAO dao, int stdoutSize) throws InterruptedException {
+        final JobId jobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+        dao.appendStdout(jobId, Observable.just(new byte[stdoutSize]));
+        dao.addNewJobStatus(jobId, JobStatus.FINISHED, "Finished");
+        Thread.sleep(5);  // so that jobs are strictly ordered by time
+        return jobId;
+    }
+
+
+    @Test
+    public void testMaxJobsRemovesTheOldestFinishedJobsAndReportsTheBytesReclaimed() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+
+        final List<JobId> jobIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) jobIds.add(persistFinishedJob(dao));
+        final long expectedBytesReclaimed =
+                dao.getJobSizeInBytes(jobIds.get(0)) + dao.getJobSizeInBytes(jobIds.get(1));
+
+        final JobRetentionReport report =
+                new JobRetentionEngine(dao, createConfig(Optional.of(3), GroupBy.NONE, Optional.empty())).run();
+
+        assertThat(report.getJobsRemoved()).isEqualTo(2);
+        assertThat(report.getBytesReclaimed()).isEqualTo(expectedBytesReclaimed);
+        assertThat(dao.jobExists(jobIds.get(0))).isFalse();
+        assertThat(dao.jobExists(jobIds.get(1))).isFalse();
+        assertThat(dao.jobExists(jobIds.get(4))).isTrue();
+    }
+
+    @Test
+    public void testUnfinishedJobsAreNeverExpired() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+
+        final JobId runningJob = dao.persist(STANDARD_VALID_REQUEST).getId();
+        dao.addNewJobStatus(runningJob, JobStatus.RUNNING, "Running");
+
+        new JobRetentionEngine(dao, createConfig(Optional.of(0), GroupBy.NONE, Optional.empty())).run();
+
+        assertThat(dao.jobExists(runningJob)).isTrue();
+    }
+
+    @Test
+    public void testLimitsApplyPerOwnerWhenGroupedByOwner() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+
+        final JobId firstOwnersJob = dao.persist(validRequestWithOwner(generateUserId())).getId();
+        dao.addNewJobStatus(firstOwnersJob, JobStatus.FINISHED, "Finished");
+        final JobId secondOwnersJob = dao.persist(validRequestWithOwner(generateUserId())).getId();
+        dao.addNewJobStatus(secondOwnersJob, JobStatus.FINISHED, "Finished");
+
+        new JobRetentionEngine(dao, createConfig(Optional.of(1), GroupBy.OWNER, Optional.empty())).run();
+
+        assertThat(dao.jobExists(firstOwnersJob)).isTrue();
+        assertThat(dao.jobExists(secondOwnersJob)).isTrue();
+    }
+
+    @Test
+    public void testExpiredJobsAreMovedIntoTheArchiveDirIfOneIsConfigured() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+        final Path archiveDir = createTmpDir(JobRetentionEngineTest.class);
+
+        final JobId jobId = persistFinishedJob(dao);
+
+        final JobRetentionReport report = new JobRetentionEngine(
+                dao, createConfig(Optional.of(0), GroupBy.NONE, Optional.of(archiveDir.toString()))).run();
+
+        assertThat(report.getJobsArchived()).isEqualTo(1);
+        assertThat(dao.jobExists(jobId)).isFalse();
+        assertThat(archiveDir.resolve(jobId.toString()).toFile().isDirectory()).isTrue();
+    }
+
+    @Test
+    public void testBytesAreOnlyReportedAsReclaimedOnceTheJobHasBeenExpired() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+        final Path notADirectory = Files.createTempFile(JobRetentionEngineTest.class.getSimpleName(), "");
+
+        final JobId jobId = persistFinishedJob(dao);
+
+        final JobRetentionReport report = new JobRetentionEngine(
+                dao, createConfig(Optional.of(0), GroupBy.NONE, Optional.of(notADirectory.toString()))).run();
+
+        assertThat(report.getJobsArchived()).isEqualTo(0);
+        assertThat(report.getBytesReclaimed()).isEqualTo(0);
+        assertThat(dao.jobExists(jobId)).isTrue();
+    }
+
+    @Test
+    public void testLogsOfKeptJobsAreCompressedAfterCompressLogsAfter() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+
+        final JobId jobId = persistFinishedJob(dao);
+
+        final JobRetentionConfig config = new JobRetentionConfig(
+                Optional.empty(), Optional.empty(), Optional.empty(), GroupBy.NONE,
+                Optional.of(Duration.ZERO), Optional.empty());
+
+        final JobRetentionReport report = new JobRetentionEngine(dao, config).run();
+
+        assertThat(report.getJobsCompressed()).isEqualTo(1);
+        assertThat(report.getBytesReclaimed()).isGreaterThan(0);
+        assertThat(dao.jobExists(jobId)).isTrue();
+        assertThat(dao.hasStdout(jobId)).isTrue();
+    }
+
+    @Test
+    public void testHardLinkedResultsAreOnlyCountedOnceWhenReclaimingBytes() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+
+        final JobId sourceJob = persistFinishedJob(dao, 64 * 1024);
+        final JobId reusingJob = dao.persist(STANDARD_VALID_REQUEST).getId();
+        assertThat(dao.linkResults(sourceJob, reusingJob)).isTrue();
+        dao.addNewJobStatus(reusingJob, JobStatus.FINISHED, "Finished");
+
+        final long sizeOfBothJobs = dao.getJobSizeInBytes(sourceJob) + dao.getJobSizeInBytes(reusingJob);
+
+        // Only the source job expires: its stdout is still used by the newer job
+        final JobRetentionReport report =
+                new JobRetentionEngine(dao, createConfig(Optional.of(1), GroupBy.NONE, Optional.empty())).run();
+
+        assertThat(report.getJobsRemoved()).isEqualTo(1);
+        assertThat(report.getBytesReclaimed()).isLessThan(64 * 1024);
+        assertThat(sizeOfBothJobs).isGreaterThan(2 * 64 * 1024);
+        assertThat(dao.hasStdout(reusingJob)).isTrue();
+    }
+
+    @Test
+    public void testLogsBelowTheCompressionThresholdAreNotCompressed() throws Exception {
+        final FilesystemJobsDAO dao = new FilesystemJobsDAO(
+                createTmpDir(JobRetentionEngineTest.class), () -> generateRandomBase36String(10));
+
+        final JobId jobId = persistFinishedJob(dao, 10);
+
+        final JobRetentionConfig config = new JobRetentionConfig(
+                Optional.empty(), Optional.empty(), Optional.empty(), GroupBy.NONE,
+                Optional.of(Duration.ZERO), Optional.empty());
+
+        final JobRetentionReport report = new JobRetentionEngine(dao, config).run();
+
+        assertThat(report.getJobsCompressed()).isEqualTo(0);
+        assertThat(report.getBytesReclaimed()).isEqualTo(0);
+        assertThat(dao.getStdout(jobId).get().getSizeOf()).isEqualTo(10);
+    }
+}
@@ -699,4 +699,34 @@ public abstract class JobsDAOTest {
         // Shouldn't throw
         dao.remove(generateJobId());
     }
+
+
+
+    @Test
+    public void testLinkResultsReturnsFalseIfTheSourceJobDoesNotExist() {
+        final JobDAO dao = getInstance();
+        final JobId jobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+
+        assertThat(dao.linkResults(generateJobId(), jobId)).isFalse();
+    }
+
+    @Test
+    public void testLinkResultsMakesTheSourceJobsStdoutAndOutputsAvailableInTheTargetJob() throws IOException {
+        final JobDAO dao = getInstance();
+        final JobId sourceJobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+        final JobId targetJobId = dao.persist(STANDARD_VALID_REQUEST).getId();
+
+        final byte[] stdout = generateRandomBytes();
+        dao.appendStdout(sourceJobId, Observable.just(stdout));
+
+        final byte[] outputData = generateRandomBytes();
+        final JobOutput jobOutput = generateRandomJobOutput(outputData);
+        dao.persistOutput(sourceJobId, jobOutput);
+
+        assertThat(dao.linkResults(sourceJobId, targetJobId)).isTrue();
+
+        assertThat(toByteArray(dao.getStdout(targetJobId).get().getData())).isEqualTo(stdout);
+        assertThat(dao.getJobOutputs(targetJobId)).hasSize(1);
+        assertThat(toByteArray(dao.getOutput(targetJobId, jobOutput.getId()).get().getData())).isEqualTo(outputData);
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.dao.jobs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.jobson.jobs.JobId;
+import org.junit.Test;
+
+import static com.github.jobson.Constants.JOBS_DAO_METRIC_NAME_PREFIX;
+import static com.github.jobson.TestHelpers.generateJobId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public final class TimedJobDAOTest {
+
+    @Test
+    public void testOperationsAreDelegatedAndTimed() {
+        final JobDAO jobDAO = mock(JobDAO.class);
+        final JobId jobId = generateJobId();
+        when(jobDAO.jobExists(jobId)).thenReturn(true);
+        final MetricRegistry metrics = new MetricRegistry();
+        final TimedJobDAO timedJobDAO = new TimedJobDAO(jobDAO, metrics);
+
+        assertThat(timedJobDAO.jobExists(jobId)).isTrue();
+        assertThat(timedJobDAO.jobExists(jobId)).isTrue();
+        timedJobDAO.remove(jobId);
+
+        verify(jobDAO, times(2)).jobExists(jobId);
+        verify(jobDAO).remove(jobId);
+        assertThat(metrics.timer(JOBS_DAO_METRIC_NAME_PREFIX + "jobExists").getCount()).isEqualTo(2);
+        assertThat(metrics.timer(JOBS_DAO_METRIC_NAME_PREFIX + "remove").getCount()).isEqualTo(1);
+    }
+}
@@ -322,4 +322,41 @@ public final class FilesystemJobSpecDAOTest {
         assertThat(dao.getHealthChecks()).containsKeys(FILESYSTEM_SPECS_DAO_DISK_SPACE_HEALTHCHECK);
         assertThat(dao.getHealthChecks().get(FILESYSTEM_SPECS_DAO_DISK_SPACE_HEALTHCHECK)).isNotNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetJobSpecByIdReusesTheLoadedJobSpecIfTheSpecFileHasNotChanged() throws IOException {
+        final Path jobSpecsDir = createTmpDir(FilesystemJobSpecDAOTest.class);
+        final JobSpecId jobSpecId = new JobSpecId("test");
+        final Path jobSpecPath = createDirectory(jobSpecsDir.resolve(jobSpecId.toString()));
+        final String jobSpecConfigurationText = fixture("fixtures/dao/specs/FilesystemBasedJobSpecDAO/valid-job-spec-configuration.yml");
+        Files.write(jobSpecPath.resolve(SPEC_DIR_SPEC_FILENAME), jobSpecConfigurationText.getBytes());
+
+        final FilesystemJobSpecDAO filesystemJobSpecDAO = new FilesystemJobSpecDAO(jobSpecsDir);
+
+        final JobSpec firstLoad = filesystemJobSpecDAO.getJobSpecById(jobSpecId).get();
+        final JobSpec secondLoad = filesystemJobSpecDAO.getJobSpecById(jobSpecId).get();
+
+        assertThat(secondLoad).isSameAs(firstLoad);
+    }
+
+    @Test
+    public void testGetJobSpecByIdReloadsTheJobSpecIfTheSpecFileChanges() throws IOException {
+        final Path jobSpecsDir = createTmpDir(FilesystemJobSpecDAOTest.class);
+        final JobSpecId jobSpecId = new JobSpecId("test");
+        final Path jobSpecPath = createDirectory(jobSpecsDir.resolve(jobSpecId.toString()));
+        final Path jobSpecFile = jobSpecPath.resolve(SPEC_DIR_SPEC_FILENAME);
+        final String jobSpecConfigurationText = fixture("fixtures/dao/specs/FilesystemBasedJobSpecDAO/valid-job-spec-configuration.yml");
+        Files.write(jobSpecFile, jobSpecConfigurationText.getBytes());
+
+        final FilesystemJobSpecDAO filesystemJobSpecDAO = new FilesystemJobSpecDAO(jobSpecsDir);
+
+        final JobSpec firstLoad = filesystemJobSpecDAO.getJobSpecById(jobSpecId).get();
+
+        final String newName = firstLoad.getName() + " (updated)";
+        Files.write(jobSpecFile, jobSpecConfigurationText.replace(firstLoad.getName(), newName).getBytes());
+
+        final JobSpec secondLoad = filesystemJobSpecDAO.getJobSpecById(jobSpecId).get();
+
+        assertThat(secondLoad.getName()).isEqualTo(newName);
+    }
+}
@@ -26,10 +26,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static com.github.jobson.TestHelpers.generateUserDetails;
 import static com.github.jobson.TestHelpers.generateUserId;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public final class FilesystemUserDAOTest {
@@ -101,4 +104,90 @@ public final class FilesystemUserDAOTest {
         assertThat(maybeCredentials).isNotEmpty();
         assertThat(maybeCredentials.get()).isEqualTo(userCredentials);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetCredentialsVersionChangesAfterAddingAUser() throws IOException {
+        final FilesystemUserDAO dao = new FilesystemUserDAO(tmpFile());
+        final long versionBefore = dao.getCredentialsVersion();
+
+        final UserCredentials userCredentials = generateUserDetails();
+        dao.addNewUser(userCredentials.getId(), userCredentials.getAuthName(), userCredentials.getAuthField());
+
+        assertThat(dao.getCredentialsVersion()).isNotEqualTo(versionBefore);
+    }
+
+    @Test
+    public void testGetUserDetailsByIdReflectsChangesMadeToTheFileByOtherWriters() throws IOException {
+        final File usersFile = tmpFile();
+        final FilesystemUserDAO dao = new FilesystemUserDAO(usersFile);
+        final UserCredentials userCredentials = generateUserDetails();
+
+        assertThat(dao.getUserCredentialsById(userCredentials.getId())).isEmpty();
+
+        // e.g. `jobson users add` running in another process
+        final FilesystemUserDAO otherDao = new FilesystemUserDAO(usersFile);
+        otherDao.addNewUser(userCredentials.getId(), userCredentials.getAuthName(), userCredentials.getAuthField());
+
+        assertThat(dao.getUserCredentialsById(userCredentials.getId())).contains(userCredentials);
+    }
+
+    @Test
+    public void testAddNewUserReturnsFalseIfUserAlreadyExists() throws IOException {
+        final FilesystemUserDAO dao = new FilesystemUserDAO(tmpFile());
+        final UserCredentials userCredentials = generateUserDetails();
+
+        assertThat(dao.addNewUser(userCredentials.getId(), "basic", "first")).isTrue();
+        assertThat(dao.addNewUser(userCredentials.getId(), "basic", "second")).isFalse();
+        assertThat(dao.getUserCredentialsById(userCredentials.getId()).get().getAuthField()).isEqualTo("first");
+    }
+
+    @Test
+    public void testUpdateUserAuthReplacesTheUsersCredentialsAndKeepsOtherLines() throws IOException {
+        final UserCredentials userCredentials = generateUserDetails();
+        final UserCredentials otherUserCredentials = generateUserDetails();
+
+        final File usersFile = tmpFile();
+        final String fileContent =
+                "#somecomment\n" + userCredentials.toUserFileLine() + "\n" + otherUserCredentials.toUserFileLine() + "\n";
+        Files.write(usersFile.toPath(), fileContent.getBytes());
+
+        final FilesystemUserDAO dao = new FilesystemUserDAO(usersFile);
+
+        assertThat(dao.updateUserAuth(userCredentials.getId(), "basic", "newauthfield")).isTrue();
+
+        assertThat(dao.getUserCredentialsById(userCredentials.getId()).get().getAuthField()).isEqualTo("newauthfield");
+        assertThat(dao.getUserCredentialsById(otherUserCredentials.getId())).contains(otherUserCredentials);
+        assertThat(Files.readAllLines(usersFile.toPath())).contains("#somecomment");
+    }
+
+    @Test
+    public void testUpdateUserAuthReturnsFalseIfUserDoesNotExist() throws IOException {
+        final FilesystemUserDAO dao = new FilesystemUserDAO(tmpFile());
+
+        assertThat(dao.updateUserAuth(generateUserId(), "basic", "someauthfield")).isFalse();
+    }
+
+    @Test
+    public void testConcurrentAddNewUserCallsDoNotLoseUsers() throws Exception {
+        final File usersFile = tmpFile();
+        final List<UserCredentials> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            users.add(generateUserDetails());
+
+        // Separate DAOs, so that only the file lock serializes the writes
+        final List<Thread> threads = users.stream().map(c -> new Thread(() -> {
+            try {
+                new FilesystemUserDAO(usersFile).addNewUser(c.getId(), c.getAuthName(), c.getAuthField());
+            } catch (FileNotFoundException ex) {
+                throw new RuntimeException(ex);
+            }
+        })).collect(toList());
+
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        final FilesystemUserDAO dao = new FilesystemUserDAO(usersFile);
+        for (UserCredentials c : users)
+            assertThat(dao.getUserCredentialsById(c.getId())).contains(c);
+    }
+}
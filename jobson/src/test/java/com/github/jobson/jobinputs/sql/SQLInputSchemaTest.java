@@ -91,4 +91,40 @@ public final class SQLInputSchemaTest {
 
         assertThat(maybeValidationErrors.isPresent()).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testValidateReturnsTheSameResultWhenTheSameQueryIsValidatedRepeatedly() {
+        final SQLExpectedInput sqlInputSchema = readJSONFixture(
+                "fixtures/jobinputs/sql/2_correct-schema.json",
+                SQLExpectedInput.class);
+
+        final SQLInput validInput = new SQLInput("select column_1_A from table_1;");
+        final SQLInput invalidInput = new SQLInput("select this_column_does_not_exist from table_1;");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(sqlInputSchema.validate(validInput).isPresent()).isFalse();
+            assertThat(sqlInputSchema.validate(invalidInput).isPresent()).isTrue();
+        }
+    }
+
+    @Test
+    public void testValidateIgnoresSurroundingWhitespace() {
+        final SQLExpectedInput sqlInputSchema = readJSONFixture(
+                "fixtures/jobinputs/sql/2_correct-schema.json",
+                SQLExpectedInput.class);
+
+        assertThat(sqlInputSchema.validate(new SQLInput("select column_2_A from table_2;")).isPresent()).isFalse();
+        assertThat(sqlInputSchema.validate(new SQLInput("\r\n  select column_2_A from table_2;  \n")).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testValidateOnlyAllowsColumnsFromTheReferencedTables() {
+        final SQLExpectedInput sqlInputSchema = readJSONFixture(
+                "fixtures/jobinputs/sql/2_correct-schema.json",
+                SQLExpectedInput.class);
+
+        final SQLInput sqlInput = new SQLInput("select column_2_A from table_1;");
+
+        assertThat(sqlInputSchema.validate(sqlInput).isPresent()).isTrue();
+    }
+}
@@ -210,10 +210,11 @@ public abstract class JobExecutorTest {
         final CancelablePromise<JobExecutionResult> ret =
                 jobExecutor.execute(req, createNullListeners());
 
+        // A deadlocked application causes promiseAssert to time out. Cancelling
+        // the job here instead races with the application exiting normally.
         promiseAssert(
                 ret,
-                result -> assertThat(result.getFinalStatus()).isEqualTo(JobStatus.FINISHED),
-                () -> ret.cancel(true));
+                result -> assertThat(result.getFinalStatus()).isEqualTo(JobStatus.FINISHED));
     }
 
     @Test
@@ -19,14 +19,18 @@
 
 package com.github.jobson.jobs.execution;
 
+import com.github.jobson.TestConstants;
 import com.github.jobson.TestHelpers;
 import com.github.jobson.config.RemoveAfterExecutionConfig;
 import com.github.jobson.jobs.JobEventListeners;
 import com.github.jobson.jobs.JobExecutionResult;
 import com.github.jobson.jobs.JobExecutor;
 import com.github.jobson.jobs.LocalJobExecutor;
+import com.github.jobson.jobs.WorkingDirReaper;
 import com.github.jobson.jobs.jobstates.PersistedJob;
+import com.github.jobson.jobs.JobId;
 import com.github.jobson.specs.JobDependencyConfiguration;
+import com.github.jobson.specs.JobDependencyStrategy;
 import com.github.jobson.specs.RawTemplateString;
 import com.github.jobson.utils.CancelablePromise;
 import org.apache.commons.io.FileUtils;
@@ -38,10 +42,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 import static com.github.jobson.Constants.DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS;
+import static com.github.jobson.Constants.WDS_DEPENDENCY_SNAPSHOTS_DIRNAME;
+import static com.github.jobson.Constants.WDS_TRASH_DIRNAME;
 import static com.github.jobson.TestHelpers.createTmpDir;
 import static com.github.jobson.TestHelpers.generateAlphanumStr;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -160,6 +168,115 @@ public final class LocalJobExecutorTest extends JobExecutorTest {
         assertThat(Files.readSymbolicLink(destination)).isEqualTo(sourceFile);
     }
 
+    @Test
+    public void testHardLinkedDirectoryDependencyLinksEachFileToTheSource() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final Path sourceDir = Files.createTempDirectory(JobExecutorTest.class.getSimpleName());
+        final Path sourceFile = Files.createFile(sourceDir.resolve(generateAlphanumStr()));
+
+        final Path workingDir = createTmpDir(LocalJobExecutor.class);
+        final Path dest = workingDir.resolve("linked-dir");
+
+        final JobDependencyConfiguration dep = new JobDependencyConfiguration(
+                sourceDir.toString(),
+                dest.toString(),
+                JobDependencyStrategy.HARD_LINK);
+        final PersistedJob job = createStandardRequestWithDependency(dep);
+
+        final LocalJobExecutor jobExecutor = new LocalJobExecutor(workingDir, DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS);
+
+        jobExecutor.execute(job, JobEventListeners.createNullListeners()).get();
+
+        final Path linkedFile = dest.resolve(sourceFile.getFileName());
+        assertThat(Files.isSymbolicLink(linkedFile)).isFalse();
+        assertThat(Files.isSameFile(linkedFile, sourceFile)).isTrue();
+    }
+
+    @Test
+    public void testReflinkedFileDependencyIsMaterializedWithTheSameContent() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final Path sourceFile = Files.createTempFile(JobExecutorTest.class.getSimpleName(), "");
+        Files.write(sourceFile, generateAlphanumStr().getBytes());
+
+        final Path workingDir = createTmpDir(LocalJobExecutor.class);
+        final Path dest = workingDir.resolve("reflinked-file");
+
+        final JobDependencyConfiguration dep = new JobDependencyConfiguration(
+                sourceFile.toString(),
+                dest.toString(),
+                JobDependencyStrategy.REFLINK);
+        final PersistedJob job = createStandardRequestWithDependency(dep);
+
+        final LocalJobExecutor jobExecutor = new LocalJobExecutor(workingDir, DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS);
+
+        jobExecutor.execute(job, JobEventListeners.createNullListeners()).get();
+
+        assertThat(Files.readAllBytes(dest)).isEqualTo(Files.readAllBytes(sourceFile));
+    }
+
+    @Test
+    public void testSnapshotDependencyIsLinkedFromAReadOnlySnapshotSharedBetweenJobs() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final Path sourceDir = Files.createTempDirectory(JobExecutorTest.class.getSimpleName());
+        final Path sourceFile = Files.createFile(sourceDir.resolve(generateAlphanumStr()));
+
+        final Path workingDirs = createTmpDir(LocalJobExecutor.class);
+        final LocalJobExecutor jobExecutor = new LocalJobExecutor(workingDirs, DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS);
+
+        final JobDependencyConfiguration dep = new JobDependencyConfiguration(
+                sourceDir.toString(),
+                "${request.id}-snapshot",
+                JobDependencyStrategy.SNAPSHOT);
+        final PersistedJob firstJob = createStandardRequestWithDependency(dep);
+        final PersistedJob secondJob = PersistedJob.createFromValidRequest(firstJob, new JobId(generateAlphanumStr()));
+
+        jobExecutor.execute(firstJob, JobEventListeners.createNullListeners()).get();
+        jobExecutor.execute(secondJob, JobEventListeners.createNullListeners()).get();
+
+        final Path firstFile = workingDirs
+                .resolve(firstJob.getId().toString())
+                .resolve(firstJob.getId() + "-snapshot")
+                .resolve(sourceFile.getFileName());
+        final Path secondFile = workingDirs
+                .resolve(secondJob.getId().toString())
+                .resolve(secondJob.getId() + "-snapshot")
+                .resolve(sourceFile.getFileName());
+
+        assertThat(Files.isSameFile(firstFile, secondFile)).isTrue();
+        assertThat(Files.isSameFile(firstFile, sourceFile)).isFalse();
+        assertThat(Files.getPosixFilePermissions(firstFile).contains(PosixFilePermission.OWNER_WRITE)).isFalse();
+    }
+
+    @Test
+    public void testModifyingASnapshotDependencysSourceReplacesItsSnapshot() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final Path sourceDir = Files.createTempDirectory(JobExecutorTest.class.getSimpleName());
+        final Path sourceFile = sourceDir.resolve(generateAlphanumStr());
+        Files.write(sourceFile, "first".getBytes());
+
+        final Path workingDirs = createTmpDir(LocalJobExecutor.class);
+        final LocalJobExecutor jobExecutor = new LocalJobExecutor(workingDirs, DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS);
+
+        final JobDependencyConfiguration dep = new JobDependencyConfiguration(
+                sourceDir.toString(),
+                "${request.id}-snapshot",
+                JobDependencyStrategy.SNAPSHOT);
+        final PersistedJob firstJob = createStandardRequestWithDependency(dep);
+        final PersistedJob secondJob = PersistedJob.createFromValidRequest(firstJob, new JobId(generateAlphanumStr()));
+
+        jobExecutor.execute(firstJob, JobEventListeners.createNullListeners()).get();
+        Files.write(sourceFile, "second, which is longer".getBytes());
+        jobExecutor.execute(secondJob, JobEventListeners.createNullListeners()).get();
+
+        final Path firstFile = workingDirs
+                .resolve(firstJob.getId().toString())
+                .resolve(firstJob.getId() + "-snapshot")
+                .resolve(sourceFile.getFileName());
+
+        // Only the newest snapshot is kept, but jobs linked from older
+        // snapshots keep their files
+        try (Stream<Path> snapshotDirs = Files.walk(workingDirs.resolve(WDS_DEPENDENCY_SNAPSHOTS_DIRNAME), 2)) {
+            assertThat(snapshotDirs.filter(p -> p.getNameCount() - workingDirs.getNameCount() == 3).count()).isEqualTo(1L);
+        }
+        assertThat(new String(Files.readAllBytes(firstFile))).isEqualTo("first");
+    }
+
     @Test
     public void testWdRemovalConfigEnabledCausesWorkingDirectoriesToBeRemovedAfterTheJobCompletes() throws IOException, InterruptedException, TimeoutException {
         // FIXME: This test is a bit of a hack to get around the job pipeline not being cleanly architected
@@ -190,6 +307,44 @@ public final class LocalJobExecutorTest extends JobExecutorTest {
         assertThat(workingDir.resolve(req.getId().toString()).toFile().exists()).isFalse();
     }
 
+    @Test
+    public void testWdReaperMovesWorkingDirectoriesIntoTheTrashThenDeletesThem() throws IOException, InterruptedException {
+        final Path workingDirs = Files.createTempDirectory(LocalJobExecutorTest.class.getSimpleName());
+        final Path wd = Files.createDirectory(workingDirs.resolve(generateAlphanumStr()));
+        Files.createFile(wd.resolve(generateAlphanumStr()));
+
+        final WorkingDirReaper reaper =
+                LocalJobExecutor.createWdReaper(workingDirs, new RemoveAfterExecutionConfig(true)).get();
+
+        reaper.remove(wd);
+
+        assertThat(wd.toFile().exists()).isFalse();
+
+        final long deadline = System.currentTimeMillis() + TestConstants.DEFAULT_TIMEOUT;
+        while (reaper.getPendingDeletions() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertThat(reaper.getPendingDeletions()).isEqualTo(0);
+        assertThat(workingDirs.resolve(WDS_TRASH_DIRNAME).toFile().list().length).isEqualTo(0);
+    }
+
+    @Test
+    public void testWdReaperDeletesTrashLeftOverFromAPreviousRun() throws IOException, InterruptedException {
+        final Path workingDirs = Files.createTempDirectory(LocalJobExecutorTest.class.getSimpleName());
+        final Path trash = Files.createDirectory(workingDirs.resolve(WDS_TRASH_DIRNAME));
+        Files.createDirectory(trash.resolve(generateAlphanumStr()));
+        Files.createFile(trash.resolve(generateAlphanumStr()));
+
+        final WorkingDirReaper reaper =
+                LocalJobExecutor.createWdReaper(workingDirs, new RemoveAfterExecutionConfig(true)).get();
+
+        final long deadline = System.currentTimeMillis() + TestConstants.DEFAULT_TIMEOUT;
+        while (reaper.getPendingDeletions() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertThat(trash.toFile().list().length).isEqualTo(0);
+    }
+
     @Test
     public void testTemplatedDependencySourceIsResolvedAsATemplateString() throws IOException, InterruptedException, ExecutionException, TimeoutException {
         final String templatedSource = "${request.id}";
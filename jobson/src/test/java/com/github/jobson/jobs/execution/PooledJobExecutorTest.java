@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs.execution;
+
+import com.github.jobson.jobs.*;
+import com.github.jobson.jobs.jobstates.PersistedJob;
+import com.github.jobson.specs.ExecutionConfiguration;
+import com.github.jobson.specs.RawTemplateString;
+import com.github.jobson.utils.CancelablePromise;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.github.jobson.Constants.DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS;
+import static com.github.jobson.TestConstants.DEFAULT_TIMEOUT;
+import static com.github.jobson.TestHelpers.createTmpDir;
+import static com.github.jobson.TestHelpers.generateAlphanumStr;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class PooledJobExecutorTest extends JobExecutorTest {
+
+    // Replies to each job with its own pid (to show that it was reused)
+    // followed by the job's arguments.
+    private static final String ECHO_WORKER =
+            "#!/bin/bash\n" +
+            "while read -r type len; do\n" +
+            "  payload=$(head -c \"$len\")\n" +
+            "  out=\"$$ $payload\"\n" +
+            "  printf 'stdout %d\\n%s' \"${#out}\" \"$out\"\n" +
+            "  printf 'stderr 5\\nerror'\n" +
+            "  printf 'exit 0\\n'\n" +
+            "done\n";
+
+    private static final String SLEEPING_WORKER =
+            "#!/bin/bash\n" +
+            "while read -r type len; do\n" +
+            "  payload=$(head -c \"$len\")\n" +
+            "  sleep 5\n" +
+            "done\n";
+
+    // Sleeps on jobs that have a "sleep" argument, otherwise as ECHO_WORKER
+    private static final String SOMETIMES_SLEEPING_WORKER =
+            "#!/bin/bash\n" +
+            "while read -r type len; do\n" +
+            "  payload=$(head -c \"$len\")\n" +
+            "  if [[ \"$payload\" == *sleep* ]]; then sleep 5; fi\n" +
+            "  out=\"$$ $payload\"\n" +
+            "  printf 'stdout %d\\n%s' \"${#out}\" \"$out\"\n" +
+            "  printf 'exit 0\\n'\n" +
+            "done\n";
+
+
+    private static PooledJobExecutor createPooledExecutor(Path workingDirs) throws IOException {
+        return new PooledJobExecutor(
+                workingDirs,
+                DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS,
+                Optional.empty(),
+                new LocalJobExecutor(workingDirs, DELAY_BEFORE_FORCIBLY_KILLING_JOBS_IN_MILLISECONDS));
+    }
+
+    private static PersistedJob createPooledRequest(String workerScript, int workers, String... args) throws IOException {
+        final Path script = Files.createTempFile(PooledJobExecutorTest.class.getSimpleName(), ".sh");
+        Files.write(script, workerScript.getBytes(UTF_8));
+        script.toFile().setExecutable(true);
+
+        final PersistedJob req = createStandardRequest();
+        final ExecutionConfiguration executionConfiguration = new ExecutionConfiguration(
+                script.toString(),
+                Optional.of(Arrays.stream(args).map(RawTemplateString::new).collect(toList())),
+                Optional.empty(),
+                false,
+                workers);
+
+        return req.withSpec(req.getSpec().withExecutionConfiguration(executionConfiguration));
+    }
+
+    private static String runAndCollectStdout(JobExecutor executor, PersistedJob req) throws Exception {
+        final StringBuilder stdout = new StringBuilder();
+        final PublishSubject<byte[]> stdoutSubject = PublishSubject.create();
+        stdoutSubject.subscribe(bytes -> stdout.append(new String(bytes, UTF_8)));
+
+        final JobExecutionResult result = executor
+                .execute(req, JobEventListeners.createStdoutListener(stdoutSubject))
+                .get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        assertThat(result.getFinalStatus()).isEqualTo(JobStatus.FINISHED);
+        return stdout.toString();
+    }
+
+
+    @Override
+    protected JobExecutor getInstance() {
+        try {
+            return createPooledExecutor(createTmpDir(PooledJobExecutorTest.class));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected JobExecutor getInstance(Path workingDir) {
+        try {
+            return createPooledExecutor(workingDir.relativize(createTmpDir(PooledJobExecutorTest.class)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    @Test
+    public void testPooledJobIsSentToAWorkerAndItsOutputIsRoutedToTheListeners() throws Exception {
+        final PooledJobExecutor executor = createPooledExecutor(createTmpDir(PooledJobExecutorTest.class));
+        final PersistedJob req = createPooledRequest(ECHO_WORKER, 1, "some-arg");
+
+        try {
+            final String stdout = runAndCollectStdout(executor, req);
+
+            assertThat(stdout).contains("some-arg");
+            assertThat(stdout).contains(req.getId().toString());
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testWorkerProcessIsReusedBetweenJobs() throws Exception {
+        final PooledJobExecutor executor = createPooledExecutor(createTmpDir(PooledJobExecutorTest.class));
+        final PersistedJob firstReq = createPooledRequest(ECHO_WORKER, 1);
+        final PersistedJob secondReq = PersistedJob.createFromValidRequest(firstReq, new JobId(generateAlphanumStr()));
+
+        try {
+            final String firstPid = runAndCollectStdout(executor, firstReq).split(" ")[0];
+            final String secondPid = runAndCollectStdout(executor, secondReq).split(" ")[0];
+
+            assertThat(secondPid).isEqualTo(firstPid);
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testCancellingARunningPooledJobResolvesItAsAborted() throws Exception {
+        final PooledJobExecutor executor = createPooledExecutor(createTmpDir(PooledJobExecutorTest.class));
+        final PersistedJob req = createPooledRequest(SLEEPING_WORKER, 1);
+
+        try {
+            final CancelablePromise<JobExecutionResult> p =
+                    executor.execute(req, JobEventListeners.createNullListeners());
+
+            p.cancel(true);
+
+            assertThat(p.get(DEFAULT_TIMEOUT, MILLISECONDS).getFinalStatus()).isEqualTo(JobStatus.ABORTED);
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testJobsAfterAnAbortedJobRunOnAFreshWorker() throws Exception {
+        final PooledJobExecutor executor = createPooledExecutor(createTmpDir(PooledJobExecutorTest.class));
+        final PersistedJob sleepingReq = createPooledRequest(SOMETIMES_SLEEPING_WORKER, 1, "sleep");
+        final PersistedJob nextReq = PersistedJob.createFromValidRequest(
+                createPooledRequest(SOMETIMES_SLEEPING_WORKER, 1),
+                new JobId(generateAlphanumStr()));
+
+        try {
+            final CancelablePromise<JobExecutionResult> p =
+                    executor.execute(sleepingReq, JobEventListeners.createNullListeners());
+            p.cancel(true);
+
+            assertThat(p.get(DEFAULT_TIMEOUT, MILLISECONDS).getFinalStatus()).isEqualTo(JobStatus.ABORTED);
+            assertThat(runAndCollectStdout(executor, nextReq)).contains(nextReq.getId().toString());
+        } finally {
+            executor.stop();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs.management;
+
+import com.github.jobson.jobs.JobEventHistory;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.websockets.v1.JobEvent;
+import com.github.jobson.websockets.v1.SerializedJobEvent;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.jobson.Helpers.readJSON;
+import static com.github.jobson.jobs.JobStatus.RUNNING;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class JobEventHistoryTest {
+
+    private static JobEvent createEvent() {
+        return new JobEvent(new JobId("some-job"), RUNNING);
+    }
+
+    private static List<Long> sequenceNumbersOf(List<SerializedJobEvent> events) {
+        return events.stream().map(SerializedJobEvent::getSequenceNumber).collect(Collectors.toList());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCtorThrowsIfMaxEntriesIsLessThanOne() {
+        new JobEventHistory(0);
+    }
+
+    @Test
+    public void testAppendAssignsIncreasingSequenceNumbersStartingAtOne() {
+        final JobEventHistory history = new JobEventHistory(10);
+
+        assertThat(history.append(createEvent()).getSequenceNumber()).isEqualTo(1);
+        assertThat(history.append(createEvent()).getSequenceNumber()).isEqualTo(2);
+        assertThat(history.getLatestSequenceNumber()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAppendedEventsAreSerializedWithTheirSequenceNumber() throws IOException {
+        final JobEventHistory history = new JobEventHistory(10);
+
+        final SerializedJobEvent event = history.append(createEvent());
+
+        assertThat(readJSON(event.getJson(), JobEvent.class).getSequenceNumber()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAppendedEventsHaveAnEventIdMadeOfTheEpochAndSequenceNumber() {
+        final JobEventHistory history = new JobEventHistory(10, "epoch");
+
+        assertThat(history.append(createEvent()).getEventId()).isEqualTo("epoch-1");
+        assertThat(history.append(createEvent()).getEventId()).isEqualTo("epoch-2");
+    }
+
+    @Test
+    public void testSequenceNumberOfOnlyAcceptsEventIdsFromItsOwnEpoch() {
+        final JobEventHistory history = new JobEventHistory(10, "epoch");
+        final String eventId = history.append(createEvent()).getEventId();
+
+        assertThat(history.sequenceNumberOf(eventId)).contains(1L);
+        assertThat(history.sequenceNumberOf("otherepoch-1")).isNotPresent();
+        assertThat(history.sequenceNumberOf("1")).isNotPresent();
+        assertThat(history.sequenceNumberOf("epoch-notanumber")).isNotPresent();
+    }
+
+    @Test
+    public void testHistoriesHaveDifferentEpochsByDefault() {
+        final String firstEventId = new JobEventHistory(10).append(createEvent()).getEventId();
+        final String secondEventId = new JobEventHistory(10).append(createEvent()).getEventId();
+
+        assertThat(firstEventId).isNotEqualTo(secondEventId);
+    }
+
+    @Test
+    public void testEventsAfterReturnsEventsAfterTheSequenceNumberInOrder() {
+        final JobEventHistory history = new JobEventHistory(10);
+        for (int i = 0; i < 5; i++)
+            history.append(createEvent());
+
+        assertThat(history.eventsAfter(2).map(JobEventHistoryTest::sequenceNumbersOf)).contains(asList(3L, 4L, 5L));
+        assertThat(history.eventsAfter(0).map(JobEventHistoryTest::sequenceNumbersOf)).contains(asList(1L, 2L, 3L, 4L, 5L));
+        assertThat(history.eventsAfter(5).map(List::isEmpty)).contains(true);
+    }
+
+    @Test
+    public void testEventsAfterReturnsEmptyIfTheBufferWasOverrun() {
+        final JobEventHistory history = new JobEventHistory(3);
+        for (int i = 0; i < 5; i++)
+            history.append(createEvent());
+
+        assertThat(history.eventsAfter(1)).isNotPresent();
+        assertThat(history.eventsAfter(2).map(JobEventHistoryTest::sequenceNumbersOf)).contains(asList(3L, 4L, 5L));
+    }
+
+    @Test
+    public void testEventsAfterReturnsEmptyForSequenceNumbersThatWereNeverAssigned() {
+        final JobEventHistory history = new JobEventHistory(10);
+        history.append(createEvent());
+
+        // e.g. the client saw it before the server restarted
+        assertThat(history.eventsAfter(2)).isNotPresent();
+        assertThat(history.eventsAfter(-1)).isNotPresent();
+    }
+}
@@ -19,6 +19,10 @@
 
 package com.github.jobson.jobs.management;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheck;
 import com.github.jobson.Constants;
 import com.github.jobson.TestHelpers;
@@ -26,6 +30,7 @@ import com.github.jobson.dao.jobs.WritingJobDAO;
 import com.github.jobson.jobs.*;
 import com.github.jobson.jobs.jobstates.FinalizedJob;
 import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import com.github.jobson.specs.ExecutionConfiguration;
 import com.github.jobson.specs.JobExpectedOutput;
 import com.github.jobson.specs.JobOutputId;
 import com.github.jobson.specs.JobSpec;
@@ -33,6 +38,7 @@ import com.github.jobson.specs.RawTemplateString;
 import com.github.jobson.utils.CancelablePromise;
 import com.github.jobson.utils.SimpleCancelablePromise;
 import com.github.jobson.websockets.v1.JobEvent;
+import com.github.jobson.websockets.v1.SerializedJobEvent;
 import io.reactivex.Observable;
 import io.reactivex.Observer;
 import io.reactivex.annotations.NonNull;
@@ -43,17 +49,18 @@ import io.reactivex.subjects.Subject;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
-import static com.github.jobson.Constants.JOB_MANAGER_JOB_QUEUE_OVERFLOW_HEALTHCHECK;
-import static com.github.jobson.Constants.JOB_MANAGER_MAX_JOB_QUEUE_OVERFLOW_THRESHOLD;
+import static com.github.jobson.Constants.*;
 import static com.github.jobson.TestConstants.DEFAULT_TIMEOUT;
 import static com.github.jobson.TestHelpers.STANDARD_VALID_REQUEST;
 import static com.github.jobson.TestHelpers.generateRandomBytes;
@@ -65,6 +72,8 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
 
 public final class JobManagerTest {
 
@@ -161,6 +170,90 @@ public final class JobManagerTest {
 
 
 
+    @Test
+    public void testSerializedJobStatusChangesSerializesEachEventOnceForAllSubscribers() throws InterruptedException, ExecutionException, TimeoutException {
+        final JobManager jobManager = createStandardManager();
+
+        final List<SerializedJobEvent> firstSubscriberEvents = new ArrayList<>();
+        final List<SerializedJobEvent> secondSubscriberEvents = new ArrayList<>();
+        jobManager.serializedJobStatusChanges().subscribe(firstSubscriberEvents::add);
+        jobManager.serializedJobStatusChanges().subscribe(secondSubscriberEvents::add);
+
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        assertThat(firstSubscriberEvents).hasSize(3);
+        assertThat(secondSubscriberEvents).hasSize(3);
+        for (int i = 0; i < firstSubscriberEvents.size(); i++) {
+            assertThat(firstSubscriberEvents.get(i).getJson()).isSameAs(secondSubscriberEvents.get(i).getJson());
+        }
+    }
+
+    @Test
+    public void testJobStatusChangesCarryTheOwnerAndSpecOfTheJob() throws InterruptedException, ExecutionException, TimeoutException {
+        final JobManager jobManager = createStandardManager();
+
+        final List<JobEvent> events = new ArrayList<>();
+        jobManager.allJobStatusChanges().subscribe(events::add);
+
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        assertThat(events).isNotEmpty();
+        for (JobEvent event : events) {
+            assertThat(event.getOwner()).contains(STANDARD_VALID_REQUEST.getOwner());
+            assertThat(event.getSpecId()).contains(STANDARD_VALID_REQUEST.getSpec().getId());
+        }
+    }
+
+    @Test
+    public void testJobStatusChangesHaveIncreasingSequenceNumbers() throws InterruptedException, ExecutionException, TimeoutException {
+        final JobManager jobManager = createStandardManager();
+
+        final List<Long> sequenceNumbers = new ArrayList<>();
+        jobManager.allJobStatusChanges()
+                .map(JobEvent::getSequenceNumber)
+                .subscribe(sequenceNumbers::add);
+
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        assertThat(sequenceNumbers).isEqualTo(asList(1L, 2L, 3L));
+    }
+
+    @Test
+    public void testSerializedJobStatusChangesAfterReplaysMissedEventsThenLiveEvents() throws InterruptedException, ExecutionException, TimeoutException {
+        final JobManager jobManager = createStandardManager();
+        final List<String> eventIds = new ArrayList<>();
+        jobManager.serializedJobStatusChanges().map(SerializedJobEvent::getEventId).subscribe(eventIds::add);
+
+        // Emitted before resuming
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        final List<Long> sequenceNumbers = new ArrayList<>();
+        jobManager.serializedJobStatusChangesAfter(eventIds.get(0))
+                .get()
+                .map(SerializedJobEvent::getSequenceNumber)
+                .subscribe(sequenceNumbers::add);
+
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        assertThat(sequenceNumbers).isEqualTo(asList(2L, 3L, 4L, 5L, 6L));
+    }
+
+    @Test
+    public void testSerializedJobStatusChangesAfterReturnsEmptyForUnknownEventIds() throws InterruptedException, ExecutionException, TimeoutException {
+        final JobManager jobManager = createStandardManager();
+        final List<String> eventIds = new ArrayList<>();
+        jobManager.serializedJobStatusChanges().map(SerializedJobEvent::getEventId).subscribe(eventIds::add);
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        final String epoch = eventIds.get(0).substring(0, eventIds.get(0).lastIndexOf('-'));
+
+        assertThat(jobManager.serializedJobStatusChangesAfter(epoch + "-100")).isNotPresent();
+        assertThat(jobManager.serializedJobStatusChangesAfter("1")).isNotPresent();
+        // e.g. issued before the server restarted, when sequence numbers started again at 1
+        assertThat(jobManager.serializedJobStatusChangesAfter("someotherepoch-1")).isNotPresent();
+        assertThat(jobManager.serializedJobStatusChangesAfter(eventIds.get(0))).isPresent();
+    }
+
     @Test
     public void testGetStdoutUpdatesReturnsEmptyForNonExistentJob() {
         final JobManager jobManager = createStandardManager();
@@ -210,6 +303,7 @@ public final class JobManagerTest {
 
         final byte[] bytesExpected = TestHelpers.generateRandomBytes();
         stdoutSubject.onNext(bytesExpected);
+        stdoutSubject.onComplete();
 
         executorPromise.complete(new JobExecutionResult(FINISHED));
 
@@ -220,6 +314,28 @@ public final class JobManagerTest {
 
 
 
+    @Test
+    public void testGetStdoutUpdatesOnlySendsOutputWrittenAfterSubscribing() {
+        final Subject<byte[]> stdoutSubject = PublishSubject.create();
+        final JobExecutor executor =
+                MockJobExecutor.thatUses(new SimpleCancelablePromise<>(), stdoutSubject, PublishSubject.create());
+        final JobManager jobManager = createManagerWith(executor);
+
+        final JobId jobId = jobManager.submit(STANDARD_VALID_REQUEST).getLeft();
+
+        final byte[] bytesWrittenEarly = TestHelpers.generateRandomBytes();
+        stdoutSubject.onNext(bytesWrittenEarly);
+
+        final List<byte[]> bytesFromObservable = new ArrayList<>();
+        jobManager.stdoutUpdates(jobId).get().subscribe(bytesFromObservable::add);
+
+        final byte[] bytesWrittenLate = TestHelpers.generateRandomBytes();
+        stdoutSubject.onNext(bytesWrittenLate);
+
+        assertThat(bytesFromObservable).containsExactly(bytesWrittenLate);
+        assertThat(jobManager.stdoutTail(jobId, bytesWrittenLate.length).get()).isEqualTo(bytesWrittenLate);
+    }
+
     @Test
     public void testGetStderrUpdatesReturnsEmptyForNonExistentJob() {
         final JobManager jobManager = createStandardManager();
@@ -269,6 +385,7 @@ public final class JobManagerTest {
 
         final byte[] bytesExpected = TestHelpers.generateRandomBytes();
         stderrSubject.onNext(bytesExpected);
+        stderrSubject.onComplete();
 
         executorPromise.complete(new JobExecutionResult(FINISHED));
 
@@ -277,6 +394,27 @@ public final class JobManagerTest {
         assertThat(bytesFromObservable.get()).isEqualTo(bytesExpected);
     }
 
+    @Test
+    public void testJobLogsAreFinalizedOnlyOnceTheJobsStdioHasBeenWrittenWithoutHoldingBackCompletion() throws InterruptedException, ExecutionException, TimeoutException {
+        final CancelablePromise<JobExecutionResult> executorPromise = new SimpleCancelablePromise<>();
+        final Subject<byte[]> stdoutSubject = PublishSubject.create();
+        final MockInMemoryJobWriter writer = new MockInMemoryJobWriter();
+        final JobManager jobManager = createManagerWith(
+                writer,
+                MockJobExecutor.thatUses(executorPromise, stdoutSubject, Observable.just(TestHelpers.generateRandomBytes())));
+
+        final Pair<JobId, CancelablePromise<FinalizedJob>> ret = jobManager.submit(STANDARD_VALID_REQUEST);
+
+        // The process exiting is not enough: its stdout may still be draining
+        executorPromise.complete(new JobExecutionResult(FINISHED));
+        assertThat(ret.getRight().get(DEFAULT_TIMEOUT, MILLISECONDS).getFinalStatus()).isEqualTo(FINISHED);
+        assertThat(writer.getFinalizeLogsCalledWith()).isEmpty();
+
+        stdoutSubject.onComplete();
+
+        assertThat(writer.getFinalizeLogsCalledWith()).containsExactly(ret.getLeft());
+    }
+
 
 
     // Submit /w listeners
@@ -597,6 +735,45 @@ public final class JobManagerTest {
         assertThat(jobQueueHealthCheck.execute().isHealthy()).isFalse();
     }
 
+    @Test
+    public void testGetMetricsRecordsTheJobLifecycle() throws InterruptedException, ExecutionException, TimeoutException {
+        final byte[] stdout = generateRandomBytes();
+        final JobManager jobManager = createManagerWith(
+                MockJobExecutor.thatResolvesWith(new JobExecutionResult(FINISHED), stdout, new byte[0]));
+        final Map<String, Metric> metrics = jobManager.getMetrics();
+
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        for (String timerName : asList(
+                JOB_MANAGER_QUEUE_WAIT_METRIC_NAME,
+                JOB_MANAGER_SPAWN_METRIC_NAME,
+                JOB_MANAGER_RUN_METRIC_NAME,
+                JOB_MANAGER_OUTPUT_FINALIZATION_METRIC_NAME)) {
+            assertThat(((Timer) metrics.get(timerName)).getCount()).isEqualTo(1);
+        }
+        assertThat(((Meter) metrics.get(JOB_MANAGER_STDOUT_BYTES_METRIC_NAME)).getCount()).isEqualTo(stdout.length);
+        assertThat(((Gauge<?>) metrics.get(JOB_MANAGER_RUNNING_JOBS_METRIC_NAME)).getValue()).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetMetricsCountsSubscribersToJobUpdates() {
+        final Subject<byte[]> stdout = PublishSubject.create();
+        final JobManager jobManager = createManagerWith(
+                MockJobExecutor.thatUses(new SimpleCancelablePromise<>(), stdout, PublishSubject.create()));
+        final Gauge<?> subscribers = (Gauge<?>) jobManager.getMetrics().get(JOB_MANAGER_SUBSCRIBERS_METRIC_NAME);
+
+        final JobId jobId = jobManager.submit(STANDARD_VALID_REQUEST).getLeft();
+        final Disposable eventsSubscription = jobManager.allJobStatusChanges().subscribe();
+        jobManager.stdoutUpdates(jobId).get().subscribe();
+
+        assertThat(subscribers.getValue()).isEqualTo(2);
+
+        eventsSubscription.dispose();
+        stdout.onComplete();
+
+        assertThat(subscribers.getValue()).isEqualTo(0);
+    }
+
     @Test
     public void testJobManagerAdvancesJobQueueOnceAJobFinishesExecuting() throws InterruptedException, ExecutionException, TimeoutException {
         final AtomicBoolean isFirst = new AtomicBoolean(true);
@@ -621,4 +798,178 @@ public final class JobManagerTest {
         secondExecutionPromise.complete(new JobExecutionResult(FINISHED));
         secondJobPromise.get(1, TimeUnit.SECONDS);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSubmitDoesNotLaunchTheJobOnTheSubmittingThreadIfGivenALauncher() {
+        final List<Runnable> launchTasks = new ArrayList<>();
+        final MockInMemoryJobWriter writer = new MockInMemoryJobWriter();
+        final JobManager jobManager = new JobManager(
+                writer,
+                MockJobExecutor.thatResolvesWith(new JobExecutionResult(FINISHED)),
+                Constants.MAX_CONCURRENT_JOBS,
+                launchTasks::add);
+
+        final List<JobStatus> statusesEmitted = new ArrayList<>();
+        jobManager.allJobStatusChanges()
+                .map(JobEvent::getNewStatus)
+                .subscribe(statusesEmitted::add);
+
+        final JobId jobId = jobManager.submit(STANDARD_VALID_REQUEST).getLeft();
+
+        assertThat(jobId).isNotNull();
+        assertThat(writer.getPersistCalledWith()).isPresent();
+        assertThat(statusesEmitted).isEqualTo(asList(SUBMITTED));
+        assertThat(launchTasks).hasSize(1);
+
+        launchTasks.remove(0).run();
+
+        assertThat(statusesEmitted).isEqualTo(asList(SUBMITTED, RUNNING, FINISHED));
+    }
+
+    @Test
+    public void testSubmitAllPersistsAndRunsEveryRequest() throws InterruptedException, ExecutionException, TimeoutException {
+        final JobManager jobManager = createStandardManager();
+
+        final List<Pair<JobId, CancelablePromise<FinalizedJob>>> ret =
+                jobManager.submitAll(asList(STANDARD_VALID_REQUEST, STANDARD_VALID_REQUEST, STANDARD_VALID_REQUEST));
+
+        assertThat(ret).hasSize(3);
+
+        for (Pair<JobId, CancelablePromise<FinalizedJob>> submission : ret) {
+            assertThat(submission.getRight().get(DEFAULT_TIMEOUT, MILLISECONDS).getFinalStatus()).isEqualTo(FINISHED);
+        }
+    }
+
+    @Test
+    public void testSubmitAllRemovesAlreadyPersistedJobsIfPersistingFailsPartWay() {
+        final MockInMemoryJobWriter writer = new MockInMemoryJobWriter();
+        final WritingJobDAO dao = mock(WritingJobDAO.class);
+        final AtomicInteger persists = new AtomicInteger(0);
+        when(dao.persist(any())).thenAnswer(invocation -> {
+            if (persists.incrementAndGet() == 3) throw new RuntimeException("disk full");
+            return writer.persist((ValidJobRequest) invocation.getArguments()[0]);
+        });
+        final JobManager jobManager = createManagerWith(dao);
+
+        try {
+            jobManager.submitAll(asList(STANDARD_VALID_REQUEST, STANDARD_VALID_REQUEST, STANDARD_VALID_REQUEST));
+            fail("submitAll should have thrown");
+        } catch (RuntimeException ex) {
+            assertThat(ex).hasMessage("disk full");
+        }
+
+        verify(dao, times(2)).remove(any());
+        verify(dao, never()).addNewJobStatus(any(), any(), any());
+    }
+
+    @Test
+    public void testSubmittingACacheableRequestTwiceReusesTheFirstJobsResults() throws InterruptedException, ExecutionException, TimeoutException {
+        final MockInMemoryJobWriter writer = new MockInMemoryJobWriter();
+        final AtomicInteger executions = new AtomicInteger(0);
+        final JobExecutor executor = (persistedJob, listeners) -> {
+            executions.incrementAndGet();
+            listeners.getOnStdoutListener().onComplete();
+            listeners.getOnStderrListener().onComplete();
+            final SimpleCancelablePromise<JobExecutionResult> p = new SimpleCancelablePromise<>();
+            p.complete(new JobExecutionResult(FINISHED));
+            return p;
+        };
+        final JobManager jobManager = new JobManager(
+                writer,
+                executor,
+                Constants.MAX_CONCURRENT_JOBS,
+                Runnable::run,
+                new JobResultCache(10, Duration.ofMinutes(1)));
+
+        final ValidJobRequest cacheableRequest = STANDARD_VALID_REQUEST.withSpec(
+                STANDARD_VALID_REQUEST.getSpec().withExecutionConfiguration(new ExecutionConfiguration(
+                        "echo", Optional.empty(), Optional.empty(), true)));
+
+        final FinalizedJob first = jobManager.submit(cacheableRequest).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+        final Pair<JobId, CancelablePromise<FinalizedJob>> second = jobManager.submit(cacheableRequest);
+
+        assertThat(second.getRight().get(DEFAULT_TIMEOUT, MILLISECONDS).getFinalStatus()).isEqualTo(FINISHED);
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(writer.getLinkResultsCalledWith()).containsExactly(second.getLeft());
+        assertThat(second.getLeft()).isNotEqualTo(first.getId());
+    }
+
+    @Test
+    public void testResultsAreReusedOnTheJobLauncherRatherThanTheSubmittingThread() throws InterruptedException, ExecutionException, TimeoutException {
+        final MockInMemoryJobWriter writer = new MockInMemoryJobWriter();
+        final List<Runnable> launchTasks = new ArrayList<>();
+        final JobManager jobManager = new JobManager(
+                writer,
+                MockJobExecutor.thatResolvesWith(new JobExecutionResult(FINISHED)),
+                Constants.MAX_CONCURRENT_JOBS,
+                launchTasks::add,
+                new JobResultCache(10, Duration.ofMinutes(1)));
+
+        final ValidJobRequest cacheableRequest = STANDARD_VALID_REQUEST.withSpec(
+                STANDARD_VALID_REQUEST.getSpec().withExecutionConfiguration(new ExecutionConfiguration(
+                        "echo", Optional.empty(), Optional.empty(), true)));
+
+        final CancelablePromise<FinalizedJob> first = jobManager.submit(cacheableRequest).getRight();
+        while (!launchTasks.isEmpty()) launchTasks.remove(0).run();
+        first.get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        final Pair<JobId, CancelablePromise<FinalizedJob>> second = jobManager.submit(cacheableRequest);
+
+        assertThat(writer.getLinkResultsCalledWith()).isEmpty();
+
+        while (!launchTasks.isEmpty()) launchTasks.remove(0).run();
+
+        assertThat(writer.getLinkResultsCalledWith()).containsExactly(second.getLeft());
+        assertThat(second.getRight().get(DEFAULT_TIMEOUT, MILLISECONDS).getFinalStatus()).isEqualTo(FINISHED);
+    }
+
+    @Test
+    public void testAJobWhoseCachedResultsAreUnavailableRunsInItsOriginalPlaceInTheQueue() throws InterruptedException, ExecutionException, TimeoutException {
+        final MockInMemoryJobWriter writer = new MockInMemoryJobWriter();
+        final List<JobId> executed = new ArrayList<>();
+        final JobExecutor executor = (persistedJob, listeners) -> {
+            executed.add(persistedJob.getId());
+            final SimpleCancelablePromise<JobExecutionResult> p = new SimpleCancelablePromise<>();
+            p.complete(new JobExecutionResult(FINISHED));
+            return p;
+        };
+        final List<Runnable> launchTasks = new ArrayList<>();
+        final JobManager jobManager = new JobManager(
+                writer,
+                executor,
+                1,
+                launchTasks::add,
+                new JobResultCache(10, Duration.ofMinutes(1)));
+
+        final ValidJobRequest cacheableRequest = STANDARD_VALID_REQUEST.withSpec(
+                STANDARD_VALID_REQUEST.getSpec().withExecutionConfiguration(new ExecutionConfiguration(
+                        "echo", Optional.empty(), Optional.empty(), true)));
+
+        final JobId first = jobManager.submit(cacheableRequest).getLeft();
+        while (!launchTasks.isEmpty()) launchTasks.remove(0).run();
+
+        writer.setLinkResultsSucceeds(false);
+        final JobId second = jobManager.submit(cacheableRequest).getLeft();
+        final JobId third = jobManager.submit(STANDARD_VALID_REQUEST).getLeft();
+        while (!launchTasks.isEmpty()) launchTasks.remove(0).run();
+
+        assertThat(writer.getLinkResultsCalledWith()).containsExactly(second);
+        assertThat(executed).containsExactly(first, second, third);
+    }
+
+    @Test
+    public void testRequestsThatAreNotCacheableAreAlwaysExecuted() throws InterruptedException, ExecutionException, TimeoutException {
+        final MockInMemoryJobWriter writer = new MockInMemoryJobWriter();
+        final JobManager jobManager = new JobManager(
+                writer,
+                MockJobExecutor.thatResolvesWith(new JobExecutionResult(FINISHED)),
+                Constants.MAX_CONCURRENT_JOBS,
+                Runnable::run,
+                new JobResultCache(10, Duration.ofMinutes(1)));
+
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+        jobManager.submit(STANDARD_VALID_REQUEST).getRight().get(DEFAULT_TIMEOUT, MILLISECONDS);
+
+        assertThat(writer.getLinkResultsCalledWith()).isEmpty();
+    }
+}
@@ -34,8 +34,6 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.github.jobson.TestHelpers.generateJobId;
-import static com.github.jobson.TestHelpers.generateJobStatusChangeTimestamp;
-import static java.util.Collections.singletonList;
 
 public final class MockInMemoryJobWriter implements WritingJobDAO {
 
@@ -48,6 +46,9 @@ public final class MockInMemoryJobWriter implements WritingJobDAO {
     private PersistedJob returnedPersistedReq;
     private List<PersistOutputArgs> persistOutputCalledWith = new ArrayList<>();
     private List<AddNewJobStatusArgs> addNewJobStatusArgsCalledWith = new ArrayList<>();
+    private List<JobId> linkResultsCalledWith = new ArrayList<>();
+    private List<JobId> finalizeLogsCalledWith = new ArrayList<>();
+    private boolean linkResultsSucceeds = true;
 
 
     @Override
@@ -79,13 +80,8 @@ public final class MockInMemoryJobWriter implements WritingJobDAO {
     @Override
     public PersistedJob persist(ValidJobRequest validJobRequest) {
         persistCalledWith = Optional.of(validJobRequest);
-        returnedPersistedReq = new PersistedJob(
-                generateJobId(),
-                validJobRequest.getOwner(),
-                validJobRequest.getName(),
-                validJobRequest.getInputs(),
-                singletonList(generateJobStatusChangeTimestamp()),
-                validJobRequest.getSpec());
+        // As the real DAOs do, so that the job has a SUBMITTED timestamp
+        returnedPersistedReq = PersistedJob.createFromValidRequest(validJobRequest, generateJobId());
         return returnedPersistedReq;
     }
 
@@ -99,6 +95,17 @@ public final class MockInMemoryJobWriter implements WritingJobDAO {
         persistOutputCalledWith.add(new PersistOutputArgs(jobId, jobOutput.getId(), jobOutput.getData()));
     }
 
+    @Override
+    public boolean linkResults(JobId sourceJobId, JobId targetJobId) {
+        linkResultsCalledWith.add(targetJobId);
+        return linkResultsSucceeds;
+    }
+
+    @Override
+    public void finalizeLogs(JobId jobId) {
+        finalizeLogsCalledWith.add(jobId);
+    }
+
     @Override
     public void remove(JobId jobId) {
 
@@ -136,4 +143,16 @@ public final class MockInMemoryJobWriter implements WritingJobDAO {
     public List<AddNewJobStatusArgs> getAddNewJobStatusArgsCalledWith() {
         return addNewJobStatusArgsCalledWith;
     }
+
+    public List<JobId> getLinkResultsCalledWith() {
+        return linkResultsCalledWith;
+    }
+
+    public List<JobId> getFinalizeLogsCalledWith() {
+        return finalizeLogsCalledWith;
+    }
+
+    public void setLinkResultsSucceeds(boolean linkResultsSucceeds) {
+        this.linkResultsSucceeds = linkResultsSucceeds;
+    }
 }
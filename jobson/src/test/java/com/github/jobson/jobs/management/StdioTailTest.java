@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.jobs.management;
+
+import com.github.jobson.jobs.StdioChunk;
+import com.github.jobson.jobs.StdioTail;
+import io.reactivex.observers.TestObserver;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class StdioTailTest {
+
+    @Test
+    public void testChunksFromSendsTheHeldOutputBeforeLiveOutput() {
+        final StdioTail tail = new StdioTail(100);
+        tail.onNext(new byte[]{1, 2});
+        tail.onNext(new byte[]{3});
+
+        final TestObserver<StdioChunk> observer = tail.chunksFrom(0).test();
+        tail.onNext(new byte[]{4, 5});
+        tail.onComplete();
+
+        observer.assertComplete();
+        assertThat(observer.values()).extracting(StdioChunk::getOffset).containsExactly(0L, 3L);
+        assertThat(observer.values().get(0).getData()).isEqualTo(new byte[]{1, 2, 3});
+        assertThat(observer.values().get(1).getData()).isEqualTo(new byte[]{4, 5});
+    }
+
+    @Test
+    public void testChunksFromResumesFromTheOffset() {
+        final StdioTail tail = new StdioTail(100);
+        tail.onNext(new byte[]{1, 2, 3});
+
+        final TestObserver<StdioChunk> observer = tail.chunksFrom(2).test();
+
+        assertThat(observer.values()).hasSize(1);
+        assertThat(observer.values().get(0).getOffset()).isEqualTo(2);
+        assertThat(observer.values().get(0).getData()).isEqualTo(new byte[]{3});
+    }
+
+    @Test
+    public void testChunksFromSendsAGapChunkIfTheOffsetWasEvicted() {
+        final StdioTail tail = new StdioTail(2);
+        tail.onNext(new byte[]{1, 2, 3});
+
+        final TestObserver<StdioChunk> observer = tail.chunksFrom(0).test();
+
+        assertThat(observer.values()).extracting(StdioChunk::isGap).containsExactly(true, false);
+        assertThat(observer.values().get(0).getOffset()).isEqualTo(0);
+        assertThat(observer.values().get(0).getEndOffset()).isEqualTo(1);
+        assertThat(observer.values().get(1).getOffset()).isEqualTo(1);
+        assertThat(observer.values().get(1).getData()).isEqualTo(new byte[]{2, 3});
+    }
+
+    @Test
+    public void testLiveChunksOnlySendsOutputWrittenAfterSubscribing() {
+        final StdioTail tail = new StdioTail(100);
+        tail.onNext(new byte[]{1, 2});
+
+        final TestObserver<StdioChunk> observer = tail.liveChunks().test();
+        tail.onNext(new byte[]{3});
+
+        assertThat(observer.values()).extracting(StdioChunk::getOffset).containsExactly(2L);
+        assertThat(observer.values()).extracting(StdioChunk::isGap).containsExactly(false);
+    }
+
+    @Test
+    public void testChunksFromOnlySendsLiveOutputIfNothingIsHeldFromTheOffset() {
+        final StdioTail tail = new StdioTail(100);
+        tail.onNext(new byte[]{1, 2});
+
+        final TestObserver<StdioChunk> observer = tail.chunksFrom(2).test();
+        tail.onNext(new byte[]{3});
+
+        assertThat(observer.values()).extracting(StdioChunk::getOffset).containsExactly(2L);
+    }
+
+    @Test
+    public void testTailReturnsTheLastBytes() {
+        final StdioTail tail = new StdioTail(4);
+        tail.onNext(new byte[]{1, 2, 3});
+
+        assertThat(tail.tail(2).get()).isEqualTo(new byte[]{2, 3});
+        assertThat(tail.tail(10).get()).isEqualTo(new byte[]{1, 2, 3});  // nothing evicted yet
+
+        tail.onNext(new byte[]{4, 5});
+
+        assertThat(tail.tail(4).get()).isEqualTo(new byte[]{2, 3, 4, 5});
+        assertThat(tail.tail(5)).isNotPresent();
+    }
+}
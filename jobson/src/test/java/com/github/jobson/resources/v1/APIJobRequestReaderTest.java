@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.jobson.resources.v1;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.github.jobson.Helpers;
+import com.github.jobson.TestHelpers;
+import com.github.jobson.api.v1.APIJobRequest;
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.jobinputs.JobExpectedInputId;
+import com.github.jobson.jobinputs.JobInput;
+import com.github.jobson.jobinputs.select.SelectInput;
+import com.github.jobson.jobinputs.sql.SQLInput;
+import com.github.jobson.jobs.jobstates.ValidJobRequest;
+import com.github.jobson.specs.JobSpec;
+import com.github.jobson.utils.EitherVisitorT;
+import com.github.jobson.utils.ValidationError;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static junit.framework.TestCase.fail;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class APIJobRequestReaderTest {
+
+    private static final JobSpec SPEC =
+            TestHelpers.readJSONFixture("fixtures/specs/1_valid-job-schema.json", JobSpec.class);
+    private static final JobExpectedInputId SQL_INPUT_ID = new JobExpectedInputId("sql-input-schema");
+    private static final JobExpectedInputId SELECT_INPUT_ID = new JobExpectedInputId("foo");
+
+
+    private static APIJobRequest read(String json) throws IOException {
+        try (JsonParser p = Helpers.createJSONParser(new ByteArrayInputStream(json.getBytes(UTF_8)))) {
+            return APIJobRequestReader.read(p, specId -> specId.equals(SPEC.getId()) ? Optional.of(SPEC) : Optional.empty());
+        }
+    }
+
+    private static JobInput resolvedInput(APIJobRequest req, JobExpectedInputId id) {
+        final JobInput[] ret = new JobInput[1];
+        req.getResolvedInputs().get(id).handleBoth(
+                input -> ret[0] = input,
+                error -> fail("Expected " + id + " to be resolved but got: " + error));
+        return ret[0];
+    }
+
+
+    @Test
+    public void testReadReturnsNullForAnEmptyStream() throws IOException {
+        assertThat(read("")).isNull();
+    }
+
+    @Test
+    public void testReadResolvesInputsThatAreInTheSpec() throws IOException {
+        final APIJobRequest req = read("{ \"spec\": \"job-schema-1\", \"name\": \"a name\", \"inputs\": { \"sql-input-schema\": \"select column_1_A from table_1;\", \"foo\": \"a\" } }");
+
+        assertThat(req.getSpec()).isEqualTo(SPEC.getId());
+        assertThat(req.getName()).isEqualTo("a name");
+        assertThat(req.getUnresolvedInputs()).isEmpty();
+        assertThat(resolvedInput(req, SQL_INPUT_ID)).isEqualTo(new SQLInput("select column_1_A from table_1;"));
+        assertThat(resolvedInput(req, SELECT_INPUT_ID)).isEqualTo(new SelectInput("a"));
+    }
+
+    @Test
+    public void testReadDoesNotResolveInputsThatAreNotInTheSpec() throws IOException {
+        final APIJobRequest req = read("{ \"spec\": \"job-schema-1\", \"name\": \"a name\", \"inputs\": { \"not-in-spec\": [1, 2, 3] } }");
+
+        assertThat(req.getResolvedInputs()).isEmpty();
+        assertThat(req.getUnresolvedInputs()).containsKey(new JobExpectedInputId("not-in-spec"));
+    }
+
+    @Test
+    public void testReadDoesNotResolveInputsIfTheyAppearBeforeTheSpec() throws IOException {
+        final APIJobRequest req = read("{ \"inputs\": { \"foo\": \"a\" }, \"spec\": \"job-schema-1\", \"name\": \"a name\" }");
+
+        assertThat(req.getResolvedInputs()).isEmpty();
+        assertThat(req.getUnresolvedInputs()).containsKey(SELECT_INPUT_ID);
+        assertThat(req.getInputs()).containsKey(SELECT_INPUT_ID);
+    }
+
+    @Test
+    public void testReadCarriesOnResolvingInputsAfterAnInvalidInput() throws IOException {
+        final APIJobRequest req = read("{ \"spec\": \"job-schema-1\", \"name\": \"a name\", \"inputs\": { \"sql-input-schema\": { \"nested\": { \"deeper\": [1, {}] } }, \"foo\": \"a\" } }");
+
+        assertThat(req.getResolvedInputs().get(SQL_INPUT_ID)).isNotNull();
+        req.getResolvedInputs().get(SQL_INPUT_ID).handleBoth(
+                input -> fail("An object should not be resolvable into an SQL input"),
+                error -> assertThat(error.getMessage()).isNotEmpty());
+        assertThat(resolvedInput(req, SELECT_INPUT_ID)).isEqualTo(new SelectInput("a"));
+    }
+
+    @Test(expected = UnrecognizedPropertyException.class)
+    public void testReadThrowsIfTheRequestContainsAnUnknownField() throws IOException {
+        read("{ \"spec\": \"job-schema-1\", \"name\": \"a name\", \"inputs\": {}, \"bogus\": 1 }");
+    }
+
+    @Test
+    public void testGetInputsIncludesResolvedInputsAsJSON() throws IOException {
+        final APIJobRequest req = read("{ \"spec\": \"job-schema-1\", \"name\": \"a name\", \"inputs\": { \"foo\": \"a\" } }");
+
+        final Map<JobExpectedInputId, ?> inputs = req.getInputs();
+
+        assertThat(inputs).containsKey(SELECT_INPUT_ID);
+        assertThat(inputs.get(SELECT_INPUT_ID)).isEqualTo(Helpers.toJSONNode(new SelectInput("a")));
+    }
+
+    @Test
+    public void testAStreamedRequestValidatesTheSameAsATreeReadRequest() throws IOException {
+        final String json = fixture("fixtures/specs/1_valid-job-request-against-schema.json");
+        final UserId userId = TestHelpers.generateUserId();
+
+        final APIJobRequest streamed = read(json);
+        final APIJobRequest treeRead = Helpers.readJSON(json, APIJobRequest.class);
+
+        final ValidJobRequest fromStreamed = ValidJobRequest.tryCreate(SPEC, userId, streamed).visit(
+                new EitherVisitorT<ValidJobRequest, List<ValidationError>, ValidJobRequest>() {
+                    @Override
+                    public ValidJobRequest whenLeft(ValidJobRequest left) {
+                        return left;
+                    }
+
+                    @Override
+                    public ValidJobRequest whenRight(List<ValidationError> right) {
+                        throw new AssertionError(right.toString());
+                    }
+                });
+        final ValidJobRequest fromTreeRead = ValidJobRequest.tryCreate(SPEC, userId, treeRead).visit(
+                new EitherVisitorT<ValidJobRequest, List<ValidationError>, ValidJobRequest>() {
+                    @Override
+                    public ValidJobRequest whenLeft(ValidJobRequest left) {
+                        return left;
+                    }
+
+                    @Override
+                    public ValidJobRequest whenRight(List<ValidationError> right) {
+                        throw new AssertionError(right.toString());
+                    }
+                });
+
+        assertThat(fromStreamed.getInputs()).isEqualTo(fromTreeRead.getInputs());
+    }
+}
@@ -20,6 +20,8 @@
 package com.github.jobson.resources.v1;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
 import com.github.jobson.Constants;
 import com.github.jobson.HttpStatusCodes;
 import com.github.jobson.TestHelpers;
@@ -34,6 +36,7 @@ import com.github.jobson.jobinputs.JobInput;
 import com.github.jobson.jobinputs.select.SelectInput;
 import com.github.jobson.jobs.JobId;
 import com.github.jobson.jobs.JobManagerActions;
+import com.github.jobson.jobs.JobManagerEvents;
 import com.github.jobson.jobs.JobStatus;
 import com.github.jobson.jobs.jobstates.FinalizedJob;
 import com.github.jobson.jobs.jobstates.ValidJobRequest;
@@ -50,19 +53,28 @@ import org.mockito.ArgumentCaptor;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.jobson.Constants.HTTP_JOBS_PATH;
+import static com.github.jobson.Constants.MAX_STDIO_TAIL_IN_BYTES;
 import static com.github.jobson.HttpStatusCodes.NOT_FOUND;
 import static com.github.jobson.TestHelpers.*;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
@@ -696,6 +708,103 @@ public final class JobResourceTest {
         assertThat(((SelectInput)jobInput).getValue()).isEqualTo("a");
     }
 
+    @Test
+    public void testSubmitJobsValidatesEveryRequestAgainstASingleSpecLookupAndSubmitsThemTogether() {
+        final JobManagerActions jobManagerActions = mock(JobManagerActions.class);
+        when(jobManagerActions.submitAll(any())).thenAnswer(invocation -> {
+            final List<ValidJobRequest> reqs = (List<ValidJobRequest>) invocation.getArguments()[0];
+            return reqs.stream().map(req -> typicalSubmissionReturn()).collect(toList());
+        });
+        final JobSpecConfigurationDAO jobSpecConfigurationDAO = mockJobSpecDAOThatReturns(generateValidJobSpec());
+
+        final JobResource jobResource = new JobResource(
+                jobManagerActions,
+                mock(JobDAO.class),
+                jobSpecConfigurationDAO,
+                Constants.DEFAULT_PAGE_SIZE);
+
+        final APIJobBatchRequest batch = new APIJobBatchRequest(
+                asList(generateValidJobRequest(), generateValidJobRequest(), generateValidJobRequest()));
+
+        final APIJobBatchCreatedResponse resp =
+                jobResource.submitJobs(TestHelpers.generateSecureSecurityContext(), batch);
+
+        assertThat(resp.getEntries()).hasSize(3);
+        verify(jobSpecConfigurationDAO, times(1)).getJobSpecById(any());
+        verify(jobManagerActions, times(1)).submitAll(any());
+        verify(jobManagerActions, never()).submit(any());
+    }
+
+    @Test
+    public void testSubmitJobsDoesNotSubmitAnythingIfOneRequestIsInvalid() {
+        final JobManagerActions jobManagerActions = mock(JobManagerActions.class);
+        final JobResource jobResource = new JobResource(
+                jobManagerActions,
+                mock(JobDAO.class),
+                mockJobSpecDAOThatReturns(generateValidJobSpec()),
+                Constants.DEFAULT_PAGE_SIZE);
+
+        final APIJobBatchRequest batch = new APIJobBatchRequest(
+                asList(generateValidJobRequest(), generateInvalidJobRequest()));
+
+        try {
+            jobResource.submitJobs(TestHelpers.generateSecureSecurityContext(), batch);
+            fail("Invalid batch should have been rejected");
+        } catch (WebApplicationException ex) {
+            assertThat(ex.getResponse().getStatus()).isEqualTo(400);
+        }
+
+        verify(jobManagerActions, never()).submitAll(any());
+    }
+
+    @Test
+    public void testAPIJobBatchRequestExpandsTemplateIntoOneRequestPerParameterCombination() {
+        final APIJobRequest template = generateValidJobRequest();
+        final Map<JobExpectedInputId, List<JsonNode>> parameters = new LinkedHashMap<>();
+        parameters.put(new JobExpectedInputId("a"), asList(new IntNode(1), new IntNode(2), new IntNode(3)));
+        parameters.put(new JobExpectedInputId("b"), asList(new TextNode("x"), new TextNode("y")));
+
+        final List<APIJobRequest> expanded = new APIJobBatchRequest(template, parameters).expand();
+
+        assertThat(expanded).hasSize(6);
+        assertThat(expanded.stream().map(req -> req.getInputs().get(new JobExpectedInputId("a")).asInt() + req.getInputs().get(new JobExpectedInputId("b")).asText()))
+                .containsExactly("1x", "1y", "2x", "2y", "3x", "3y");
+    }
+
+    @Test
+    public void testSubmitJobsRejectsAHugeParameterMatrixWithoutExpandingIt() {
+        final JobManagerActions jobManagerActions = mock(JobManagerActions.class);
+        final JobResource jobResource = resourceThatUses(jobManagerActions);
+
+        final List<JsonNode> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++) values.add(new IntNode(i));
+        final Map<JobExpectedInputId, List<JsonNode>> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) parameters.put(new JobExpectedInputId("param" + i), values);
+
+        final APIJobBatchRequest batch = new APIJobBatchRequest(generateValidJobRequest(), parameters);
+
+        assertThat(batch.countRequests()).isEqualTo(Long.MAX_VALUE);  // 10^20 overflows
+
+        try {
+            jobResource.submitJobs(TestHelpers.generateSecureSecurityContext(), batch);
+            fail("Huge batch should have been rejected");
+        } catch (WebApplicationException ex) {
+            assertThat(ex.getResponse().getStatus()).isEqualTo(400);
+        }
+
+        verify(jobManagerActions, never()).submitAll(any());
+    }
+
+    @Test
+    public void testAPIJobBatchRequestCountsRequestsWithoutExpanding() {
+        final Map<JobExpectedInputId, List<JsonNode>> parameters = new LinkedHashMap<>();
+        parameters.put(new JobExpectedInputId("a"), asList(new IntNode(1), new IntNode(2), new IntNode(3)));
+        parameters.put(new JobExpectedInputId("b"), asList(new TextNode("x"), new TextNode("y")));
+
+        assertThat(new APIJobBatchRequest(generateValidJobRequest(), parameters).countRequests()).isEqualTo(6);
+        assertThat(new APIJobBatchRequest(asList(generateValidJobRequest(), generateValidJobRequest())).countRequests()).isEqualTo(2);
+    }
+
     private APIJobRequest getJobRequestWithMissingButDefaultedArg() {
         return TestHelpers.readJSONFixture(
                 "fixtures/resources/2_valid-job-request-without-defaulted-arg.json",
@@ -757,7 +866,7 @@ public final class JobResourceTest {
     @Test(expected = WebApplicationException.class)
     public void testGetJobStdoutByIdThrowsWebApplicationExceptionIfNoJobIdIsProvided() {
         final JobResource jobResource = mockedJobResource();
-        jobResource.fetchJobStdoutById(TestHelpers.generateSecureSecurityContext(), null);
+        jobResource.fetchJobStdoutById(TestHelpers.generateSecureSecurityContext(), null, null, null);
     }
 
     @Test
@@ -768,7 +877,7 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response jobStdoutResponse =
-                jobResource.fetchJobStdoutById(TestHelpers.generateSecureSecurityContext(), TestHelpers.generateJobId());
+                jobResource.fetchJobStdoutById(TestHelpers.generateSecureSecurityContext(), TestHelpers.generateJobId(), null, null);
 
         assertThat(jobStdoutResponse.getStatus()).isEqualTo(NOT_FOUND);
     }
@@ -783,7 +892,9 @@ public final class JobResourceTest {
 
         final Response response = jobResource.fetchJobStdoutById(
                 TestHelpers.generateSecureSecurityContext(),
-                TestHelpers.generateJobId());
+                TestHelpers.generateJobId(),
+                null,
+                null);
 
         assertThat(response.getStatus()).isEqualTo(HttpStatusCodes.OK);
         assertThat(response.getHeaderString("Content-Type")).isEqualTo("application/octet-stream");
@@ -802,7 +913,7 @@ public final class JobResourceTest {
     @Test(expected = WebApplicationException.class)
     public void testGetJobStderrByIdThrowsWebApplicationExceptionIfNoJobIdProvided() {
         final JobResource jobResource = mockedJobResource();
-        jobResource.fetchJobStderrById(TestHelpers.generateSecureSecurityContext(), null);
+        jobResource.fetchJobStderrById(TestHelpers.generateSecureSecurityContext(), null, null, null);
     }
 
     @Test
@@ -812,7 +923,7 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response response =
-                jobResource.fetchJobStderrById(TestHelpers.generateSecureSecurityContext(), TestHelpers.generateJobId());
+                jobResource.fetchJobStderrById(TestHelpers.generateSecureSecurityContext(), TestHelpers.generateJobId(), null, null);
 
         assertThat(response.getStatus()).isEqualTo(NOT_FOUND);
     }
@@ -826,7 +937,7 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response response =
-                jobResource.fetchJobStderrById(TestHelpers.generateSecureSecurityContext(), TestHelpers.generateJobId());
+                jobResource.fetchJobStderrById(TestHelpers.generateSecureSecurityContext(), TestHelpers.generateJobId(), null, null);
 
         assertThat(response.getStatus()).isEqualTo(HttpStatusCodes.OK);
         assertThat(response.getHeaderString("Content-Type")).isEqualTo("application/octet-stream");
@@ -925,7 +1036,7 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response ret =
-                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId());
+                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId(), null);
     }
 
     @Test(expected = WebApplicationException.class)
@@ -937,7 +1048,7 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response ret =
-                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(),  generateJobOutputId());
+                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(),  generateJobOutputId(), null);
     }
 
     @Test
@@ -950,7 +1061,7 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response ret =
-                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId());
+                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId(), null);
 
         assertThat(ret.getStatus()).isEqualTo(200);
     }
@@ -966,7 +1077,7 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response ret =
-                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId());
+                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId(), null);
 
         assertThat(ret.getHeaderString("Content-Type")).isEqualTo(mimeType);
     }
@@ -986,11 +1097,210 @@ public final class JobResourceTest {
         final JobResource jobResource = resourceThatUses(jobDAO);
 
         final Response ret =
-                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId());
+                jobResource.fetchJobOutput(generateSecureSecurityContext(), generateJobId(), generateJobOutputId(), null);
 
         assertThat(ret.getHeaderString("Content-Encoding")).isEqualTo("identity");
     }
 
+    @Test
+    public void testGetJobStdoutByIdPassesGzippedDataThroughIfClientAcceptsGzip() throws IOException {
+        final byte[] stdoutRawData = TestHelpers.generateRandomBytes();
+        final byte[] gzippedData = gzip(stdoutRawData);
+        final JobDAO jobDAO = mock(JobDAO.class);
+        when(jobDAO.getStdout(any())).thenReturn(Optional.of(gzippedBinaryData(gzippedData)));
+        final JobResource jobResource = resourceThatUses(jobDAO);
+
+        for (String acceptEncoding : asList("deflate, gzip;q=0.8", "*", "*;q=0, gzip")) {
+            when(jobDAO.getStdout(any())).thenReturn(Optional.of(gzippedBinaryData(gzippedData)));
+
+            final Response response = jobResource.fetchJobStdoutById(
+                    TestHelpers.generateSecureSecurityContext(),
+                    TestHelpers.generateJobId(),
+                    null,
+                    acceptEncoding);
+
+            assertThat(response.getHeaderString("Content-Encoding")).isEqualTo("gzip");
+            assertThat(response.getHeaderString("Content-Length")).isEqualTo(Long.toString(gzippedData.length));
+            assertThat(readAsByteArray(response)).isEqualTo(gzippedData);
+        }
+    }
+
+    @Test
+    public void testGetJobStdoutByIdDecompressesGzippedDataIfClientDoesNotAcceptGzip() throws IOException {
+        final byte[] stdoutRawData = TestHelpers.generateRandomBytes();
+        final JobDAO jobDAO = mock(JobDAO.class);
+        when(jobDAO.getStdout(any())).thenReturn(Optional.of(gzippedBinaryData(gzip(stdoutRawData))));
+        final JobResource jobResource = resourceThatUses(jobDAO);
+
+        for (String acceptEncoding : asList(null, "deflate", "gzip;q=0", "gzip;q=0, *")) {
+            when(jobDAO.getStdout(any())).thenReturn(Optional.of(gzippedBinaryData(gzip(stdoutRawData))));
+
+            final Response response = jobResource.fetchJobStdoutById(
+                    TestHelpers.generateSecureSecurityContext(),
+                    TestHelpers.generateJobId(),
+                    null,
+                    acceptEncoding);
+
+            assertThat(response.getHeaderString("Content-Encoding")).isNull();
+            assertThat(response.getHeaderString("Content-Length")).isNull();
+            assertThat(readAsByteArray(response)).isEqualTo(stdoutRawData);
+        }
+    }
+
+    @Test
+    public void testGetJobStdoutByIdSetsTheDecodedContentLengthWhenDecompressingIfItIsKnown() throws IOException {
+        final byte[] stdoutRawData = TestHelpers.generateRandomBytes();
+        final byte[] gzippedData = gzip(stdoutRawData);
+        final JobDAO jobDAO = mock(JobDAO.class);
+        when(jobDAO.getStdout(any())).thenReturn(Optional.of(new BinaryData(
+                new ByteArrayInputStream(gzippedData),
+                gzippedData.length,
+                Constants.DEFAULT_BINARY_MIME_TYPE,
+                Optional.of(Constants.GZIP_CONTENT_ENCODING),
+                stdoutRawData.length)));
+        final JobResource jobResource = resourceThatUses(jobDAO);
+
+        final Response response = jobResource.fetchJobStdoutById(
+                TestHelpers.generateSecureSecurityContext(),
+                TestHelpers.generateJobId(),
+                null,
+                null);
+
+        assertThat(response.getHeaderString("Content-Length")).isEqualTo(Long.toString(stdoutRawData.length));
+        assertThat(readAsByteArray(response)).isEqualTo(stdoutRawData);
+    }
+
+    @Test
+    public void testGetJobStdoutByIdDisablesCompressionIfTheDecompressedDataIsLarge() throws IOException {
+        final byte[] gzippedData = gzip(TestHelpers.generateRandomBytes());
+        final JobDAO jobDAO = mock(JobDAO.class);
+        when(jobDAO.getStdout(any())).thenReturn(Optional.of(new BinaryData(
+                new ByteArrayInputStream(gzippedData),
+                gzippedData.length,
+                Constants.DEFAULT_BINARY_MIME_TYPE,
+                Optional.of(Constants.GZIP_CONTENT_ENCODING),
+                Constants.MAX_JOB_OUTPUT_SIZE_IN_BYTES_BEFORE_DISABLING_COMPRESSION + 1)));
+        final JobResource jobResource = resourceThatUses(jobDAO);
+
+        final Response response = jobResource.fetchJobStdoutById(
+                TestHelpers.generateSecureSecurityContext(),
+                TestHelpers.generateJobId(),
+                null,
+                null);
+
+        assertThat(response.getHeaderString("Content-Encoding")).isEqualTo("identity");
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BinaryData gzippedBinaryData(byte[] gzippedData) {
+        return new BinaryData(
+                new ByteArrayInputStream(gzippedData),
+                gzippedData.length,
+                Constants.DEFAULT_BINARY_MIME_TYPE,
+                Optional.of(Constants.GZIP_CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testGetJobStdoutByIdWithTailServesTheTailFromMemoryIfTheJobIsRunning() {
+        final byte[] heldTail = TestHelpers.generateRandomBytes();
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutTail(any(), anyInt())).thenReturn(Optional.of(heldTail));
+        final JobDAO jobDAO = mock(JobDAO.class);
+        final JobResource jobResource = resourceThatUses(jobManagerEvents, jobDAO);
+
+        final Response response = jobResource.fetchJobStdoutById(
+                TestHelpers.generateSecureSecurityContext(),
+                TestHelpers.generateJobId(),
+                heldTail.length,
+                null);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatusCodes.OK);
+        assertThat(response.getEntity()).isEqualTo(heldTail);
+        verify(jobDAO, never()).getStdout(any());
+    }
+
+    @Test
+    public void testGetJobStdoutByIdWithTailReadsTheTailFromDiskIfItIsNotHeldInMemory() {
+        final byte[] stdoutRawData = TestHelpers.generateRandomBytes();
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutTail(any(), anyInt())).thenReturn(Optional.empty());
+        final JobDAO jobDAO = mock(JobDAO.class);
+        when(jobDAO.getStdout(any())).thenReturn(Optional.of(BinaryData.wrap(stdoutRawData)));
+        final JobResource jobResource = resourceThatUses(jobManagerEvents, jobDAO);
+
+        final Response response = jobResource.fetchJobStdoutById(
+                TestHelpers.generateSecureSecurityContext(),
+                TestHelpers.generateJobId(),
+                3,
+                null);
+
+        assertThat(response.getEntity())
+                .isEqualTo(Arrays.copyOfRange(stdoutRawData, stdoutRawData.length - 3, stdoutRawData.length));
+    }
+
+    @Test
+    public void testGetJobStderrByIdWithTailReadsTheTailOfCompressedDataFromDisk() throws IOException {
+        final byte[] stderrRawData = TestHelpers.generateRandomBytes();
+        final JobDAO jobDAO = mock(JobDAO.class);
+        when(jobDAO.getStderr(any())).thenReturn(Optional.of(gzippedBinaryData(gzip(stderrRawData))));
+        final JobResource jobResource = resourceThatUses(jobDAO);
+
+        final Response response = jobResource.fetchJobStderrById(
+                TestHelpers.generateSecureSecurityContext(),
+                TestHelpers.generateJobId(),
+                stderrRawData.length + 10,
+                "gzip");
+
+        assertThat(response.getEntity()).isEqualTo(stderrRawData);
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void testGetJobStdoutByIdThrowsIfTailIsNegative() {
+        final JobResource jobResource = resourceThatUses(mock(JobManagerEvents.class), mock(JobDAO.class));
+
+        jobResource.fetchJobStdoutById(
+                TestHelpers.generateSecureSecurityContext(),
+                TestHelpers.generateJobId(),
+                -1,
+                null);
+    }
+
+    @Test
+    public void testGetJobStdoutByIdRejectsATailAboveTheMaximumWithoutReadingTheOutput() {
+        final JobDAO jobDAO = mock(JobDAO.class);
+        final JobResource jobResource = resourceThatUses(mock(JobManagerEvents.class), jobDAO);
+
+        try {
+            jobResource.fetchJobStdoutById(
+                    TestHelpers.generateSecureSecurityContext(),
+                    TestHelpers.generateJobId(),
+                    MAX_STDIO_TAIL_IN_BYTES + 1,
+                    null);
+            fail("Tail above the maximum should have been rejected");
+        } catch (WebApplicationException ex) {
+            assertThat(ex.getResponse().getStatus()).isEqualTo(400);
+        }
+
+        verify(jobDAO, never()).getStdout(any());
+    }
+
+    private JobResource resourceThatUses(JobManagerEvents jobManagerEvents, JobDAO jobDAO) {
+        return new JobResource(
+                mock(JobManagerActions.class),
+                jobManagerEvents,
+                jobDAO,
+                mock(JobSpecConfigurationDAO.class),
+                Constants.DEFAULT_PAGE_SIZE,
+                Runnable::run);
+    }
+
     @Test
     public void testFetchJobInputsThrows404IfJobDoesNotExist() {
         final JobDAO jobDAO = mock(JobDAO.class);
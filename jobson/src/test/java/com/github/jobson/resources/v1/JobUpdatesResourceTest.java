@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.resources.v1;
+
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.jobs.JobEventsNoLongerHeldException;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.JobManagerEvents;
+import com.github.jobson.jobs.StdioChunk;
+import com.github.jobson.jobs.StdioTail;
+import com.github.jobson.specs.JobSpecId;
+import com.github.jobson.websockets.v1.JobEvent;
+import com.github.jobson.websockets.v1.SerializedJobEvent;
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.jobson.jobs.JobStatus.RUNNING;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public final class JobUpdatesResourceTest {
+
+    private static Sse createSse() {
+        final Sse sse = mock(Sse.class);
+        when(sse.newEventBuilder()).thenAnswer(invocation -> new OutboundEvent.Builder());
+        return sse;
+    }
+
+    private static SseEventSink createSinkThatRecordsTo(List<OutboundSseEvent> sent) {
+        final SseEventSink sink = mock(SseEventSink.class);
+        when(sink.send(any(OutboundSseEvent.class))).thenAnswer(invocation -> {
+            sent.add((OutboundSseEvent) invocation.getArguments()[0]);
+            return CompletableFuture.completedFuture(null);
+        });
+        return sink;
+    }
+
+    private static SerializedJobEvent createEvent(String jobId, long sequenceNumber) {
+        return SerializedJobEvent.of(new JobEvent(
+                new JobId(jobId), RUNNING, new UserId("someone"), new JobSpecId("spec"), sequenceNumber, "epoch-" + sequenceNumber));
+    }
+
+
+    @Test(expected = NullPointerException.class)
+    public void testCtorThrowsIfJobManagerEventsIsNull() {
+        new JobUpdatesResource(null);
+    }
+
+    @Test
+    public void testStreamJobEventsSendsFilteredEventsWithTheirEventId() {
+        final PublishSubject<SerializedJobEvent> events = PublishSubject.create();
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.serializedJobStatusChanges()).thenReturn(events);
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobEvents(createSse(), createSinkThatRecordsTo(sent), null, singletonList("a"), null, null);
+
+        events.onNext(createEvent("a", 1));
+        events.onNext(createEvent("b", 2));
+        events.onNext(createEvent("a", 3));
+
+        assertThat(sent).extracting(OutboundSseEvent::getId).containsExactly("epoch-1", "epoch-3");
+        assertThat(sent).extracting(OutboundSseEvent::getName).containsOnly(JobUpdatesResource.JOB_EVENT_SSE_NAME);
+    }
+
+    @Test
+    public void testStreamJobEventsResumesFromTheLastEventId() {
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.serializedJobStatusChangesAfter("epoch-5"))
+                .thenReturn(Optional.of(Observable.just(createEvent("a", 6), createEvent("a", 7))));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobEvents(createSse(), createSinkThatRecordsTo(sent), "epoch-5", emptyList(), null, null);
+
+        assertThat(sent).extracting(OutboundSseEvent::getId).containsExactly("epoch-6", "epoch-7");
+    }
+
+    @Test
+    public void testStreamJobEventsSendsAResyncIfTheMissedEventsAreNotHeld() {
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.serializedJobStatusChangesAfter(anyString())).thenReturn(Optional.empty());
+        when(jobManagerEvents.serializedJobStatusChanges()).thenReturn(Observable.just(createEvent("a", 10)));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobEvents(createSse(), createSinkThatRecordsTo(sent), "epoch-5", emptyList(), null, null);
+
+        assertThat(sent).extracting(OutboundSseEvent::getName)
+                .containsExactly(JobUpdatesResource.RESYNC_SSE_NAME, JobUpdatesResource.JOB_EVENT_SSE_NAME);
+    }
+
+    @Test
+    public void testStreamJobEventsSendsAResyncIfTheMissedEventsStopBeingHeldBeforeTheyAreReplayed() {
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.serializedJobStatusChangesAfter("epoch-5"))
+                .thenReturn(Optional.of(Observable.error(new JobEventsNoLongerHeldException("overrun"))));
+        when(jobManagerEvents.serializedJobStatusChanges()).thenReturn(Observable.just(createEvent("a", 10)));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final SseEventSink sink = createSinkThatRecordsTo(sent);
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobEvents(createSse(), sink, "epoch-5", emptyList(), null, null);
+
+        assertThat(sent).extracting(OutboundSseEvent::getName)
+                .containsExactly(JobUpdatesResource.RESYNC_SSE_NAME, JobUpdatesResource.JOB_EVENT_SSE_NAME);
+        assertThat(sent.get(1).getId()).isEqualTo("epoch-10");
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void testStreamJobStdoutThrowsIfTheJobIsNotRunning() {
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong())).thenReturn(Optional.empty());
+
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), createSinkThatRecordsTo(new ArrayList<>()), new JobId("a"), null, null);
+    }
+
+    @Test
+    public void testStreamJobStdoutSendsTheOutputAsTextAndClosesWhenTheJobFinishes() {
+        final PublishSubject<StdioChunk> stdout = PublishSubject.create();
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong())).thenReturn(Optional.of(stdout));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final SseEventSink sink = createSinkThatRecordsTo(sent);
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), sink, new JobId("a"), null, null);
+
+        stdout.onNext(new StdioChunk(0, "some output".getBytes(UTF_8)));
+        stdout.onComplete();
+
+        assertThat(sent).extracting(OutboundSseEvent::getData).containsExactly("some output");
+        verify(sink).close();
+    }
+
+    @Test
+    public void testStreamJobStdoutResumesFromTheOffsetInTheLastEventIdHeader() {
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong())).thenReturn(Optional.of(Observable.empty()));
+
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), createSinkThatRecordsTo(new ArrayList<>()), new JobId("a"), "7", "42");
+
+        verify(jobManagerEvents).stdoutUpdatesFrom(new JobId("a"), 42);
+    }
+
+    @Test
+    public void testStreamJobStdoutStartsFromTheOffsetQueryParam() {
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong())).thenReturn(Optional.of(Observable.empty()));
+
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), createSinkThatRecordsTo(new ArrayList<>()), new JobId("a"), "7", null);
+
+        verify(jobManagerEvents).stdoutUpdatesFrom(new JobId("a"), 7);
+    }
+
+    @Test
+    public void testStreamJobStdoutOnlySendsLiveOutputIfNoOffsetIsGiven() {
+        final StdioTail stdout = new StdioTail(100);
+        stdout.onNext("earlier output".getBytes(UTF_8));
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong()))
+                .thenAnswer(invocation -> Optional.of(stdout.chunksFrom((long) invocation.getArguments()[1])));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), createSinkThatRecordsTo(sent), new JobId("a"), null, null);
+
+        stdout.onNext("live output".getBytes(UTF_8));
+
+        assertThat(sent).extracting(OutboundSseEvent::getData).containsExactly("live output");
+    }
+
+    @Test
+    public void testStreamJobStdoutSendsAGapEventIfTheOutputFromTheOffsetIsNoLongerHeld() {
+        final StdioTail stdout = new StdioTail(4);
+        stdout.onNext("abcdef".getBytes(UTF_8));
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong()))
+                .thenAnswer(invocation -> Optional.of(stdout.chunksFrom((long) invocation.getArguments()[1])));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), createSinkThatRecordsTo(sent), new JobId("a"), null, "1");
+
+        assertThat(sent).extracting(OutboundSseEvent::getName)
+                .containsExactly(JobUpdatesResource.STDIO_GAP_SSE_NAME, JobUpdatesResource.STDOUT_SSE_NAME);
+        assertThat(sent).extracting(OutboundSseEvent::getId).containsExactly("2", "6");
+        assertThat(sent).extracting(OutboundSseEvent::getData).containsExactly("1", "cdef");
+    }
+
+    @Test
+    public void testStreamJobStdoutEventIdsAreTheOffsetOfTheDecodedOutput() {
+        final PublishSubject<StdioChunk> stdout = PublishSubject.create();
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong())).thenReturn(Optional.of(stdout));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), createSinkThatRecordsTo(sent), new JobId("a"), null, null);
+
+        final byte[] eAcute = "\u00e9".getBytes(UTF_8);
+        stdout.onNext(new StdioChunk(0, new byte[]{'a', eAcute[0]}));  // second char split across chunks
+        stdout.onNext(new StdioChunk(2, new byte[]{eAcute[1], 'b'}));
+
+        assertThat(sent).extracting(OutboundSseEvent::getId).containsExactly("1", "4");
+        assertThat(sent).extracting(OutboundSseEvent::getData).containsExactly("a", "\u00e9b");
+    }
+
+    @Test
+    public void testStreamJobStdoutDoesNotPrefixBytesFromBeforeAGapToTheOutputAfterIt() {
+        final PublishSubject<StdioChunk> stdout = PublishSubject.create();
+        final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+        when(jobManagerEvents.stdoutUpdatesFrom(any(), anyLong())).thenReturn(Optional.of(stdout));
+
+        final List<OutboundSseEvent> sent = new ArrayList<>();
+        final JobUpdatesResource resource = new JobUpdatesResource(jobManagerEvents);
+
+        resource.streamJobStdout(createSse(), createSinkThatRecordsTo(sent), new JobId("a"), "0", null);
+
+        final byte[] eAcute = "\u00e9".getBytes(UTF_8);
+        stdout.onNext(new StdioChunk(0, new byte[]{'a', eAcute[0]}));  // rest of the char is in the gap
+        stdout.onNext(StdioChunk.gap(2, 10));
+        stdout.onNext(new StdioChunk(10, "b".getBytes(UTF_8)));
+
+        assertThat(sent).extracting(OutboundSseEvent::getName).containsExactly(
+                JobUpdatesResource.STDOUT_SSE_NAME, JobUpdatesResource.STDIO_GAP_SSE_NAME, JobUpdatesResource.STDOUT_SSE_NAME);
+        assertThat(sent).extracting(OutboundSseEvent::getData).containsExactly("a", "8", "b");
+        assertThat(sent).extracting(OutboundSseEvent::getId).containsExactly("1", "10", "11");
+    }
+}
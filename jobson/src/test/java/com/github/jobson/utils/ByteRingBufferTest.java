@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.utils;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ByteRingBufferTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCtorThrowsIfCapacityIsLessThanOne() {
+        new ByteRingBuffer(0);
+    }
+
+    @Test
+    public void testHoldsEverythingAppendedWhileUnderCapacity() {
+        final ByteRingBuffer buffer = new ByteRingBuffer(8);
+
+        buffer.append(new byte[]{1, 2, 3});
+        buffer.append(new byte[]{4, 5});
+
+        assertThat(buffer.getTotalBytesWritten()).isEqualTo(5);
+        assertThat(buffer.getOldestHeldOffset()).isEqualTo(0);
+        assertThat(buffer.copyFrom(0)).isEqualTo(new byte[]{1, 2, 3, 4, 5});
+        assertThat(buffer.copyFrom(3)).isEqualTo(new byte[]{4, 5});
+    }
+
+    @Test
+    public void testOnlyHoldsTheLastCapacityBytesOnceItWrapsAround() {
+        final ByteRingBuffer buffer = new ByteRingBuffer(4);
+
+        buffer.append(new byte[]{1, 2, 3});
+        buffer.append(new byte[]{4, 5, 6});
+
+        assertThat(buffer.getTotalBytesWritten()).isEqualTo(6);
+        assertThat(buffer.getOldestHeldOffset()).isEqualTo(2);
+        assertThat(buffer.copyFrom(0)).isEqualTo(new byte[]{3, 4, 5, 6});
+        assertThat(buffer.copyFrom(4)).isEqualTo(new byte[]{5, 6});
+    }
+
+    @Test
+    public void testAppendingMoreThanCapacityKeepsTheEndOfTheData() {
+        final ByteRingBuffer buffer = new ByteRingBuffer(3);
+
+        buffer.append(new byte[]{1, 2, 3, 4, 5});
+
+        assertThat(buffer.getTotalBytesWritten()).isEqualTo(5);
+        assertThat(buffer.copyFrom(0)).isEqualTo(new byte[]{3, 4, 5});
+    }
+
+    @Test
+    public void testGrowsStoragePastItsInitialSize() {
+        final ByteRingBuffer buffer = new ByteRingBuffer(10000);
+        final byte[] data = new byte[6000];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+
+        buffer.append(data);
+        buffer.append(data);
+
+        assertThat(buffer.getOldestHeldOffset()).isEqualTo(2000);
+        assertThat(buffer.tail(6000)).isEqualTo(data);
+    }
+
+    @Test
+    public void testTailReturnsTheLastBytes() {
+        final ByteRingBuffer buffer = new ByteRingBuffer(4);
+
+        buffer.append(new byte[]{1, 2, 3, 4, 5});
+
+        assertThat(buffer.tail(2)).isEqualTo(new byte[]{4, 5});
+        assertThat(buffer.tail(10)).isEqualTo(new byte[]{2, 3, 4, 5});
+        assertThat(buffer.tail(0)).isEmpty();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class IncrementalUTF8DecoderTest {
+
+    @Test
+    public void testDecodesWholeChunks() {
+        final IncrementalUTF8Decoder decoder = new IncrementalUTF8Decoder();
+
+        assertThat(decoder.decode("some text\n".getBytes(UTF_8))).isEqualTo("some text\n");
+        assertThat(decoder.decode("more".getBytes(UTF_8))).isEqualTo("more");
+    }
+
+    @Test
+    public void testHoldsBackCharactersSplitAcrossChunks() {
+        final IncrementalUTF8Decoder decoder = new IncrementalUTF8Decoder();
+        final byte[] bytes = "a\u00e9b".getBytes(UTF_8);  // the accent is two bytes
+
+        assertThat(decoder.decode(Arrays.copyOfRange(bytes, 0, 2))).isEqualTo("a");
+        assertThat(decoder.getPendingByteCount()).isEqualTo(1);
+        assertThat(decoder.decode(Arrays.copyOfRange(bytes, 2, bytes.length))).isEqualTo("\u00e9b");
+        assertThat(decoder.getPendingByteCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testResetDiscardsBytesHeldBack() {
+        final IncrementalUTF8Decoder decoder = new IncrementalUTF8Decoder();
+        final byte[] eAcute = "\u00e9".getBytes(UTF_8);
+
+        assertThat(decoder.decode(new byte[] { 'a', eAcute[0] })).isEqualTo("a");
+        decoder.reset();
+
+        assertThat(decoder.getPendingByteCount()).isEqualTo(0);
+        assertThat(decoder.decode("b".getBytes(UTF_8))).isEqualTo("b");
+    }
+
+    @Test
+    public void testReplacesMalformedInput() {
+        final IncrementalUTF8Decoder decoder = new IncrementalUTF8Decoder();
+
+        assertThat(decoder.decode(new byte[] { 'a', (byte) 0xff, 'b' })).isEqualTo("a\uFFFDb");
+    }
+}
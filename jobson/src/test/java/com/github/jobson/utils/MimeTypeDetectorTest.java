@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.jobson.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MimeTypeDetectorTest {
+
+    private static final byte[] PNG_MAGIC = new byte[] { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCtorThrowsIfMaxEntriesIsNegative() {
+        new MimeTypeDetector(-1);
+    }
+
+    @Test
+    public void testDetectUsesTheFileExtension() throws IOException {
+        final Path p = Files.createTempFile(MimeTypeDetectorTest.class.getSimpleName(), ".json");
+        Files.write(p, "{}".getBytes(UTF_8));
+
+        assertThat(new MimeTypeDetector(0).detect(p)).isEqualTo("application/json");
+    }
+
+    @Test
+    public void testDetectFallsBackToTheContentIfTheExtensionIsUnknown() throws IOException {
+        final Path p = Files.createTempFile(MimeTypeDetectorTest.class.getSimpleName(), "");
+        Files.write(p, PNG_MAGIC);
+
+        assertThat(new MimeTypeDetector(0).detect(p)).isEqualTo("image/png");
+    }
+
+    @Test
+    public void testDetectWorksOnEmptyFiles() throws IOException {
+        final Path p = Files.createTempFile(MimeTypeDetectorTest.class.getSimpleName(), "");
+
+        assertThat(new MimeTypeDetector(0).detect(p)).isNotNull();
+    }
+
+    @Test
+    public void testDetectRemembersTypesEstablishedFromTheFileName() throws IOException {
+        final MimeTypeDetector detector = new MimeTypeDetector(10);
+        final Path p = Files.createTempFile(MimeTypeDetectorTest.class.getSimpleName(), ".txt");
+
+        assertThat(detector.detect(p, Optional.of("key"))).isEqualTo("text/plain");
+        assertThat(detector.cacheSize()).isEqualTo(1);
+        assertThat(detector.detect(p, Optional.of("key"))).isEqualTo("text/plain");
+    }
+
+    @Test
+    public void testDetectDoesNotRememberTypesEstablishedFromContent() throws IOException {
+        final MimeTypeDetector detector = new MimeTypeDetector(10);
+        final Path p = Files.createTempFile(MimeTypeDetectorTest.class.getSimpleName(), "");
+        Files.write(p, PNG_MAGIC);
+
+        detector.detect(p, Optional.of("key"));
+
+        assertThat(detector.cacheSize()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.github.jobson.api.v1.UserId;
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.specs.JobSpecId;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.jobson.jobs.JobStatus.RUNNING;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class JobEventFilterTest {
+
+    private static JobEvent eventFor(String jobId, String owner, String specId) {
+        return new JobEvent(new JobId(jobId), RUNNING, new UserId(owner), new JobSpecId(specId));
+    }
+
+
+    @Test
+    public void testAcceptingAllAcceptsEveryEvent() {
+        final JobEventFilter filter = JobEventFilter.acceptingAll();
+
+        assertThat(filter.test(eventFor("a", "someone", "spec"))).isTrue();
+        assertThat(filter.test(new JobEvent(new JobId("b"), RUNNING))).isTrue();
+    }
+
+    @Test
+    public void testEmptyQueryParametersAcceptEveryEvent() {
+        final JobEventFilter filter = JobEventFilter.fromQueryParameters(new HashMap<>());
+
+        assertThat(filter.test(eventFor("a", "someone", "spec"))).isTrue();
+    }
+
+    @Test
+    public void testJobIdsMayBeRepeatedOrCommaSeparated() {
+        final Map<String, List<String>> params = new HashMap<>();
+        params.put(JobEventFilter.JOB_ID_PARAM, asList("a,b", "c"));
+
+        final JobEventFilter filter = JobEventFilter.fromQueryParameters(params);
+
+        assertThat(filter.test(eventFor("a", "someone", "spec"))).isTrue();
+        assertThat(filter.test(eventFor("b", "someone", "spec"))).isTrue();
+        assertThat(filter.test(eventFor("c", "someone", "spec"))).isTrue();
+        assertThat(filter.test(eventFor("d", "someone", "spec"))).isFalse();
+    }
+
+    @Test
+    public void testEveryGivenCriterionMustMatch() {
+        final Map<String, List<String>> params = new HashMap<>();
+        params.put(JobEventFilter.OWNER_PARAM, singletonList("someone"));
+        params.put(JobEventFilter.SPEC_PARAM, singletonList("spec"));
+
+        final JobEventFilter filter = JobEventFilter.fromQueryParameters(params);
+
+        assertThat(filter.test(eventFor("a", "someone", "spec"))).isTrue();
+        assertThat(filter.test(eventFor("a", "someone-else", "spec"))).isFalse();
+        assertThat(filter.test(eventFor("a", "someone", "other-spec"))).isFalse();
+    }
+
+    @Test
+    public void testEventsWithoutAnOwnerDoNotMatchAnOwnerFilter() {
+        final Map<String, List<String>> params = new HashMap<>();
+        params.put(JobEventFilter.OWNER_PARAM, singletonList("someone"));
+
+        final JobEventFilter filter = JobEventFilter.fromQueryParameters(params);
+
+        assertThat(filter.test(new JobEvent(new JobId("a"), RUNNING))).isFalse();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.github.jobson.jobs.JobId;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.github.jobson.websockets.v1.MultiplexedStdioRecord.Stream.STDERR;
+import static com.github.jobson.websockets.v1.MultiplexedStdioRecord.Stream.STDOUT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MultiplexedStdioRecordTest {
+
+    @Test
+    public void testEncodedRecordsDecodeToTheSameRecords() {
+        final List<MultiplexedStdioRecord> records = asList(
+                MultiplexedStdioRecord.data(new JobId("first-job"), STDOUT, "some output".getBytes(UTF_8)),
+                MultiplexedStdioRecord.data(new JobId("second-job"), STDERR, new byte[0]),
+                MultiplexedStdioRecord.ended(new JobId("first-job"), STDOUT),
+                MultiplexedStdioRecord.unavailable(new JobId("third-job"), STDERR));
+
+        assertThat(MultiplexedStdioRecord.decode(MultiplexedStdioRecord.encode(records))).isEqualTo(records);
+    }
+
+    @Test
+    public void testEncodesRecordsInTheDocumentedLayout() {
+        final byte[] frame = MultiplexedStdioRecord.encode(asList(
+                MultiplexedStdioRecord.data(new JobId("ab"), STDERR, new byte[] { 7 })));
+
+        assertThat(frame).isEqualTo(new byte[] {
+                0,              // data
+                1,              // stderr
+                0, 2, 'a', 'b', // job id
+                0, 0, 0, 1, 7   // data
+        });
+    }
+
+    @Test
+    public void testAnEmptyBatchEncodesToAnEmptyFrame() {
+        assertThat(MultiplexedStdioRecord.encode(emptyList())).isEmpty();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.github.jobson.websockets.v1;
+
+import com.github.jobson.jobs.JobId;
+import com.github.jobson.jobs.JobManagerEvents;
+import io.reactivex.subjects.PublishSubject;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.github.jobson.Helpers.toJSON;
+import static com.github.jobson.websockets.v1.MultiplexedStdioRecord.Stream.STDERR;
+import static com.github.jobson.websockets.v1.MultiplexedStdioRecord.Stream.STDOUT;
+import static com.github.jobson.websockets.v1.MultiplexedStdioRequest.Action.SUBSCRIBE;
+import static com.github.jobson.websockets.v1.MultiplexedStdioRequest.Action.UNSUBSCRIBE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public final class MultiplexedStdioSocketTest {
+
+    private static final long BATCH_INTERVAL_IN_MILLISECONDS = 10;
+    private static final long TIMEOUT_IN_MILLISECONDS = 2000;
+    private static final int MAX_SUBSCRIPTIONS = 2;
+
+
+    private static String request(MultiplexedStdioRequest.Action action, String jobId, MultiplexedStdioRecord.Stream stream) {
+        return toJSON(new MultiplexedStdioRequest(action, new JobId(jobId), stream));
+    }
+
+    private static List<MultiplexedStdioRecord> recordsSentTo(RemoteEndpoint remote, int numFrames) throws IOException {
+        final ArgumentCaptor<ByteBuffer> frames = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(remote, timeout(TIMEOUT_IN_MILLISECONDS).atLeast(numFrames)).sendBytes(frames.capture(), any(WriteCallback.class));
+
+        final List<MultiplexedStdioRecord> ret = new ArrayList<>();
+        for (ByteBuffer frame : frames.getAllValues())
+            ret.addAll(MultiplexedStdioRecord.decode(frame.array()));
+        return ret;
+    }
+
+
+    private final RemoteEndpoint remote = mock(RemoteEndpoint.class);
+    private final Session session = mock(Session.class);
+    private final JobManagerEvents jobManagerEvents = mock(JobManagerEvents.class);
+    private final MultiplexedStdioSocket socket =
+            new MultiplexedStdioSocket(jobManagerEvents, BATCH_INTERVAL_IN_MILLISECONDS, 100, MAX_SUBSCRIPTIONS, 1024 * 1024);
+
+    {
+        when(session.getRemote()).thenReturn(remote);
+        socket.onWebSocketConnect(session);
+    }
+
+
+    @Test
+    public void testSubscribingSendsTheJobsOutputTaggedWithTheJobId() throws IOException {
+        final PublishSubject<byte[]> stdout = PublishSubject.create();
+        when(jobManagerEvents.stdoutUpdates(new JobId("some-job"))).thenReturn(Optional.of(stdout));
+
+        socket.onWebSocketText(session, request(SUBSCRIBE, "some-job", STDOUT));
+        stdout.onNext("some output".getBytes(UTF_8));
+
+        assertThat(recordsSentTo(remote, 1)).containsExactly(
+                MultiplexedStdioRecord.data(new JobId("some-job"), STDOUT, "some output".getBytes(UTF_8)));
+    }
+
+    @Test
+    public void testSubscribingToAJobThatIsNotRunningSendsAnUnavailableRecord() throws IOException {
+        when(jobManagerEvents.stderrUpdates(any())).thenReturn(Optional.empty());
+
+        socket.onWebSocketText(session, request(SUBSCRIBE, "some-job", STDERR));
+
+        assertThat(recordsSentTo(remote, 1)).containsExactly(
+                MultiplexedStdioRecord.unavailable(new JobId("some-job"), STDERR));
+    }
+
+    @Test
+    public void testAnEndedRecordIsSentWhenTheJobsStreamEnds() throws IOException {
+        final PublishSubject<byte[]> stdout = PublishSubject.create();
+        when(jobManagerEvents.stdoutUpdates(new JobId("some-job"))).thenReturn(Optional.of(stdout));
+
+        socket.onWebSocketText(session, request(SUBSCRIBE, "some-job", STDOUT));
+        stdout.onComplete();
+
+        assertThat(recordsSentTo(remote, 1)).containsExactly(
+                MultiplexedStdioRecord.ended(new JobId("some-job"), STDOUT));
+        assertThat(socket.subscriptionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testUnsubscribingDisposesTheSubscription() {
+        final PublishSubject<byte[]> stdout = PublishSubject.create();
+        when(jobManagerEvents.stdoutUpdates(new JobId("some-job"))).thenReturn(Optional.of(stdout));
+
+        socket.onWebSocketText(session, request(SUBSCRIBE, "some-job", STDOUT));
+        assertThat(stdout.hasObservers()).isTrue();
+
+        socket.onWebSocketText(session, request(UNSUBSCRIBE, "some-job", STDOUT));
+        assertThat(stdout.hasObservers()).isFalse();
+        assertThat(socket.subscriptionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSubscribingTwiceOnlySubscribesOnce() {
+        final PublishSubject<byte[]> stdout = PublishSubject.create();
+        when(jobManagerEvents.stdoutUpdates(new JobId("some-job"))).thenReturn(Optional.of(stdout));
+
+        socket.onWebSocketText(session, request(SUBSCRIBE, "some-job", STDOUT));
+        socket.onWebSocketText(session, request(SUBSCRIBE, "some-job", STDOUT));
+
+        assertThat(socket.subscriptionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testClosingTheSocketDisposesAllSubscriptions() {
+        final PublishSubject<byte[]> stdout = PublishSubject.create();
+        final PublishSubject<byte[]> stderr = PublishSubject.create();
+        when(jobManagerEvents.stdoutUpdates(any())).thenReturn(Optional.of(stdout));
+        when(jobManagerEvents.stderrUpdates(any())).thenReturn(Optional.of(stderr));
+
+        socket.onWebSocketText(session, request(SUBSCRIBE, "first-job", STDOUT));
+        socket.onWebSocketText(session, request(SUBSCRIBE, "second-job", STDERR));
+
+        socket.onWebSocketClose(session, 1000, "done");
+
+        assertThat(stdout.hasObservers()).isFalse();
+        assertThat(stderr.hasObservers()).isFalse();
+    }
+
+    @Test
+    public void testMalformedRequestsAreIgnored() {
+        socket.onWebSocketText(session, "not json");
+        socket.onWebSocketText(session, "{}");
+
+        assertThat(socket.subscriptionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSubscriptionsBeyondTheMaximumAreRejected() throws IOException {
+        when(jobManagerEvents.stdoutUpdates(any())).thenReturn(Optional.of(PublishSubject.create()));
+
+        for (int i = 0; i < MAX_SUBSCRIPTIONS; i++)
+            socket.onWebSocketText(session, request(SUBSCRIBE, "job-" + i, STDOUT));
+        socket.onWebSocketText(session, request(SUBSCRIBE, "one-too-many", STDOUT));
+
+        assertThat(socket.subscriptionCount()).isEqualTo(MAX_SUBSCRIPTIONS);
+        assertThat(recordsSentTo(remote, 1)).containsExactly(
+                MultiplexedStdioRecord.rejected(new JobId("one-too-many"), STDOUT));
+    }
+
+    @Test
+    public void testRequestsWithJobIdsTooLongToEncodeAreIgnored() {
+        final StringBuilder jobId = new StringBuilder();
+        for (int i = 0; i < 0x10000; i++) jobId.append('a');
+
+        socket.onWebSocketText(session, request(SUBSCRIBE, jobId.toString(), STDOUT));
+
+        verify(jobManagerEvents, never()).stdoutUpdates(any());
+        assertThat(socket.subscriptionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testClientsThatDoNotReadFastEnoughAreDisconnected() {
+        final MultiplexedStdioSocket socketWithSmallBuffer =
+                new MultiplexedStdioSocket(jobManagerEvents, BATCH_INTERVAL_IN_MILLISECONDS, 100, MAX_SUBSCRIPTIONS, 16);
+        socketWithSmallBuffer.onWebSocketConnect(session);
+        final PublishSubject<byte[]> stdout = PublishSubject.create();
+        when(jobManagerEvents.stdoutUpdates(new JobId("some-job"))).thenReturn(Optional.of(stdout));
+
+        socketWithSmallBuffer.onWebSocketText(session, request(SUBSCRIBE, "some-job", STDOUT));
+        // The mock remote never completes a send, so this is never drained
+        stdout.onNext(new byte[64]);
+
+        verify(session, timeout(TIMEOUT_IN_MILLISECONDS)).close(eq(StatusCode.POLICY_VIOLATION), anyString());
+        assertThat(stdout.hasObservers()).isFalse();
+    }
+}